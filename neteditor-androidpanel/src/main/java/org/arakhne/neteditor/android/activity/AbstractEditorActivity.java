@@ -24,6 +24,7 @@ import java.io.File;
 import java.io.FileOutputStream;
 import java.net.URI;
 import java.net.URL;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
@@ -933,11 +934,13 @@ public abstract class AbstractEditorActivity<G extends Graph<?,?,?,?>> extends A
 		protected Void doInBackground(Void... params) {
 			try {
 				FigureView<?> viewer = getFigureView();
+				List<Figure> unlocked = new ArrayList<Figure>(this.figures.length);
 				for(Figure figure : this.figures) {
 					if (!figure.isLocked()) {
-						viewer.removeFigure(figure);
+						unlocked.add(figure);
 					}
 				}
+				viewer.removeFigures(unlocked);
 			}
 			catch (Throwable e) {
 				this.error = e;
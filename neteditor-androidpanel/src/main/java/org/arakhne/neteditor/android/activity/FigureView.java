@@ -24,6 +24,7 @@ import java.lang.ref.SoftReference;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.EventListener;
 import java.util.Iterator;
 import java.util.LinkedList;
@@ -34,6 +35,7 @@ import java.util.Set;
 import java.util.TreeMap;
 import java.util.TreeSet;
 import java.util.UUID;
+import java.util.concurrent.Executor;
 import java.util.concurrent.locks.ReentrantLock;
 
 import org.arakhne.afc.io.filefilter.FileFilter;
@@ -84,6 +86,7 @@ import org.arakhne.neteditor.fig.figure.coercion.CoercedFigure;
 import org.arakhne.neteditor.fig.figure.decoration.DecorationFigure;
 import org.arakhne.neteditor.fig.figure.edge.EdgeFigure;
 import org.arakhne.neteditor.fig.figure.node.NodeFigure;
+import org.arakhne.neteditor.fig.graphics.ImageCache;
 import org.arakhne.neteditor.fig.graphics.ViewGraphics2D;
 import org.arakhne.neteditor.fig.graphics.ViewGraphicsUtil;
 import org.arakhne.neteditor.fig.graphics.ViewGraphicsUtil.Factory;
@@ -98,6 +101,7 @@ import org.arakhne.neteditor.fig.view.ViewComponentContainer;
 import org.arakhne.neteditor.fig.view.ViewComponentLayoutListener;
 import org.arakhne.neteditor.fig.view.ViewComponentPropertyChangeEvent;
 import org.arakhne.neteditor.fig.view.ViewComponentPropertyChangeListener;
+import org.arakhne.neteditor.fig.view.ZOrderedList;
 import org.arakhne.neteditor.formalism.Anchor;
 import org.arakhne.neteditor.formalism.Edge;
 import org.arakhne.neteditor.formalism.Graph;
@@ -113,6 +117,8 @@ import android.content.Context;
 import android.graphics.Canvas;
 import android.graphics.drawable.ColorDrawable;
 import android.graphics.drawable.Drawable;
+import android.os.Handler;
+import android.os.Looper;
 import android.util.AttributeSet;
 import android.util.Log;
 
@@ -135,6 +141,7 @@ public class FigureView<G extends Graph<?,?,?,?>> extends ZoomableView  implemen
 
 	static {
 		ViewGraphicsUtil.setFactory(new ViewGraphicsFactory());
+		ImageCache.getSharedCache().setNotificationExecutor(new MainLooperExecutor());
 	}
 
 	/** Lock resource that may be used for deletion actions.
@@ -143,7 +150,7 @@ public class FigureView<G extends Graph<?,?,?,?>> extends ZoomableView  implemen
 
 	private final UUID viewID = UUID.randomUUID();
 
-	private volatile LinkedList<Figure> figures = new LinkedList<Figure>();
+	private volatile ZOrderedList<Figure> figures = new ZOrderedList<Figure>();
 
 	private SoftReference<Rectangle2f> documentBounds = null;
 
@@ -384,15 +391,13 @@ public class FigureView<G extends Graph<?,?,?,?>> extends ZoomableView  implemen
 						this.graph.removeModelObjectListener(l);
 					}
 				}
-				Iterator<Figure> iterator = this.figures.iterator();
-				Figure fig;
-				while (iterator.hasNext()) {
-					fig = iterator.next();
+				List<Figure> oldFigures = new ArrayList<Figure>(this.figures);
+				this.figures.clear();
+				for(Figure fig : oldFigures) {
 					fig.setViewComponentContainer(null);
 					removeFigureListeners(fig);
-					iterator.remove();
-					fireFigureRemoved(fig);
 				}
+				fireFiguresRemoved(oldFigures);
 				this.graph = g;
 				this.documentBounds = null;
 				if (this.graph!=null) {
@@ -515,8 +520,7 @@ public class FigureView<G extends Graph<?,?,?,?>> extends ZoomableView  implemen
 		int idx = indexOfFigure(figure);
 		if (idx>0) {
 			Figure o = this.figures.get(idx-1);
-			this.figures.set(idx, o);
-			this.figures.set(idx-1, figure);
+			this.figures.swap(idx, idx-1);
 
 			Rectangle2f r = figure.getBounds();
 			r = o.getBounds().createUnion(r);
@@ -533,8 +537,7 @@ public class FigureView<G extends Graph<?,?,?,?>> extends ZoomableView  implemen
 		int idx = indexOfFigure(figure);
 		if (idx>=0 && idx<this.figures.size()-1) {
 			Figure o = this.figures.get(idx+1);
-			this.figures.set(idx, o);
-			this.figures.set(idx+1, figure);
+			this.figures.swap(idx, idx+1);
 
 			Rectangle2f r = figure.getBounds();
 			r = o.getBounds().createUnion(r);
@@ -550,8 +553,7 @@ public class FigureView<G extends Graph<?,?,?,?>> extends ZoomableView  implemen
 	public void moveFigureFront(Figure figure) {
 		int idx = indexOfFigure(figure);
 		if (idx>0) {
-			this.figures.remove(idx);
-			this.figures.add(0, figure);
+			this.figures.move(idx, 0);
 			repaint(figure);
 		}
 	}
@@ -563,8 +565,7 @@ public class FigureView<G extends Graph<?,?,?,?>> extends ZoomableView  implemen
 	public void moveFigureBackground(Figure figure) {
 		int idx = indexOfFigure(figure);
 		if (idx>=0 && idx<this.figures.size()-1) {
-			this.figures.remove(idx);
-			this.figures.add(figure);
+			this.figures.move(idx, this.figures.size()-1);
 			repaint(figure);
 		}
 	}
@@ -582,8 +583,7 @@ public class FigureView<G extends Graph<?,?,?,?>> extends ZoomableView  implemen
 			throw new IllegalArgumentException();
 		int idx = indexOfFigure(figure);
 		if (idx!=index && idx>=0) {
-			this.figures.remove(idx);
-			this.figures.add(index, figure);
+			this.figures.move(idx, index);
 			repaint(figure);
 		}
 		return idx;
@@ -904,6 +904,30 @@ public class FigureView<G extends Graph<?,?,?,?>> extends ZoomableView  implemen
 		}
 	}
 
+	/** Notifies the listeners about the addition of figures.
+	 * By default, this function invokes {@link #fireFigureAdded(Figure)}
+	 * for each added figure.
+	 * 
+	 * @param added
+	 */
+	protected void fireFiguresAdded(Collection<? extends Figure> added) {
+		for(Figure figure : added) {
+			fireFigureAdded(figure);
+		}
+	}
+
+	/** Notifies the listeners about the removal of figures.
+	 * By default, this function invokes {@link #fireFigureRemoved(Figure)}
+	 * for each removed figure.
+	 * 
+	 * @param removed
+	 */
+	protected void fireFiguresRemoved(Collection<? extends Figure> removed) {
+		for(Figure figure : removed) {
+			fireFigureRemoved(figure);
+		}
+	}
+
 	@Override
 	public Object getTreeLock() {
 		return this;
@@ -942,6 +966,11 @@ public class FigureView<G extends Graph<?,?,?,?>> extends ZoomableView  implemen
 		return this.figures.get(index);
 	}
 
+	@Override
+	public List<Figure> getFigureSnapshot() {
+		return this.figures.snapshot();
+	}
+
 	@Override
 	public int addFigure(Figure component) {
 		int position = -1;
@@ -965,11 +994,81 @@ public class FigureView<G extends Graph<?,?,?,?>> extends ZoomableView  implemen
 		return position;
 	}
 
+	@Override
+	public int addFigures(Collection<? extends Figure> components) {
+		List<Figure> added = new ArrayList<Figure>(components.size());
+		for(Figure component : components) {
+			if (component!=null) added.add(component);
+		}
+		if (!added.isEmpty()) {
+			try {
+				this.changeLock.lock();
+				boolean firstComponent = this.figures.isEmpty();
+				this.figures.addAll(0, added);
+				this.documentBounds = null;
+				for(Figure component : added) {
+					component.setViewComponentContainer(this);
+					addFigureListeners(component);
+				}
+				if (firstComponent) setScalingFactor(1);
+				repaint();
+			}
+			finally {
+				this.changeLock.unlock();
+			}
+			fireFiguresAdded(added);
+		}
+		return added.size();
+	}
+
 	@Override
 	public int removeFigure(Figure component) {
 		return removeFigure(component, true);
 	}
 
+	@Override
+	public int removeFigures(Collection<? extends Figure> components) {
+		return removeFigures(components, true);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * The figures are removed in one pass over the collection of figures.
+	 * @see #removeFigures(Collection)
+	 */
+	@Override
+	public int removeFigures(Collection<? extends Figure> components, boolean unlinkToModelObject) {
+		Set<Figure> toRemove = Collections.newSetFromMap(new IdentityHashMap<Figure,Boolean>());
+		for(Figure component : components) {
+			if (component!=null) toRemove.add(component);
+		}
+		List<Figure> removed = new ArrayList<Figure>(toRemove.size());
+		if (!toRemove.isEmpty()) {
+			try {
+				this.changeLock.lock();
+				this.figures.removeAll(toRemove, removed);
+				for(Figure component : removed) {
+					component.setViewComponentContainer(null);
+					removeFigureListeners(component);
+					if (unlinkToModelObject &&
+							component instanceof ModelObjectFigure<?>) {
+						((ModelObjectFigure<?>)component).setModelObject(null);
+					}
+					this.selectionManager.remove(component);
+				}
+				if (!removed.isEmpty()) {
+					this.documentBounds = null;
+					repaint();
+				}
+			}
+			finally {
+				this.changeLock.unlock();
+			}
+			fireFiguresRemoved(removed);
+		}
+		return removed.size();
+	}
+
 	/**
 	 * Remove the specified component.
 	 * 
@@ -1033,7 +1132,7 @@ public class FigureView<G extends Graph<?,?,?,?>> extends ZoomableView  implemen
 			this.changeLock.lock();
 			if (!this.figures.isEmpty()) {
 				oldFigures = this.figures;
-				this.figures = new LinkedList<Figure>();
+				this.figures = new ZOrderedList<Figure>();
 
 				for(Figure fig : oldFigures) {
 					fig.setViewComponentContainer(null);
@@ -1111,6 +1210,9 @@ public class FigureView<G extends Graph<?,?,?,?>> extends ZoomableView  implemen
 			setGraph(graph);
 
 			UUID newViewId = getUUID();
+			// The last set is put in front of the others
+			LinkedList<Figure> addedFigures = new LinkedList<Figure>();
+			List<Figure> replacedFigures = new ArrayList<Figure>();
 
 			for(List<ViewComponent> theSet : figures.values()) {
 				ViewComponent o;
@@ -1140,11 +1242,11 @@ public class FigureView<G extends Graph<?,?,?,?>> extends ZoomableView  implemen
 								ViewBinding binding = mo.getViewBinding();
 								View old = binding.replaceView(oldViewId, newViewId);
 								if (old instanceof Figure && old!=o) {
-									FigureView.this.removeFigure((Figure)old);
+									replacedFigures.add((Figure)old);
 								}
 							}
 						}
-						FigureView.this.addFigure(aFigure);
+						addedFigures.addFirst(aFigure);
 					}
 					else if (o instanceof SubFigure && o instanceof ModelObjectView<?>) {
 						ModelObject mo = ((ModelObjectView<?>)o).getModelObject();
@@ -1158,6 +1260,11 @@ public class FigureView<G extends Graph<?,?,?,?>> extends ZoomableView  implemen
 					}
 				}
 			}
+
+			if (!replacedFigures.isEmpty()) {
+				removeFigures(replacedFigures);
+			}
+			addFigures(addedFigures);
 		}
 		finally {
 			this.changeLock.unlock();
@@ -1191,6 +1298,30 @@ public class FigureView<G extends Graph<?,?,?,?>> extends ZoomableView  implemen
 
 	} // class ViewGraphicsFactory
 
+	/** Executor that is running the tasks on the main thread of the application.
+	 * 
+	 * @author $Author: galland$
+	 * @version $FullVersion$
+	 * @mavengroupid $GroupId$
+	 * @mavenartifactid $ArtifactId$
+	 */
+	private static class MainLooperExecutor implements Executor {
+
+		private final Handler handler = new Handler(Looper.getMainLooper());
+
+		/**
+		 */
+		public MainLooperExecutor() {
+			//
+		}
+
+		@Override
+		public void execute(Runnable command) {
+			this.handler.post(command);
+		}
+
+	} // class MainLooperExecutor
+
 	/**
 	 * @author $Author: galland$
 	 * @version $FullVersion$
@@ -1668,8 +1799,10 @@ public class FigureView<G extends Graph<?,?,?,?>> extends ZoomableView  implemen
 					group.add(removeFigure(deleteModel, disconnectFigureAndModel, figure));
 				}
 
-				for(Figure figure : removeFigures) {
-					group.add(removeFigure(false, false, figure));
+				if (!removeFigures.isEmpty()) {
+					FiguresRemovalUndo undo = new FiguresRemovalUndo(removeFigures);
+					undo.doEdit();
+					group.add(undo);
 				}
 
 				group.end();
@@ -1849,6 +1982,60 @@ public class FigureView<G extends Graph<?,?,?,?>> extends ZoomableView  implemen
 
 	} // class FigureRemovalUndo
 
+	/** 
+	 * @author $Author: galland$
+	 * @version $FullVersion$
+	 * @mavengroupid $GroupId$
+	 * @mavenartifactid $ArtifactId$
+	 */
+	private class FiguresRemovalUndo extends AbstractUndoable {
+
+		private static final long serialVersionUID = -7436227512698432671L;
+
+		/** The removed figures, from front to background.
+		 */
+		private final List<Figure> figures;
+
+		/**
+		 * @param figures are the figures to remove.
+		 */
+		public FiguresRemovalUndo(List<Figure> figures) {
+			this.figures = new ArrayList<Figure>(figures);
+		}
+
+		@Override
+		public void doEdit() {
+			// Keep the z-order of the figures for the undo
+			Set<Figure> set = Collections.newSetFromMap(new IdentityHashMap<Figure,Boolean>());
+			set.addAll(this.figures);
+			this.figures.clear();
+			for(Figure figure : FigureView.this.figures) {
+				if (set.contains(figure)) this.figures.add(figure);
+			}
+			removeFigures(this.figures, true);
+		}
+
+		@Override
+		public void undoEdit() {
+			addFigures(this.figures);
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public final String getPresentationName() {
+			if (this.figures.size()==1) {
+				String txt = this.figures.get(0).toString();
+				if (txt!=null && !txt.isEmpty()) {
+					return Locale.getString(FigureView.class, "UNDO_PRESENTATION_FIGURE_REMOVAL_1", txt); //$NON-NLS-1$
+				}
+			}
+			return Locale.getString(FigureView.class, "UNDO_PRESENTATION_FIGURE_REMOVAL_n"); //$NON-NLS-1$
+		}
+
+	} // class FiguresRemovalUndo
+
 	/** 
 	 * @author $Author: galland$
 	 * @version $FullVersion$
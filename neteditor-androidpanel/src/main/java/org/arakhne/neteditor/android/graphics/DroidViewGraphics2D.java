@@ -20,7 +20,6 @@
  */
 package org.arakhne.neteditor.android.graphics;
 
-import java.util.LinkedList;
 import java.util.NoSuchElementException;
 
 import org.arakhne.afc.ui.android.zoom.DroidZoomableGraphics2D;
@@ -30,6 +29,7 @@ import org.arakhne.afc.math.matrix.Transform2D;
 import org.arakhne.afc.ui.CenteringTransform;
 import org.arakhne.afc.ui.vector.Color;
 import org.arakhne.neteditor.fig.figure.Figure;
+import org.arakhne.neteditor.fig.graphics.RenderingContextStack;
 import org.arakhne.neteditor.fig.graphics.ViewGraphics2D;
 import org.arakhne.neteditor.fig.view.ViewComponentConstants;
 
@@ -46,7 +46,12 @@ import android.graphics.Paint;
  */
 public class DroidViewGraphics2D extends DroidZoomableGraphics2D implements ViewGraphics2D {
 
-	private final LinkedList<GContext> stack = new LinkedList<GContext>();
+	private final RenderingContextStack<GContext> stack = new RenderingContextStack<GContext>() {
+		@Override
+		protected GContext createFrame() {
+			return new GContext();
+		}
+	};
 
 	/**
 	 * @param canvas
@@ -117,10 +122,10 @@ public class DroidViewGraphics2D extends DroidZoomableGraphics2D implements View
 	 * @return the top figure.
 	 */
 	protected Figure getTopFigure() {
-		if (!this.stack.isEmpty()) {
-			for(GContext c : this.stack) {
-				if (c.component!=null) return c.component;
-			}
+		GContext c;
+		for(int i=0; i<this.stack.size(); ++i) {
+			c = this.stack.get(i);
+			if (c.component!=null) return c.component;
 		}
 		return null;
 	}
@@ -135,21 +140,21 @@ public class DroidViewGraphics2D extends DroidZoomableGraphics2D implements View
 
 	@Override
 	public Rectangle2f getCurrentViewComponentBounds() {
-		if (!this.stack.isEmpty()) {
-			for(GContext c : this.stack) {
-				if (c.bounds!=null) return c.bounds;
-			}
+		GContext c;
+		for(int i=0; i<this.stack.size(); ++i) {
+			c = this.stack.get(i);
+			if (c.bounds!=null) return c.bounds;
 		}
 		throw new NoSuchElementException();
 	}
 
 	@Override
 	public Shape2f getCurrentViewComponentShape() {
-		if (!this.stack.isEmpty()) {
-			for(GContext c : this.stack) {
-				if (c.bounds!=null && c.shape==null) return c.bounds;
-				if (c.shape!=null) return c.shape;
-			}
+		GContext c;
+		for(int i=0; i<this.stack.size(); ++i) {
+			c = this.stack.get(i);
+			if (c.bounds!=null && c.shape==null) return c.bounds;
+			if (c.shape!=null) return c.shape;
 		}
 		throw new NoSuchElementException();
 	}
@@ -213,14 +218,19 @@ public class DroidViewGraphics2D extends DroidZoomableGraphics2D implements View
 		}
 		if (lc!=null) setOutlineColor(lc);
 
-		this.stack.push(new GContext(
-				component, viewShape, bounds,
-				ofc, olc,
-				new Paint(this.fillPainter),
-				new Paint(this.linePainter),
-				new Paint(this.fontPainter),
-				isInteriorPainted(),
-				isOutlineDrawn()));
+		// The painters are copied into the painters of the frame,
+		// which are allocated once and reused by the next pushes.
+		GContext context = this.stack.push();
+		context.component = component;
+		context.shape = viewShape;
+		context.bounds = bounds;
+		context.fillColor = ofc;
+		context.lineColor = olc;
+		context.fillPainter.set(this.fillPainter);
+		context.linePainter.set(this.linePainter);
+		context.fontPainter.set(this.fontPainter);
+		context.isFilled = isInteriorPainted();
+		context.isOutlined = isOutlineDrawn();
 	}
 
 	@Override
@@ -235,15 +245,9 @@ public class DroidViewGraphics2D extends DroidZoomableGraphics2D implements View
 			if (c.lineColor!=null) {
 				setOutlineColor(c.lineColor);
 			}
-			if (c.fillPainter!=null) {
-				this.fillPainter = c.fillPainter;
-			}
-			if (c.linePainter!=null) {
-				this.linePainter = c.linePainter;
-			}
-			if (c.fontPainter!=null) {
-				this.fontPainter = c.fontPainter;
-			}
+			this.fillPainter.set(c.fillPainter);
+			this.linePainter.set(c.linePainter);
+			this.fontPainter.set(c.fontPainter);
 			setOutlineDrawn(c.isOutlined);
 			setInteriorPainted(c.isFilled);
 		}
@@ -272,45 +276,38 @@ public class DroidViewGraphics2D extends DroidZoomableGraphics2D implements View
 	 * @mavengroupid $GroupId$
 	 * @mavenartifactid $ArtifactId$
 	 */
-	private static class GContext {
-
-		public final Figure component;
-		public final Shape2f shape;
-		public final Rectangle2f bounds;
-		public final Color fillColor;
-		public final Color lineColor;
-		public final Paint fillPainter;
-		public final Paint linePainter;
-		public final Paint fontPainter;
-		public final boolean isFilled;
-		public final boolean isOutlined;
+	private static class GContext implements RenderingContextStack.Frame {
+
+		public Figure component;
+		public Shape2f shape;
+		public Rectangle2f bounds;
+		public Color fillColor;
+		public Color lineColor;
+		public final Paint fillPainter = new Paint();
+		public final Paint linePainter = new Paint();
+		public final Paint fontPainter = new Paint();
+		public boolean isFilled;
+		public boolean isOutlined;
+
+		/**
+		 */
+		public GContext() {
+			//
+		}
 
 		/**
-		 * @param component
-		 * @param shape
-		 * @param bounds
-		 * @param fillColor
-		 * @param lineColor
-		 * @param fillPainter
-		 * @param linePainter
-		 * @param fontPainter
-		 * @param isFilled
-		 * @param isOutlined
+		 * {@inheritDoc}
 		 */
-		public GContext(Figure component, Shape2f shape, Rectangle2f bounds,
-				Color fillColor, Color lineColor,
-				Paint fillPainter, Paint linePainter, Paint fontPainter,
-				boolean isFilled, boolean isOutlined) {
-			this.component = component;
-			this.shape = shape;
-			this.bounds = bounds;
-			this.fillColor = fillColor;
-			this.lineColor = lineColor;
-			this.fillPainter = fillPainter;
-			this.linePainter = linePainter;
-			this.fontPainter = fontPainter;
-			this.isFilled = isFilled;
-			this.isOutlined = isOutlined;
+		@Override
+		public void clear() {
+			this.component = null;
+			this.shape = null;
+			this.bounds = null;
+			this.fillColor = null;
+			this.lineColor = null;
+			this.fillPainter.reset();
+			this.linePainter.reset();
+			this.fontPainter.reset();
 		}
 
 	}
@@ -90,6 +90,28 @@ public abstract class AbstractFigureFactory<G extends Graph<?,?,?,?>> implements
 		}
 		return true;
 	}
+
+	/** Replies a free area near the given point, as given
+	 * by the collision avoiders that are also {@link FreeSpaceLocator}.
+	 * 
+	 * @param width is the width of the area.
+	 * @param height is the height of the area.
+	 * @param x is the preferred x coordinate of the center of the area.
+	 * @param y is the preferred y coordinate of the center of the area.
+	 * @return the free area, or <code>null</code> if none was found.
+	 */
+	private synchronized Rectangle2f findFreeSpace(float width, float height, float x, float y) {
+		Rectangle2f bounds;
+		for(CollisionAvoider avoider : this.collisionAvoiders) {
+			if (avoider instanceof FreeSpaceLocator) {
+				bounds = ((FreeSpaceLocator)avoider).findFreeSpace(width, height, x, y);
+				if (bounds!=null && isValidBounds(bounds)) {
+					return bounds;
+				}
+			}
+		}
+		return null;
+	}
 	
 	/** {@inheritDoc}
 	 */
@@ -118,6 +140,16 @@ public abstract class AbstractFigureFactory<G extends Graph<?,?,?,?>> implements
 		Rectangle2f nodeBounds = new Rectangle2f();
 		if (documentRect!=null) {
 			Dimension dim = getPreferredNodeSize(node);
+
+			Rectangle2f freeSpace = findFreeSpace(
+					dim.width(), dim.height(),
+					documentRect.getCenterX(), documentRect.getCenterY());
+			if (freeSpace!=null) {
+				return createFigureFor(viewID, graph, node,
+						(float)Math.rint(freeSpace.getMinX()),
+						(float)Math.rint(freeSpace.getMinY()));
+			}
+
 			float w = (documentRect.getWidth() + 3f * dim.width());
 			float h = (documentRect.getHeight() + 3f * dim.height());
 			float x0 = (documentRect.getMinX() - 1.5f * dim.width());
@@ -0,0 +1,246 @@
+/* 
+ * $Id$
+ * 
+ * Copyright (C) 2013 Stephane GALLAND.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ * This program is free software; you can redistribute it and/or modify
+ */
+package org.arakhne.neteditor.fig.factory ;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+import org.arakhne.afc.math.continous.object2d.Rectangle2f;
+
+/** Engine that is moving objects out of the collisions
+ * with the other objects of an {@link OccupancyGrid}.
+ * <p>
+ * The displacement of an object is the smallest translation,
+ * among the translations that are putting the object side by side
+ * with one of the objects in collision, that is leading to a free
+ * area. The translations are tested from the smallest to the largest;
+ * the objects in collision with a tested area are retreived from
+ * the grid with one query, and they are providing new translations
+ * to test. If no free area was found after {@link #getMaxTries()}
+ * tests, the object is moved to the nearest free cell of the grid.
+ *
+ * @param <T> is the type of the objects.
+ * @author $Author: galland$
+ * @version $FullVersion$
+ * @mavengroupid $GroupId$
+ * @mavenartifactid $ArtifactId$
+ */
+public class CollisionResolver<T> {
+
+	/** Default maximal number of translations that are tested for an object.
+	 */
+	public static final int DEFAULT_MAX_TRIES = 256;
+
+	/** Space between an object and the objects it was moved
+	 * away from.
+	 */
+	private static final float GAP = 1f;
+
+	private final OccupancyGrid<T> grid;
+	private int maxTries = DEFAULT_MAX_TRIES;
+
+	/**
+	 * @param grid is the grid that contains the objects.
+	 */
+	public CollisionResolver(OccupancyGrid<T> grid) {
+		this.grid = grid;
+	}
+
+	/** Replies the grid that contains the objects.
+	 * 
+	 * @return the grid.
+	 */
+	public OccupancyGrid<T> getGrid() {
+		return this.grid;
+	}
+
+	/** Replies the maximal number of translations that are tested for an object.
+	 * 
+	 * @return the maximal number of tests.
+	 */
+	public int getMaxTries() {
+		return this.maxTries;
+	}
+
+	/** Set the maximal number of translations that are tested for an object.
+	 * 
+	 * @param tries is the maximal number of tests.
+	 */
+	public void setMaxTries(int tries) {
+		this.maxTries = Math.max(1, tries);
+	}
+
+	/** Replies the bounds of the given object, translated to be
+	 * free of collision with the other objects of the grid.
+	 * 
+	 * @param object is the object to move. It may be inside the grid or not.
+	 * @param bounds are the bounds of the object.
+	 * @return the given bounds if they are free of collision; or the
+	 * translated bounds.
+	 */
+	public Rectangle2f resolve(T object, Rectangle2f bounds) {
+		if (bounds==null || bounds.isEmpty()) return bounds;
+		Set<T> myself = Collections.singleton(object);
+		List<T> colliding = this.grid.getIntersectingObjects(bounds, myself);
+		if (colliding.isEmpty()) return bounds;
+
+		PriorityQueue<Translation> queue = new PriorityQueue<Translation>();
+		Set<Translation> known = new HashSet<Translation>();
+		addTranslations(queue, known, bounds, colliding, 0f, 0f);
+
+		Rectangle2f candidate = new Rectangle2f();
+		Translation translation;
+		int tries = 0;
+		while (!queue.isEmpty() && tries<this.maxTries) {
+			translation = queue.poll();
+			++tries;
+			candidate.set(
+					bounds.getMinX() + translation.dx,
+					bounds.getMinY() + translation.dy,
+					bounds.getWidth(),
+					bounds.getHeight());
+			colliding = this.grid.getIntersectingObjects(candidate, myself);
+			if (colliding.isEmpty()) {
+				return candidate;
+			}
+			addTranslations(queue, known, bounds, colliding,
+					translation.dx, translation.dy);
+		}
+
+		Rectangle2f free = this.grid.findFreeSpace(
+				bounds.getWidth(), bounds.getHeight(),
+				bounds.getCenterX(), bounds.getCenterY());
+		return (free==null) ? bounds : free;
+	}
+
+	/** Move the given objects out of the collisions,
+	 * eg. after they were pasted or laid out.
+	 * <p>
+	 * The objects are moved one after the other, in the order
+	 * of the collection; each moved object is updated in the grid
+	 * before the next one is resolved. The objects in the collection
+	 * must be inside the grid.
+	 * 
+	 * @param objects are the objects to move.
+	 * @return the new bounds of the moved objects.
+	 */
+	public Map<T,Rectangle2f> resolveAll(Collection<? extends T> objects) {
+		Map<T,Rectangle2f> moved = new IdentityHashMap<T,Rectangle2f>();
+		Rectangle2f bounds, resolved;
+		for(T object : objects) {
+			bounds = this.grid.getBounds(object);
+			if (bounds!=null) {
+				resolved = resolve(object, bounds);
+				if (resolved!=bounds) {
+					this.grid.put(object, resolved);
+					moved.put(object, resolved);
+				}
+			}
+		}
+		return moved;
+	}
+
+	/** Add the translations that are putting the area side by side
+	 * with each of the given objects, starting from the given translation.
+	 */
+	private void addTranslations(PriorityQueue<Translation> queue, Set<Translation> known,
+			Rectangle2f bounds, List<T> colliding, float dx, float dy) {
+		Rectangle2f r;
+		for(T object : colliding) {
+			r = this.grid.getBounds(object);
+			if (r!=null) {
+				addTranslation(queue, known, r.getMaxX() - bounds.getMinX() + GAP, dy);
+				addTranslation(queue, known, r.getMinX() - bounds.getMaxX() - GAP, dy);
+				addTranslation(queue, known, dx, r.getMaxY() - bounds.getMinY() + GAP);
+				addTranslation(queue, known, dx, r.getMinY() - bounds.getMaxY() - GAP);
+			}
+		}
+	}
+
+	private static void addTranslation(PriorityQueue<Translation> queue, Set<Translation> known,
+			float dx, float dy) {
+		Translation t = new Translation(dx, dy);
+		if (known.add(t)) {
+			queue.add(t);
+		}
+	}
+
+	/** Translation of an object.
+	 *
+	 * @author $Author: galland$
+	 * @version $FullVersion$
+	 * @mavengroupid $GroupId$
+	 * @mavenartifactid $ArtifactId$
+	 */
+	private static class Translation implements Comparable<Translation> {
+
+		public final float dx;
+		public final float dy;
+		private final float length;
+
+		/**
+		 * @param dx
+		 * @param dy
+		 */
+		public Translation(float dx, float dy) {
+			this.dx = dx;
+			this.dy = dy;
+			this.length = dx*dx + dy*dy;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public int compareTo(Translation o) {
+			return Float.compare(this.length, o.length);
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public boolean equals(Object obj) {
+			if (obj instanceof Translation) {
+				Translation t = (Translation)obj;
+				return Float.floatToIntBits(this.dx)==Float.floatToIntBits(t.dx)
+						&& Float.floatToIntBits(this.dy)==Float.floatToIntBits(t.dy);
+			}
+			return false;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public int hashCode() {
+			return 31 * Float.floatToIntBits(this.dx) + Float.floatToIntBits(this.dy);
+		}
+
+	}
+
+}
@@ -0,0 +1,52 @@
+/* 
+ * $Id$
+ * 
+ * Copyright (C) 2013 Stephane GALLAND.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ * This program is free software; you can redistribute it and/or modify
+ */
+package org.arakhne.neteditor.fig.factory ;
+
+import org.arakhne.afc.math.continous.object2d.Rectangle2f;
+
+/** This interface represents an object that is able
+ * to find a free area in a view.
+ * It is used by the {@link FigureFactory} to place the
+ * new figures without testing random positions.
+ * <p>
+ * The {@link CollisionAvoider collision avoiders} that are
+ * implementing this interface are queried before the
+ * random placement of the figures.
+ *
+ * @author $Author: galland$
+ * @version $FullVersion$
+ * @mavengroupid $GroupId$
+ * @mavenartifactid $ArtifactId$
+ */
+public interface FreeSpaceLocator {
+
+	/** Replies an area of the given size that is free of
+	 * collision and that is near the given point.
+	 * 
+	 * @param width is the width of the area.
+	 * @param height is the height of the area.
+	 * @param x is the preferred x coordinate of the center of the area.
+	 * @param y is the preferred y coordinate of the center of the area.
+	 * @return the free area, or <code>null</code> if none was found.
+	 */
+	public Rectangle2f findFreeSpace(float width, float height, float x, float y);
+
+}
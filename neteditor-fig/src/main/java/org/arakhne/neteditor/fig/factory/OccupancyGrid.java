@@ -0,0 +1,427 @@
+/* 
+ * $Id$
+ * 
+ * Copyright (C) 2013 Stephane GALLAND.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ * This program is free software; you can redistribute it and/or modify
+ */
+package org.arakhne.neteditor.fig.factory ;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.arakhne.afc.math.continous.object2d.Rectangle2f;
+
+/** Grid that stores the areas occupied by objects.
+ * <p>
+ * The plane is divided into square cells. Each object
+ * is stored in the cells that are covered by its bounds,
+ * so that the objects near an area are retreived without
+ * scanning all the objects. The grid is updated each time
+ * an object is added, moved or removed.
+ * <p>
+ * The grid is also able to find a free area near a point
+ * by testing the cells around this point, ring by ring.
+ * Because the cells outside the occupied part of the plane
+ * are free, the search always terminates.
+ *
+ * @param <T> is the type of the stored objects.
+ * @author $Author: galland$
+ * @version $FullVersion$
+ * @mavengroupid $GroupId$
+ * @mavenartifactid $ArtifactId$
+ */
+public class OccupancyGrid<T> implements FreeSpaceLocator {
+
+	/** Default size of the cells.
+	 */
+	public static final float DEFAULT_CELL_SIZE = 64f;
+
+	/** Maximal number of cells that are covered by an object.
+	 * The objects that are covering more cells are stored
+	 * outside the cells, and they are tested by all the queries.
+	 */
+	private static final int MAX_CELLS_PER_OBJECT = 4096;
+
+	private final float cellSize;
+	private final Map<Long,List<T>> cells = new HashMap<Long,List<T>>();
+	private final Map<T,Rectangle2f> objects = new IdentityHashMap<T,Rectangle2f>();
+	private final List<T> largeObjects = new ArrayList<T>();
+
+	// Cells that are covering all the objects
+	private int minCellX = 0;
+	private int minCellY = 0;
+	private int maxCellX = -1;
+	private int maxCellY = -1;
+
+	// Last successful search of a free area. The rings
+	// that are inside the hint radius are full, until
+	// an object is removed or moved.
+	private int hintCellX = 0;
+	private int hintCellY = 0;
+	private float hintWidth = Float.NaN;
+	private float hintHeight = Float.NaN;
+	private int hintRadius = 0;
+
+	/**
+	 */
+	public OccupancyGrid() {
+		this(DEFAULT_CELL_SIZE);
+	}
+
+	/**
+	 * @param cellSize is the size of the cells.
+	 */
+	public OccupancyGrid(float cellSize) {
+		this.cellSize = (cellSize>0f) ? cellSize : DEFAULT_CELL_SIZE;
+	}
+
+	/** Replies the size of the cells.
+	 * 
+	 * @return the size of the cells.
+	 */
+	public float getCellSize() {
+		return this.cellSize;
+	}
+
+	/** Replies the number of objects in the grid.
+	 * 
+	 * @return the number of objects.
+	 */
+	public synchronized int size() {
+		return this.objects.size();
+	}
+
+	/** Replies if the given object is in the grid.
+	 * 
+	 * @param object
+	 * @return <code>true</code> if the object is in the grid;
+	 * otherwise <code>false</code>.
+	 */
+	public synchronized boolean contains(T object) {
+		return this.objects.containsKey(object);
+	}
+
+	/** Replies the bounds of the given object that are
+	 * stored in the grid.
+	 * 
+	 * @param object
+	 * @return the bounds, or <code>null</code> if the object is not in the grid.
+	 */
+	public synchronized Rectangle2f getBounds(T object) {
+		Rectangle2f r = this.objects.get(object);
+		return (r==null) ? null : r.clone();
+	}
+
+	private int cell(float coordinate) {
+		return (int)Math.floor(coordinate / this.cellSize);
+	}
+
+	private static Long key(int x, int y) {
+		return Long.valueOf((((long)x) << 32) | (y & 0xFFFFFFFFL));
+	}
+
+	/** Add an object in the grid, or update its bounds
+	 * if it is already inside the grid.
+	 * An object with empty bounds is in the grid,
+	 * but it is not occupying any cell.
+	 * 
+	 * @param object
+	 * @param bounds are the bounds of the object.
+	 */
+	public synchronized void put(T object, Rectangle2f bounds) {
+		remove(object);
+		if (bounds==null || bounds.isEmpty()) {
+			this.objects.put(object, null);
+		}
+		else {
+			Rectangle2f r = bounds.clone();
+			this.objects.put(object, r);
+			int x0 = cell(r.getMinX());
+			int y0 = cell(r.getMinY());
+			int x1 = cell(r.getMaxX());
+			int y1 = cell(r.getMaxY());
+			if (((long)(x1-x0+1))*(y1-y0+1) > MAX_CELLS_PER_OBJECT) {
+				this.largeObjects.add(object);
+			}
+			else {
+				Long k;
+				List<T> list;
+				for(int x=x0; x<=x1; ++x) {
+					for(int y=y0; y<=y1; ++y) {
+						k = key(x, y);
+						list = this.cells.get(k);
+						if (list==null) {
+							list = new ArrayList<T>(2);
+							this.cells.put(k, list);
+						}
+						list.add(object);
+					}
+				}
+			}
+			if (this.maxCellX<this.minCellX) {
+				this.minCellX = x0;
+				this.minCellY = y0;
+				this.maxCellX = x1;
+				this.maxCellY = y1;
+			}
+			else {
+				this.minCellX = Math.min(this.minCellX, x0);
+				this.minCellY = Math.min(this.minCellY, y0);
+				this.maxCellX = Math.max(this.maxCellX, x1);
+				this.maxCellY = Math.max(this.maxCellY, y1);
+			}
+		}
+	}
+
+	/** Remove an object from the grid.
+	 * 
+	 * @param object
+	 * @return <code>true</code> if the object was removed;
+	 * <code>false</code> if the object is not in the grid.
+	 */
+	public synchronized boolean remove(T object) {
+		if (!this.objects.containsKey(object)) return false;
+		Rectangle2f r = this.objects.remove(object);
+		if (r!=null && !removeIdentity(this.largeObjects, object)) {
+			int x0 = cell(r.getMinX());
+			int y0 = cell(r.getMinY());
+			int x1 = cell(r.getMaxX());
+			int y1 = cell(r.getMaxY());
+			Long k;
+			List<T> list;
+			for(int x=x0; x<=x1; ++x) {
+				for(int y=y0; y<=y1; ++y) {
+					k = key(x, y);
+					list = this.cells.get(k);
+					if (list!=null) {
+						removeIdentity(list, object);
+						if (list.isEmpty()) this.cells.remove(k);
+					}
+				}
+			}
+		}
+		if (this.objects.isEmpty()) {
+			resetExtent();
+		}
+		// Some space may have been freed inside the rings
+		this.hintRadius = 0;
+		return true;
+	}
+
+	/** Remove all the objects from the grid.
+	 */
+	public synchronized void clear() {
+		this.objects.clear();
+		this.cells.clear();
+		this.largeObjects.clear();
+		resetExtent();
+		this.hintRadius = 0;
+	}
+
+	private void resetExtent() {
+		this.minCellX = 0;
+		this.minCellY = 0;
+		this.maxCellX = -1;
+		this.maxCellY = -1;
+	}
+
+	private static <T> boolean removeIdentity(List<T> list, T object) {
+		Iterator<T> iterator = list.iterator();
+		while (iterator.hasNext()) {
+			if (iterator.next()==object) {
+				iterator.remove();
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/** Replies an object that is intersecting the given area.
+	 * 
+	 * @param area
+	 * @param exceptions are the objects to ignore.
+	 * @return an object that is intersecting the area,
+	 * or <code>null</code> if the area is free.
+	 */
+	public synchronized T getIntersectingObject(Rectangle2f area, Set<?> exceptions) {
+		if (area==null || this.objects.isEmpty()) return null;
+		for(T object : this.largeObjects) {
+			if (!exceptions.contains(object)
+				&& this.objects.get(object).intersects(area)) {
+				return object;
+			}
+		}
+		int x0 = Math.max(this.minCellX, cell(area.getMinX()));
+		int y0 = Math.max(this.minCellY, cell(area.getMinY()));
+		int x1 = Math.min(this.maxCellX, cell(area.getMaxX()));
+		int y1 = Math.min(this.maxCellY, cell(area.getMaxY()));
+		List<T> list;
+		for(int x=x0; x<=x1; ++x) {
+			for(int y=y0; y<=y1; ++y) {
+				list = this.cells.get(key(x, y));
+				if (list!=null) {
+					for(T object : list) {
+						if (!exceptions.contains(object)
+							&& this.objects.get(object).intersects(area)) {
+							return object;
+						}
+					}
+				}
+			}
+		}
+		return null;
+	}
+
+	/** Replies all the objects that are intersecting the given area.
+	 * 
+	 * @param area
+	 * @param exceptions are the objects to ignore.
+	 * @return the objects that are intersecting the area, each of them once.
+	 */
+	public synchronized List<T> getIntersectingObjects(Rectangle2f area, Set<?> exceptions) {
+		List<T> result = new ArrayList<T>();
+		if (area==null || this.objects.isEmpty()) return result;
+		for(T object : this.largeObjects) {
+			if (!exceptions.contains(object)
+				&& this.objects.get(object).intersects(area)) {
+				result.add(object);
+			}
+		}
+		int x0 = Math.max(this.minCellX, cell(area.getMinX()));
+		int y0 = Math.max(this.minCellY, cell(area.getMinY()));
+		int x1 = Math.min(this.maxCellX, cell(area.getMaxX()));
+		int y1 = Math.min(this.maxCellY, cell(area.getMaxY()));
+		// The objects are covering several cells
+		Set<T> found = null;
+		if (x1>x0 || y1>y0) {
+			found = Collections.newSetFromMap(new IdentityHashMap<T,Boolean>());
+		}
+		List<T> list;
+		for(int x=x0; x<=x1; ++x) {
+			for(int y=y0; y<=y1; ++y) {
+				list = this.cells.get(key(x, y));
+				if (list!=null) {
+					for(T object : list) {
+						if ((found==null || found.add(object))
+							&& !exceptions.contains(object)
+							&& this.objects.get(object).intersects(area)) {
+							result.add(object);
+						}
+					}
+				}
+			}
+		}
+		return result;
+	}
+
+	/** Replies if the given area is free.
+	 * 
+	 * @param area
+	 * @param exceptions are the objects to ignore.
+	 * @return <code>true</code> if no object is intersecting the area;
+	 * otherwise <code>false</code>.
+	 */
+	public synchronized boolean isFree(Rectangle2f area, Set<?> exceptions) {
+		return getIntersectingObject(area, exceptions)==null;
+	}
+
+	/** {@inheritDoc}
+	 * <p>
+	 * The area is centered on the given point if it is free.
+	 * Otherwise, the area is centered on a cell of the grid;
+	 * the cells are tested ring by ring around the cell of the
+	 * point, and the free area that is the nearest to the
+	 * point in the first ring with a free area is replied.
+	 */
+	@Override
+	public synchronized Rectangle2f findFreeSpace(float width, float height, float x, float y) {
+		Set<T> none = Collections.emptySet();
+		Rectangle2f candidate = new Rectangle2f(x - width/2f, y - height/2f, width, height);
+		if (isFree(candidate, none)) return candidate;
+
+		int cx = cell(x);
+		int cy = cell(y);
+
+		// Beyond this radius, the candidate areas are outside the occupied cells
+		int margin = (int)Math.ceil(Math.max(width, height) / this.cellSize) + 1;
+		int maxRadius = Math.max(
+				Math.max(Math.abs(cx-this.minCellX), Math.abs(cx-this.maxCellX)),
+				Math.max(Math.abs(cy-this.minCellY), Math.abs(cy-this.maxCellY))) + margin;
+
+		int radius = 0;
+		if (cx==this.hintCellX && cy==this.hintCellY
+			&& width==this.hintWidth && height==this.hintHeight) {
+			radius = this.hintRadius;
+		}
+
+		Rectangle2f best;
+		for(; radius<=maxRadius; ++radius) {
+			best = null;
+			if (radius==0) {
+				best = testCell(cx, cy, width, height, x, y, null, none);
+			}
+			else {
+				for(int i=cx-radius; i<=cx+radius; ++i) {
+					best = testCell(i, cy-radius, width, height, x, y, best, none);
+					best = testCell(i, cy+radius, width, height, x, y, best, none);
+				}
+				for(int j=cy-radius+1; j<cy+radius; ++j) {
+					best = testCell(cx-radius, j, width, height, x, y, best, none);
+					best = testCell(cx+radius, j, width, height, x, y, best, none);
+				}
+			}
+			if (best!=null) {
+				this.hintCellX = cx;
+				this.hintCellY = cy;
+				this.hintWidth = width;
+				this.hintHeight = height;
+				this.hintRadius = radius;
+				return best;
+			}
+		}
+		return null;
+	}
+
+	/** Test if the area centered on the given cell is free,
+	 * and reply the nearest free area between this area and
+	 * the current best area.
+	 */
+	private Rectangle2f testCell(int cellX, int cellY, float width, float height,
+			float x, float y, Rectangle2f currentBest, Set<T> none) {
+		float centerX = (cellX + .5f) * this.cellSize;
+		float centerY = (cellY + .5f) * this.cellSize;
+		if (currentBest!=null) {
+			float dx = currentBest.getCenterX() - x;
+			float dy = currentBest.getCenterY() - y;
+			float ex = centerX - x;
+			float ey = centerY - y;
+			if (ex*ex+ey*ey >= dx*dx+dy*dy) return currentBest;
+		}
+		Rectangle2f candidate = new Rectangle2f(
+				centerX - width/2f, centerY - height/2f,
+				width, height);
+		if (isFree(candidate, none)) return candidate;
+		return currentBest;
+	}
+
+}
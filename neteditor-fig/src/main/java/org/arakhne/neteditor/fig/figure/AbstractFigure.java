@@ -418,4 +418,20 @@ public abstract class AbstractFigure extends AbstractViewComponent implements Fi
 		}
 	}
 
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * The subfigures are painted with this figure; so that
+	 * the version of this figure is the most recent of its
+	 * own version and of the versions of its subfigures.
+	 */
+	@Override
+	public long getVersion() {
+		long version = super.getVersion();
+		for(SubFigure subFigure : getSubFigures()) {
+			version = Math.max(version, subFigure.getVersion());
+		}
+		return version;
+	}
+
 }
@@ -0,0 +1,275 @@
+/* 
+ * $Id$
+ * 
+ * Copyright (C) 2013 Stephane GALLAND.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ * This program is free software; you can redistribute it and/or modify
+ */
+package org.arakhne.neteditor.fig.figure;
+
+import java.io.Serializable;
+import java.net.URL;
+import java.util.Map;
+
+import org.arakhne.afc.ui.vector.Image;
+import org.arakhne.afc.ui.vector.ImageObserver;
+import org.arakhne.neteditor.fig.PropertyNames;
+import org.arakhne.neteditor.fig.graphics.ImageCache;
+import org.arakhne.neteditor.fig.view.AbstractViewComponent;
+
+/** Bitmap that is displayed by a figure.
+ * <p>
+ * The bitmap is given by a file, by the content of a resource,
+ * eg. a bitmap embedded in a document, or by an image.
+ * The files and the resources are decoded asynchronously
+ * by the {@link ImageCache shared cache of bitmaps}. The
+ * owner of the bitmap is notified with the property
+ * {@link PropertyNames#PROPERTY_IMAGE} and repainted when
+ * the decoding is finished.
+ * <p>
+ * The owner must forward the notifications it receives as
+ * {@link ImageObserver} to {@link #imageUpdate(Image, int, int, int, int)}.
+ *
+ * @author $Author: galland$
+ * @version $FullVersion$
+ * @mavengroupid $GroupId$
+ * @mavenartifactid $ArtifactId$
+ */
+public class FigureBitmap implements ImageObserver, Serializable, PropertyNames {
+
+	private static final long serialVersionUID = -1750311271954102227L;
+
+	private final AbstractViewComponent owner;
+
+	/** This is a reference to a bitmap that was not loaded from a file.
+	 */
+	private Image bitmap = null;
+
+	/** This is the filename of the bitmap.
+	 */
+	private URL filename = null;
+
+	/** This is the URL of the resource that is containing the bitmap.
+	 */
+	private URL resource = null;
+
+	/** Bitmap and its downscaled levels.
+	 */
+	private transient ImageCache.Entry entry = null;
+
+	/**
+	 * @param owner is the figure that is displaying the bitmap.
+	 */
+	public FigureBitmap(AbstractViewComponent owner) {
+		this.owner = owner;
+	}
+
+	/** Replies the filename associated to the bitmap.
+	 * 
+	 * @return the filename associated to the bitmap.
+	 */
+	public URL getImageURL() {
+		return this.filename;
+	}
+
+	/** Change the bitmap for the content of the given file.
+	 * The URL of the file is kept.
+	 *
+	 * @param name the name of the new bitmap.
+	 */
+	public void setImageURL(URL name) {
+		if ((name==null && this.filename!=null)
+				||
+				(name!=null && !name.equals(this.filename))) {
+			URL old1 = this.filename;
+			Image old2 = getLoadedImage();
+			release();
+			this.filename = name;
+			this.resource = null;
+			this.bitmap = null;
+			if (this.filename!=null) {
+				this.entry = ImageCache.getSharedCache().get(this.filename, this);
+			}
+			Image img = getLoadedImage();
+			this.owner.firePropertyChange(PROPERTY_FILENAME, old1, this.filename); 
+			if (old2!=img)
+				this.owner.firePropertyChange(PROPERTY_IMAGE, old2, img); 
+			this.owner.repaint(false);
+		}
+	}
+
+	/** Change the bitmap.
+	 *
+	 * @param image is the new bitmap.
+	 */
+	public void setImage(Image image) {
+		if (this.bitmap!=image || this.filename!=null || this.resource!=null) {
+			Image old1 = getLoadedImage();
+			URL old2 = this.filename;
+			release();
+			this.bitmap = image;
+			this.entry = (image==null) ? null : ImageCache.wrap(image);
+			this.filename = null;
+			this.resource = null;
+			this.owner.firePropertyChange(PROPERTY_IMAGE, old1, this.bitmap); 
+			if (old2!=null)
+				this.owner.firePropertyChange(PROPERTY_FILENAME, old2, this.filename); 
+			this.owner.repaint(false);
+		}
+	}
+
+	/** Change the bitmap for the content of a resource,
+	 * eg. a bitmap embedded in a document.
+	 * Contrary to {@link #setImageURL(URL)}, the URL of
+	 * the resource is not replied as the filename; and contrary to
+	 * {@link #setImage(Image)}, the bitmap is decoded in background.
+	 *
+	 * @param url is the URL of the resource.
+	 */
+	public void setImageResource(URL url) {
+		Image old1 = getLoadedImage();
+		URL old2 = this.filename;
+		release();
+		this.filename = null;
+		this.resource = url;
+		this.entry = ImageCache.getSharedCache().get(url, this);
+		// The observers are not notified if the bitmap is already decoded
+		this.bitmap = this.entry.getImage();
+		if (old1!=this.bitmap)
+			this.owner.firePropertyChange(PROPERTY_IMAGE, old1, this.bitmap); 
+		if (old2!=null)
+			this.owner.firePropertyChange(PROPERTY_FILENAME, old2, this.filename); 
+		this.owner.repaint(false);
+	}
+
+	/** Change the bitmap from the properties
+	 * {@link PropertyNames#PROPERTY_FILENAME} and {@link PropertyNames#PROPERTY_IMAGE}.
+	 * The value of the image property may be an image or the URL of a resource.
+	 * 
+	 * @param properties
+	 */
+	public void setProperties(Map<String,Object> properties) {
+		URL imageUrl = AbstractViewComponent.propGetURL(PROPERTY_FILENAME, null, false, properties); 
+		if (imageUrl!=null) {
+			setImageURL(imageUrl);
+		}
+		else {
+			Object image = properties.get(PROPERTY_IMAGE);
+			if (image instanceof URL) {
+				setImageResource((URL)image);
+			}
+			else {
+				setImage(AbstractViewComponent.propGetImage(PROPERTY_IMAGE, getLoadedImage(), false, properties));
+			}
+		}
+	}
+
+	/** Put the properties {@link PropertyNames#PROPERTY_FILENAME} and
+	 * {@link PropertyNames#PROPERTY_IMAGE} in the given map.
+	 * <p>
+	 * This function does not wait for the decoding of the bitmap.
+	 * The image property is the URL of the resource while the
+	 * resource is decoding; so that the bitmap is not lost
+	 * when the properties are given back to {@link #setProperties(Map)},
+	 * or saved in a document.
+	 * 
+	 * @param properties
+	 */
+	public void getProperties(Map<String,Object> properties) {
+		Object image = getLoadedImage();
+		if (image==null && this.filename==null) {
+			image = this.resource;
+		}
+		properties.put(PROPERTY_IMAGE, image);
+		properties.put(PROPERTY_FILENAME, this.filename);
+	}
+
+	/** Replies the displayed bitmap.
+	 * If the bitmap is decoding, this function waits
+	 * for the end of the decoding.
+	 * 
+	 * @return the displayed bitmap.
+	 */
+	public Image getImage() {
+		ImageCache.Entry e = getEntry();
+		if (e==null) return null;
+		try {
+			return e.waitForImage();
+		}
+		catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			return null;
+		}
+	}
+
+	/** Replies the bitmap if it is decoded, without waiting.
+	 * 
+	 * @return the bitmap or <code>null</code>.
+	 */
+	public Image getLoadedImage() {
+		ImageCache.Entry e = getEntry();
+		return (e==null) ? null : e.getImage();
+	}
+
+	/** Replies the entry that is containing the bitmap and its levels.
+	 * The entry is not serialized; it is created again from the URLs
+	 * or the bitmap after deserialization.
+	 * 
+	 * @return the entry or <code>null</code> if there is no bitmap.
+	 */
+	public ImageCache.Entry getEntry() {
+		if (this.entry==null) {
+			if (this.filename!=null) {
+				this.entry = ImageCache.getSharedCache().get(this.filename, this);
+			}
+			else if (this.bitmap!=null) {
+				this.entry = ImageCache.wrap(this.bitmap);
+			}
+			else if (this.resource!=null) {
+				this.entry = ImageCache.getSharedCache().get(this.resource, this);
+			}
+		}
+		return this.entry;
+	}
+
+	private void release() {
+		if (this.entry!=null) {
+			this.entry.removeObserver(this);
+			this.entry = null;
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean imageUpdate(
+			Image img, int x, int y,
+			int width, int height) {
+		ImageCache.Entry e = this.entry;
+		// Ignore the notifications of the previous bitmaps
+		if (e==null || e.getImage()!=img) return false;
+		if (this.filename==null) {
+			// The bitmaps of the resources are kept with the figure
+			this.bitmap = img;
+		}
+		// The bitmap was not available before the end of its decoding
+		this.owner.firePropertyChange(PROPERTY_IMAGE, null, img);
+		this.owner.repaint(false);
+		return false;
+	}
+
+}
@@ -22,7 +22,6 @@
 package org.arakhne.neteditor.fig.figure.decoration;
 
 import java.io.IOException;
-import java.lang.ref.SoftReference;
 import java.net.URL;
 import java.util.Map;
 import java.util.TreeMap;
@@ -30,13 +29,20 @@ import java.util.UUID;
 
 import org.arakhne.afc.math.continous.object2d.Rectangle2f;
 import org.arakhne.afc.ui.Graphics2DLOD;
+import org.arakhne.afc.ui.ZoomableContext;
 import org.arakhne.afc.ui.vector.Color;
 import org.arakhne.afc.ui.vector.Image;
 import org.arakhne.afc.ui.vector.ImageObserver;
-import org.arakhne.afc.ui.vector.VectorToolkit;
+import org.arakhne.neteditor.fig.figure.FigureBitmap;
+import org.arakhne.neteditor.fig.graphics.ImageCache;
 import org.arakhne.neteditor.fig.graphics.ViewGraphics2D;
 
 /** A decoration figure that is drawing a bitmap.
+ * <p>
+ * The bitmaps given by their URL are decoded asynchronously
+ * by the {@link ImageCache shared cache of bitmaps}, see
+ * {@link FigureBitmap}; the
+ * figure is painted as an empty figure until its bitmap is decoded.
  *
  * @author $Author: galland$
  * @version $FullVersion$
@@ -47,22 +53,14 @@ public class BitmapFigure extends BlockDecorationFigure implements ImageObserver
 
 	private static final long serialVersionUID = 3357210009571869767L;
 
-	/** This is a reference to a bitmap.
-	 */
-	private Image bitmap = null;
-
 	/** <code>true</code> if this bitmap area must be framed, 
 	 *  <code>false</code> otherwise.
 	 */
 	private boolean framed = false;
 
-	private transient SoftReference<Image> transparentBitmap = null;
-
-	/** This is the filename of the icon.
-	 * 
-	 * @since 0.4
+	/** Displayed bitmap.
 	 */
-	private URL filename = null;
+	private final FigureBitmap bitmap = new FigureBitmap(this);
 
 	/** Construct a new figure.
 	 *
@@ -118,31 +116,15 @@ public class BitmapFigure extends BlockDecorationFigure implements ImageObserver
 	}
 
 	/** Change the bitmap.
+	 * <p>
+	 * The bitmap is decoded in background; the figure
+	 * is repainted when the decoding is finished.
 	 *
 	 * @param name the name of the new bitmap.
 	 * @throws IOException
 	 */
 	public void setImageURL(URL name) throws IOException {
-		if ((name==null && this.filename!=null)
-				||
-				(name!=null && !name.equals(this.filename))) {
-			URL old1 = this.filename;
-			Image old2 = this.bitmap;
-			this.filename = name;
-			if (this.filename==null) {
-				this.bitmap = null;
-				this.transparentBitmap = null;
-			}
-			else {
-				this.bitmap = VectorToolkit.image(this.filename);
-				Image img = VectorToolkit.image(this.bitmap, -.5f);
-				this.transparentBitmap = new SoftReference<Image>(img);
-			}
-			firePropertyChange(PROPERTY_FILENAME, old1, this.filename); 
-			if (old2!=this.bitmap)
-				firePropertyChange(PROPERTY_IMAGE, old2, this.bitmap); 
-			repaint(false);
-		}
+		this.bitmap.setImageURL(name);
 	}
 
 	/** Replies the filename associated to the bitmap.
@@ -150,7 +132,7 @@ public class BitmapFigure extends BlockDecorationFigure implements ImageObserver
 	 * @return the filename associated to the bitmap.
 	 */
 	public URL getImageURL() {
-		return this.filename;
+		return this.bitmap.getImageURL();
 	}
 
 	/** Change the bitmap.
@@ -158,25 +140,17 @@ public class BitmapFigure extends BlockDecorationFigure implements ImageObserver
 	 * @param image is the new bitmap.
 	 */
 	public void setImage(Image image) {
-		if (this.bitmap!=image) {
-			Image old1 = this.bitmap;
-			URL old2 = this.filename;
-			this.bitmap = image;
-			this.transparentBitmap = new SoftReference<Image>(VectorToolkit.image(this.bitmap, -.5f));
-			this.filename = null;
-			firePropertyChange(PROPERTY_IMAGE, old1, this.bitmap); 
-			if (old2!=null)
-				firePropertyChange(PROPERTY_FILENAME, old2, this.filename); 
-			repaint(false);
-		}
+		this.bitmap.setImage(image);
 	}
 
 	/** Replies the displayed bitmap.
+	 * If the bitmap is decoding, this function waits
+	 * for the end of the decoding.
 	 * 
 	 * @return the displayed bitmap.
 	 */
 	public Image getImage() {
-		return this.bitmap;
+		return this.bitmap.getImage();
 	}
 
 	/**
@@ -184,16 +158,24 @@ public class BitmapFigure extends BlockDecorationFigure implements ImageObserver
 	 */
 	@Override
 	public void paint(ViewGraphics2D g) {
-		if (this.bitmap!=null) {
+		ImageCache.Entry entry = this.bitmap.getEntry();
+		if (entry!=null && entry.isLoaded() && !entry.isFailed()) {
 			Rectangle2f bounds = g.getCurrentViewComponentBounds();
+			// Select the level of the bitmap from the size of the figure
+			// on the screen; the exporters are using the full-size bitmap.
+			float width = Float.POSITIVE_INFINITY;
+			float height = Float.POSITIVE_INFINITY;
+			if (g instanceof ZoomableContext) {
+				ZoomableContext zc = (ZoomableContext)g;
+				width = zc.logical2pixel_size(bounds.getWidth());
+				height = zc.logical2pixel_size(bounds.getHeight());
+			}
 			Image img;
 			if (g.getLOD()==Graphics2DLOD.SHADOW) {
-				img = (this.transparentBitmap==null) ? null : this.transparentBitmap.get();
-				img = VectorToolkit.image(this.bitmap, -.5f);
-				this.transparentBitmap = new SoftReference<Image>(img);
+				img = entry.getTransparentLevel(width, height);
 			}
 			else {
-				img = this.bitmap;
+				img = entry.getLevel(width, height);
 			}
 
 			int imgWidth = img.getWidth(this);
@@ -203,7 +185,7 @@ public class BitmapFigure extends BlockDecorationFigure implements ImageObserver
 
 			g.setOutlineDrawn(isFramed());
 			g.drawImage(
-					this.filename,
+					this.bitmap.getImageURL(),
 					img,
 					bounds.getMinX(),
 					bounds.getMinY(),
@@ -217,7 +199,8 @@ public class BitmapFigure extends BlockDecorationFigure implements ImageObserver
 		}
 	}
 
-	/** Invoked when there is no image to draw.
+	/** Invoked when there is no image to draw, or when
+	 * the image is not yet decoded.
 	 * By default this function call {@link ViewGraphics2D#drawDefaultImage(float, float, float, float)}.
 	 * 
 	 * @param g
@@ -239,8 +222,7 @@ public class BitmapFigure extends BlockDecorationFigure implements ImageObserver
 	public boolean imageUpdate(
 			Image img, int x, int y,
 			int width, int height) {
-		repaint(false);
-		return false;
+		return this.bitmap.imageUpdate(img, x, y, width, height);
 	}
 
 	/**
@@ -249,8 +231,7 @@ public class BitmapFigure extends BlockDecorationFigure implements ImageObserver
 	@Override
 	public Map<String,Object> getProperties() {
 		Map<String,Object> properties = super.getProperties();
-		properties.put(PROPERTY_IMAGE, this.bitmap);
-		properties.put(PROPERTY_FILENAME, this.filename);
+		this.bitmap.getProperties(properties);
 		properties.put(PROPERTY_FRAMED, this.framed); 
 		return properties;
 	}
@@ -273,18 +254,7 @@ public class BitmapFigure extends BlockDecorationFigure implements ImageObserver
 	@Override
 	public void setProperties(Map<String, Object> properties) {
 		if (properties!=null) {
-			URL imageUrl = propGetURL(PROPERTY_FILENAME, null, false, properties); 
-			if (imageUrl!=null) {
-				try {
-					setImageURL(imageUrl);
-				}
-				catch (IOException e) {
-					throw new RuntimeException(e);
-				}
-			}
-			else {
-				setImage(propGetImage(PROPERTY_IMAGE, this.bitmap, false, properties)); 
-			}
+			this.bitmap.setProperties(properties);
 			setFramed(propGetBoolean(PROPERTY_FRAMED, this.framed, properties)); 
 		}
 		super.setProperties(properties);
@@ -25,11 +25,11 @@ import java.util.Map;
 import java.util.TreeMap;
 import java.util.UUID;
 
-import org.arakhne.afc.math.continous.object2d.Rectangle2f;
 import org.arakhne.afc.ui.vector.Color;
 import org.arakhne.afc.ui.vector.Font;
 import org.arakhne.afc.ui.vector.VectorToolkit;
 import org.arakhne.afc.vmutil.locale.Locale;
+import org.arakhne.neteditor.fig.graphics.TextLayoutCache;
 import org.arakhne.neteditor.fig.graphics.ViewGraphics2D;
 
 /** A decoration figure that is drawing a text.
@@ -238,9 +238,9 @@ public class TextFigure extends BlockDecorationFigure {
 		String n = getText();
 		if (n!=null && !n.isEmpty()) {
 			Font font = VectorToolkit.font();
-			Rectangle2f r = font.getStringBounds(n);
-			w = r.getWidth();
-			h = r.getHeight();
+			TextLayoutCache.Layout layout = TextLayoutCache.getSharedCache().getLayout(font, n);
+			w = layout.getWidth();
+			h = layout.getHeight();
 		}
 		else {
 			w = getMinimalWidth();
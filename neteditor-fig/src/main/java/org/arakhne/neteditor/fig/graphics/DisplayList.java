@@ -0,0 +1,224 @@
+/* 
+ * $Id$
+ * 
+ * Copyright (C) 2013 Stephane GALLAND.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ * This program is free software; you can redistribute it and/or modify
+ */
+package org.arakhne.neteditor.fig.graphics;
+
+import java.util.List;
+
+import org.arakhne.afc.math.continous.object2d.Rectangle2f;
+import org.arakhne.afc.math.matrix.Transform2D;
+import org.arakhne.neteditor.fig.view.ViewComponent;
+
+/** Immutable recording of the drawing operations of figures.
+ * <p>
+ * A display list is recorded by a {@link RecordingViewGraphics2D}
+ * while the figures may be read, eg. under the tree lock of their
+ * container. It is painted later, by any thread, without reading
+ * the figures: the shapes, the transformations and the colors
+ * of the rendering contexts are copied when they are recorded.
+ * <p>
+ * The rendering contexts that are pushed at the top level of
+ * the recording, usually one per figure, are the blocks of the
+ * list. When an area is given to {@link #paint(ViewGraphics2D, Rectangle2f)},
+ * the blocks outside this area are skipped.
+ *
+ * @author $Author: galland$
+ * @version $FullVersion$
+ * @mavengroupid $GroupId$
+ * @mavenartifactid $ArtifactId$
+ * @see RecordingViewGraphics2D
+ */
+public class DisplayList {
+
+	private final Command[] commands;
+	private final Block[] blocks;
+	private final Rectangle2f bounds;
+
+	/**
+	 * @param commands are the recorded commands.
+	 * @param blocks are the top-level rendering contexts.
+	 */
+	DisplayList(List<Command> commands, List<Block> blocks) {
+		this.commands = new Command[commands.size()];
+		commands.toArray(this.commands);
+		this.blocks = new Block[blocks.size()];
+		blocks.toArray(this.blocks);
+		Rectangle2f r = null;
+		for(Block block : this.blocks) {
+			if (block.bounds!=null) {
+				if (r==null) r = block.bounds.clone();
+				else r = r.createUnion(block.bounds);
+			}
+		}
+		this.bounds = r;
+	}
+
+	/** Replies if this list contains no drawing operation.
+	 * 
+	 * @return <code>true</code> if the list is empty.
+	 */
+	public boolean isEmpty() {
+		return this.commands.length==0;
+	}
+
+	/** Replies the bounds of the blocks of this list,
+	 * in the coordinates of the recording.
+	 * 
+	 * @return the bounds, or <code>null</code> if unknown.
+	 */
+	public Rectangle2f getBounds() {
+		return this.bounds==null ? null : this.bounds.clone();
+	}
+
+	/** Replies the component that was painted in this list,
+	 * when the list contains a single block.
+	 * The component is replied to identify the list;
+	 * it must not be read outside the tree lock of its container.
+	 * 
+	 * @return the painted component, or <code>null</code>
+	 * if the list contains zero or several blocks.
+	 */
+	public ViewComponent getViewComponent() {
+		if (this.blocks.length==1) return this.blocks[0].component;
+		return null;
+	}
+
+	/** Paint this list in the given graphical context.
+	 * <p>
+	 * The transformations that were recorded are applied
+	 * to the current transformation of the context.
+	 * 
+	 * @param g is the graphical context.
+	 */
+	public void paint(ViewGraphics2D g) {
+		paint(g, null);
+	}
+
+	/** Paint the blocks of this list that are intersecting
+	 * the given area.
+	 * <p>
+	 * The transformations that were recorded are applied
+	 * to the current transformation of the context.
+	 * 
+	 * @param g is the graphical context.
+	 * @param area is the area to paint, in the coordinates
+	 * of the recording. If <code>null</code>, all the blocks are painted.
+	 */
+	public void paint(ViewGraphics2D g, Rectangle2f area) {
+		Transform2D base = g.getTransform();
+		if (base!=null && base.isIdentity()) base = null;
+		int nextBlock = 0;
+		int i = 0;
+		Block block;
+		while (i<this.commands.length) {
+			if (nextBlock<this.blocks.length && this.blocks[nextBlock].start==i) {
+				block = this.blocks[nextBlock];
+				++nextBlock;
+				if (area!=null && block.bounds!=null && !block.bounds.intersects(area)) {
+					i = block.end;
+					continue;
+				}
+			}
+			this.commands[i].replay(g, base);
+			++i;
+		}
+	}
+
+	/** Replies the given transformation applied to the base
+	 * transformation of the painted context.
+	 * 
+	 * @param base is the base transformation, or <code>null</code> for the identity.
+	 * @param transform is the recorded transformation.
+	 * @return the transformation to give to the painted context.
+	 */
+	static Transform2D rebase(Transform2D base, Transform2D transform) {
+		if (transform==null) return null;
+		if (base==null) return transform.clone();
+		Transform2D t = base.clone();
+		t.mul(transform);
+		return t;
+	}
+
+	/** Recorded drawing operation.
+	 *
+	 * @author $Author: galland$
+	 * @version $FullVersion$
+	 * @mavengroupid $GroupId$
+	 * @mavenartifactid $ArtifactId$
+	 */
+	abstract static class Command {
+
+		/**
+		 */
+		public Command() {
+			//
+		}
+
+		/** Replay this command.
+		 * 
+		 * @param g is the graphical context.
+		 * @param base is the transformation of the context when the
+		 * painting of the list has started, or <code>null</code> for the identity.
+		 */
+		public abstract void replay(ViewGraphics2D g, Transform2D base);
+
+	}
+
+	/** Top-level rendering context of a display list.
+	 *
+	 * @author $Author: galland$
+	 * @version $FullVersion$
+	 * @mavengroupid $GroupId$
+	 * @mavenartifactid $ArtifactId$
+	 */
+	static class Block {
+
+		/** Index of the first command of the block.
+		 */
+		public final int start;
+
+		/** Index of the command after the last command of the block.
+		 */
+		public final int end;
+
+		/** Bounds of the block in the coordinates of the recording.
+		 */
+		public final Rectangle2f bounds;
+
+		/** Painted component.
+		 */
+		public final ViewComponent component;
+
+		/**
+		 * @param start is the index of the first command of the block.
+		 * @param end is the index of the command after the last command of the block.
+		 * @param bounds are the bounds of the block.
+		 * @param component is the painted component.
+		 */
+		public Block(int start, int end, Rectangle2f bounds, ViewComponent component) {
+			this.start = start;
+			this.end = end;
+			this.bounds = bounds;
+			this.component = component;
+		}
+
+	}
+
+}
@@ -0,0 +1,153 @@
+/* 
+ * $Id$
+ * 
+ * Copyright (C) 2013 Stephane GALLAND.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ * This program is free software; you can redistribute it and/or modify
+ */
+package org.arakhne.neteditor.fig.graphics;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.arakhne.afc.ui.Graphics2DLOD;
+import org.arakhne.neteditor.fig.figure.Figure;
+import org.arakhne.neteditor.fig.view.ViewComponent;
+
+/** Cache of the display lists of the figures of a view.
+ * <p>
+ * The display list of a figure is recorded again only when
+ * the {@link ViewComponent#getVersion() version} of the figure,
+ * the level of details or the shadow translation of the reference
+ * context have changed; so that only the changed figures are read
+ * when the figures of a view are recorded for each frame.
+ * The cache keeps the lists of the figures given to the
+ * last recording only.
+ * <p>
+ * This class is not thread-safe. It is used by the thread that
+ * is changing the figures; the replied lists may be painted
+ * by any thread.
+ *
+ * @author $Author: galland$
+ * @version $FullVersion$
+ * @mavengroupid $GroupId$
+ * @mavenartifactid $ArtifactId$
+ */
+public class DisplayListCache {
+
+	private Map<ViewComponent,Entry> entries = new IdentityHashMap<ViewComponent,Entry>();
+
+	/**
+	 */
+	public DisplayListCache() {
+		//
+	}
+
+	/** Remove all the recorded lists.
+	 */
+	public void clear() {
+		this.entries.clear();
+	}
+
+	/** Record the given figures, or reuse their lists when
+	 * they have not changed since the previous recording.
+	 * 
+	 * @param reference is the context that provides the level of details,
+	 * the fonts and the shadow translation. It is never drawn.
+	 * @param components are the components to record, from the front to the background.
+	 * @param shadows indicates if the shadows of the figures are recorded.
+	 * @return the display lists in the painting order: the shadows, and then
+	 * the figures from the background to the front.
+	 * @see ViewGraphicsUtil#paintDisplayLists(ViewGraphics2D, List, org.arakhne.afc.math.continous.object2d.Rectangle2f)
+	 */
+	public List<DisplayList> record(ViewGraphics2D reference, List<? extends ViewComponent> components, boolean shadows) {
+		Graphics2DLOD lod = reference.getLOD();
+		boolean isShadow = shadows && lod.compareTo(Graphics2DLOD.NORMAL_LEVEL_OF_DETAIL)>=0;
+		float dx = reference.getShadowTranslationX();
+		float dy = reference.getShadowTranslationY();
+
+		Map<ViewComponent,Entry> newEntries = new IdentityHashMap<ViewComponent,Entry>(components.size());
+		List<DisplayList> figureLists = new ArrayList<DisplayList>(components.size());
+		List<DisplayList> shadowLists = isShadow ? new ArrayList<DisplayList>(components.size()) : null;
+
+		ViewComponent component;
+		Figure figure;
+		Entry entry;
+		long version;
+		for(int i=components.size()-1; i>=0; --i) {
+			component = components.get(i);
+			if (component instanceof Figure) {
+				figure = (Figure)component;
+				version = figure.getVersion();
+				entry = this.entries.get(figure);
+				if (entry==null || entry.version!=version || entry.lod!=lod
+					|| entry.dx!=dx || entry.dy!=dy) {
+					entry = new Entry(version, lod, dx, dy);
+				}
+				if (entry.figure==null) {
+					entry.figure = ViewGraphicsUtil.recordViewComponent(reference, figure, false);
+				}
+				figureLists.add(entry.figure);
+				if (isShadow) {
+					if (entry.shadow==null) {
+						entry.shadow = ViewGraphicsUtil.recordViewComponent(reference, figure, true);
+					}
+					shadowLists.add(entry.shadow);
+				}
+				newEntries.put(figure, entry);
+			}
+		}
+		this.entries = newEntries;
+
+		if (shadowLists==null) return figureLists;
+		shadowLists.addAll(figureLists);
+		return shadowLists;
+	}
+
+	/** Recorded lists of a figure.
+	 *
+	 * @author $Author: galland$
+	 * @version $FullVersion$
+	 * @mavengroupid $GroupId$
+	 * @mavenartifactid $ArtifactId$
+	 */
+	private static class Entry {
+
+		public final long version;
+		public final Graphics2DLOD lod;
+		public final float dx;
+		public final float dy;
+		public DisplayList figure = null;
+		public DisplayList shadow = null;
+
+		/**
+		 * @param version is the version of the figure.
+		 * @param lod is the level of details of the recording.
+		 * @param dx is the shadow translation.
+		 * @param dy is the shadow translation.
+		 */
+		public Entry(long version, Graphics2DLOD lod, float dx, float dy) {
+			this.version = version;
+			this.lod = lod;
+			this.dx = dx;
+			this.dy = dy;
+		}
+
+	}
+
+}
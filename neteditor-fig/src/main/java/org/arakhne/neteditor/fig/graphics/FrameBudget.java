@@ -0,0 +1,93 @@
+/* 
+ * $Id$
+ * 
+ * Copyright (C) 2013 Stephane GALLAND.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ * This program is free software; you can redistribute it and/or modify
+ */
+package org.arakhne.neteditor.fig.graphics;
+
+/** Time budget for painting a frame of figures.
+ * <p>
+ * The budget is converted into a maximal number of figures
+ * from the durations of the previous frames; so that the
+ * figures that are not painted may be chosen before the
+ * painting starts, instead of stopping the painting when
+ * the budget is exhausted.
+ * The first frame painted with a budget is not limited.
+ * <p>
+ * This class is thread-safe.
+ *
+ * @author $Author: galland$
+ * @version $FullVersion$
+ * @mavengroupid $GroupId$
+ * @mavenartifactid $ArtifactId$
+ * @see ViewGraphicsUtil#paintViewComponents(ViewGraphics2D, java.util.List, boolean, org.arakhne.afc.math.continous.object2d.Rectangle2f, java.util.Collection, FrameBudget)
+ */
+public class FrameBudget {
+
+	private final long budget;
+
+	/** Average duration of the painting of a figure (in nanoseconds),
+	 * or zero if unknown.
+	 */
+	private long figureCost = 0;
+
+	/**
+	 * @param budget is the maximal duration of a frame, in nanoseconds.
+	 */
+	public FrameBudget(long budget) {
+		this.budget = Math.max(1, budget);
+	}
+
+	/** Replies the maximal duration of a frame.
+	 * 
+	 * @return the budget in nanoseconds.
+	 */
+	public long getBudget() {
+		return this.budget;
+	}
+
+	/** Replies the number of figures that may be painted
+	 * within the budget.
+	 * 
+	 * @return the number of figures, or {@link Integer#MAX_VALUE}
+	 * if the duration of the painting of a figure is still unknown.
+	 */
+	public synchronized int getFigureCount() {
+		if (this.figureCost<=0) return Integer.MAX_VALUE;
+		return (int)Math.max(1, Math.min(Integer.MAX_VALUE, this.budget / this.figureCost));
+	}
+
+	/** Update the average duration of the painting of a figure
+	 * with the duration of a painted frame.
+	 * 
+	 * @param figureCount is the number of painted figures.
+	 * @param duration is the duration of the frame, in nanoseconds.
+	 */
+	public synchronized void update(int figureCount, long duration) {
+		if (figureCount>0) {
+			long cost = Math.max(1, duration / figureCount);
+			if (this.figureCost<=0) {
+				this.figureCost = cost;
+			}
+			else {
+				this.figureCost = (this.figureCost + cost) / 2;
+			}
+		}
+	}
+
+}
@@ -0,0 +1,544 @@
+/* 
+ * $Id$
+ * 
+ * Copyright (C) 2013 Stephane GALLAND.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ * This program is free software; you can redistribute it and/or modify
+ */
+package org.arakhne.neteditor.fig.graphics;
+
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.arakhne.afc.ui.vector.Image;
+import org.arakhne.afc.ui.vector.ImageObserver;
+import org.arakhne.afc.ui.vector.VectorGraphics2D;
+import org.arakhne.afc.ui.vector.VectorToolkit;
+
+/** Bounded cache of the bitmaps displayed by the figures.
+ * <p>
+ * The bitmaps are decoded asynchronously by a pool of
+ * loading threads; so that opening a document with many
+ * bitmaps does not wait for their decoding. The figures
+ * are painting a placeholder until their bitmap is decoded,
+ * and they are notified of the end of the decoding
+ * with {@link ImageObserver#imageUpdate(Image, int, int, int, int)}.
+ * The notifications are posted to the
+ * {@link #setNotificationExecutor(Executor) notification executor},
+ * usually given by the views to run them on the UI thread.
+ * <p>
+ * For each bitmap, the loading threads are also computing
+ * the downscaled copies of the bitmap, named levels, each level
+ * having the half of the size of the previous one. The figures
+ * are painting the smallest level that is larger than their
+ * size on the screen, instead of scaling the full-size
+ * bitmap at each frame.
+ * <p>
+ * The cache is keyed by the URL of the bitmaps, or by the
+ * {@link #setContentKey(URL, String) key of their content} when
+ * it is known; so that the bitmaps with the same content are
+ * decoded once, and a URL that is reused for another content,
+ * eg. a resource of a document that was saved again, does not
+ * reply the previous bitmap. The least
+ * recently used bitmaps are removed from the cache when its
+ * capacity is reached; they remain available to the figures
+ * that are displaying them.
+ * <p>
+ * This class is thread-safe.
+ *
+ * @author $Author: galland$
+ * @version $FullVersion$
+ * @mavengroupid $GroupId$
+ * @mavenartifactid $ArtifactId$
+ */
+public class ImageCache {
+
+	/** Default capacity of the caches.
+	 */
+	public static final int DEFAULT_CAPACITY = 128;
+
+	/** Size in pixels under which no more level is computed.
+	 */
+	public static final int MINIMAL_LEVEL_SIZE = 16;
+
+	private static final ImageCache SHARED = new ImageCache(DEFAULT_CAPACITY,
+			Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors())));
+
+	/** Replies the cache shared by the figures.
+	 * 
+	 * @return the shared cache.
+	 */
+	public static ImageCache getSharedCache() {
+		return SHARED;
+	}
+
+	/** Create an entry for a bitmap that was not loaded from a URL.
+	 * The returned entry is not stored in a cache, and its
+	 * levels are computed when they are requested.
+	 * 
+	 * @param image is the bitmap.
+	 * @return the entry for the bitmap.
+	 */
+	public static Entry wrap(Image image) {
+		assert(image!=null);
+		Entry entry = new Entry(null);
+		entry.setImage(image, false, null);
+		return entry;
+	}
+
+	private final int capacity;
+	private final Map<String,Entry> entries;
+	private final Map<String,String> contentKeys;
+	private final ExecutorService loader;
+	private volatile Executor notifier = null;
+
+	/**
+	 * @param capacity is the maximal number of bitmaps in the cache.
+	 * @param threadCount is the number of threads that are decoding the bitmaps.
+	 */
+	public ImageCache(int capacity, int threadCount) {
+		this.capacity = Math.max(1, capacity);
+		this.entries = new LinkedHashMap<String,Entry>(16, .75f, true) {
+			private static final long serialVersionUID = 4120917340655927380L;
+			@SuppressWarnings("synthetic-access")
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String,Entry> eldest) {
+				return size()>ImageCache.this.capacity;
+			}
+		};
+		// The content keys are small; more keys than bitmaps are kept
+		// so that the bitmaps removed from the cache are not decoded
+		// again with their URL as key.
+		this.contentKeys = new LinkedHashMap<String,String>(16, .75f, true) {
+			private static final long serialVersionUID = -2417349812250397615L;
+			@SuppressWarnings("synthetic-access")
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String,String> eldest) {
+				return size()>ImageCache.this.capacity*8;
+			}
+		};
+		this.loader = Executors.newFixedThreadPool(Math.max(1, threadCount), new LoaderThreadFactory());
+	}
+
+	/** Replies the maximal number of bitmaps in the cache.
+	 * 
+	 * @return the capacity of the cache.
+	 */
+	public int getCapacity() {
+		return this.capacity;
+	}
+
+	/** Set the executor that is running the notifications
+	 * of the observers. The views are using it to
+	 * notify the figures on their UI thread.
+	 * 
+	 * @param executor is the executor of the notifications, or
+	 * <code>null</code> to notify the observers from the loading threads.
+	 */
+	public void setNotificationExecutor(Executor executor) {
+		this.notifier = executor;
+	}
+
+	/** Replies the executor that is running the notifications
+	 * of the observers.
+	 * 
+	 * @return the executor of the notifications, or
+	 * <code>null</code> if the observers are notified from the loading threads.
+	 */
+	public Executor getNotificationExecutor() {
+		return this.notifier;
+	}
+
+	/** Replies the number of bitmaps in the cache.
+	 * 
+	 * @return the number of bitmaps.
+	 */
+	public synchronized int size() {
+		return this.entries.size();
+	}
+
+	/** Remove all the bitmaps from the cache.
+	 * The bitmaps that are loading are still
+	 * given to their observers.
+	 */
+	public synchronized void clear() {
+		this.entries.clear();
+		this.contentKeys.clear();
+	}
+
+	/** Set the key of the content of the bitmap at the given URL,
+	 * eg. the digest of its bytes. The bitmaps with the same
+	 * content key are sharing the same entry in this cache.
+	 * <p>
+	 * The readers of the documents are invoking this function
+	 * for the resources they are extracting; the URL of a resource
+	 * in a document may be given to another content when the
+	 * document is saved again.
+	 * 
+	 * @param url is the URL of the bitmap.
+	 * @param contentKey is the key of the content of the bitmap.
+	 */
+	public synchronized void setContentKey(URL url, String contentKey) {
+		assert(url!=null);
+		assert(contentKey!=null);
+		// URL.equals() may resolve the host names
+		String key = url.toExternalForm();
+		String old = this.contentKeys.put(key, contentKey);
+		if (old==null) {
+			// The bitmap may be in the cache with its URL as key
+			this.entries.remove(key);
+		}
+	}
+
+	/** Replies the entry for the bitmap at the given URL.
+	 * If the bitmap is not in the cache, its decoding
+	 * is started in background.
+	 * 
+	 * @param url is the URL of the bitmap.
+	 * @param observer is notified when the bitmap is decoded,
+	 * or <code>null</code>.
+	 * @return the entry for the bitmap.
+	 */
+	public Entry get(URL url, ImageObserver observer) {
+		assert(url!=null);
+		// URL.equals() may resolve the host names
+		String key = url.toExternalForm();
+		Entry entry;
+		boolean isNew = false;
+		synchronized(this) {
+			String contentKey = this.contentKeys.get(key);
+			if (contentKey!=null) key = contentKey;
+			entry = this.entries.get(key);
+			if (entry==null || entry.isFailed()) {
+				entry = new Entry(url);
+				this.entries.put(key, entry);
+				isNew = true;
+			}
+		}
+		if (observer!=null) entry.addObserver(observer);
+		if (isNew) this.loader.execute(new Loader(entry, this));
+		return entry;
+	}
+
+	/** Bitmap in a cache and its levels.
+	 *
+	 * @author $Author: galland$
+	 * @version $FullVersion$
+	 * @mavengroupid $GroupId$
+	 * @mavenartifactid $ArtifactId$
+	 */
+	public static final class Entry {
+
+		private final URL url;
+		private Image[] levels = null;
+		private Image[] transparentLevels = null;
+		private List<ImageObserver> observers = null;
+		private boolean isLoaded = false;
+		private boolean isFailed = false;
+
+		/**
+		 * @param url
+		 */
+		Entry(URL url) {
+			this.url = url;
+		}
+
+		/** Replies the URL of the bitmap.
+		 * 
+		 * @return the URL, or <code>null</code> if the bitmap
+		 * was not loaded from a URL.
+		 */
+		public URL getURL() {
+			return this.url;
+		}
+
+		/** Replies if the decoding of the bitmap is finished,
+		 * with or without success.
+		 * 
+		 * @return <code>true</code> if the decoding is finished.
+		 */
+		public synchronized boolean isLoaded() {
+			return this.isLoaded;
+		}
+
+		/** Replies if the bitmap cannot be decoded.
+		 * 
+		 * @return <code>true</code> if the decoding has failed.
+		 */
+		public synchronized boolean isFailed() {
+			return this.isFailed;
+		}
+
+		/** Replies the full-size bitmap.
+		 * 
+		 * @return the bitmap, or <code>null</code> if it is
+		 * not yet decoded or cannot be decoded.
+		 */
+		public synchronized Image getImage() {
+			return (this.levels==null) ? null : this.levels[0];
+		}
+
+		/** Replies the full-size bitmap, and waits for the
+		 * end of its decoding if needed.
+		 * 
+		 * @return the bitmap, or <code>null</code> if it
+		 * cannot be decoded.
+		 * @throws InterruptedException
+		 */
+		public synchronized Image waitForImage() throws InterruptedException {
+			while (!this.isLoaded) {
+				wait();
+			}
+			return getImage();
+		}
+
+		/** Replies the smallest level of the bitmap that is
+		 * larger than the given size.
+		 * 
+		 * @param width is the width in pixels at which the bitmap is drawn.
+		 * @param height is the height in pixels at which the bitmap is drawn.
+		 * @return the level, or <code>null</code> if the bitmap is
+		 * not yet decoded or cannot be decoded.
+		 */
+		public synchronized Image getLevel(float width, float height) {
+			if (this.levels==null) return null;
+			ensureLevels();
+			return this.levels[selectLevel(width, height)];
+		}
+
+		/** Replies the semi-transparent copy of the smallest level
+		 * of the bitmap that is larger than the given size.
+		 * 
+		 * @param width is the width in pixels at which the bitmap is drawn.
+		 * @param height is the height in pixels at which the bitmap is drawn.
+		 * @return the semi-transparent level, or <code>null</code> if the
+		 * bitmap is not yet decoded or cannot be decoded.
+		 */
+		public synchronized Image getTransparentLevel(float width, float height) {
+			if (this.levels==null) return null;
+			ensureLevels();
+			int index = selectLevel(width, height);
+			if (this.transparentLevels==null) {
+				this.transparentLevels = new Image[this.levels.length];
+			}
+			Image img = this.transparentLevels[index];
+			if (img==null) {
+				img = VectorToolkit.image(this.levels[index], -.5f);
+				this.transparentLevels[index] = img;
+			}
+			return img;
+		}
+
+		private int selectLevel(float width, float height) {
+			int index = 0;
+			while (index+1<this.levels.length
+					&& this.levels[index+1].getWidth(null)>=width
+					&& this.levels[index+1].getHeight(null)>=height) {
+				++index;
+			}
+			return index;
+		}
+
+		/** Compute the levels of the bitmap if they are not computed.
+		 */
+		void ensureLevels() {
+			if (this.levels.length>1) return;
+			Image img = this.levels[0];
+			int w = img.getWidth(null);
+			int h = img.getHeight(null);
+			if (w<0 || h<0) return;
+			List<Image> lvls = new ArrayList<Image>();
+			lvls.add(img);
+			VectorGraphics2D g;
+			while (w/2>=MINIMAL_LEVEL_SIZE && h/2>=MINIMAL_LEVEL_SIZE) {
+				w /= 2;
+				h /= 2;
+				Image level = VectorToolkit.image(w, h, true);
+				g = level.getVectorGraphics();
+				try {
+					// Each level is computed from the previous one,
+					// so that each source pixel is used once.
+					g.drawImage(null, img,
+							0f, 0f, w-1f, h-1f,
+							0, 0, img.getWidth(null)-1, img.getHeight(null)-1, null);
+				}
+				finally {
+					g.dispose();
+				}
+				lvls.add(level);
+				img = level;
+			}
+			if (lvls.size()>1) {
+				Image[] tab = new Image[lvls.size()];
+				lvls.toArray(tab);
+				this.levels = tab;
+				this.transparentLevels = null;
+			}
+		}
+
+		/** Add an observer notified when the bitmap is decoded.
+		 * If the bitmap is already decoded, the observer is not notified.
+		 * 
+		 * @param observer
+		 */
+		public synchronized void addObserver(ImageObserver observer) {
+			if (!this.isLoaded) {
+				if (this.observers==null) {
+					this.observers = new ArrayList<ImageObserver>();
+				}
+				if (!this.observers.contains(observer)) {
+					this.observers.add(observer);
+				}
+			}
+		}
+
+		/** Remove an observer.
+		 * 
+		 * @param observer
+		 */
+		public synchronized void removeObserver(ImageObserver observer) {
+			if (this.observers!=null) {
+				this.observers.remove(observer);
+			}
+		}
+
+		/** Set the decoded bitmap and notifies the observers.
+		 * 
+		 * @param image is the decoded bitmap, or <code>null</code>
+		 * if the decoding has failed.
+		 * @param computeLevels indicates if the levels are computed now.
+		 * @param notifier is the executor of the notifications, or
+		 * <code>null</code> to notify the observers from the current thread.
+		 */
+		void setImage(final Image image, boolean computeLevels, Executor notifier) {
+			final List<ImageObserver> obs;
+			synchronized(this) {
+				if (image==null) {
+					this.isFailed = true;
+				}
+				else {
+					this.levels = new Image[] { image };
+					if (computeLevels) {
+						try {
+							ensureLevels();
+						}
+						catch(RuntimeException e) {
+							// The full-size bitmap is drawn
+						}
+					}
+				}
+				this.isLoaded = true;
+				obs = this.observers;
+				this.observers = null;
+				notifyAll();
+			}
+			if (obs!=null) {
+				if (notifier==null) {
+					notifyObservers(obs, image);
+				}
+				else {
+					notifier.execute(new Runnable() {
+						@Override
+						public void run() {
+							notifyObservers(obs, image);
+						}
+					});
+				}
+			}
+		}
+
+		private static void notifyObservers(List<ImageObserver> observers, Image image) {
+			int w = (image==null) ? -1 : image.getWidth(null);
+			int h = (image==null) ? -1 : image.getHeight(null);
+			for(ImageObserver observer : observers) {
+				observer.imageUpdate(image, 0, 0, w, h);
+			}
+		}
+
+	}
+
+	/** Decoding of a bitmap.
+	 *
+	 * @author $Author: galland$
+	 * @version $FullVersion$
+	 * @mavengroupid $GroupId$
+	 * @mavenartifactid $ArtifactId$
+	 */
+	private static class Loader implements Runnable {
+
+		private final Entry entry;
+		private final ImageCache cache;
+
+		/**
+		 * @param entry
+		 * @param cache
+		 */
+		public Loader(Entry entry, ImageCache cache) {
+			this.entry = entry;
+			this.cache = cache;
+		}
+
+		@Override
+		public void run() {
+			Image image = null;
+			try {
+				image = VectorToolkit.image(this.entry.getURL());
+			}
+			catch(Exception e) {
+				image = null;
+			}
+			finally {
+				this.entry.setImage(image, true, this.cache.getNotificationExecutor());
+			}
+		}
+
+	}
+
+	/** Factory of the loading threads.
+	 *
+	 * @author $Author: galland$
+	 * @version $FullVersion$
+	 * @mavengroupid $GroupId$
+	 * @mavenartifactid $ArtifactId$
+	 */
+	private static class LoaderThreadFactory implements ThreadFactory {
+
+		private final AtomicInteger count = new AtomicInteger();
+
+		/**
+		 */
+		public LoaderThreadFactory() {
+			//
+		}
+
+		@Override
+		public Thread newThread(Runnable r) {
+			Thread thread = new Thread(r, "NetEditor Image Loader " + this.count.incrementAndGet()); //$NON-NLS-1$
+			thread.setDaemon(true);
+			return thread;
+		}
+
+	}
+
+}
@@ -0,0 +1,1033 @@
+/* 
+ * $Id$
+ * 
+ * Copyright (C) 2013 Stephane GALLAND.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ * This program is free software; you can redistribute it and/or modify
+ */
+package org.arakhne.neteditor.fig.graphics;
+
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import org.arakhne.afc.math.continous.object2d.Point2f;
+import org.arakhne.afc.math.continous.object2d.Rectangle2f;
+import org.arakhne.afc.math.continous.object2d.Shape2f;
+import org.arakhne.afc.math.generic.Point2D;
+import org.arakhne.afc.math.matrix.Transform2D;
+import org.arakhne.afc.ui.Graphics2DLOD;
+import org.arakhne.afc.ui.StringAnchor;
+import org.arakhne.afc.ui.TextAlignment;
+import org.arakhne.afc.ui.vector.Color;
+import org.arakhne.afc.ui.vector.Composite;
+import org.arakhne.afc.ui.vector.Font;
+import org.arakhne.afc.ui.vector.FontMetrics;
+import org.arakhne.afc.ui.vector.Image;
+import org.arakhne.afc.ui.vector.ImageObserver;
+import org.arakhne.afc.ui.vector.Paint;
+import org.arakhne.afc.ui.vector.Stroke;
+import org.arakhne.neteditor.fig.figure.Figure;
+
+/** Graphical context that is recording the drawing operations
+ * into a {@link DisplayList} instead of drawing them.
+ * <p>
+ * The state of the context is maintained by the recorder, and
+ * the level of details, the fonts and the shadow translation are
+ * replied by a reference context, which is never drawn.
+ * The reference context should have the same parameters as the contexts
+ * in which the list will be painted.
+ * <p>
+ * The colors of the rendering contexts are taken from the figures
+ * when they are pushed; and the shapes and the transformations are
+ * copied. The recorded list does not read the figures when it is painted.
+ * The transformations are relative to the transformation
+ * of the context when the recording has started.
+ *
+ * @author $Author: galland$
+ * @version $FullVersion$
+ * @mavengroupid $GroupId$
+ * @mavenartifactid $ArtifactId$
+ */
+public class RecordingViewGraphics2D implements ViewGraphics2D {
+
+	private static final int SET_FONT = 0;
+	private static final int SET_CLIP = 1;
+	private static final int CLIP = 2;
+	private static final int TRANSFORM = 3;
+	private static final int SET_TRANSFORM = 4;
+	private static final int TRANSLATE = 5;
+	private static final int SCALE = 6;
+	private static final int ROTATE = 7;
+	private static final int SHEAR = 8;
+	private static final int SET_BACKGROUND = 9;
+	private static final int SET_PAINT = 10;
+	private static final int SET_FILL_COLOR = 11;
+	private static final int SET_OUTLINE_COLOR = 12;
+	private static final int SET_COLORS = 13;
+	private static final int SET_COMPOSITE = 14;
+	private static final int SET_STROKE = 15;
+	private static final int SET_INTERIOR_PAINTED = 16;
+	private static final int SET_OUTLINE_DRAWN = 17;
+	private static final int SET_INTERIOR_TEXT = 18;
+	private static final int PUSH = 19;
+	private static final int POP = 20;
+	private static final int BEGIN_GROUP = 21;
+	private static final int END_GROUP = 22;
+	private static final int DRAW_POINT = 23;
+	private static final int DRAW_DEFAULT_IMAGE = 24;
+	private static final int DRAW_IMAGE = 25;
+	private static final int DRAW = 26;
+	private static final int DRAW_STRING = 27;
+	private static final int CLEAR = 28;
+
+	private final ViewGraphics2D reference;
+
+	private final List<DisplayList.Command> commands = new ArrayList<DisplayList.Command>();
+	private final List<DisplayList.Block> blocks = new ArrayList<DisplayList.Block>();
+
+	private final RenderingContextStack<GContext> stack = new RenderingContextStack<GContext>() {
+		@Override
+		protected GContext createFrame() {
+			return new GContext();
+		}
+	};
+
+	private final Transform2D transform = new Transform2D();
+	private Font font;
+	private Stroke stroke;
+	private Composite composite;
+	private Paint paint;
+	private Color background;
+	private Color fillColor;
+	private Color outlineColor;
+	private boolean isInteriorPainted;
+	private boolean isOutlineDrawn;
+	private String interiorText;
+	private Shape2f clip;
+
+	private Figure topFigure = null;
+	private Rectangle2f currentViewComponentBounds = null;
+	private Shape2f currentViewComponentShape = null;
+
+	/**
+	 * @param reference is the context that provides the level of details,
+	 * the fonts and the shadow translation. It is never drawn.
+	 */
+	public RecordingViewGraphics2D(ViewGraphics2D reference) {
+		this.reference = reference;
+		resetGraphics();
+	}
+
+	private void resetGraphics() {
+		this.commands.clear();
+		this.blocks.clear();
+		this.stack.clear();
+		this.transform.setIdentity();
+		this.font = this.reference.getFont();
+		this.stroke = this.reference.getStroke();
+		this.composite = this.reference.getComposite();
+		this.paint = this.reference.getPaint();
+		this.background = this.reference.getBackground();
+		this.fillColor = this.reference.getFillColor();
+		this.outlineColor = this.reference.getOutlineColor();
+		this.isInteriorPainted = this.reference.isInteriorPainted();
+		this.isOutlineDrawn = this.reference.isOutlineDrawn();
+		this.interiorText = this.reference.getInteriorText();
+		this.clip = null;
+		this.topFigure = null;
+		this.currentViewComponentBounds = null;
+		this.currentViewComponentShape = null;
+	}
+
+	/** Replies the display list that was recorded.
+	 * The recording may continue after this call; the
+	 * replied list is not changed by the next operations.
+	 * 
+	 * @return the display list.
+	 */
+	public DisplayList getDisplayList() {
+		List<DisplayList.Block> b = this.blocks;
+		if (!this.stack.isEmpty()) {
+			// Close the top-level rendering context that is still opened
+			GContext root = this.stack.get(this.stack.size()-1);
+			b = new ArrayList<DisplayList.Block>(this.blocks);
+			b.add(new DisplayList.Block(root.start, this.commands.size(), root.blockBounds, root.component));
+		}
+		return new DisplayList(this.commands, b);
+	}
+
+	private void record(int code, Object... arguments) {
+		this.commands.add(new Call(code, arguments, null));
+	}
+
+	private void recordValues(int code, float... values) {
+		this.commands.add(new Call(code, null, values));
+	}
+
+	private static Shape2f copy(Shape2f s) {
+		return s==null ? null : s.clone();
+	}
+
+	private static Rectangle2f copy(Rectangle2f r) {
+		return r==null ? null : r.clone();
+	}
+
+	/** Replies the bounds of the given rectangle in
+	 * the coordinates of the recording.
+	 */
+	private Rectangle2f toRecordingBounds(Rectangle2f r) {
+		if (r==null) return null;
+		if (this.transform.isIdentity()) return r.clone();
+		float minx = Float.POSITIVE_INFINITY;
+		float miny = Float.POSITIVE_INFINITY;
+		float maxx = Float.NEGATIVE_INFINITY;
+		float maxy = Float.NEGATIVE_INFINITY;
+		Point2f p = new Point2f();
+		for(int i=0; i<4; ++i) {
+			p.set(
+					(i&1)==0 ? r.getMinX() : r.getMaxX(),
+					(i&2)==0 ? r.getMinY() : r.getMaxY());
+			this.transform.transform(p);
+			minx = Math.min(minx, p.getX());
+			miny = Math.min(miny, p.getY());
+			maxx = Math.max(maxx, p.getX());
+			maxy = Math.max(maxy, p.getY());
+		}
+		Rectangle2f b = new Rectangle2f();
+		b.setFromCorners(minx, miny, maxx, maxy);
+		return b;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Object getNativeGraphics2D() {
+		return null;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean isShadowDrawing() {
+		return this.reference.isShadowDrawing();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public float getShadowTranslationX() {
+		return this.reference.getShadowTranslationX();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public float getShadowTranslationY() {
+		return this.reference.getShadowTranslationY();
+	}
+
+	/** {@inheritDoc}
+	 * <p>
+	 * The recording is stopped; the recorded operations
+	 * are kept.
+	 */
+	@Override
+	public void dispose() {
+		this.stack.clear();
+		this.topFigure = null;
+		this.currentViewComponentBounds = null;
+		this.currentViewComponentShape = null;
+	}
+
+	/** {@inheritDoc}
+	 * <p>
+	 * The recorded operations are removed.
+	 */
+	@Override
+	public void reset() {
+		resetGraphics();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Graphics2DLOD getLOD() {
+		return this.reference.getLOD();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public StringAnchor getStringAnchor() {
+		return this.reference.getStringAnchor();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Font getFont() {
+		return this.font;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Font getDefaultFont() {
+		return this.reference.getDefaultFont();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void setFont(Font font) {
+		this.font = font;
+		record(SET_FONT, font);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public FontMetrics getFontMetrics() {
+		return this.reference.getFontMetrics(this.font);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public FontMetrics getFontMetrics(Font f) {
+		return this.reference.getFontMetrics(f);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Point2D computeTextPosition(String text, Rectangle2f bounds,
+			TextAlignment halign, TextAlignment valign) {
+		// The position depends on the font of the reference context.
+		Font old = this.reference.getFont();
+		this.reference.setFont(this.font);
+		try {
+			return this.reference.computeTextPosition(text, bounds, halign, valign);
+		}
+		finally {
+			this.reference.setFont(old);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Shape2f getClip() {
+		return this.clip;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void setClip(Shape2f clip) {
+		this.clip = copy(clip);
+		record(SET_CLIP, this.clip);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void clip(Shape2f clip) {
+		Shape2f c = copy(clip);
+		if (this.clip==null || c==null) {
+			this.clip = c;
+		}
+		else {
+			this.clip = c.toBoundingBox().createUnion(this.clip.toBoundingBox());
+		}
+		record(CLIP, c);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void transform(Transform2D Tx) {
+		this.transform.mul(Tx);
+		record(TRANSFORM, Tx.clone());
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Transform2D setTransform(Transform2D Tx) {
+		Transform2D old = this.transform.clone();
+		this.transform.set(Tx);
+		record(SET_TRANSFORM, Tx.clone());
+		return old;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Transform2D getTransform() {
+		return this.transform.clone();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void translate(float tx, float ty) {
+		Transform2D t = new Transform2D();
+		t.makeTranslationMatrix(tx, ty);
+		this.transform.mul(t);
+		recordValues(TRANSLATE, tx, ty);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void scale(float sx, float sy) {
+		Transform2D t = new Transform2D();
+		t.makeScaleMatrix(sx, sy);
+		this.transform.mul(t);
+		recordValues(SCALE, sx, sy);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void rotate(float theta) {
+		Transform2D t = new Transform2D();
+		t.makeRotationMatrix(theta);
+		this.transform.mul(t);
+		recordValues(ROTATE, theta);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void shear(float shx, float shy) {
+		Transform2D t = new Transform2D();
+		t.makeShearMatrix(shx, shy);
+		this.transform.mul(t);
+		recordValues(SHEAR, shx, shy);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void setBackground(Color color) {
+		this.background = color;
+		record(SET_BACKGROUND, color);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Color getBackground() {
+		return this.background;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Paint setPaint(Paint paint) {
+		Paint old = this.paint;
+		this.paint = paint;
+		record(SET_PAINT, paint);
+		return old;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Paint getPaint() {
+		return this.paint;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Color setFillColor(Color color) {
+		Color old = this.fillColor;
+		this.fillColor = color;
+		record(SET_FILL_COLOR, color);
+		return old;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Color setOutlineColor(Color color) {
+		Color old = this.outlineColor;
+		this.outlineColor = color;
+		record(SET_OUTLINE_COLOR, color);
+		return old;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void setColors(Color fillingColor, Color outlineColor) {
+		if (fillingColor!=null) {
+			this.fillColor = fillingColor;
+			this.isInteriorPainted = true;
+		}
+		if (outlineColor!=null) {
+			this.outlineColor = outlineColor;
+			this.isOutlineDrawn = true;
+		}
+		record(SET_COLORS, fillingColor, outlineColor);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Color getFillColor() {
+		return this.fillColor;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Color getOutlineColor() {
+		return this.outlineColor;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void setComposite(Composite composite) {
+		this.composite = composite;
+		record(SET_COMPOSITE, composite);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Composite getComposite() {
+		return this.composite;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void setStroke(Stroke stroke) {
+		this.stroke = stroke;
+		record(SET_STROKE, stroke);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Stroke getStroke() {
+		return this.stroke;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean isInteriorPainted() {
+		return this.isInteriorPainted;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void setInteriorPainted(boolean painted) {
+		this.isInteriorPainted = painted;
+		record(SET_INTERIOR_PAINTED, Boolean.valueOf(painted));
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean isOutlineDrawn() {
+		return this.isOutlineDrawn;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void setOutlineDrawn(boolean outlined) {
+		this.isOutlineDrawn = outlined;
+		record(SET_OUTLINE_DRAWN, Boolean.valueOf(outlined));
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String getInteriorText() {
+		return this.interiorText;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void setInteriorText(String interiorText) {
+		this.interiorText = interiorText;
+		record(SET_INTERIOR_TEXT, interiorText);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean isLocked() {
+		return this.topFigure!=null && this.topFigure.isLocked();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Rectangle2f getCurrentViewComponentBounds() {
+		if (this.currentViewComponentBounds==null)
+			throw new NoSuchElementException();
+		return this.currentViewComponentBounds;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Shape2f getCurrentViewComponentShape() {
+		if (this.currentViewComponentShape==null)
+			throw new NoSuchElementException();
+		return this.currentViewComponentShape;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void pushRenderingContext(Figure component, Transform2D localTransformation) {
+		pushRenderingContext(component, null, null, null, null, localTransformation);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void pushRenderingContext(Figure component, Shape2f viewShape,
+			Rectangle2f bounds) {
+		pushRenderingContext(component, viewShape, bounds, null, null, null);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void pushRenderingContext(Figure component, Shape2f viewShape,
+			Rectangle2f bounds, Color fillColor, Color lineColor) {
+		pushRenderingContext(component, viewShape, bounds, fillColor, lineColor, null);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void pushRenderingContext(Figure component, Color fillColor,
+			Color lineColor) {
+		pushRenderingContext(component, null, null, fillColor, lineColor, null);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void pushRenderingContext(Figure component, Shape2f viewShape,
+			Rectangle2f bounds, Color fillColor, Color lineColor,
+			Transform2D localTransformation) {
+		boolean isTopLevel = this.stack.isEmpty();
+		int start = this.commands.size();
+
+		// The colors are taken from the figure now,
+		// because the list is painted without reading the figures.
+		Color fc = fillColor;
+		Color lc = lineColor;
+		if (component!=null) {
+			boolean locked = component.isLocked();
+			if (fc==null) fc = locked ? component.getLockFillColor() : component.getFillColor();
+			if (lc==null) lc = locked ? component.getLockOutlineColor() : component.getLineColor();
+		}
+
+		Shape2f s = copy(viewShape);
+		Rectangle2f b = copy(bounds);
+		Transform2D t = localTransformation==null ? null : localTransformation.clone();
+
+		GContext context = this.stack.push();
+		context.figure = this.topFigure;
+		context.shape = this.currentViewComponentShape;
+		context.bounds = this.currentViewComponentBounds;
+		context.fillColor = this.fillColor;
+		context.lineColor = this.outlineColor;
+		context.stroke = this.stroke;
+		context.paint = this.paint;
+		context.isFilled = this.isInteriorPainted;
+		context.isOutlined = this.isOutlineDrawn;
+		context.transform = (t==null) ? null : this.transform.clone();
+
+		if (t!=null) this.transform.set(t);
+		if (fc!=null) this.fillColor = fc;
+		if (lc!=null) this.outlineColor = lc;
+		if (b!=null) this.currentViewComponentBounds = b;
+		if (s!=null) this.currentViewComponentShape = s;
+		else if (b!=null) this.currentViewComponentShape = b;
+		if (component!=null) this.topFigure = component;
+
+		context.start = start;
+		context.component = component;
+		if (isTopLevel) {
+			context.blockBounds = toRecordingBounds(b);
+		}
+
+		record(PUSH, component, s, b, fc, lc, t);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void popRenderingContext() {
+		if (!this.stack.isEmpty()) {
+			GContext context = this.stack.pop();
+			if (context.fillColor!=null) this.fillColor = context.fillColor;
+			if (context.lineColor!=null) this.outlineColor = context.lineColor;
+			if (context.stroke!=null) this.stroke = context.stroke;
+			if (context.paint!=null) this.paint = context.paint;
+			if (context.transform!=null) this.transform.set(context.transform);
+			this.isInteriorPainted = context.isFilled;
+			this.isOutlineDrawn = context.isOutlined;
+			this.currentViewComponentBounds = context.bounds;
+			this.currentViewComponentShape = context.shape;
+			this.topFigure = context.figure;
+			record(POP);
+			if (this.stack.isEmpty()) {
+				this.blocks.add(new DisplayList.Block(context.start, this.commands.size(),
+						context.blockBounds, context.component));
+			}
+			context.clear();
+		}
+		else {
+			record(POP);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void beginGroup() {
+		record(BEGIN_GROUP);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void endGroup() {
+		record(END_GROUP);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void drawPoint(float x, float y) {
+		recordValues(DRAW_POINT, x, y);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void drawDefaultImage(float dx1, float dy1, float dx2, float dy2) {
+		recordValues(DRAW_DEFAULT_IMAGE, dx1, dy1, dx2, dy2);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean drawImage(URL imageURL, Image img, float dx1, float dy1,
+			float dx2, float dy2, int sx1, int sy1, int sx2, int sy2) {
+		return drawImage(imageURL, img, dx1, dy1, dx2, dy2, sx1, sy1, sx2, sy2, null);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean drawImage(URL imageURL, Image img, float dx1, float dy1,
+			float dx2, float dy2, int sx1, int sy1, int sx2, int sy2,
+			ImageObserver observer) {
+		this.commands.add(new Call(DRAW_IMAGE,
+				new Object[] {imageURL, img, observer},
+				new float[] {dx1, dy1, dx2, dy2, sx1, sy1, sx2, sy2}));
+		return true;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void draw(Shape2f s) {
+		record(DRAW, copy(s));
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void drawString(String str, float x, float y) {
+		drawString(str, x, y, null);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void drawString(String str, float x, float y, Shape2f clip) {
+		this.commands.add(new Call(DRAW_STRING,
+				new Object[] {str, copy(clip)},
+				new float[] {x, y}));
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void clear(Shape2f s) {
+		record(CLEAR, copy(s));
+	}
+
+	/** Recorded call to a function of the graphical context.
+	 *
+	 * @author $Author: galland$
+	 * @version $FullVersion$
+	 * @mavengroupid $GroupId$
+	 * @mavenartifactid $ArtifactId$
+	 */
+	private static class Call extends DisplayList.Command {
+
+		private final int code;
+		private final Object[] arguments;
+		private final float[] values;
+
+		/**
+		 * @param code is the code of the called function.
+		 * @param arguments are the object arguments.
+		 * @param values are the numerical arguments.
+		 */
+		public Call(int code, Object[] arguments, float[] values) {
+			this.code = code;
+			this.arguments = arguments;
+			this.values = values;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public void replay(ViewGraphics2D g, Transform2D base) {
+			Object[] a = this.arguments;
+			float[] v = this.values;
+			switch(this.code) {
+			case SET_FONT:
+				g.setFont((Font)a[0]);
+				break;
+			case SET_CLIP:
+				g.setClip((Shape2f)a[0]);
+				break;
+			case CLIP:
+				g.clip((Shape2f)a[0]);
+				break;
+			case TRANSFORM:
+				g.transform((Transform2D)a[0]);
+				break;
+			case SET_TRANSFORM:
+				g.setTransform(DisplayList.rebase(base, (Transform2D)a[0]));
+				break;
+			case TRANSLATE:
+				g.translate(v[0], v[1]);
+				break;
+			case SCALE:
+				g.scale(v[0], v[1]);
+				break;
+			case ROTATE:
+				g.rotate(v[0]);
+				break;
+			case SHEAR:
+				g.shear(v[0], v[1]);
+				break;
+			case SET_BACKGROUND:
+				g.setBackground((Color)a[0]);
+				break;
+			case SET_PAINT:
+				g.setPaint((Paint)a[0]);
+				break;
+			case SET_FILL_COLOR:
+				g.setFillColor((Color)a[0]);
+				break;
+			case SET_OUTLINE_COLOR:
+				g.setOutlineColor((Color)a[0]);
+				break;
+			case SET_COLORS:
+				g.setColors((Color)a[0], (Color)a[1]);
+				break;
+			case SET_COMPOSITE:
+				g.setComposite((Composite)a[0]);
+				break;
+			case SET_STROKE:
+				g.setStroke((Stroke)a[0]);
+				break;
+			case SET_INTERIOR_PAINTED:
+				g.setInteriorPainted(((Boolean)a[0]).booleanValue());
+				break;
+			case SET_OUTLINE_DRAWN:
+				g.setOutlineDrawn(((Boolean)a[0]).booleanValue());
+				break;
+			case SET_INTERIOR_TEXT:
+				g.setInteriorText((String)a[0]);
+				break;
+			case PUSH:
+				g.pushRenderingContext((Figure)a[0], (Shape2f)a[1], (Rectangle2f)a[2],
+						(Color)a[3], (Color)a[4], DisplayList.rebase(base, (Transform2D)a[5]));
+				break;
+			case POP:
+				g.popRenderingContext();
+				break;
+			case BEGIN_GROUP:
+				g.beginGroup();
+				break;
+			case END_GROUP:
+				g.endGroup();
+				break;
+			case DRAW_POINT:
+				g.drawPoint(v[0], v[1]);
+				break;
+			case DRAW_DEFAULT_IMAGE:
+				g.drawDefaultImage(v[0], v[1], v[2], v[3]);
+				break;
+			case DRAW_IMAGE:
+				g.drawImage((URL)a[0], (Image)a[1], v[0], v[1], v[2], v[3],
+						(int)v[4], (int)v[5], (int)v[6], (int)v[7], (ImageObserver)a[2]);
+				break;
+			case DRAW:
+				g.draw((Shape2f)a[0]);
+				break;
+			case DRAW_STRING:
+				if (a[1]==null) g.drawString((String)a[0], v[0], v[1]);
+				else g.drawString((String)a[0], v[0], v[1], (Shape2f)a[1]);
+				break;
+			case CLEAR:
+				g.clear((Shape2f)a[0]);
+				break;
+			default:
+				throw new IllegalStateException();
+			}
+		}
+
+	}
+
+	/** Saved state of a rendering context.
+	 *
+	 * @author $Author: galland$
+	 * @version $FullVersion$
+	 * @mavengroupid $GroupId$
+	 * @mavenartifactid $ArtifactId$
+	 */
+	private static class GContext implements RenderingContextStack.Frame {
+
+		public Figure figure;
+		public Shape2f shape;
+		public Rectangle2f bounds;
+		public Color fillColor;
+		public Color lineColor;
+		public Stroke stroke;
+		public Paint paint;
+		public boolean isFilled;
+		public boolean isOutlined;
+		public Transform2D transform;
+		public int start;
+		public Figure component;
+		public Rectangle2f blockBounds;
+
+		/**
+		 */
+		public GContext() {
+			//
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public void clear() {
+			this.figure = null;
+			this.shape = null;
+			this.bounds = null;
+			this.fillColor = null;
+			this.lineColor = null;
+			this.stroke = null;
+			this.paint = null;
+			this.transform = null;
+			this.component = null;
+			this.blockBounds = null;
+		}
+
+	}
+
+}
@@ -0,0 +1,164 @@
+/* 
+ * $Id$
+ * 
+ * Copyright (C) 2013 Stephane GALLAND.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ * This program is free software; you can redistribute it and/or modify
+ */
+package org.arakhne.neteditor.fig.graphics;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/** Stack of rendering contexts that is reusing its frames.
+ * <p>
+ * The {@link ViewGraphics2D} implementations are pushing a
+ * rendering context for each painted figure. This stack is
+ * allocating a frame only when it becomes deeper than before;
+ * the popped frames are kept and reused by the next pushes, so
+ * that painting the figures of a view does not allocate
+ * rendering contexts once the stack has reached its depth.
+ * <p>
+ * The frames are cleared by {@link #clear()}, so that
+ * they do not retain the painted figures between two paints.
+ *
+ * @param <F> is the type of the frames.
+ * @author $Author: galland$
+ * @version $FullVersion$
+ * @mavengroupid $GroupId$
+ * @mavenartifactid $ArtifactId$
+ */
+public abstract class RenderingContextStack<F extends RenderingContextStack.Frame> {
+
+	/** Default initial capacity of the stack.
+	 */
+	public static final int DEFAULT_CAPACITY = 16;
+
+	private Object[] frames;
+	private int size = 0;
+
+	/**
+	 */
+	public RenderingContextStack() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * @param capacity is the initial capacity of the stack.
+	 */
+	public RenderingContextStack(int capacity) {
+		this.frames = new Object[Math.max(1, capacity)];
+	}
+
+	/** Create a frame.
+	 * 
+	 * @return the new frame.
+	 */
+	protected abstract F createFrame();
+
+	/** Replies the number of frames in the stack.
+	 * 
+	 * @return the number of frames.
+	 */
+	public int size() {
+		return this.size;
+	}
+
+	/** Replies if the stack is empty.
+	 * 
+	 * @return <code>true</code> if the stack is empty;
+	 * otherwise <code>false</code>.
+	 */
+	public boolean isEmpty() {
+		return this.size==0;
+	}
+
+	/** Push a frame on the stack.
+	 * The replied frame may contain the values of a
+	 * previously popped frame; they must be overwritten
+	 * by the caller.
+	 * 
+	 * @return the pushed frame.
+	 */
+	@SuppressWarnings("unchecked")
+	public F push() {
+		if (this.size>=this.frames.length) {
+			this.frames = Arrays.copyOf(this.frames, this.frames.length*2);
+		}
+		F frame = (F)this.frames[this.size];
+		if (frame==null) {
+			frame = createFrame();
+			this.frames[this.size] = frame;
+		}
+		++this.size;
+		return frame;
+	}
+
+	/** Pop the frame at the top of the stack.
+	 * The replied frame is valid until the next push.
+	 * 
+	 * @return the popped frame.
+	 * @throws NoSuchElementException if the stack is empty.
+	 */
+	@SuppressWarnings("unchecked")
+	public F pop() {
+		if (this.size==0) throw new NoSuchElementException();
+		--this.size;
+		return (F)this.frames[this.size];
+	}
+
+	/** Replies the frame at the given depth, where
+	 * <code>0</code> is the top of the stack.
+	 * 
+	 * @param depth is the depth of the frame.
+	 * @return the frame.
+	 * @throws IndexOutOfBoundsException if the depth is invalid.
+	 */
+	@SuppressWarnings("unchecked")
+	public F get(int depth) {
+		if (depth<0 || depth>=this.size) throw new IndexOutOfBoundsException();
+		return (F)this.frames[this.size-depth-1];
+	}
+
+	/** Remove all the frames from the stack, and
+	 * clear the frames.
+	 */
+	public void clear() {
+		this.size = 0;
+		Frame frame;
+		for(int i=0; i<this.frames.length; ++i) {
+			frame = (Frame)this.frames[i];
+			if (frame!=null) frame.clear();
+		}
+	}
+
+	/** Frame of a {@link RenderingContextStack}.
+	 *
+	 * @author $Author: galland$
+	 * @version $FullVersion$
+	 * @mavengroupid $GroupId$
+	 * @mavenartifactid $ArtifactId$
+	 */
+	public interface Frame {
+
+		/** Remove the references to the objects
+		 * that are stored in this frame.
+		 */
+		public void clear();
+
+	}
+
+}
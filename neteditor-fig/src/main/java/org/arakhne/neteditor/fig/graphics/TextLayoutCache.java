@@ -0,0 +1,248 @@
+/* 
+ * $Id$
+ * 
+ * Copyright (C) 2013 Stephane GALLAND.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ * This program is free software; you can redistribute it and/or modify
+ */
+package org.arakhne.neteditor.fig.graphics;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.arakhne.afc.math.continous.object2d.Rectangle2f;
+import org.arakhne.afc.ui.vector.Font;
+
+/** Bounded cache of the layouts of the texts.
+ * <p>
+ * A layout is the result of the measurement of a text
+ * with a given font: its bounds. Measuring a text
+ * is costly, and the labels of the figures are measured
+ * each time they are fitted to their content or
+ * exported; this cache permits to measure
+ * each pair (font, text) only once.
+ * <p>
+ * The cache is keyed by the font and the text;
+ * so that changing the font or the text
+ * of a figure implicitly selects another layout.
+ * The least recently used layouts are removed when
+ * the capacity of the cache is reached.
+ * <p>
+ * This class is thread-safe.
+ *
+ * @author $Author: galland$
+ * @version $FullVersion$
+ * @mavengroupid $GroupId$
+ * @mavenartifactid $ArtifactId$
+ */
+public class TextLayoutCache {
+
+	/** Default capacity of the caches.
+	 */
+	public static final int DEFAULT_CAPACITY = 512;
+
+	private static final TextLayoutCache SHARED = new TextLayoutCache(DEFAULT_CAPACITY);
+
+	/** Replies the cache shared by the figures and the
+	 * graphical contexts.
+	 * 
+	 * @return the shared cache.
+	 */
+	public static TextLayoutCache getSharedCache() {
+		return SHARED;
+	}
+
+	private final int capacity;
+	private final Map<Key,Layout> layouts;
+
+	/**
+	 * @param capacity is the maximal number of layouts in the cache.
+	 */
+	public TextLayoutCache(int capacity) {
+		this.capacity = Math.max(1, capacity);
+		this.layouts = new LinkedHashMap<Key,Layout>(16, .75f, true) {
+			private static final long serialVersionUID = -6342856224870712461L;
+			@SuppressWarnings("synthetic-access")
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Key,Layout> eldest) {
+				return size()>TextLayoutCache.this.capacity;
+			}
+		};
+	}
+
+	/** Replies the maximal number of layouts in the cache.
+	 * 
+	 * @return the capacity of the cache.
+	 */
+	public int getCapacity() {
+		return this.capacity;
+	}
+
+	/** Replies the number of layouts in the cache.
+	 * 
+	 * @return the number of layouts.
+	 */
+	public synchronized int size() {
+		return this.layouts.size();
+	}
+
+	/** Remove all the layouts from the cache.
+	 */
+	public synchronized void clear() {
+		this.layouts.clear();
+	}
+
+	/** Replies the layout of the given text.
+	 * 
+	 * @param font is the font used to draw the text.
+	 * @param text is the text to measure.
+	 * @return the layout of the text.
+	 */
+	public Layout getLayout(Font font, String text) {
+		assert(font!=null);
+		assert(text!=null);
+		Key key = new Key(font, text);
+		Layout layout;
+		synchronized(this) {
+			layout = this.layouts.get(key);
+		}
+		if (layout==null) {
+			// Measure outside the lock; concurrent measurements
+			// of the same text are replying equal layouts.
+			layout = new Layout(font, text);
+			synchronized(this) {
+				this.layouts.put(key, layout);
+			}
+		}
+		return layout;
+	}
+
+	/** Replies the bounds of the given text.
+	 * 
+	 * @param font is the font used to draw the text.
+	 * @param text is the text to measure.
+	 * @return the bounds of the text.
+	 */
+	public Rectangle2f getStringBounds(Font font, String text) {
+		return getLayout(font, text).getBounds();
+	}
+
+	/** Replies the width of the given text.
+	 * 
+	 * @param font is the font used to draw the text.
+	 * @param text is the text to measure.
+	 * @return the width of the text.
+	 */
+	public float getStringWidth(Font font, String text) {
+		return getLayout(font, text).getWidth();
+	}
+
+	/** Key of a layout.
+	 *
+	 * @author $Author: galland$
+	 * @version $FullVersion$
+	 * @mavengroupid $GroupId$
+	 * @mavenartifactid $ArtifactId$
+	 */
+	private static class Key {
+
+		public final Font font;
+		public final String text;
+		private final int hash;
+
+		/**
+		 * @param font
+		 * @param text
+		 */
+		public Key(Font font, String text) {
+			this.font = font;
+			this.text = text;
+			this.hash = font.hashCode() * 31 + text.hashCode();
+		}
+
+		@Override
+		public int hashCode() {
+			return this.hash;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (obj==this) return true;
+			if (obj instanceof Key) {
+				Key k = (Key)obj;
+				return this.hash==k.hash
+						&& this.text.equals(k.text)
+						&& this.font.equals(k.font);
+			}
+			return false;
+		}
+
+	}
+
+	/** Layout of a text. The layouts are immutable.
+	 *
+	 * @author $Author: galland$
+	 * @version $FullVersion$
+	 * @mavengroupid $GroupId$
+	 * @mavenartifactid $ArtifactId$
+	 */
+	public static final class Layout {
+
+		private final float minX;
+		private final float minY;
+		private final float width;
+		private final float height;
+
+		/**
+		 * @param font
+		 * @param text
+		 */
+		Layout(Font font, String text) {
+			Rectangle2f r = font.getStringBounds(text);
+			this.minX = r.getMinX();
+			this.minY = r.getMinY();
+			this.width = r.getWidth();
+			this.height = r.getHeight();
+		}
+
+		/** Replies the width of the text.
+		 * 
+		 * @return the width of the text.
+		 */
+		public float getWidth() {
+			return this.width;
+		}
+
+		/** Replies the height of the text.
+		 * 
+		 * @return the height of the text.
+		 */
+		public float getHeight() {
+			return this.height;
+		}
+
+		/** Replies the bounds of the text, relatively to the
+		 * drawing position of the text.
+		 * 
+		 * @return a copy of the bounds of the text.
+		 */
+		public Rectangle2f getBounds() {
+			return new Rectangle2f(this.minX, this.minY, this.width, this.height);
+		}
+
+	}
+
+}
@@ -21,8 +21,19 @@
  */
 package org.arakhne.neteditor.fig.graphics;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+import org.arakhne.afc.math.continous.object2d.Rectangle2f;
 import org.arakhne.afc.ui.Graphics2DLOD;
 import org.arakhne.afc.ui.vector.VectorGraphics2D;
+import org.arakhne.afc.ui.vector.VectorToolkit;
+import org.arakhne.neteditor.fig.figure.Figure;
+import org.arakhne.neteditor.fig.view.ViewComponent;
 
 /** Utilities for ViewGraphics2D.
  *
@@ -74,6 +85,245 @@ public class ViewGraphicsUtil {
 		throw new IllegalStateException("You must given a Factory to ViewGraphicsUtil"); //$NON-NLS-1$
 	}
 
+	/** Paint the given figures in the given graphical context,
+	 * from the background to the front.
+	 * This function does not need to access to the container
+	 * of the figures; so that it may be used on a snapshot of the
+	 * container, eg. replied by
+	 * {@link org.arakhne.neteditor.fig.view.ViewComponentContainer#getFigureSnapshot()}.
+	 * 
+	 * @param g is the graphical context.
+	 * @param components are the components to paint, from the front to the background.
+	 * @param shadows indicates if the shadows of the figures are painted.
+	 * @param area is the area to paint; only the figures intersecting this area
+	 * are painted. If <code>null</code>, all the figures are painted.
+	 */
+	public static void paintViewComponents(ViewGraphics2D g, List<? extends ViewComponent> components,
+			boolean shadows, Rectangle2f area) {
+		Rectangle2f bounds;
+		ViewComponent component;
+		Figure figure;
+
+		VectorToolkit.prepareDrawing(g);
+
+		try {
+			if (shadows && g.getLOD().compareTo(Graphics2DLOD.NORMAL_LEVEL_OF_DETAIL)>=0) {
+				ViewGraphics2D sg = new ShadowViewGraphics2D(g);
+				float dx = g.getShadowTranslationX();
+				float dy = g.getShadowTranslationY();
+				sg.translate(dx, dy);
+				try {
+					for(int i=components.size()-1; i>=0; --i) {
+						component = components.get(i);
+						if (component instanceof Figure) {
+							figure = (Figure)component;
+							bounds = figure.getBounds();
+							if (area==null || (bounds!=null && bounds.intersects(area))) {
+								sg.pushRenderingContext(
+										figure, figure.getClip(bounds), bounds);
+								figure.paint(sg);
+								sg.popRenderingContext();
+							}
+						}
+					}
+				}
+				finally {
+					sg.translate(-dx, -dy);
+				}
+			}
+
+			for(int i=components.size()-1; i>=0; --i) {
+				component = components.get(i);
+				if (component instanceof Figure) {
+					figure = (Figure)component;
+					bounds = figure.getBounds();
+					if (area==null || (bounds!=null && bounds.intersects(area))) {
+						g.pushRenderingContext(
+								figure,
+								figure.getClip(bounds),
+								bounds);
+						figure.paint(g);
+						g.popRenderingContext();
+					}
+				}
+			}
+		}
+		finally {
+			VectorToolkit.finalizeDrawing(g);
+		}
+	}
+
+	/** Paint the given figures in the given graphical context,
+	 * within a time budget.
+	 * <p>
+	 * The figures to paint are chosen before the painting:
+	 * the figures in <var>priorities</var> are chosen first, and then
+	 * the other figures from the front to the background, until the
+	 * number of figures that may be painted within the budget is reached.
+	 * The chosen figures are painted from the background to the front.
+	 * Consequently, when the budget is too short, the figures
+	 * behind are skipped, not the selected and the front-most figures.
+	 * 
+	 * @param g is the graphical context.
+	 * @param components are the components to paint, from the front to the background.
+	 * @param shadows indicates if the shadows of the figures are painted.
+	 * @param area is the area to paint; only the figures intersecting this area
+	 * are painted. If <code>null</code>, all the figures are painted.
+	 * @param priorities are the figures to paint first, eg. the selected figures.
+	 * It may be <code>null</code>.
+	 * @param budget is the time budget of the frame.
+	 * @return <code>true</code> if all the figures were painted;
+	 * <code>false</code> if some figures were skipped.
+	 */
+	public static boolean paintViewComponents(ViewGraphics2D g, List<? extends ViewComponent> components,
+			boolean shadows, Rectangle2f area, Collection<?> priorities, FrameBudget budget) {
+		long start = System.nanoTime();
+		Rectangle2f bounds;
+		Figure figure;
+
+		// Visible figures, from the front to the background
+		List<Figure> visible = new ArrayList<Figure>(components.size());
+		for(ViewComponent component : components) {
+			if (component instanceof Figure) {
+				figure = (Figure)component;
+				bounds = figure.getBounds();
+				if (area==null || (bounds!=null && bounds.intersects(area))) {
+					visible.add(figure);
+				}
+			}
+		}
+
+		List<Figure> painted = choose(visible, visible, priorities, budget.getFigureCount());
+
+		paintViewComponents(g, painted, shadows, null);
+
+		budget.update(painted.size(), System.nanoTime() - start);
+		return painted.size()==visible.size();
+	}
+
+	/** Choose the items to paint within a maximal number of items.
+	 * The items with a key in <var>priorities</var> are chosen first,
+	 * and then the other items from the front to the background.
+	 * 
+	 * @param items are the items, from the front to the background.
+	 * @param keys are the keys of the items, at the same indexes as the items.
+	 * @param priorities are the keys of the items to choose first; may be <code>null</code>.
+	 * @param max is the maximal number of items.
+	 * @return the chosen items, from the front to the background.
+	 */
+	private static <T> List<T> choose(List<T> items, List<?> keys, Collection<?> priorities, int max) {
+		if (items.size()<=max) return items;
+		Set<Object> chosen = Collections.newSetFromMap(new IdentityHashMap<Object,Boolean>());
+		if (priorities!=null && !priorities.isEmpty()) {
+			Set<Object> prioritySet = Collections.newSetFromMap(new IdentityHashMap<Object,Boolean>());
+			prioritySet.addAll(priorities);
+			for(int i=0; i<items.size() && chosen.size()<max; ++i) {
+				if (prioritySet.contains(keys.get(i))) chosen.add(items.get(i));
+			}
+		}
+		for(int i=0; i<items.size() && chosen.size()<max; ++i) {
+			chosen.add(items.get(i));
+		}
+		// Keep the z-order of the chosen items
+		List<T> result = new ArrayList<T>(chosen.size());
+		for(T item : items) {
+			if (chosen.contains(item)) result.add(item);
+		}
+		return result;
+	}
+
+	/** Record the painting of the given figure into a display list.
+	 * 
+	 * @param reference is the context that provides the level of details,
+	 * the fonts and the shadow translation. It is never drawn.
+	 * @param figure is the figure to record.
+	 * @param shadow indicates if the shadow of the figure is recorded
+	 * instead of the figure itself.
+	 * @return the display list of the figure.
+	 * @see DisplayListCache
+	 */
+	public static DisplayList recordViewComponent(ViewGraphics2D reference, Figure figure, boolean shadow) {
+		RecordingViewGraphics2D rg = new RecordingViewGraphics2D(reference);
+		Rectangle2f bounds = figure.getBounds();
+		if (shadow) {
+			ViewGraphics2D sg = new ShadowViewGraphics2D(rg);
+			float dx = reference.getShadowTranslationX();
+			float dy = reference.getShadowTranslationY();
+			sg.translate(dx, dy);
+			sg.pushRenderingContext(figure, figure.getClip(bounds), bounds);
+			figure.paint(sg);
+			sg.popRenderingContext();
+			sg.translate(-dx, -dy);
+		}
+		else {
+			rg.pushRenderingContext(figure, figure.getClip(bounds), bounds);
+			figure.paint(rg);
+			rg.popRenderingContext();
+		}
+		return rg.getDisplayList();
+	}
+
+	/** Paint the given display lists in the given graphical context.
+	 * The lists are painted without reading the figures; so that
+	 * this function may be invoked without the tree lock of
+	 * the container of the figures.
+	 * 
+	 * @param g is the graphical context.
+	 * @param lists are the lists to paint, in the painting order.
+	 * @param area is the area to paint; only the blocks of the lists intersecting
+	 * this area are painted. If <code>null</code>, all the blocks are painted.
+	 * @see DisplayListCache#record(ViewGraphics2D, List, boolean)
+	 */
+	public static void paintDisplayLists(ViewGraphics2D g, List<DisplayList> lists, Rectangle2f area) {
+		VectorToolkit.prepareDrawing(g);
+		try {
+			for(DisplayList list : lists) {
+				list.paint(g, area);
+			}
+		}
+		finally {
+			VectorToolkit.finalizeDrawing(g);
+		}
+	}
+
+	/** Paint the given display lists in the given graphical context,
+	 * within a time budget.
+	 * <p>
+	 * The lists are chosen as the figures by
+	 * {@link #paintViewComponents(ViewGraphics2D, List, boolean, Rectangle2f, Collection, FrameBudget)}:
+	 * the lists of the figures in <var>priorities</var> first, and then
+	 * the lists from the front to the background.
+	 * 
+	 * @param g is the graphical context.
+	 * @param lists are the lists to paint, in the painting order.
+	 * @param priorities are the figures to paint first, eg. the selected figures.
+	 * It may be <code>null</code>.
+	 * @param budget is the time budget of the frame.
+	 * @return <code>true</code> if all the lists were painted;
+	 * <code>false</code> if some lists were skipped.
+	 */
+	public static boolean paintDisplayLists(ViewGraphics2D g, List<DisplayList> lists,
+			Collection<?> priorities, FrameBudget budget) {
+		long start = System.nanoTime();
+
+		// Lists and their figures, from the front to the background
+		List<DisplayList> frontToBack = new ArrayList<DisplayList>(lists.size());
+		List<ViewComponent> keys = new ArrayList<ViewComponent>(lists.size());
+		for(int i=lists.size()-1; i>=0; --i) {
+			frontToBack.add(lists.get(i));
+			keys.add(lists.get(i).getViewComponent());
+		}
+
+		List<DisplayList> painted = new ArrayList<DisplayList>(
+				choose(frontToBack, keys, priorities, budget.getFigureCount()));
+		Collections.reverse(painted);
+
+		paintDisplayLists(g, painted, null);
+
+		budget.update(painted.size(), System.nanoTime() - start);
+		return painted.size()==lists.size();
+	}
+
 	/** Factory to create ViewVector2D.
 	 *
 	 * @author $Author: galland$
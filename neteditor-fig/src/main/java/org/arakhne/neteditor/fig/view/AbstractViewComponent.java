@@ -31,6 +31,7 @@ import java.util.EventListener;
 import java.util.Map;
 import java.util.TreeMap;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.prefs.Preferences;
 
 import org.arakhne.afc.math.continous.object2d.Point2f;
@@ -46,6 +47,7 @@ import org.arakhne.afc.ui.vector.VectorToolkit;
 import org.arakhne.afc.util.ListenerCollection;
 import org.arakhne.neteditor.fig.PropertyNames;
 import org.arakhne.neteditor.fig.figure.coercion.CoercedFigure;
+import org.arakhne.neteditor.fig.graphics.ImageCache;
 import org.arakhne.neteditor.formalism.AbstractPropertyTooler;
 
 /** This class is the base class for all the drawable components. 
@@ -60,6 +62,12 @@ public abstract class AbstractViewComponent extends AbstractPropertyTooler imple
 
 	private static final long serialVersionUID = -7365192025415626795L;
 
+	/** Source of the versions of the components.
+	 * The versions are shared by all the components, so that a
+	 * version is never replied twice, even by different components.
+	 */
+	private static final AtomicLong VERSIONS = new AtomicLong();
+
 	/** Utility function that permits to extract a property image from a map.
 	 * This function could reply <code>null</code> if the given map contains
 	 * a property with <code>null</code> value. In this case the default
@@ -84,7 +92,8 @@ public abstract class AbstractViewComponent extends AbstractPropertyTooler imple
 				img = (Image)v;
 			}
 			else if (v instanceof URL) {
-				img = VectorToolkit.image((URL)v);
+				// The images of the same resource are shared by the figures
+				img = ImageCache.getSharedCache().get((URL)v, null).waitForImage();
 			}
 			if (img==null && v instanceof InputStream) {
 				img = VectorToolkit.image((InputStream)v);
@@ -166,6 +175,8 @@ public abstract class AbstractViewComponent extends AbstractPropertyTooler imple
 	private Image icon = null;
 	private String name = null;
 
+	private transient volatile long version = VERSIONS.incrementAndGet();
+
 	/** Construct a new view component.
 	 * <p>
 	 * The specified width and height are set inconditionally.
@@ -348,6 +359,7 @@ public abstract class AbstractViewComponent extends AbstractPropertyTooler imple
 	 * @param newValue is the new value for the property.
 	 */
 	public void firePropertyChange(String propertyName, Object oldValue, Object newValue) {
+		this.version = VERSIONS.incrementAndGet();
 		ViewComponentPropertyChangeEvent event = new ViewComponentPropertyChangeEvent(
 				this, propertyName, oldValue, newValue);
 		for(ViewComponentPropertyChangeListener listener : getListeners(ViewComponentPropertyChangeListener.class)) {
@@ -922,11 +934,20 @@ public abstract class AbstractViewComponent extends AbstractPropertyTooler imple
 		removeListener(ViewComponentLayoutListener.class, listener);
 	}
 
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public long getVersion() {
+		return this.version;
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
 	@Override
 	public void repaint(boolean boundChanged) {
+		this.version = VERSIONS.incrementAndGet();
 		for(ViewComponentLayoutListener listener : getListeners(ViewComponentLayoutListener.class)) {
 			listener.componentRepaint(this, boundChanged);
 		}
@@ -129,6 +129,16 @@ public interface ViewComponent extends Serializable, Comparable<ViewComponent>,
 	 */
 	public void cleanUp() ;
 
+	/** Replies the version of the rendering of this component.
+	 * The version is changed each time a property change or
+	 * a repaint request is notified by this component; so that
+	 * the recorded rendering of the component may be reused
+	 * as long as its version has not changed.
+	 * 
+	 * @return the version of the rendering of this component.
+	 */
+	public long getVersion();
+
 	/** Method to paint this Fig.
 	 *
 	 * @param g the graphic context.
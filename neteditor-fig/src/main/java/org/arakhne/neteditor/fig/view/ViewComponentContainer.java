@@ -21,6 +21,8 @@
 package org.arakhne.neteditor.fig.view;
 
 import java.io.Serializable;
+import java.util.Collection;
+import java.util.List;
 import java.util.UUID;
 
 import org.arakhne.afc.math.continous.object2d.Rectangle2f;
@@ -73,6 +75,15 @@ public interface ViewComponentContainer<C extends ViewComponent, G extends Graph
 	 */
 	public C getFigureAt(int index);
 
+	/** Replies an immutable snapshot of the components in this container.
+	 * The snapshot is not changed by the later changes of the container.
+	 * It may be iterated by any thread without holding
+	 * the lock replied by {@link #getTreeLock()}.
+	 * 
+	 * @return the components, from the front to the background.
+	 */
+	public List<C> getFigureSnapshot();
+
 	/** Add the element at the specified index.
 	 * 
 	 * @param component is the component to add.
@@ -81,6 +92,17 @@ public interface ViewComponentContainer<C extends ViewComponent, G extends Graph
 	 */
 	public int addFigure(C component);
 
+	/** Add the given components.
+	 * The components are inserted in front of the components
+	 * already in the container, in the order of the collection:
+	 * the first component of the collection becomes the front-most one.
+	 * The listeners are notified once the components are all added.
+	 * 
+	 * @param components are the components to add, from front to background.
+	 * @return the number of added components.
+	 */
+	public int addFigures(Collection<? extends C> components);
+
 	/** Remove the specified element.
 	 * 
 	 * @param component is the component to remove.
@@ -88,6 +110,24 @@ public interface ViewComponentContainer<C extends ViewComponent, G extends Graph
 	 */
 	public int removeFigure(C component);
 
+	/** Remove the specified elements.
+	 * The listeners are notified once the components are all removed.
+	 * 
+	 * @param components are the components to remove.
+	 * @return the number of removed components.
+	 */
+	public int removeFigures(Collection<? extends C> components);
+
+	/** Remove the specified elements.
+	 * The listeners are notified once the components are all removed.
+	 * 
+	 * @param components are the components to remove.
+	 * @param unlinkToModelObject indicates if the removed components should be
+	 * unlink to their model objects.
+	 * @return the number of removed components.
+	 */
+	public int removeFigures(Collection<? extends C> components, boolean unlinkToModelObject);
+
 	/** Remove the element at the specified index.
 	 * 
 	 * @param index is the position of the element to remove.
@@ -0,0 +1,519 @@
+/* 
+ * $Id$
+ * 
+ * Copyright (C) 2013 Stephane GALLAND.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ * This program is free software; you can redistribute it and/or modify
+ */
+package org.arakhne.neteditor.fig.view;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.ConcurrentModificationException;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.RandomAccess;
+import java.util.Set;
+
+/** List of view components ordered from the front to the background.
+ * <p>
+ * The components are stored in an array, from the background to the
+ * front; so that the insertion at the front of the list
+ * (index <code>0</code>) is done in constant time.
+ * The position of each component in the array is stored
+ * in an identity map. The positions that are changed by a
+ * shift of the array are updated lazily, on the next search.
+ * Consequently, {@link #get(int)}, {@link #indexOf(Object)},
+ * {@link #swap(int, int)} and the insertion at the front are
+ * done in constant time; the other changes are done with a single
+ * array copy.
+ * <p>
+ * The components are compared with the <code>==</code> operator,
+ * not with {@link Object#equals(Object)}.
+ * <p>
+ * The function {@link #snapshot()} replies an immutable copy of
+ * the list that may be iterated by any thread. The copy is
+ * shared by the callers until the next change of the list.
+ * The changes of the list and the creation of the snapshots
+ * are synchronized on the list; the other read accesses are not.
+ *
+ * @param <E> is the type of the components.
+ * @author $Author: galland$
+ * @version $FullVersion$
+ * @mavengroupid $GroupId$
+ * @mavenartifactid $ArtifactId$
+ */
+public class ZOrderedList<E> extends AbstractList<E> implements RandomAccess {
+
+	private static final int DEFAULT_CAPACITY = 16;
+
+	/** Components from the background to the front.
+	 */
+	private Object[] data;
+	private int size = 0;
+
+	/** Positions of the components in {@link #data}.
+	 */
+	private final Map<Object,Integer> positions = new IdentityHashMap<Object,Integer>();
+
+	/** The positions in {@link #data} that are greater than or
+	 * equal to this value are not up-to-date in {@link #positions}.
+	 */
+	private int dirtyFrom = 0;
+
+	/** Last snapshot of this list.
+	 */
+	private List<E> snapshot = null;
+	private int snapshotModCount = -1;
+
+	/**
+	 */
+	public ZOrderedList() {
+		this.data = new Object[DEFAULT_CAPACITY];
+	}
+
+	/**
+	 * @param components are the components to put in the list, from front to background.
+	 */
+	public ZOrderedList(Collection<? extends E> components) {
+		Object[] array = components.toArray();
+		this.data = new Object[Math.max(DEFAULT_CAPACITY, array.length)];
+		// The first component of the collection is the front-most
+		for(int i=0, p=array.length-1; p>=0; ++i, --p) {
+			this.data[i] = array[p];
+		}
+		this.size = array.length;
+	}
+
+	private int toPosition(int index) {
+		return this.size - 1 - index;
+	}
+
+	private void checkIndex(int index) {
+		if (index<0 || index>=this.size)
+			throw new IndexOutOfBoundsException(Integer.toString(index));
+	}
+
+	private void ensureCapacity(int capacity) {
+		if (capacity>this.data.length) {
+			int newCapacity = Math.max(capacity, this.data.length + (this.data.length >> 1) + 1);
+			this.data = Arrays.copyOf(this.data, newCapacity);
+		}
+	}
+
+	private void markDirty(int position) {
+		if (position<this.dirtyFrom) this.dirtyFrom = position;
+	}
+
+	/** Update the positions of the components that are
+	 * stored after the given position.
+	 */
+	private void updatePositions() {
+		for(int i=this.dirtyFrom; i<this.size; ++i) {
+			this.positions.put(this.data[i], Integer.valueOf(i));
+		}
+		this.dirtyFrom = this.size;
+	}
+
+	@Override
+	public int size() {
+		return this.size;
+	}
+
+	@SuppressWarnings("unchecked")
+	@Override
+	public E get(int index) {
+		checkIndex(index);
+		return (E)this.data[toPosition(index)];
+	}
+
+	@Override
+	public synchronized E set(int index, E element) {
+		checkIndex(index);
+		int pos = toPosition(index);
+		@SuppressWarnings("unchecked")
+		E old = (E)this.data[pos];
+		this.data[pos] = element;
+		this.snapshot = null;
+		forget(old, pos);
+		if (pos<this.dirtyFrom) {
+			this.positions.put(element, Integer.valueOf(pos));
+		}
+		return old;
+	}
+
+	@Override
+	public synchronized void add(int index, E element) {
+		if (index<0 || index>this.size)
+			throw new IndexOutOfBoundsException(Integer.toString(index));
+		ensureCapacity(this.size+1);
+		int pos = this.size - index;
+		if (pos<this.size) {
+			System.arraycopy(this.data, pos, this.data, pos+1, this.size - pos);
+			markDirty(pos);
+			this.data[pos] = element;
+			++this.size;
+		}
+		else {
+			// Insertion at the front: no component is shifted
+			this.data[pos] = element;
+			++this.size;
+			if (this.dirtyFrom==pos) {
+				this.positions.put(element, Integer.valueOf(pos));
+				this.dirtyFrom = this.size;
+			}
+		}
+		++this.modCount;
+	}
+
+	/** Add the components at the background of the list.
+	 * The components already in the list are shifted
+	 * once for the whole collection.
+	 * 
+	 * @param c are the components to add, from front to background.
+	 * @return <code>true</code> if the list has changed.
+	 */
+	@Override
+	public boolean addAll(Collection<? extends E> c) {
+		return addAll(this.size, c);
+	}
+
+	@Override
+	public synchronized boolean addAll(int index, Collection<? extends E> c) {
+		if (index<0 || index>this.size)
+			throw new IndexOutOfBoundsException(Integer.toString(index));
+		Object[] array = c.toArray();
+		int n = array.length;
+		if (n==0) return false;
+		ensureCapacity(this.size+n);
+		int pos = this.size - index;
+		if (pos<this.size) {
+			System.arraycopy(this.data, pos, this.data, pos+n, this.size - pos);
+			markDirty(pos);
+		}
+		// The first component of the collection is the front-most
+		int p = pos + n - 1;
+		for(int i=0; i<n; ++i) {
+			this.data[p--] = array[i];
+		}
+		this.size += n;
+		markDirty(pos);
+		++this.modCount;
+		return true;
+	}
+
+	@Override
+	public synchronized E remove(int index) {
+		checkIndex(index);
+		int pos = toPosition(index);
+		@SuppressWarnings("unchecked")
+		E old = (E)this.data[pos];
+		int moved = this.size - pos - 1;
+		if (moved>0) {
+			System.arraycopy(this.data, pos+1, this.data, pos, moved);
+			markDirty(pos);
+		}
+		this.data[--this.size] = null;
+		if (this.dirtyFrom>this.size) this.dirtyFrom = this.size;
+		forget(old, pos);
+		++this.modCount;
+		return old;
+	}
+
+	@Override
+	public boolean remove(Object o) {
+		int index = indexOf(o);
+		if (index>=0) {
+			remove(index);
+			return true;
+		}
+		return false;
+	}
+
+	/** Remove the given components in one pass over the list.
+	 * All the occurrences of the components are removed.
+	 * 
+	 * @param components are the components to remove. The
+	 * {@link Set#contains(Object)} function of this set is
+	 * used to determine if a component should be removed.
+	 * @param removed is filled with the removed components, from
+	 * the front to the background. It may be <code>null</code>.
+	 * @return the number of removed components.
+	 */
+	public synchronized int removeAll(Set<?> components, List<? super E> removed) {
+		if (components.isEmpty()) return 0;
+		int w = 0;
+		int first = -1;
+		Object o;
+		Object[] buffer = (removed==null) ? null : new Object[Math.min(components.size(), this.size)];
+		int count = 0;
+		for(int i=0; i<this.size; ++i) {
+			o = this.data[i];
+			if (components.contains(o)) {
+				if (first<0) first = i;
+				if (buffer!=null) {
+					if (count>=buffer.length) buffer = Arrays.copyOf(buffer, count*2);
+					buffer[count] = o;
+				}
+				++count;
+				this.positions.remove(o);
+			}
+			else {
+				this.data[w++] = o;
+			}
+		}
+		if (count>0) {
+			Arrays.fill(this.data, w, this.size, null);
+			this.size = w;
+			markDirty(first);
+			if (this.dirtyFrom>this.size) this.dirtyFrom = this.size;
+			++this.modCount;
+			if (buffer!=null) {
+				for(int i=count-1; i>=0; --i) {
+					@SuppressWarnings("unchecked")
+					E e = (E)buffer[i];
+					removed.add(e);
+				}
+			}
+		}
+		return count;
+	}
+
+	/** Remove the component from the position map, except if
+	 * the map contains an up-to-date position of another
+	 * occurrence of the component.
+	 */
+	private void forget(Object element, int pos) {
+		Integer p = this.positions.get(element);
+		if (p!=null) {
+			int ip = p.intValue();
+			if (ip==pos || ip>=this.dirtyFrom || ip>=this.size || this.data[ip]!=element) {
+				this.positions.remove(element);
+			}
+		}
+	}
+
+	@Override
+	public synchronized void clear() {
+		Arrays.fill(this.data, 0, this.size, null);
+		this.size = 0;
+		this.dirtyFrom = 0;
+		this.positions.clear();
+		++this.modCount;
+	}
+
+	@Override
+	public synchronized int indexOf(Object o) {
+		Integer p = this.positions.get(o);
+		if (p==null || p.intValue()>=this.dirtyFrom) {
+			if (this.dirtyFrom<this.size) {
+				updatePositions();
+				p = this.positions.get(o);
+			}
+		}
+		if (p!=null) {
+			int pos = p.intValue();
+			if (pos<this.size && this.data[pos]==o) {
+				return toPosition(pos);
+			}
+		}
+		// The component is not in the list, or it is
+		// inserted several times and the map is out-of-date.
+		for(int i=this.size-1; i>=0; --i) {
+			if (this.data[i]==o) return toPosition(i);
+		}
+		return -1;
+	}
+
+	@Override
+	public int lastIndexOf(Object o) {
+		for(int i=0; i<this.size; ++i) {
+			if (this.data[i]==o) return toPosition(i);
+		}
+		return -1;
+	}
+
+	@Override
+	public boolean contains(Object o) {
+		return indexOf(o)>=0;
+	}
+
+	/** Swap the components at the given indexes.
+	 * 
+	 * @param index1
+	 * @param index2
+	 */
+	public synchronized void swap(int index1, int index2) {
+		checkIndex(index1);
+		checkIndex(index2);
+		if (index1!=index2) {
+			int p1 = toPosition(index1);
+			int p2 = toPosition(index2);
+			Object o1 = this.data[p1];
+			Object o2 = this.data[p2];
+			this.data[p1] = o2;
+			this.data[p2] = o1;
+			if (p1<this.dirtyFrom) this.positions.put(o2, Integer.valueOf(p1));
+			if (p2<this.dirtyFrom) this.positions.put(o1, Integer.valueOf(p2));
+			++this.modCount;
+		}
+	}
+
+	/** Move the component at the given index to another index.
+	 * Only the components between the two indexes are shifted.
+	 * 
+	 * @param from is the current index of the component.
+	 * @param to is the new index of the component.
+	 */
+	public synchronized void move(int from, int to) {
+		checkIndex(from);
+		checkIndex(to);
+		if (from!=to) {
+			int pFrom = toPosition(from);
+			int pTo = toPosition(to);
+			Object o = this.data[pFrom];
+			if (pFrom<pTo) {
+				System.arraycopy(this.data, pFrom+1, this.data, pFrom, pTo - pFrom);
+				markDirty(pFrom);
+			}
+			else {
+				System.arraycopy(this.data, pTo, this.data, pTo+1, pFrom - pTo);
+				markDirty(pTo);
+			}
+			this.data[pTo] = o;
+			++this.modCount;
+		}
+	}
+
+	/** Replies an immutable snapshot of this list.
+	 * The snapshot is not changed by the later changes of this list.
+	 * The same snapshot is replied until this list is changed.
+	 * 
+	 * @return the components, from the front to the background.
+	 */
+	public synchronized List<E> snapshot() {
+		List<E> s = this.snapshot;
+		if (s==null || this.snapshotModCount!=this.modCount) {
+			s = new Snapshot<E>(toArray());
+			this.snapshot = s;
+			this.snapshotModCount = this.modCount;
+		}
+		return s;
+	}
+
+	/** Replies an iterator on the components from the
+	 * background to the front.
+	 * 
+	 * @return the iterator.
+	 */
+	public Iterator<E> descendingIterator() {
+		return new DescendingIterator();
+	}
+
+	@Override
+	public Object[] toArray() {
+		Object[] array = new Object[this.size];
+		for(int i=0, j=this.size-1; i<this.size; ++i, --j) {
+			array[i] = this.data[j];
+		}
+		return array;
+	}
+
+	/** Immutable snapshot of the list.
+	 *
+	 * @param <E> is the type of the components.
+	 * @author $Author: galland$
+	 * @version $FullVersion$
+	 * @mavengroupid $GroupId$
+	 * @mavenartifactid $ArtifactId$
+	 */
+	private static class Snapshot<E> extends AbstractList<E> implements RandomAccess {
+
+		private final Object[] elements;
+
+		/**
+		 * @param elements
+		 */
+		public Snapshot(Object[] elements) {
+			this.elements = elements;
+		}
+
+		@Override
+		public int size() {
+			return this.elements.length;
+		}
+
+		@SuppressWarnings("unchecked")
+		@Override
+		public E get(int index) {
+			return (E)this.elements[index];
+		}
+
+	}
+
+	/** Iterator on the components from the background to the front.
+	 *
+	 * @author $Author: galland$
+	 * @version $FullVersion$
+	 * @mavengroupid $GroupId$
+	 * @mavenartifactid $ArtifactId$
+	 */
+	private class DescendingIterator implements Iterator<E> {
+
+		private int position = 0;
+		private int last = -1;
+		private int expectedModCount = ZOrderedList.this.modCount;
+
+		/**
+		 */
+		public DescendingIterator() {
+			//
+		}
+
+		@Override
+		public boolean hasNext() {
+			return this.position<ZOrderedList.this.size;
+		}
+
+		@SuppressWarnings("unchecked")
+		@Override
+		public E next() {
+			if (ZOrderedList.this.modCount!=this.expectedModCount)
+				throw new ConcurrentModificationException();
+			if (this.position>=ZOrderedList.this.size)
+				throw new NoSuchElementException();
+			this.last = this.position++;
+			return (E)ZOrderedList.this.data[this.last];
+		}
+
+		@Override
+		public void remove() {
+			if (this.last<0) throw new IllegalStateException();
+			if (ZOrderedList.this.modCount!=this.expectedModCount)
+				throw new ConcurrentModificationException();
+			ZOrderedList.this.remove(toPosition(this.last));
+			this.position = this.last;
+			this.last = -1;
+			this.expectedModCount = ZOrderedList.this.modCount;
+		}
+
+	}
+
+}
@@ -23,13 +23,22 @@ package org.arakhne.neteditor.formalism;
 
 import java.lang.ref.WeakReference;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.Map;
+import java.util.Map.Entry;
+import java.util.SortedMap;
+import java.util.TreeMap;
 import java.util.UUID;
 
-import org.arakhne.afc.references.WeakValueTreeMap;
-
 /** This class manage the views associated to a model element.
  * This manager allows only one view per view container.
+ * <p>
+ * The bindings are stored in an immutable snapshot that is
+ * replaced on each change. The lookups are not synchronized
+ * and do not allocate objects. The snapshot stores the first
+ * two bindings in inline slots; a map is used only when the
+ * model object is displayed in more than two views.
  *
  * @author $Author: galland$
  * @version $FullVersion$
@@ -38,8 +47,10 @@ import org.arakhne.afc.references.WeakValueTreeMap;
  */
 public class ViewBinding {
 
+	private static final Slots EMPTY = new Slots(null, null, null, null, null);
+
 	private final WeakReference<ModelObject> bindedObject;
-	private final Map<UUID,View> binding = new WeakValueTreeMap<UUID,View>();
+	private volatile Slots slots = EMPTY;
 
 	/**
 	 * @param object
@@ -63,14 +74,17 @@ public class ViewBinding {
 	 * @param type is the type of the view to search for.
 	 * @return the view or <code>null</code> if none.
 	 */
-	public synchronized <T> T getView(UUID viewUUID, Class<T> type) {
-		Object view = this.binding.get(viewUUID);
-		if (view!=null) {
-			if (type.isInstance(view))
-				return type.cast(view);
-		}
-		else if (this.binding.containsKey(viewUUID)) {
-			unbind(viewUUID);
+	public <T> T getView(UUID viewUUID, Class<T> type) {
+		WeakReference<View> reference = this.slots.get(viewUUID);
+		if (reference!=null) {
+			View view = reference.get();
+			if (view!=null) {
+				if (type.isInstance(view))
+					return type.cast(view);
+			}
+			else {
+				unbind(viewUUID, reference);
+			}
 		}
 		return null;
 	}
@@ -81,7 +95,9 @@ public class ViewBinding {
 	 * @param view is the view to bind to the model.
 	 */
 	public synchronized void bind(UUID viewUUID, View view) {
-		this.binding.put(viewUUID, view);
+		Map<UUID,WeakReference<View>> map = this.slots.toMap();
+		map.put(viewUUID, new WeakReference<View>(view));
+		this.slots = Slots.create(map);
 	}
 
 	/** Unbind a view.
@@ -89,21 +105,53 @@ public class ViewBinding {
 	 * @param viewUUID is the identifier of the view container that must enclose the view. 
 	 */
 	public synchronized void unbind(UUID viewUUID) {
-		this.binding.remove(viewUUID);
-		if (this.binding.isEmpty()) {
+		Map<UUID,WeakReference<View>> map = this.slots.toMap();
+		map.remove(viewUUID);
+		removeReleasedViews(map);
+		this.slots = Slots.create(map);
+		if (map.isEmpty()) {
 			ModelObject obj = getModelObject();
 			if (obj instanceof AbstractModelObject) {
 				((AbstractModelObject)obj).removeViewBinding();
 			}
 		}
 	}
-	
+
+	/** Unbind a view if it is still binded with the given reference.
+	 * 
+	 * @param viewUUID is the identifier of the view container that must enclose the view.
+	 * @param reference is the reference to the view that was released.
+	 */
+	private synchronized void unbind(UUID viewUUID, WeakReference<View> reference) {
+		if (this.slots.get(viewUUID)==reference) {
+			unbind(viewUUID);
+		}
+	}
+
+	private static void removeReleasedViews(Map<UUID,WeakReference<View>> map) {
+		Iterator<WeakReference<View>> iterator = map.values().iterator();
+		while (iterator.hasNext()) {
+			if (iterator.next().get()==null) {
+				iterator.remove();
+			}
+		}
+	}
+
 	/** Replies the views in the bindings.
+	 * The replied map is a snapshot of the bindings.
 	 * 
 	 * @return the views in the bindings.
 	 */
-	public synchronized Map<UUID,View> getViews() {
-		return Collections.unmodifiableMap(this.binding);
+	public Map<UUID,View> getViews() {
+		SortedMap<UUID,View> views = new TreeMap<UUID,View>();
+		View view;
+		for(Entry<UUID,WeakReference<View>> entry : this.slots.toMap().entrySet()) {
+			view = entry.getValue().get();
+			if (view!=null) {
+				views.put(entry.getKey(), view);
+			}
+		}
+		return Collections.unmodifiableMap(views);
 	}
 	
 	/** Move all the view components from a view to an other one.
@@ -116,12 +164,110 @@ public class ViewBinding {
 		assert(from!=null);
 		assert(to!=null);
 		if (!from.equals(to)) {
-			View v = this.binding.remove(from);
+			Map<UUID,WeakReference<View>> map = this.slots.toMap();
+			WeakReference<View> v = map.remove(from);
 			if (v!=null) {
-				return this.binding.put(to, v);
+				WeakReference<View> old = null;
+				// A collected view is only unbound
+				if (v.get()!=null) {
+					old = map.put(to, v);
+				}
+				this.slots = Slots.create(map);
+				return (old==null) ? null : old.get();
 			}
 		}
 		return null;
 	}
 
+	/** Immutable snapshot of the bindings.
+	 * 
+	 * @author $Author: galland$
+	 * @version $FullVersion$
+	 * @mavengroupid $GroupId$
+	 * @mavenartifactid $ArtifactId$
+	 */
+	private static final class Slots {
+
+		private final UUID id0;
+		private final WeakReference<View> view0;
+		private final UUID id1;
+		private final WeakReference<View> view1;
+		private final Map<UUID,WeakReference<View>> others;
+
+		/**
+		 * @param id0
+		 * @param view0
+		 * @param id1
+		 * @param view1
+		 * @param others
+		 */
+		private Slots(UUID id0, WeakReference<View> view0, UUID id1, WeakReference<View> view1,
+				Map<UUID,WeakReference<View>> others) {
+			this.id0 = id0;
+			this.view0 = view0;
+			this.id1 = id1;
+			this.view1 = view1;
+			this.others = others;
+		}
+
+		/** Create the snapshot of the given bindings.
+		 * 
+		 * @param map
+		 * @return the snapshot.
+		 */
+		public static Slots create(Map<UUID,WeakReference<View>> map) {
+			switch(map.size()) {
+			case 0:
+				return EMPTY;
+			case 1:
+			{
+				Entry<UUID,WeakReference<View>> e = map.entrySet().iterator().next();
+				return new Slots(e.getKey(), e.getValue(), null, null, null);
+			}
+			case 2:
+			{
+				Iterator<Entry<UUID,WeakReference<View>>> iterator = map.entrySet().iterator();
+				Entry<UUID,WeakReference<View>> e0 = iterator.next();
+				Entry<UUID,WeakReference<View>> e1 = iterator.next();
+				return new Slots(e0.getKey(), e0.getValue(), e1.getKey(), e1.getValue(), null);
+			}
+			default:
+				return new Slots(null, null, null, null, map);
+			}
+		}
+
+		/** Replies the reference to the view binded with the given identifier.
+		 * 
+		 * @param id
+		 * @return the reference or <code>null</code>.
+		 */
+		public WeakReference<View> get(UUID id) {
+			if (this.others!=null) {
+				return this.others.get(id);
+			}
+			if (this.id0!=null && (this.id0==id || this.id0.equals(id))) {
+				return this.view0;
+			}
+			if (this.id1!=null && (this.id1==id || this.id1.equals(id))) {
+				return this.view1;
+			}
+			return null;
+		}
+
+		/** Replies a modifiable copy of the bindings.
+		 * 
+		 * @return the copy of the bindings.
+		 */
+		public Map<UUID,WeakReference<View>> toMap() {
+			if (this.others!=null) {
+				return new HashMap<UUID,WeakReference<View>>(this.others);
+			}
+			Map<UUID,WeakReference<View>> map = new HashMap<UUID,WeakReference<View>>();
+			if (this.id0!=null) map.put(this.id0, this.view0);
+			if (this.id1!=null) map.put(this.id1, this.view1);
+			return map;
+		}
+
+	}
+
 }
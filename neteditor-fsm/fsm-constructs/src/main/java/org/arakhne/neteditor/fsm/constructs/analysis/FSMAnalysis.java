@@ -0,0 +1,318 @@
+/* 
+ * $Id$
+ * 
+ * Copyright (C) 2013 Stephane GALLAND.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ * This program is free software; you can redistribute it and/or modify
+ */
+package org.arakhne.neteditor.fsm.constructs.analysis ;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.Map.Entry;
+
+import org.arakhne.neteditor.fsm.constructs.FSMEndPoint;
+import org.arakhne.neteditor.fsm.constructs.FSMStartPoint;
+import org.arakhne.neteditor.fsm.constructs.FSMState;
+import org.arakhne.neteditor.fsm.constructs.FSMTransition;
+import org.arakhne.neteditor.fsm.constructs.FiniteStateMachine;
+import org.arakhne.neteditor.fsm.constructs.runtime.FSMTable;
+
+/** Result of the analysis of a finite state machine.
+ *  
+ * @author $Author: galland$
+ * @version $FullVersion$
+ * @mavengroupid $GroupId$
+ * @mavenartifactid $ArtifactId$
+ * @see FSMAnalyzer
+ */
+public class FSMAnalysis {
+
+	private final FSMTable table;
+	private final boolean[] reachable;
+	private final int[] classes;
+	private final int classCount;
+	private final int[] representatives;
+
+	/**
+	 * @param table is the analyzed state machine.
+	 * @param reachable indicates the reachable states.
+	 * @param classes is the equivalence class of each state,
+	 * or <code>-1</code> for the unreachable states.
+	 * @param classCount is the number of equivalence classes.
+	 */
+	FSMAnalysis(FSMTable table, boolean[] reachable, int[] classes, int classCount) {
+		this.table = table;
+		this.reachable = reachable;
+		this.classes = classes;
+		this.classCount = classCount;
+		this.representatives = new int[classCount];
+		for(int i=classes.length-1; i>=0; --i) {
+			if (classes[i]>=0) {
+				this.representatives[classes[i]] = i;
+			}
+		}
+	}
+
+	/** Replies the analyzed state machine.
+	 * 
+	 * @return the analyzed state machine.
+	 */
+	public FSMTable getTable() {
+		return this.table;
+	}
+
+	/** Replies if the given state is reachable from the start points.
+	 * 
+	 * @param state is the index of the state in the table.
+	 * @return <code>true</code> if the state is reachable.
+	 */
+	public boolean isReachable(int state) {
+		return this.reachable[state];
+	}
+
+	/** Replies the states that are not reachable from the start points.
+	 * 
+	 * @return the unreachable states.
+	 */
+	public List<FSMState> getUnreachableStates() {
+		List<FSMState> list = new ArrayList<FSMState>();
+		for(int i=0; i<this.reachable.length; ++i) {
+			if (!this.reachable[i]) list.add(this.table.getState(i));
+		}
+		return list;
+	}
+
+	/** Replies the number of equivalence classes, ie. the number of
+	 * states in the minimized state machine.
+	 * 
+	 * @return the number of equivalence classes.
+	 */
+	public int getEquivalenceClassCount() {
+		return this.classCount;
+	}
+
+	/** Replies the equivalence class of the given state.
+	 * 
+	 * @param state is the index of the state in the table.
+	 * @return the index of the class, or <code>-1</code> if the
+	 * state is not reachable.
+	 */
+	public int getEquivalenceClass(int state) {
+		return this.classes[state];
+	}
+
+	/** Replies the states in the given equivalence class.
+	 * 
+	 * @param equivalenceClass is the index of the class.
+	 * @return the states in the class.
+	 */
+	public List<FSMState> getEquivalentStates(int equivalenceClass) {
+		List<FSMState> list = new ArrayList<FSMState>();
+		for(int i=this.representatives[equivalenceClass]; i<this.classes.length; ++i) {
+			if (this.classes[i]==equivalenceClass) list.add(this.table.getState(i));
+		}
+		return list;
+	}
+
+	/** Replies the equivalence classes that contain more than one state.
+	 * 
+	 * @return the classes of redundant states.
+	 */
+	public List<List<FSMState>> getRedundantStates() {
+		int[] sizes = new int[this.classCount];
+		for(int c : this.classes) {
+			if (c>=0) ++sizes[c];
+		}
+		List<List<FSMState>> list = new ArrayList<List<FSMState>>();
+		for(int c=0; c<this.classCount; ++c) {
+			if (sizes[c]>1) list.add(getEquivalentStates(c));
+		}
+		return list;
+	}
+
+	/** Replies if the state machine is already minimal, ie. all its
+	 * states are reachable and not equivalent.
+	 * 
+	 * @return <code>true</code> if the state machine is minimal.
+	 */
+	public boolean isMinimal() {
+		return this.classCount==this.classes.length;
+	}
+
+	/** Create a minimized copy of the analyzed state machine.
+	 * The unreachable states are removed, and each equivalence class
+	 * is replaced by its first state.
+	 * The duplicated transitions are kept, because they have an effect
+	 * on the probabilities of the random choices.
+	 * The transitions to a start point, which are not changing the current
+	 * state, are kept as transitions to the start point of the copy.
+	 * The transitions are evaluated in the same order as in the
+	 * analyzed state machine.
+	 * 
+	 * @return the minimized state machine.
+	 */
+	public FiniteStateMachine createMinimizedCopy() {
+		FiniteStateMachine fsm = new FiniteStateMachine();
+		String[] guardNames = this.table.getGuardNames();
+		String[] actionNames = this.table.getActionNames();
+
+		FSMState[] states = new FSMState[this.classCount];
+		for(int c=0; c<this.classCount; ++c) {
+			FSMState original = this.table.getState(this.representatives[c]);
+			FSMState state = new FSMState(original.getName());
+			state.setAccepting(original.isAccepting());
+			state.setEnterAction(original.getEnterAction());
+			state.setAction(original.getAction());
+			state.setExitAction(original.getExitAction());
+			fsm.addNode(state);
+			states[c] = state;
+		}
+
+		int startRow = this.table.getStartRow();
+		boolean hasStartPoint = this.table.getFirstTransition(startRow)<this.table.getTransitionEnd(startRow);
+		boolean hasEndPoint = false;
+		int transitionCount = this.table.getTransitionEnd(startRow) - this.table.getFirstTransition(startRow);
+		for(int c=0; c<this.classCount; ++c) {
+			int row = this.representatives[c];
+			for(int tr=this.table.getFirstTransition(row); tr<this.table.getTransitionEnd(row); ++tr) {
+				int target = this.table.getTarget(tr);
+				if (target==FSMTable.END) hasEndPoint = true;
+				else if (target==FSMTable.STAY) hasStartPoint = true;
+				++transitionCount;
+			}
+		}
+
+		FSMStartPoint startPoint = null;
+		if (hasStartPoint) {
+			startPoint = new FSMStartPoint();
+			fsm.addNode(startPoint);
+		}
+		FSMEndPoint endPoint = null;
+		if (hasEndPoint) {
+			endPoint = new FSMEndPoint();
+			fsm.addNode(endPoint);
+		}
+
+		// The transitions are evaluated in the order of their identifiers;
+		// the copies receive sorted identifiers in the order of the table.
+		UUID[] ids = new UUID[transitionCount];
+		for(int i=0; i<ids.length; ++i) {
+			ids[i] = UUID.randomUUID();
+		}
+		Arrays.sort(ids);
+		int nextId = 0;
+
+		for(int row=0; row<=this.classes.length; ++row) {
+			if (row==startRow || this.reachable[row]
+				&& this.representatives[this.classes[row]]==row) {
+				FSMState source = (row==startRow) ? null : states[this.classes[row]];
+				int guardedEnd = this.table.getGuardedTransitionEnd(row);
+				int elseEnd = this.table.getElseTransitionEnd(row);
+				for(int tr=this.table.getFirstTransition(row); tr<this.table.getTransitionEnd(row); ++tr) {
+					int target = this.table.getTarget(tr);
+					FSMTransition transition = new FSMTransition();
+					transition.setUUID(ids[nextId++]);
+					fsm.addEdge(transition);
+					if (source==null) {
+						transition.setStartAnchor(startPoint.getAnchors().get(0));
+					}
+					else {
+						transition.setStartNode(source);
+					}
+					if (target==FSMTable.END) {
+						transition.setEndAnchor(endPoint.getAnchors().get(0));
+					}
+					else if (target==FSMTable.STAY) {
+						transition.setEndAnchor(startPoint.getAnchors().get(0));
+					}
+					else {
+						transition.setEndNode(states[this.classes[target]]);
+					}
+					if (tr<guardedEnd) {
+						transition.setGuard(guardNames[this.table.getGuard(tr)]);
+					}
+					else if (tr<elseEnd) {
+						transition.setGuard(FSMTable.ELSE_GUARD);
+					}
+					int action = this.table.getAction(tr);
+					if (action!=FSMTable.NONE) {
+						transition.setAction(actionNames[action]);
+					}
+				}
+			}
+		}
+
+		for(int i=0; i<this.table.getStateCount(); ++i) {
+			FiniteStateMachine source = this.table.getState(i).getGraph();
+			if (source!=null) {
+				for(Entry<String,String> entry : source.getActionCodes().entrySet()) {
+					fsm.setActionCode(entry.getKey(), entry.getValue());
+				}
+				break;
+			}
+		}
+
+		return fsm;
+	}
+
+	/** Replies a textual report of the analysis.
+	 * 
+	 * @return the report.
+	 */
+	public String getReport() {
+		StringBuilder b = new StringBuilder();
+		String eol = System.getProperty("line.separator"); //$NON-NLS-1$
+		int n = this.classes.length;
+		int reachableCount = 0;
+		for(boolean r : this.reachable) {
+			if (r) ++reachableCount;
+		}
+		b.append("States: "); //$NON-NLS-1$
+		b.append(n);
+		b.append(eol);
+		b.append("Reachable states: "); //$NON-NLS-1$
+		b.append(reachableCount);
+		b.append(eol);
+		for(FSMState state : getUnreachableStates()) {
+			b.append("\tunreachable: "); //$NON-NLS-1$
+			b.append(state.getName());
+			b.append(eol);
+		}
+		b.append("States after minimization: "); //$NON-NLS-1$
+		b.append(this.classCount);
+		b.append(eol);
+		for(List<FSMState> group : getRedundantStates()) {
+			b.append("\tequivalent:"); //$NON-NLS-1$
+			for(FSMState state : group) {
+				b.append(' ');
+				b.append(state.getName());
+			}
+			b.append(eol);
+		}
+		return b.toString();
+	}
+
+	/** {@inheritDoc}
+	 */
+	@Override
+	public String toString() {
+		return getReport();
+	}
+
+}
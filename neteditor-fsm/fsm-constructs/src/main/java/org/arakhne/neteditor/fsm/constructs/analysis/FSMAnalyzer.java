@@ -0,0 +1,416 @@
+/* 
+ * $Id$
+ * 
+ * Copyright (C) 2013 Stephane GALLAND.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ * This program is free software; you can redistribute it and/or modify
+ */
+package org.arakhne.neteditor.fsm.constructs.analysis ;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+import org.arakhne.neteditor.fsm.constructs.FiniteStateMachine;
+import org.arakhne.neteditor.fsm.constructs.runtime.FSMTable;
+
+/** Analyzer of finite state machines.
+ * <p>
+ * The analyzer detects the states that cannot be reached from
+ * the start points, and the reachable states that are equivalent.
+ * The equivalence classes are computed with the partition-refinement
+ * algorithm of Hopcroft, in the variant of Valmari and Lehtinen for
+ * partial transition functions, in <code>O(m.log(n))</code>.
+ * <p>
+ * Two states may be equivalent only if they are both accepting or
+ * both not accepting, and if they have the same enter, inside and
+ * exit actions. The transitions are labelled by their kind (guarded,
+ * "else" or unguarded), their guard, their action, and their rank
+ * among the transitions of the state with the same kind, guard and
+ * action. The transitions to a start point keep the current state
+ * without running its enter action; they are self-transitions with
+ * a label that is distinct from the label of the other self-transitions.
+ * The rank of a guarded transition is its evaluation order. 
+ * Because of the ranks, the equivalence is conservative: it
+ * never merges states that behave differently.
+ *  
+ * @author $Author: galland$
+ * @version $FullVersion$
+ * @mavengroupid $GroupId$
+ * @mavenartifactid $ArtifactId$
+ * @see "A. Valmari, P. Lehtinen. Efficient Minimization of DFAs with Partial Transition Functions. STACS 2008."
+ */
+public class FSMAnalyzer {
+
+	private static final int KIND_GUARDED = 0;
+	private static final int KIND_ELSE = 1;
+	private static final int KIND_UNGUARDED = 2;
+
+	private FSMAnalyzer() {
+		//
+	}
+
+	/** Analyze the given state machine.
+	 * 
+	 * @param fsm is the state machine to analyze.
+	 * @return the result of the analysis.
+	 */
+	public static FSMAnalysis analyze(FiniteStateMachine fsm) {
+		return analyze(new FSMTable(fsm));
+	}
+
+	/** Analyze the given compiled state machine.
+	 * 
+	 * @param table is the state machine to analyze.
+	 * @return the result of the analysis.
+	 */
+	public static FSMAnalysis analyze(FSMTable table) {
+		int n = table.getStateCount();
+		boolean[] reachable = computeReachability(table);
+
+		// Local numbering of the reachable states; the last one is the end point.
+		int[] local = new int[n];
+		int[] global = new int[n+1];
+		int nn = 0;
+		for(int s=0; s<n; ++s) {
+			if (reachable[s]) {
+				local[s] = nn;
+				global[nn++] = s;
+			}
+			else {
+				local[s] = -1;
+			}
+		}
+		final int endState = nn;
+		global[nn++] = FSMTable.END;
+
+		// Build the labelled transitions
+		int mm = 0;
+		for(int s=0; s<n; ++s) {
+			if (reachable[s]) {
+				mm += table.getTransitionEnd(s) - table.getFirstTransition(s);
+			}
+		}
+		final int[] tails = new int[mm];
+		final int[] heads = new int[mm];
+		final int[] kinds = new int[mm];
+		final int[] labelGuards = new int[mm];
+		final int[] labelActions = new int[mm];
+		final boolean[] stays = new boolean[mm];
+		final int[] ranks = new int[mm];
+		int t = 0;
+		for(int s=0; s<n; ++s) {
+			if (reachable[s]) {
+				int begin = table.getFirstTransition(s);
+				int guardedEnd = table.getGuardedTransitionEnd(s);
+				int elseEnd = table.getElseTransitionEnd(s);
+				int end = table.getTransitionEnd(s);
+				for(int tr=begin; tr<end; ++tr, ++t) {
+					int target = table.getTarget(tr);
+					tails[t] = local[s];
+					if (target==FSMTable.END) heads[t] = endState;
+					else if (target==FSMTable.STAY) heads[t] = local[s];
+					else heads[t] = local[target];
+					stays[t] = (target==FSMTable.STAY);
+					labelGuards[t] = table.getGuard(tr);
+					labelActions[t] = table.getAction(tr);
+					if (tr<guardedEnd) {
+						kinds[t] = KIND_GUARDED;
+						ranks[t] = tr - begin;
+					}
+					else {
+						int groupStart;
+						if (tr<elseEnd) {
+							kinds[t] = KIND_ELSE;
+							groupStart = guardedEnd;
+						}
+						else {
+							kinds[t] = KIND_UNGUARDED;
+							groupStart = elseEnd;
+						}
+						int rank = 0;
+						for(int k=groupStart; k<tr; ++k) {
+							if (table.getAction(k)==labelActions[t]
+								&& (table.getTarget(k)==FSMTable.STAY)==stays[t]) ++rank;
+						}
+						ranks[t] = rank;
+					}
+				}
+			}
+		}
+
+		// Initial partition of the states
+		Partition blocks = new Partition(nn);
+		final int[] signatures = new int[nn*5];
+		for(int q=0; q<nn; ++q) {
+			int s = global[q];
+			int o = q*5;
+			if (s==FSMTable.END) {
+				signatures[o] = 2;
+				signatures[o+1] = signatures[o+2] = signatures[o+3] = signatures[o+4] = FSMTable.NONE;
+			}
+			else {
+				signatures[o] = table.getState(s).isAccepting() ? 1 : 0;
+				signatures[o+1] = table.getEnterAction(s);
+				signatures[o+2] = table.getInsideAction(s);
+				signatures[o+3] = table.getExitAction(s);
+				signatures[o+4] = FSMTable.NONE;
+			}
+		}
+		blocks.init(new Comparator<Integer>() {
+			@Override
+			public int compare(Integer o1, Integer o2) {
+				int a = o1.intValue()*5;
+				int b = o2.intValue()*5;
+				int cmp;
+				for(int i=0; i<5; ++i) {
+					cmp = compareInts(signatures[a+i], signatures[b+i]);
+					if (cmp!=0) return cmp;
+				}
+				return 0;
+			}
+		});
+
+		// Initial partition of the transitions (the cords), by label
+		Partition cords = new Partition(mm);
+		cords.init(new Comparator<Integer>() {
+			@Override
+			public int compare(Integer o1, Integer o2) {
+				int a = o1.intValue();
+				int b = o2.intValue();
+				int cmp = compareInts(kinds[a], kinds[b]);
+				if (cmp!=0) return cmp;
+				if (stays[a]!=stays[b]) return stays[a] ? 1 : -1;
+				cmp = compareInts(labelGuards[a], labelGuards[b]);
+				if (cmp!=0) return cmp;
+				cmp = compareInts(labelActions[a], labelActions[b]);
+				if (cmp!=0) return cmp;
+				return compareInts(ranks[a], ranks[b]);
+			}
+		});
+
+		// Incoming transitions of each state
+		int[] adjacentStarts = new int[nn+1];
+		int[] adjacent = new int[mm];
+		for(int i=0; i<mm; ++i) {
+			++adjacentStarts[heads[i]];
+		}
+		for(int q=0; q<nn; ++q) {
+			adjacentStarts[q+1] += adjacentStarts[q];
+		}
+		for(int i=mm-1; i>=0; --i) {
+			adjacent[--adjacentStarts[heads[i]]] = i;
+		}
+
+		// Refine the blocks and the cords
+		int b = 1;
+		int c = 0;
+		while (c<cords.count) {
+			for(int i=cords.first[c]; i<cords.past[c]; ++i) {
+				blocks.mark(tails[cords.elements[i]]);
+			}
+			blocks.split();
+			++c;
+			while (b<blocks.count) {
+				for(int i=blocks.first[b]; i<blocks.past[b]; ++i) {
+					int q = blocks.elements[i];
+					for(int j=adjacentStarts[q]; j<adjacentStarts[q+1]; ++j) {
+						cords.mark(adjacent[j]);
+					}
+				}
+				cords.split();
+				++b;
+			}
+		}
+
+		// Number the equivalence classes in the order of the states
+		int[] classes = new int[n];
+		Arrays.fill(classes, -1);
+		int[] blockToClass = new int[blocks.count];
+		Arrays.fill(blockToClass, -1);
+		int classCount = 0;
+		for(int q=0; q<nn; ++q) {
+			int s = global[q];
+			if (s!=FSMTable.END) {
+				int block = blocks.sets[q];
+				if (blockToClass[block]<0) {
+					blockToClass[block] = classCount++;
+				}
+				classes[s] = blockToClass[block];
+			}
+		}
+
+		return new FSMAnalysis(table, reachable, classes, classCount);
+	}
+
+	private static int compareInts(int a, int b) {
+		return (a<b) ? -1 : ((a==b) ? 0 : 1);
+	}
+
+	/** Replies the states that are reachable from the start points.
+	 * If the state machine has no start transition, all the states
+	 * are reachable because the initial state is randomly selected.
+	 * 
+	 * @param table
+	 * @return the reachability flags.
+	 */
+	private static boolean[] computeReachability(FSMTable table) {
+		int n = table.getStateCount();
+		boolean[] reachable = new boolean[n];
+		int startRow = table.getStartRow();
+		int[] queue = new int[n];
+		int size = 0;
+		if (table.getFirstTransition(startRow)==table.getTransitionEnd(startRow)) {
+			Arrays.fill(reachable, true);
+			return reachable;
+		}
+		for(int tr=table.getFirstTransition(startRow); tr<table.getTransitionEnd(startRow); ++tr) {
+			int target = table.getTarget(tr);
+			if (target>=0 && !reachable[target]) {
+				reachable[target] = true;
+				queue[size++] = target;
+			}
+		}
+		for(int head=0; head<size; ++head) {
+			int s = queue[head];
+			for(int tr=table.getFirstTransition(s); tr<table.getTransitionEnd(s); ++tr) {
+				int target = table.getTarget(tr);
+				if (target>=0 && !reachable[target]) {
+					reachable[target] = true;
+					queue[size++] = target;
+				}
+			}
+		}
+		return reachable;
+	}
+
+	/** Refinable partition of the integers in [0;n).
+	 *  
+	 * @author $Author: galland$
+	 * @version $FullVersion$
+	 * @mavengroupid $GroupId$
+	 * @mavenartifactid $ArtifactId$
+	 */
+	private static class Partition {
+
+		/** Number of sets. */
+		int count;
+		/** Elements, grouped by set. */
+		final int[] elements;
+		/** Position of the elements in {@link #elements}. */
+		final int[] locations;
+		/** Set of each element. */
+		final int[] sets;
+		/** Index of the first element of each set. */
+		final int[] first;
+		/** Index after the last element of each set. */
+		final int[] past;
+		/** Number of marked elements in each set. */
+		private final int[] marked;
+		/** Sets with marked elements. */
+		private final int[] touched;
+		private int touchedCount = 0;
+
+		/**
+		 * @param n is the number of elements.
+		 */
+		public Partition(int n) {
+			this.elements = new int[n];
+			this.locations = new int[n];
+			this.sets = new int[n];
+			this.first = new int[n];
+			this.past = new int[n];
+			this.marked = new int[n+1];
+			this.touched = new int[n+1];
+		}
+
+		/** Initialize the partition: the elements that are equal
+		 * according to the given comparator are in the same set.
+		 * 
+		 * @param comparator
+		 */
+		public void init(Comparator<Integer> comparator) {
+			int n = this.elements.length;
+			Integer[] sorted = new Integer[n];
+			for(int i=0; i<n; ++i) {
+				sorted[i] = Integer.valueOf(i);
+			}
+			Arrays.sort(sorted, comparator);
+			this.count = 0;
+			for(int i=0; i<n; ++i) {
+				int e = sorted[i].intValue();
+				if (i==0 || comparator.compare(sorted[i-1], sorted[i])!=0) {
+					if (i>0) this.past[this.count-1] = i;
+					this.first[this.count++] = i;
+				}
+				this.elements[i] = e;
+				this.locations[e] = i;
+				this.sets[e] = this.count - 1;
+			}
+			if (n>0) this.past[this.count-1] = n;
+		}
+
+		/** Mark the given element. Marking an element twice has no effect.
+		 * 
+		 * @param e
+		 */
+		public void mark(int e) {
+			int s = this.sets[e];
+			int i = this.locations[e];
+			int j = this.first[s] + this.marked[s];
+			if (i<j) return;
+			this.elements[i] = this.elements[j];
+			this.locations[this.elements[i]] = i;
+			this.elements[j] = e;
+			this.locations[e] = j;
+			if (this.marked[s]++==0) {
+				this.touched[this.touchedCount++] = s;
+			}
+		}
+
+		/** Split the sets that contain marked elements. The smallest
+		 * part of a split set becomes a new set.
+		 */
+		public void split() {
+			while (this.touchedCount>0) {
+				int s = this.touched[--this.touchedCount];
+				int j = this.first[s] + this.marked[s];
+				if (j==this.past[s]) {
+					this.marked[s] = 0;
+					continue;
+				}
+				int z = this.count;
+				if (this.marked[s]<=this.past[s]-j) {
+					this.first[z] = this.first[s];
+					this.past[z] = j;
+					this.first[s] = j;
+				}
+				else {
+					this.past[z] = this.past[s];
+					this.first[z] = j;
+					this.past[s] = j;
+				}
+				for(int i=this.first[z]; i<this.past[z]; ++i) {
+					this.sets[this.elements[i]] = z;
+				}
+				this.marked[s] = 0;
+				this.marked[z] = 0;
+				++this.count;
+			}
+		}
+
+	}
+
+}
@@ -0,0 +1,48 @@
+/* 
+ * $Id$
+ * 
+ * Copyright (C) 2013 Stephane GALLAND.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ * This program is free software; you can redistribute it and/or modify
+ */
+package org.arakhne.neteditor.fsm.constructs.java ;
+
+/** Exception thrown when the Java code of a state machine cannot be compiled.
+ *
+ * @author $Author: galland$
+ * @version $FullVersion$
+ * @mavengroupid $GroupId$
+ * @mavenartifactid $ArtifactId$
+ */
+public class FSMCompilationException extends Exception {
+
+	private static final long serialVersionUID = -3358105734117297634L;
+
+	/**
+	 * @param message is the error message.
+	 */
+	public FSMCompilationException(String message) {
+		super(message);
+	}
+
+	/**
+	 * @param cause is the cause of the error.
+	 */
+	public FSMCompilationException(Throwable cause) {
+		super(cause);
+	}
+
+}
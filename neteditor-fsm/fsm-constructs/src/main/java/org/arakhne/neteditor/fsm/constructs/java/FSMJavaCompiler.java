@@ -0,0 +1,412 @@
+/* 
+ * $Id$
+ * 
+ * Copyright (C) 2013 Stephane GALLAND.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ * This program is free software; you can redistribute it and/or modify
+ */
+package org.arakhne.neteditor.fsm.constructs.java ;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.URI;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.FileObject;
+import javax.tools.ForwardingJavaFileManager;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileManager;
+import javax.tools.JavaFileObject;
+import javax.tools.JavaFileObject.Kind;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+import org.arakhne.neteditor.fsm.constructs.AbstractFSMNode;
+import org.arakhne.neteditor.fsm.constructs.FSMState;
+import org.arakhne.neteditor.fsm.constructs.FSMTransition;
+import org.arakhne.neteditor.fsm.constructs.FiniteStateMachine;
+
+/** Compiler of state machines into Java classes that are
+ * loaded in memory.
+ * <p>
+ * The Java code is generated by {@link FSMJavaGenerator}, compiled
+ * in memory with the compiler of the JDK, and loaded in a class loader
+ * that is dedicated to the compiled state machine. The compiled classes
+ * are cached with a key that is a structural hash of the state machine,
+ * so that a state machine is compiled again only if it was changed.
+ * <p>
+ * The compiler of the JDK must be available at runtime; it is not
+ * provided by the Java Runtime Environment nor by Android.
+ *
+ * @author $Author: galland$
+ * @version $FullVersion$
+ * @mavengroupid $GroupId$
+ * @mavenartifactid $ArtifactId$
+ */
+public class FSMJavaCompiler {
+
+	/** Default number of compiled classes in the cache.
+	 */
+	public static final int DEFAULT_CACHE_SIZE = 32;
+
+	private final String className;
+	private final ClassLoader parentClassLoader;
+	private final Map<String,Class<? extends Runnable>> cache;
+
+	/**
+	 * @param className is the name of the classes to generate. The name of the class
+	 * may be qualified by the package name.
+	 */
+	public FSMJavaCompiler(String className) {
+		this(className, FSMJavaCompiler.class.getClassLoader(), DEFAULT_CACHE_SIZE);
+	}
+
+	/**
+	 * @param className is the name of the classes to generate. The name of the class
+	 * may be qualified by the package name.
+	 * @param parentClassLoader is the class loader that is the parent of the
+	 * class loaders of the compiled state machines.
+	 * @param cacheSize is the maximal number of compiled classes in the cache.
+	 */
+	public FSMJavaCompiler(String className, ClassLoader parentClassLoader, final int cacheSize) {
+		this.className = className;
+		this.parentClassLoader = parentClassLoader;
+		this.cache = new LinkedHashMap<String,Class<? extends Runnable>>(16, .75f, true) {
+			private static final long serialVersionUID = 7006322219004633376L;
+			@Override
+			protected boolean removeEldestEntry(Entry<String,Class<? extends Runnable>> eldest) {
+				return size()>cacheSize;
+			}
+		};
+	}
+
+	/** Replies if the compiler of the JDK is available.
+	 * 
+	 * @return <code>true</code> if the state machines could be compiled;
+	 * otherwise <code>false</code>.
+	 */
+	public static boolean isAvailable() {
+		return ToolProvider.getSystemJavaCompiler()!=null;
+	}
+
+	/** Create a new instance of the compiled state machine.
+	 * The state machine is compiled if it is not in the cache.
+	 * 
+	 * @param fsm is the state machine.
+	 * @return the instance of the state machine; one call to {@link Runnable#run()}
+	 * is one step of the state machine.
+	 * @throws FSMCompilationException
+	 */
+	public Runnable newInstance(FiniteStateMachine fsm) throws FSMCompilationException {
+		try {
+			return compile(fsm).newInstance();
+		}
+		catch (InstantiationException e) {
+			throw new FSMCompilationException(e);
+		}
+		catch (IllegalAccessException e) {
+			throw new FSMCompilationException(e);
+		}
+	}
+
+	/** Replies the class that corresponds to the given state machine.
+	 * The state machine is compiled if it is not in the cache.
+	 * 
+	 * @param fsm is the state machine.
+	 * @return the class of the state machine.
+	 * @throws FSMCompilationException
+	 */
+	public Class<? extends Runnable> compile(FiniteStateMachine fsm) throws FSMCompilationException {
+		String key = computeStructuralHash(fsm);
+		synchronized(this.cache) {
+			Class<? extends Runnable> type = this.cache.get(key);
+			if (type!=null) return type;
+		}
+		FSMJavaGenerator generator = new FSMJavaGenerator(this.className);
+		Class<? extends Runnable> type = compile(generator.generate(fsm));
+		synchronized(this.cache) {
+			this.cache.put(key, type);
+		}
+		return type;
+	}
+
+	/** Clear the cache of compiled classes.
+	 */
+	public void clearCache() {
+		synchronized(this.cache) {
+			this.cache.clear();
+		}
+	}
+
+	private Class<? extends Runnable> compile(String javaCode) throws FSMCompilationException {
+		JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+		if (compiler==null) {
+			throw new FSMCompilationException("no Java compiler available"); //$NON-NLS-1$
+		}
+		DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<JavaFileObject>();
+		MemoryFileManager fileManager = new MemoryFileManager(
+				compiler.getStandardFileManager(diagnostics, null, null));
+		try {
+			JavaCompiler.CompilationTask task = compiler.getTask(
+					null, fileManager, diagnostics, null, null,
+					Collections.singleton(new SourceFile(this.className, javaCode)));
+			if (!task.call().booleanValue()) {
+				StringBuilder message = new StringBuilder();
+				for(Diagnostic<? extends JavaFileObject> diagnostic : diagnostics.getDiagnostics()) {
+					if (diagnostic.getKind()==Diagnostic.Kind.ERROR) {
+						message.append(diagnostic.getLineNumber());
+						message.append(": "); //$NON-NLS-1$
+						message.append(diagnostic.getMessage(null));
+						message.append("\n"); //$NON-NLS-1$
+					}
+				}
+				throw new FSMCompilationException(message.toString());
+			}
+		}
+		finally {
+			try {
+				fileManager.close();
+			}
+			catch (IOException e) {
+				//
+			}
+		}
+		ClassLoader loader = new MemoryClassLoader(this.parentClassLoader, fileManager.getClasses());
+		try {
+			return loader.loadClass(this.className).asSubclass(Runnable.class);
+		}
+		catch (ClassNotFoundException e) {
+			throw new FSMCompilationException(e);
+		}
+	}
+
+	/** Compute the structural hash of the given state machine.
+	 * The hash depends on the states, the transitions, the guards,
+	 * the actions and the codes of the actions; it does not depend
+	 * on the identifiers of the objects.
+	 * 
+	 * @param fsm is the state machine.
+	 * @return the structural hash.
+	 */
+	public static String computeStructuralHash(FiniteStateMachine fsm) {
+		try {
+			MessageDigest digest = MessageDigest.getInstance("SHA-1"); //$NON-NLS-1$
+			Map<AbstractFSMNode,Integer> indexes = new IdentityHashMap<AbstractFSMNode,Integer>();
+			for(AbstractFSMNode node : fsm.getNodes()) {
+				indexes.put(node, Integer.valueOf(indexes.size()));
+				update(digest, node.getType().name());
+				if (node instanceof FSMState) {
+					FSMState state = (FSMState)node;
+					update(digest, Boolean.toString(state.isAccepting()));
+					update(digest, state.getEnterAction());
+					update(digest, state.getAction());
+					update(digest, state.getExitAction());
+				}
+			}
+			for(FSMTransition transition : fsm.getEdges()) {
+				update(digest, String.valueOf(indexes.get(transition.getStartAnchor().getNode())));
+				update(digest, String.valueOf(indexes.get(transition.getEndAnchor().getNode())));
+				update(digest, transition.getGuard());
+				update(digest, transition.getAction());
+			}
+			Map<String,String> codes = new TreeMap<String,String>(fsm.getActionCodes());
+			for(Entry<String,String> entry : codes.entrySet()) {
+				update(digest, entry.getKey());
+				update(digest, entry.getValue());
+			}
+			byte[] hash = digest.digest();
+			StringBuilder b = new StringBuilder(hash.length*2);
+			for(byte v : hash) {
+				b.append(Character.forDigit((v>>4) & 0xF, 16));
+				b.append(Character.forDigit(v & 0xF, 16));
+			}
+			return b.toString();
+		}
+		catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static void update(MessageDigest digest, String value) {
+		if (value==null) {
+			digest.update((byte)0);
+		}
+		else {
+			try {
+				digest.update((byte)1);
+				digest.update(value.getBytes("UTF-8")); //$NON-NLS-1$
+				digest.update((byte)0);
+			}
+			catch (UnsupportedEncodingException e) {
+				throw new IllegalStateException(e);
+			}
+		}
+	}
+
+	/** Source file in memory.
+	 *
+	 * @author $Author: galland$
+	 * @version $FullVersion$
+	 * @mavengroupid $GroupId$
+	 * @mavenartifactid $ArtifactId$
+	 */
+	private static class SourceFile extends SimpleJavaFileObject {
+
+		private final String code;
+
+		/**
+		 * @param className
+		 * @param code
+		 */
+		public SourceFile(String className, String code) {
+			super(URI.create("string:///" + className.replace('.', '/') + Kind.SOURCE.extension), Kind.SOURCE); //$NON-NLS-1$
+			this.code = code;
+		}
+
+		@Override
+		public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+			return this.code;
+		}
+
+	}
+
+	/** Class file in memory.
+	 *
+	 * @author $Author: galland$
+	 * @version $FullVersion$
+	 * @mavengroupid $GroupId$
+	 * @mavenartifactid $ArtifactId$
+	 */
+	private static class ClassFile extends SimpleJavaFileObject {
+
+		private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+		/**
+		 * @param className
+		 */
+		public ClassFile(String className) {
+			super(URI.create("bytes:///" + className.replace('.', '/') + Kind.CLASS.extension), Kind.CLASS); //$NON-NLS-1$
+		}
+
+		@Override
+		public OutputStream openOutputStream() {
+			return this.bytes;
+		}
+
+		/** Replies the byte code.
+		 * 
+		 * @return the byte code.
+		 */
+		public byte[] getBytes() {
+			return this.bytes.toByteArray();
+		}
+
+	}
+
+	/** File manager that is storing the class files in memory.
+	 *
+	 * @author $Author: galland$
+	 * @version $FullVersion$
+	 * @mavengroupid $GroupId$
+	 * @mavenartifactid $ArtifactId$
+	 */
+	private static class MemoryFileManager extends ForwardingJavaFileManager<StandardJavaFileManager> {
+
+		private final Map<String,ClassFile> classes = new HashMap<String,ClassFile>();
+
+		/**
+		 * @param fileManager
+		 */
+		public MemoryFileManager(StandardJavaFileManager fileManager) {
+			super(fileManager);
+		}
+
+		@Override
+		public JavaFileObject getJavaFileForOutput(JavaFileManager.Location location,
+				String className, Kind kind, FileObject sibling) throws IOException {
+			ClassFile file = new ClassFile(className);
+			this.classes.put(className, file);
+			return file;
+		}
+
+		/** Replies the byte codes of the compiled classes.
+		 * 
+		 * @return the byte codes indexed by the names of the classes.
+		 */
+		public Map<String,byte[]> getClasses() {
+			Map<String,byte[]> codes = new HashMap<String,byte[]>();
+			for(Entry<String,ClassFile> entry : this.classes.entrySet()) {
+				codes.put(entry.getKey(), entry.getValue().getBytes());
+			}
+			return codes;
+		}
+
+	}
+
+	/** Class loader dedicated to a compiled state machine.
+	 *
+	 * @author $Author: galland$
+	 * @version $FullVersion$
+	 * @mavengroupid $GroupId$
+	 * @mavenartifactid $ArtifactId$
+	 */
+	private static class MemoryClassLoader extends ClassLoader {
+
+		private final Map<String,byte[]> classes;
+
+		/**
+		 * @param parent
+		 * @param classes
+		 */
+		public MemoryClassLoader(ClassLoader parent, Map<String,byte[]> classes) {
+			super(parent);
+			this.classes = classes;
+		}
+
+		@Override
+		protected synchronized Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+			// The compiled classes are loaded before the classes of the parent
+			// to isolate them from any class with the same name.
+			Class<?> type = findLoadedClass(name);
+			if (type==null) {
+				byte[] code = this.classes.remove(name);
+				if (code!=null) {
+					type = defineClass(name, code, 0, code.length);
+				}
+				else {
+					return super.loadClass(name, resolve);
+				}
+			}
+			if (resolve) resolveClass(type);
+			return type;
+		}
+
+	}
+
+}
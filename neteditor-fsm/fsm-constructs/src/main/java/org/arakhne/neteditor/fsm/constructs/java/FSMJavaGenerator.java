@@ -116,6 +116,7 @@ public class FSMJavaGenerator {
 			javaCode.append(this.packageName);
 			javaCode.append(";\n"); //$NON-NLS-1$
 		}
+		javaCode.append("import java.util.Random;\n"); //$NON-NLS-1$
 
 		javaCode.append("public class "); //$NON-NLS-1$
 		javaCode.append(this.className);
@@ -138,10 +139,10 @@ public class FSMJavaGenerator {
 			javaCode.append(";\n"); //$NON-NLS-1$
 		}
 		else {
-			javaCode.append("\t\t//FIXME: Add states"); //$NON-NLS-1$
+			javaCode.append("\t\t//FIXME: Add states\n\t\t;\n"); //$NON-NLS-1$
 		}
 		javaCode.append("\t\tprivate final boolean isAccepting;\n"); //$NON-NLS-1$
-		javaCode.append("\t\tpublic State(boolean isAccepting) {\n"); //$NON-NLS-1$
+		javaCode.append("\t\tprivate State(boolean isAccepting) {\n"); //$NON-NLS-1$
 		javaCode.append("\t\t\tthis.isAccepting = isAccepting;\n"); //$NON-NLS-1$
 		javaCode.append("\t\t}\n"); //$NON-NLS-1$
 		javaCode.append("\t\tpublic boolean isAcceptiong() {\n"); //$NON-NLS-1$
@@ -196,7 +197,7 @@ public class FSMJavaGenerator {
 
 		
 		for(Entry<String,String> action : fsm.getActionCodes().entrySet()) {
-			javaCode.append("\tprotected action_"); //$NON-NLS-1$
+			javaCode.append("\tprotected void action_"); //$NON-NLS-1$
 			javaCode.append(action.getKey());
 			javaCode.append("() {\n\t"); //$NON-NLS-1$
 			javaCode.append(action.getValue());
@@ -205,7 +206,7 @@ public class FSMJavaGenerator {
 		}
 		
 		for(String actionName : this.actions) {
-			javaCode.append("\tprotected action_"); //$NON-NLS-1$
+			javaCode.append("\tprotected void action_"); //$NON-NLS-1$
 			javaCode.append(actionName);
 			javaCode.append("() {\n\t}\n"); //$NON-NLS-1$
 		}
@@ -318,7 +319,7 @@ public class FSMJavaGenerator {
 	private String generateGuardedTransitions(FSMState state, Set<FSMTransition> guardedTransitions, Map<FSMState,String> stateToName, Set<FSMTransition> randomTransitions) {
 		StringBuilder javaCode = new StringBuilder();
 		for(FSMTransition tr : guardedTransitions) {
-			javaCode.append(generateGuardedTransition(state, tr, stateToName, randomTransitions));
+			javaCode.append(generateGuardedTransition(state, tr, stateToName, randomTransitions, javaCode.length()==0));
 		}
 		return javaCode.toString();
 	}
@@ -330,12 +331,13 @@ public class FSMJavaGenerator {
 	 * @param guardedTransition is the guarded transition to consider.
 	 * @param stateToName is the map from the states' names to the states' enums.
 	 * @param randomTransitions is a collection of transitions to consider only if no guarded transition match.
+	 * @param isFirst indicates if the transition is the first guarded transition of the state.
 	 * @return the Java source code that permits to pass through the transition.
 	 */
-	private String generateGuardedTransition(FSMState state, FSMTransition guardedTransition, Map<FSMState,String> stateToName, Set<FSMTransition> randomTransitions) {
+	private String generateGuardedTransition(FSMState state, FSMTransition guardedTransition, Map<FSMState,String> stateToName, Set<FSMTransition> randomTransitions, boolean isFirst) {
 		StringBuilder javaCode = new StringBuilder();
 		String guard = guardedTransition.getGuard();
-		if (javaCode.length()==0) {
+		if (isFirst) {
 			javaCode.append("\t\tif ("); //$NON-NLS-1$
 		}
 		else {
@@ -391,6 +393,7 @@ public class FSMJavaGenerator {
 		if (state!=null) {
 			String action = state.getEnterAction();
 			if (action!=null && !action.isEmpty()) {
+				javaCode.append("action_"); //$NON-NLS-1$
 				javaCode.append(action);
 				javaCode.append("();\n"); //$NON-NLS-1$
 				this.actions.add(action);
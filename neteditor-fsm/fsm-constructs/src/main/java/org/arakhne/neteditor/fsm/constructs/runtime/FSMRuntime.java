@@ -0,0 +1,248 @@
+/* 
+ * $Id$
+ * 
+ * Copyright (C) 2013 Stephane GALLAND.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ * This program is free software; you can redistribute it and/or modify
+ */
+package org.arakhne.neteditor.fsm.constructs.runtime ;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import org.arakhne.neteditor.fsm.constructs.FiniteStateMachine;
+
+/** In-process execution engine of finite state machines.
+ * <p>
+ * The runtime is based on the tables compiled in a {@link FSMTable},
+ * and on the guards and the actions that are bound to the names used
+ * in the state machine. The unbound guards are always false, and
+ * the unbound actions do nothing.
+ * <p>
+ * The instances of the state machine are only represented by the index
+ * of their current states, so that millions of instances may be simulated
+ * with an <code>int[]</code>. The stepping semantic is the same as the
+ * one of the code generated by
+ * {@link org.arakhne.neteditor.fsm.constructs.java.FSMJavaGenerator}.
+ * <p>
+ * The bindings must not be changed while a batch is stepped.
+ * The parallel batches on the same runtime are run one after the other.
+ *  
+ * @author $Author: galland$
+ * @version $FullVersion$
+ * @mavengroupid $GroupId$
+ * @mavenartifactid $ArtifactId$
+ */
+public class FSMRuntime {
+
+	private final FSMTable table;
+	private final FSMGuard[] guards;
+	private final FSMAction[] actions;
+
+	/** Steppers of the parallel tasks, kept from one call to
+	 * {@link #stepParallel(int[], ExecutorService, int, long)}
+	 * to the next one.
+	 */
+	private FSMStepper[] parallelSteppers = null;
+	private long parallelSeed = 0;
+
+	/**
+	 * @param fsm is the state machine to execute.
+	 */
+	public FSMRuntime(FiniteStateMachine fsm) {
+		this(new FSMTable(fsm));
+	}
+
+	/**
+	 * @param table is the compiled state machine to execute.
+	 */
+	public FSMRuntime(FSMTable table) {
+		this.table = table;
+		this.guards = new FSMGuard[table.getGuardNames().length];
+		this.actions = new FSMAction[table.getActionNames().length];
+	}
+
+	/** Replies the compiled state machine.
+	 * 
+	 * @return the compiled state machine.
+	 */
+	public FSMTable getTable() {
+		return this.table;
+	}
+
+	/** Bind the guard with the given name.
+	 * 
+	 * @param name is the name of the guard in the state machine.
+	 * @param guard is the implementation of the guard.
+	 * @return <code>true</code> if the guard is used in the state machine;
+	 * <code>false</code> otherwise.
+	 */
+	public boolean setGuard(String name, FSMGuard guard) {
+		int handle = this.table.getGuardHandle(name);
+		if (handle==FSMTable.NONE) return false;
+		this.guards[handle] = guard;
+		return true;
+	}
+
+	/** Bind the action with the given name.
+	 * 
+	 * @param name is the name of the action in the state machine.
+	 * @param action is the implementation of the action.
+	 * @return <code>true</code> if the action is used in the state machine;
+	 * <code>false</code> otherwise.
+	 */
+	public boolean setAction(String name, FSMAction action) {
+		int handle = this.table.getActionHandle(name);
+		if (handle==FSMTable.NONE) return false;
+		this.actions[handle] = action;
+		return true;
+	}
+
+	/** Replies the guard bound to the given handle.
+	 * 
+	 * @param handle
+	 * @return the guard, or <code>null</code>.
+	 */
+	FSMGuard getGuard(int handle) {
+		return this.guards[handle];
+	}
+
+	/** Replies the action bound to the given handle.
+	 * 
+	 * @param handle
+	 * @return the action, or <code>null</code>.
+	 */
+	FSMAction getAction(int handle) {
+		return this.actions[handle];
+	}
+
+	/** Create a stepper on this runtime. A stepper must be used
+	 * by one thread at a time.
+	 * 
+	 * @param seed is the seed of the random selection of the transitions.
+	 * @return the stepper.
+	 */
+	public FSMStepper createStepper(long seed) {
+		return new FSMStepper(this, seed);
+	}
+
+	/** Start all the instances in the given array, in parallel.
+	 * <p>
+	 * The steppers of the tasks are created from the given seed,
+	 * and they are kept for the next calls to
+	 * {@link #stepParallel(int[], ExecutorService, int, long)}.
+	 * 
+	 * @param states is the array that is filled with the initial states of the instances.
+	 * @param executor is the executor of the parallel tasks.
+	 * @param taskCount is the number of tasks to run.
+	 * @param seed is the seed of the random selection of the transitions.
+	 * @throws InterruptedException
+	 * @throws ExecutionException
+	 */
+	public void startParallel(int[] states, ExecutorService executor, int taskCount, long seed) throws InterruptedException, ExecutionException {
+		runParallel(states, executor, taskCount, seed, true);
+	}
+
+	/** Run one step for all the instances in the given array, in parallel.
+	 * <p>
+	 * The steppers of the tasks, and their random generators, are kept
+	 * from one call to the next one; so that the consecutive steps
+	 * continue the random sequences instead of repeating them.
+	 * The steppers are created again only when the seed or the number
+	 * of tasks is not the same as for the previous call.
+	 * 
+	 * @param states is the array of the current states of the instances.
+	 * @param executor is the executor of the parallel tasks.
+	 * @param taskCount is the number of tasks to run.
+	 * @param seed is the seed of the random selection of the transitions.
+	 * @throws InterruptedException
+	 * @throws ExecutionException
+	 */
+	public void stepParallel(int[] states, ExecutorService executor, int taskCount, long seed) throws InterruptedException, ExecutionException {
+		runParallel(states, executor, taskCount, seed, false);
+	}
+
+	private synchronized void runParallel(int[] states, ExecutorService executor, int taskCount, long seed, boolean start) throws InterruptedException, ExecutionException {
+		int count = Math.max(1, Math.min(taskCount, states.length));
+		FSMStepper[] steppers = this.parallelSteppers;
+		if (start || steppers==null || steppers.length!=count || this.parallelSeed!=seed) {
+			steppers = new FSMStepper[count];
+			for(int i=0; i<count; ++i) {
+				steppers[i] = createStepper(seed + i * 0x9E3779B97F4A7C15L);
+			}
+			this.parallelSteppers = steppers;
+			this.parallelSeed = seed;
+		}
+		int chunk = (states.length + count - 1) / count;
+		List<Future<?>> futures = new ArrayList<Future<?>>(count);
+		for(int i=0, from=0; i<count && from<states.length; ++i, from+=chunk) {
+			futures.add(executor.submit(new BatchTask(
+					steppers[i],
+					states, from, Math.min(states.length, from+chunk), start)));
+		}
+		for(Future<?> future : futures) {
+			future.get();
+		}
+	}
+
+	/** Task that is stepping a range of instances.
+	 *  
+	 * @author $Author: galland$
+	 * @version $FullVersion$
+	 * @mavengroupid $GroupId$
+	 * @mavenartifactid $ArtifactId$
+	 */
+	private static class BatchTask implements Callable<Object> {
+
+		private final FSMStepper stepper;
+		private final int[] states;
+		private final int from;
+		private final int to;
+		private final boolean start;
+
+		/**
+		 * @param stepper
+		 * @param states
+		 * @param from
+		 * @param to
+		 * @param start
+		 */
+		public BatchTask(FSMStepper stepper, int[] states, int from, int to, boolean start) {
+			this.stepper = stepper;
+			this.states = states;
+			this.from = from;
+			this.to = to;
+			this.start = start;
+		}
+
+		@Override
+		public Object call() throws Exception {
+			if (this.start) {
+				this.stepper.start(this.states, this.from, this.to);
+			}
+			else {
+				this.stepper.step(this.states, this.from, this.to);
+			}
+			return null;
+		}
+
+	}
+
+}
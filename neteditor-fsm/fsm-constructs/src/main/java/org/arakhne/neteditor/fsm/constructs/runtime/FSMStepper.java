@@ -0,0 +1,177 @@
+/* 
+ * $Id$
+ * 
+ * Copyright (C) 2013 Stephane GALLAND.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ * This program is free software; you can redistribute it and/or modify
+ */
+package org.arakhne.neteditor.fsm.constructs.runtime ;
+
+/** Executor of the steps of the instances of a state machine.
+ * <p>
+ * A stepper is not thread-safe: each thread must use its
+ * own stepper, see {@link FSMRuntime#createStepper(long)}.
+ *  
+ * @author $Author: galland$
+ * @version $FullVersion$
+ * @mavengroupid $GroupId$
+ * @mavenartifactid $ArtifactId$
+ */
+public class FSMStepper {
+
+	private final FSMRuntime runtime;
+	private final FSMTable table;
+	private long seed;
+
+	/**
+	 * @param runtime
+	 * @param seed
+	 */
+	FSMStepper(FSMRuntime runtime, long seed) {
+		this.runtime = runtime;
+		this.table = runtime.getTable();
+		this.seed = (seed==0) ? 0x2545F4914F6CDD1DL : seed;
+	}
+
+	/** Replies the initial state of the given instance.
+	 * 
+	 * @param instance is the index of the instance.
+	 * @return the index of the initial state, or {@link FSMTable#END}.
+	 */
+	public int start(int instance) {
+		return fire(instance, this.table.getStartRow(), FSMTable.END);
+	}
+
+	/** Run one step of the given instance.
+	 * 
+	 * @param instance is the index of the instance.
+	 * @param state is the index of the current state of the instance.
+	 * @return the index of the new state, or {@link FSMTable#END}.
+	 */
+	public int step(int instance, int state) {
+		if (state<0) return state;
+		return fire(instance, state, state);
+	}
+
+	/** Start the instances in the given range.
+	 * The index of an instance is its index in the array.
+	 * 
+	 * @param states is the array that is filled with the initial states.
+	 * @param from is the index of the first instance.
+	 * @param to is the index after the last instance.
+	 */
+	public void start(int[] states, int from, int to) {
+		int startRow = this.table.getStartRow();
+		for(int i=from; i<to; ++i) {
+			states[i] = fire(i, startRow, FSMTable.END);
+		}
+	}
+
+	/** Run one step for the instances in the given range.
+	 * The index of an instance is its index in the array.
+	 * 
+	 * @param states is the array of the current states.
+	 * @param from is the index of the first instance.
+	 * @param to is the index after the last instance.
+	 */
+	public void step(int[] states, int from, int to) {
+		int s;
+		for(int i=from; i<to; ++i) {
+			s = states[i];
+			if (s>=0) {
+				states[i] = fire(i, s, s);
+			}
+		}
+	}
+
+	private int fire(int instance, int row, int source) {
+		FSMTable t = this.table;
+		int begin = t.getFirstTransition(row);
+		int guardedEnd = t.getGuardedTransitionEnd(row);
+		int elseEnd = t.getElseTransitionEnd(row);
+		int end = t.getTransitionEnd(row);
+
+		if (begin==end) {
+			if (source>=0) {
+				execute(instance, t.getInsideAction(source));
+				return source;
+			}
+			int n = t.getStateCount();
+			return (n>0) ? nextInt(n) : FSMTable.END;
+		}
+
+		int unguarded = end - elseEnd;
+		FSMGuard guard;
+		for(int tr=begin; tr<guardedEnd; ++tr) {
+			guard = this.runtime.getGuard(t.getGuard(tr));
+			if (guard!=null && guard.evaluate(instance)) {
+				int selected = tr;
+				if (unguarded>0) {
+					int r = nextInt(unguarded+1);
+					if (r>0) selected = elseEnd + r - 1;
+				}
+				return traverse(instance, source, selected);
+			}
+		}
+
+		int elseCount = elseEnd - guardedEnd;
+		if (elseCount>0) {
+			int r = nextInt(elseCount + unguarded);
+			return traverse(instance, source,
+					(r<elseCount) ? guardedEnd + r : elseEnd + r - elseCount);
+		}
+		if (unguarded>0) {
+			return traverse(instance, source, elseEnd + nextInt(unguarded));
+		}
+		if (source>=0) {
+			execute(instance, t.getInsideAction(source));
+		}
+		return source;
+	}
+
+	private int traverse(int instance, int source, int transition) {
+		FSMTable t = this.table;
+		if (source>=0) execute(instance, t.getExitAction(source));
+		execute(instance, t.getAction(transition));
+		int target = t.getTarget(transition);
+		if (target==FSMTable.STAY) return source;
+		if (target>=0) execute(instance, t.getEnterAction(target));
+		return target;
+	}
+
+	private void execute(int instance, int handle) {
+		if (handle!=FSMTable.NONE) {
+			FSMAction action = this.runtime.getAction(handle);
+			if (action!=null) action.execute(instance);
+		}
+	}
+
+	/** Replies a pseudo-random number in [0;bound) with a
+	 * xorshift generator.
+	 * 
+	 * @param bound
+	 * @return the random number.
+	 */
+	private int nextInt(int bound) {
+		long x = this.seed;
+		x ^= x << 13;
+		x ^= x >>> 7;
+		x ^= x << 17;
+		this.seed = x;
+		return (int)(((x >>> 32) * bound) >>> 32);
+	}
+
+}
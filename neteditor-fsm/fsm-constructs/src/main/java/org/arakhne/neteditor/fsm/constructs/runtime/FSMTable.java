@@ -0,0 +1,422 @@
+/* 
+ * $Id$
+ * 
+ * Copyright (C) 2013 Stephane GALLAND.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ * This program is free software; you can redistribute it and/or modify
+ */
+package org.arakhne.neteditor.fsm.constructs.runtime ;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.arakhne.neteditor.fsm.constructs.AbstractFSMNode;
+import org.arakhne.neteditor.fsm.constructs.FSMEndPoint;
+import org.arakhne.neteditor.fsm.constructs.FSMStartPoint;
+import org.arakhne.neteditor.fsm.constructs.FSMState;
+import org.arakhne.neteditor.fsm.constructs.FSMTransition;
+import org.arakhne.neteditor.fsm.constructs.FiniteStateMachine;
+
+/** Dense transition tables compiled from a {@link FiniteStateMachine}.
+ * <p>
+ * The states are numbered from {@code 0} to {@code getStateCount()-1}.
+ * The transitions going out of a state are stored contiguously, and
+ * sorted in three groups: the guarded transitions, the "else" transitions,
+ * and the unguarded transitions. The transitions going out of the
+ * start points are stored as the transitions of a pseudo-state with the
+ * index {@code getStateCount()}.
+ * <p>
+ * The guards and the actions are replaced by integer handles, which are
+ * indexes in the tables replied by {@link #getGuardNames()} and
+ * {@link #getActionNames()}.
+ * <p>
+ * The tables are immutable; they are not updated when the state
+ * machine is changed after the compilation. They are keeping
+ * references to the states of the machine, which are replied
+ * by {@link #getState(int)}; so that they are not serializable.
+ *  
+ * @author $Author: galland$
+ * @version $FullVersion$
+ * @mavengroupid $GroupId$
+ * @mavenartifactid $ArtifactId$
+ */
+public class FSMTable {
+
+	/** Index of the terminal state, ie. when an end point was reached.
+	 */
+	public static final int END = -1;
+
+	/** Target of the transitions that are not changing the current state,
+	 * ie. the transitions to a start point.
+	 */
+	public static final int STAY = -2;
+
+	/** Handle of a missed guard or action.
+	 */
+	public static final int NONE = -1;
+
+	/** Name of the guard that is selected when no other guard is true.
+	 */
+	public static final String ELSE_GUARD = "else"; //$NON-NLS-1$
+
+	private final FSMState[] states;
+	private final String[] guardNames;
+	private final String[] actionNames;
+
+	private final int[] enterActions;
+	private final int[] insideActions;
+	private final int[] exitActions;
+
+	private final int[] offsets;
+	private final int[] guardedEnds;
+	private final int[] elseEnds;
+
+	private final int[] targets;
+	private final int[] guards;
+	private final int[] actions;
+
+	/** Compile the given state machine.
+	 * 
+	 * @param fsm is the state machine to compile.
+	 */
+	public FSMTable(FiniteStateMachine fsm) {
+		List<FSMState> stateList = new ArrayList<FSMState>();
+		Map<FSMState,Integer> stateIndexes = new IdentityHashMap<FSMState,Integer>();
+		for(AbstractFSMNode node : fsm.getNodes()) {
+			if (node instanceof FSMState) {
+				FSMState state = (FSMState)node;
+				stateIndexes.put(state, Integer.valueOf(stateList.size()));
+				stateList.add(state);
+			}
+		}
+		int n = stateList.size();
+		this.states = stateList.toArray(new FSMState[n]);
+
+		// Transitions are sorted in the same order as in FSMJavaGenerator
+		List<Set<FSMTransition>> outgoing = new ArrayList<Set<FSMTransition>>(n+1);
+		for(int i=0; i<=n; ++i) {
+			outgoing.add(null);
+		}
+		int transitionCount = 0;
+		for(FSMTransition transition : fsm.getEdges()) {
+			AbstractFSMNode source = transition.getStartAnchor().getNode();
+			int row;
+			if (source instanceof FSMStartPoint) {
+				row = n;
+			}
+			else if (source instanceof FSMState) {
+				row = stateIndexes.get(source).intValue();
+			}
+			else {
+				continue;
+			}
+			Set<FSMTransition> set = outgoing.get(row);
+			if (set==null) {
+				set = new TreeSet<FSMTransition>();
+				outgoing.set(row, set);
+			}
+			if (set.add(transition)) ++transitionCount;
+		}
+
+		Map<String,Integer> guardIndexes = new HashMap<String,Integer>();
+		Map<String,Integer> actionIndexes = new HashMap<String,Integer>();
+		List<String> guardList = new ArrayList<String>();
+		List<String> actionList = new ArrayList<String>();
+
+		this.enterActions = new int[n];
+		this.insideActions = new int[n];
+		this.exitActions = new int[n];
+		for(int i=0; i<n; ++i) {
+			FSMState state = this.states[i];
+			this.enterActions[i] = intern(state.getEnterAction(), actionIndexes, actionList);
+			this.insideActions[i] = intern(state.getAction(), actionIndexes, actionList);
+			this.exitActions[i] = intern(state.getExitAction(), actionIndexes, actionList);
+		}
+
+		this.offsets = new int[n+2];
+		this.guardedEnds = new int[n+1];
+		this.elseEnds = new int[n+1];
+		this.targets = new int[transitionCount];
+		this.guards = new int[transitionCount];
+		this.actions = new int[transitionCount];
+
+		int t = 0;
+		for(int row=0; row<=n; ++row) {
+			this.offsets[row] = t;
+			Set<FSMTransition> set = outgoing.get(row);
+			if (set!=null) {
+				// Guarded transitions
+				for(FSMTransition transition : set) {
+					String guard = transition.getGuard();
+					if (guard!=null && !guard.isEmpty() && !ELSE_GUARD.equalsIgnoreCase(guard)) {
+						t = store(t, transition, intern(guard, guardIndexes, guardList),
+								stateIndexes, actionIndexes, actionList);
+					}
+				}
+				this.guardedEnds[row] = t;
+				// Else transitions
+				for(FSMTransition transition : set) {
+					if (ELSE_GUARD.equalsIgnoreCase(transition.getGuard())) {
+						t = store(t, transition, NONE, stateIndexes, actionIndexes, actionList);
+					}
+				}
+				this.elseEnds[row] = t;
+				// Unguarded transitions
+				for(FSMTransition transition : set) {
+					String guard = transition.getGuard();
+					if (guard==null || guard.isEmpty()) {
+						t = store(t, transition, NONE, stateIndexes, actionIndexes, actionList);
+					}
+				}
+			}
+			else {
+				this.guardedEnds[row] = t;
+				this.elseEnds[row] = t;
+			}
+		}
+		this.offsets[n+1] = t;
+
+		this.guardNames = guardList.toArray(new String[guardList.size()]);
+		this.actionNames = actionList.toArray(new String[actionList.size()]);
+	}
+
+	private int store(int index, FSMTransition transition, int guard,
+			Map<FSMState,Integer> stateIndexes,
+			Map<String,Integer> actionIndexes, List<String> actionList) {
+		AbstractFSMNode target = transition.getEndAnchor().getNode();
+		if (target instanceof FSMEndPoint) {
+			this.targets[index] = END;
+		}
+		else if (target instanceof FSMState) {
+			this.targets[index] = stateIndexes.get(target).intValue();
+		}
+		else {
+			this.targets[index] = STAY;
+		}
+		this.guards[index] = guard;
+		this.actions[index] = intern(transition.getAction(), actionIndexes, actionList);
+		return index + 1;
+	}
+
+	private static int intern(String name, Map<String,Integer> indexes, List<String> names) {
+		if (name==null || name.isEmpty()) return NONE;
+		Integer idx = indexes.get(name);
+		if (idx==null) {
+			idx = Integer.valueOf(names.size());
+			indexes.put(name, idx);
+			names.add(name);
+		}
+		return idx.intValue();
+	}
+
+	/** Replies the number of states.
+	 * 
+	 * @return the number of states.
+	 */
+	public int getStateCount() {
+		return this.states.length;
+	}
+
+	/** Replies the state at the given index.
+	 * 
+	 * @param index
+	 * @return the state.
+	 */
+	public FSMState getState(int index) {
+		return this.states[index];
+	}
+
+	/** Replies the index of the given state.
+	 * 
+	 * @param state
+	 * @return the index of the state, or {@link #END} if the state
+	 * is not in the table.
+	 */
+	public int indexOf(FSMState state) {
+		for(int i=0; i<this.states.length; ++i) {
+			if (this.states[i]==state) return i;
+		}
+		return END;
+	}
+
+	/** Replies the index of the pseudo-state that contains
+	 * the transitions going out of the start points.
+	 * 
+	 * @return the index of the start pseudo-state.
+	 */
+	public int getStartRow() {
+		return this.states.length;
+	}
+
+	/** Replies the number of transitions.
+	 * 
+	 * @return the number of transitions.
+	 */
+	public int getTransitionCount() {
+		return this.targets.length;
+	}
+
+	/** Replies the names of the guards, indexed by their handles.
+	 * 
+	 * @return the names of the guards.
+	 */
+	public String[] getGuardNames() {
+		return this.guardNames.clone();
+	}
+
+	/** Replies the names of the actions, indexed by their handles.
+	 * 
+	 * @return the names of the actions.
+	 */
+	public String[] getActionNames() {
+		return this.actionNames.clone();
+	}
+
+	/** Replies the handle of the given guard.
+	 * 
+	 * @param name
+	 * @return the handle or {@link #NONE}.
+	 */
+	public int getGuardHandle(String name) {
+		for(int i=0; i<this.guardNames.length; ++i) {
+			if (this.guardNames[i].equals(name)) return i;
+		}
+		return NONE;
+	}
+
+	/** Replies the handle of the given action.
+	 * 
+	 * @param name
+	 * @return the handle or {@link #NONE}.
+	 */
+	public int getActionHandle(String name) {
+		for(int i=0; i<this.actionNames.length; ++i) {
+			if (this.actionNames[i].equals(name)) return i;
+		}
+		return NONE;
+	}
+
+	/** Replies the handle of the action executed when entering the given state.
+	 * 
+	 * @param state
+	 * @return the action handle or {@link #NONE}.
+	 */
+	public int getEnterAction(int state) {
+		return this.enterActions[state];
+	}
+
+	/** Replies the handle of the action executed inside the given state.
+	 * 
+	 * @param state
+	 * @return the action handle or {@link #NONE}.
+	 */
+	public int getInsideAction(int state) {
+		return this.insideActions[state];
+	}
+
+	/** Replies the handle of the action executed when exiting the given state.
+	 * 
+	 * @param state
+	 * @return the action handle or {@link #NONE}.
+	 */
+	public int getExitAction(int state) {
+		return this.exitActions[state];
+	}
+
+	/** Replies the index of the first transition going out of the given row.
+	 * 
+	 * @param row is the index of a state, or {@link #getStartRow()}.
+	 * @return the index of the first transition.
+	 */
+	public int getFirstTransition(int row) {
+		return this.offsets[row];
+	}
+
+	/** Replies the index after the last guarded transition going out of the given row.
+	 * 
+	 * @param row is the index of a state, or {@link #getStartRow()}.
+	 * @return the index after the last guarded transition.
+	 */
+	public int getGuardedTransitionEnd(int row) {
+		return this.guardedEnds[row];
+	}
+
+	/** Replies the index after the last "else" transition going out of the given row.
+	 * 
+	 * @param row is the index of a state, or {@link #getStartRow()}.
+	 * @return the index after the last "else" transition.
+	 */
+	public int getElseTransitionEnd(int row) {
+		return this.elseEnds[row];
+	}
+
+	/** Replies the index after the last transition going out of the given row.
+	 * 
+	 * @param row is the index of a state, or {@link #getStartRow()}.
+	 * @return the index after the last transition.
+	 */
+	public int getTransitionEnd(int row) {
+		return this.offsets[row+1];
+	}
+
+	/** Replies the target of the given transition.
+	 * 
+	 * @param transition
+	 * @return the index of the target state, {@link #END} or {@link #STAY}.
+	 */
+	public int getTarget(int transition) {
+		return this.targets[transition];
+	}
+
+	/** Replies the guard of the given transition.
+	 * 
+	 * @param transition
+	 * @return the guard handle or {@link #NONE}.
+	 */
+	public int getGuard(int transition) {
+		return this.guards[transition];
+	}
+
+	/** Replies the action of the given transition.
+	 * 
+	 * @param transition
+	 * @return the action handle or {@link #NONE}.
+	 */
+	public int getAction(int transition) {
+		return this.actions[transition];
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder b = new StringBuilder();
+		b.append("states="); //$NON-NLS-1$
+		b.append(this.states.length);
+		b.append(", transitions="); //$NON-NLS-1$
+		b.append(this.targets.length);
+		b.append(", guards="); //$NON-NLS-1$
+		b.append(Arrays.toString(this.guardNames));
+		b.append(", actions="); //$NON-NLS-1$
+		b.append(Arrays.toString(this.actionNames));
+		return b.toString();
+	}
+
+}
@@ -0,0 +1,257 @@
+/* 
+ * $Id$
+ * 
+ * Copyright (C) 2013 Stephane GALLAND.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ * This program is free software; you can redistribute it and/or modify
+ */
+package org.arakhne.neteditor.fsm.constructs.analysis ;
+
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.arakhne.neteditor.fsm.constructs.AbstractFSMNode;
+import org.arakhne.neteditor.fsm.constructs.FSMEndPoint;
+import org.arakhne.neteditor.fsm.constructs.FSMStartPoint;
+import org.arakhne.neteditor.fsm.constructs.FSMState;
+import org.arakhne.neteditor.fsm.constructs.FSMTransition;
+import org.arakhne.neteditor.fsm.constructs.FiniteStateMachine;
+import org.arakhne.neteditor.fsm.constructs.runtime.FSMTable;
+
+/** Unit tests for {@link FSMAnalyzer} and {@link FSMAnalysis}.
+ *
+ * @author $Author: galland$
+ * @version $FullVersion$
+ * @mavengroupid $GroupId$
+ * @mavenartifactid $ArtifactId$
+ */
+public class FSMAnalyzerTest extends TestCase {
+
+	private FiniteStateMachine fsm;
+	private FSMStartPoint start;
+	private FSMEndPoint end;
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		this.fsm = new FiniteStateMachine();
+		this.start = new FSMStartPoint();
+		this.end = new FSMEndPoint();
+		this.fsm.addNode(this.start);
+		this.fsm.addNode(this.end);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected void tearDown() throws Exception {
+		this.fsm = null;
+		this.start = null;
+		this.end = null;
+		super.tearDown();
+	}
+
+	private FSMState state(String name) {
+		FSMState state = new FSMState(name);
+		this.fsm.addNode(state);
+		return state;
+	}
+
+	private FSMTransition connect(AbstractFSMNode from, AbstractFSMNode to, String guard) {
+		FSMTransition transition = new FSMTransition();
+		this.fsm.addEdge(transition);
+		transition.setStartAnchor(from.getAnchors().get(0));
+		transition.setEndAnchor(to.getAnchors().get(0));
+		transition.setGuard(guard);
+		return transition;
+	}
+
+	private static void assertSameClass(FSMAnalysis analysis, FSMState s1, FSMState s2) {
+		FSMTable table = analysis.getTable();
+		assertEquals(
+				analysis.getEquivalenceClass(table.indexOf(s1)),
+				analysis.getEquivalenceClass(table.indexOf(s2)));
+	}
+
+	private static void assertNotSameClass(FSMAnalysis analysis, FSMState s1, FSMState s2) {
+		FSMTable table = analysis.getTable();
+		assertFalse(
+				analysis.getEquivalenceClass(table.indexOf(s1))
+				==analysis.getEquivalenceClass(table.indexOf(s2)));
+	}
+
+	/**
+	 */
+	public void testUnreachableStates() {
+		FSMState a = state("A"); //$NON-NLS-1$
+		FSMState b = state("B"); //$NON-NLS-1$
+		connect(this.start, a, null);
+		connect(a, this.end, null);
+		connect(b, a, null);
+
+		FSMAnalysis analysis = FSMAnalyzer.analyze(this.fsm);
+		FSMTable table = analysis.getTable();
+		assertTrue(analysis.isReachable(table.indexOf(a)));
+		assertFalse(analysis.isReachable(table.indexOf(b)));
+		List<FSMState> unreachable = analysis.getUnreachableStates();
+		assertEquals(1, unreachable.size());
+		assertSame(b, unreachable.get(0));
+		assertEquals(-1, analysis.getEquivalenceClass(table.indexOf(b)));
+		assertEquals(1, analysis.getEquivalenceClassCount());
+	}
+
+	/** Without start transition, the initial state is randomly
+	 * selected; so that all the states are reachable.
+	 */
+	public void testNoStartTransition() {
+		FSMState a = state("A"); //$NON-NLS-1$
+		FSMState b = state("B"); //$NON-NLS-1$
+		a.setEnterAction("x"); //$NON-NLS-1$
+		connect(a, b, null);
+
+		FSMAnalysis analysis = FSMAnalyzer.analyze(this.fsm);
+		assertTrue(analysis.getUnreachableStates().isEmpty());
+		assertTrue(analysis.isMinimal());
+	}
+
+	/**
+	 */
+	public void testEquivalentStates() {
+		FSMState a = state("A"); //$NON-NLS-1$
+		FSMState b = state("B"); //$NON-NLS-1$
+		FSMState c = state("C"); //$NON-NLS-1$
+		connect(this.start, a, null);
+		connect(a, b, "g"); //$NON-NLS-1$
+		connect(a, c, FSMTable.ELSE_GUARD);
+		connect(b, this.end, null);
+		connect(c, this.end, null);
+
+		FSMAnalysis analysis = FSMAnalyzer.analyze(this.fsm);
+		assertEquals(2, analysis.getEquivalenceClassCount());
+		assertFalse(analysis.isMinimal());
+		assertSameClass(analysis, b, c);
+		assertNotSameClass(analysis, a, b);
+		List<List<FSMState>> redundant = analysis.getRedundantStates();
+		assertEquals(1, redundant.size());
+		assertEquals(2, redundant.get(0).size());
+		assertTrue(redundant.get(0).contains(b));
+		assertTrue(redundant.get(0).contains(c));
+	}
+
+	/**
+	 */
+	public void testActionsDistinguishStates() {
+		FSMState a = state("A"); //$NON-NLS-1$
+		FSMState b = state("B"); //$NON-NLS-1$
+		FSMState c = state("C"); //$NON-NLS-1$
+		b.setEnterAction("x"); //$NON-NLS-1$
+		connect(this.start, a, null);
+		connect(a, b, "g"); //$NON-NLS-1$
+		connect(a, c, FSMTable.ELSE_GUARD);
+		connect(b, this.end, null);
+		connect(c, this.end, null);
+
+		FSMAnalysis analysis = FSMAnalyzer.analyze(this.fsm);
+		assertEquals(3, analysis.getEquivalenceClassCount());
+		assertTrue(analysis.isMinimal());
+		assertTrue(analysis.getRedundantStates().isEmpty());
+	}
+
+	/**
+	 */
+	public void testAcceptingDistinguishesStates() {
+		FSMState a = state("A"); //$NON-NLS-1$
+		FSMState b = state("B"); //$NON-NLS-1$
+		FSMState c = state("C"); //$NON-NLS-1$
+		b.setAccepting(true);
+		connect(this.start, a, null);
+		connect(a, b, "g"); //$NON-NLS-1$
+		connect(a, c, FSMTable.ELSE_GUARD);
+
+		FSMAnalysis analysis = FSMAnalyzer.analyze(this.fsm);
+		assertNotSameClass(analysis, b, c);
+	}
+
+	/** The states are distinguished by the behavior of their successors.
+	 */
+	public void testSuccessorsDistinguishStates() {
+		FSMState a = state("A"); //$NON-NLS-1$
+		FSMState b = state("B"); //$NON-NLS-1$
+		FSMState c = state("C"); //$NON-NLS-1$
+		FSMState d = state("D"); //$NON-NLS-1$
+		FSMState e = state("E"); //$NON-NLS-1$
+		d.setAction("x"); //$NON-NLS-1$
+		connect(this.start, a, null);
+		connect(a, b, "g"); //$NON-NLS-1$
+		connect(a, c, FSMTable.ELSE_GUARD);
+		connect(b, d, null);
+		connect(c, e, null);
+
+		FSMAnalysis analysis = FSMAnalyzer.analyze(this.fsm);
+		assertNotSameClass(analysis, d, e);
+		assertNotSameClass(analysis, b, c);
+		assertEquals(5, analysis.getEquivalenceClassCount());
+	}
+
+	/** Two states that are looping on each other with the
+	 * same behavior are equivalent.
+	 */
+	public void testLoop() {
+		FSMState a = state("A"); //$NON-NLS-1$
+		FSMState b = state("B"); //$NON-NLS-1$
+		connect(this.start, a, null);
+		connect(a, b, null);
+		connect(b, a, null);
+
+		FSMAnalysis analysis = FSMAnalyzer.analyze(this.fsm);
+		assertEquals(1, analysis.getEquivalenceClassCount());
+		assertSameClass(analysis, a, b);
+	}
+
+	/**
+	 */
+	public void testMinimizedCopy() {
+		FSMState a = state("A"); //$NON-NLS-1$
+		FSMState b = state("B"); //$NON-NLS-1$
+		FSMState c = state("C"); //$NON-NLS-1$
+		FSMState u = state("U"); //$NON-NLS-1$
+		a.setEnterAction("enterA"); //$NON-NLS-1$
+		connect(this.start, a, null);
+		connect(a, b, "g"); //$NON-NLS-1$
+		connect(a, c, FSMTable.ELSE_GUARD);
+		connect(b, this.end, null);
+		connect(c, this.end, null);
+		connect(u, a, null);
+
+		FSMAnalysis analysis = FSMAnalyzer.analyze(this.fsm);
+		FiniteStateMachine copy = analysis.createMinimizedCopy();
+		FSMTable table = new FSMTable(copy);
+		assertEquals(2, table.getStateCount());
+		assertEquals(4, table.getTransitionCount());
+		assertEquals(1, table.getGuardNames().length);
+		assertEquals("g", table.getGuardNames()[0]); //$NON-NLS-1$
+
+		FSMAnalysis copyAnalysis = FSMAnalyzer.analyze(copy);
+		assertTrue(copyAnalysis.isMinimal());
+		assertTrue(copyAnalysis.getUnreachableStates().isEmpty());
+	}
+
+}
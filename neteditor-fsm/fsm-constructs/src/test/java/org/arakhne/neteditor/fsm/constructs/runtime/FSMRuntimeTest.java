@@ -0,0 +1,298 @@
+/* 
+ * $Id$
+ * 
+ * Copyright (C) 2013 Stephane GALLAND.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ * This program is free software; you can redistribute it and/or modify
+ */
+package org.arakhne.neteditor.fsm.constructs.runtime ;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import junit.framework.TestCase;
+
+import org.arakhne.neteditor.fsm.constructs.AbstractFSMNode;
+import org.arakhne.neteditor.fsm.constructs.FSMEndPoint;
+import org.arakhne.neteditor.fsm.constructs.FSMStartPoint;
+import org.arakhne.neteditor.fsm.constructs.FSMState;
+import org.arakhne.neteditor.fsm.constructs.FSMTransition;
+import org.arakhne.neteditor.fsm.constructs.FiniteStateMachine;
+
+/** Unit tests for {@link FSMRuntime} and {@link FSMStepper}.
+ *
+ * @author $Author: galland$
+ * @version $FullVersion$
+ * @mavengroupid $GroupId$
+ * @mavenartifactid $ArtifactId$
+ */
+public class FSMRuntimeTest extends TestCase {
+
+	private FiniteStateMachine fsm;
+	private FSMStartPoint start;
+	private FSMEndPoint end;
+	private FSMState a;
+	private FSMState b;
+	private FSMState c;
+	private List<String> trace;
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		this.fsm = new FiniteStateMachine();
+		this.start = new FSMStartPoint();
+		this.end = new FSMEndPoint();
+		this.a = new FSMState("A"); //$NON-NLS-1$
+		this.b = new FSMState("B"); //$NON-NLS-1$
+		this.c = new FSMState("C"); //$NON-NLS-1$
+		this.fsm.addNode(this.start);
+		this.fsm.addNode(this.end);
+		this.fsm.addNode(this.a);
+		this.fsm.addNode(this.b);
+		this.fsm.addNode(this.c);
+		this.trace = new ArrayList<String>();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected void tearDown() throws Exception {
+		this.fsm = null;
+		this.start = null;
+		this.end = null;
+		this.a = this.b = this.c = null;
+		this.trace = null;
+		super.tearDown();
+	}
+
+	private FSMTransition connect(AbstractFSMNode from, AbstractFSMNode to, String guard, String action) {
+		FSMTransition transition = new FSMTransition();
+		this.fsm.addEdge(transition);
+		transition.setStartAnchor(from.getAnchors().get(0));
+		transition.setEndAnchor(to.getAnchors().get(0));
+		transition.setGuard(guard);
+		transition.setAction(action);
+		return transition;
+	}
+
+	private void bindTrace(FSMRuntime runtime, final String name) {
+		assertTrue(runtime.setAction(name, new FSMAction() {
+			@SuppressWarnings("synthetic-access")
+			@Override
+			public void execute(int instance) {
+				FSMRuntimeTest.this.trace.add(name);
+			}
+		}));
+	}
+
+	/** Guard that is true for the instances with an even index.
+	 */
+	private static final FSMGuard EVEN = new FSMGuard() {
+		@Override
+		public boolean evaluate(int instance) {
+			return (instance%2)==0;
+		}
+	};
+
+	/**
+	 */
+	public void testSequence() {
+		this.a.setEnterAction("enterA"); //$NON-NLS-1$
+		this.a.setExitAction("exitA"); //$NON-NLS-1$
+		this.b.setEnterAction("enterB"); //$NON-NLS-1$
+		this.b.setExitAction("exitB"); //$NON-NLS-1$
+		connect(this.start, this.a, null, "init"); //$NON-NLS-1$
+		connect(this.a, this.b, null, "ab"); //$NON-NLS-1$
+		connect(this.b, this.end, null, "bEnd"); //$NON-NLS-1$
+
+		FSMRuntime runtime = new FSMRuntime(this.fsm);
+		for(String action : runtime.getTable().getActionNames()) {
+			bindTrace(runtime, action);
+		}
+		FSMTable table = runtime.getTable();
+		FSMStepper stepper = runtime.createStepper(1);
+
+		int state = stepper.start(0);
+		assertEquals(table.indexOf(this.a), state);
+		state = stepper.step(0, state);
+		assertEquals(table.indexOf(this.b), state);
+		state = stepper.step(0, state);
+		assertEquals(FSMTable.END, state);
+		assertEquals(FSMTable.END, stepper.step(0, state));
+
+		String[] expected = new String[] {
+			"init", "enterA", //$NON-NLS-1$ //$NON-NLS-2$
+			"exitA", "ab", "enterB", //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+			"exitB", "bEnd" //$NON-NLS-1$ //$NON-NLS-2$
+		};
+		assertEquals(expected.length, this.trace.size());
+		for(int i=0; i<expected.length; ++i) {
+			assertEquals(expected[i], this.trace.get(i));
+		}
+	}
+
+	/**
+	 */
+	public void testInsideActionWithoutTransition() {
+		this.a.setAction("insideA"); //$NON-NLS-1$
+		connect(this.start, this.a, null, null);
+
+		FSMRuntime runtime = new FSMRuntime(this.fsm);
+		bindTrace(runtime, "insideA"); //$NON-NLS-1$
+		FSMStepper stepper = runtime.createStepper(1);
+		int state = stepper.start(0);
+		assertEquals(state, stepper.step(0, state));
+		assertEquals(state, stepper.step(0, state));
+		assertEquals(2, this.trace.size());
+		assertEquals("insideA", this.trace.get(0)); //$NON-NLS-1$
+	}
+
+	/**
+	 */
+	public void testGuardAndElse() {
+		connect(this.start, this.a, null, null);
+		connect(this.a, this.b, "even", null); //$NON-NLS-1$
+		connect(this.a, this.c, FSMTable.ELSE_GUARD, null);
+
+		FSMRuntime runtime = new FSMRuntime(this.fsm);
+		assertTrue(runtime.setGuard("even", EVEN)); //$NON-NLS-1$
+		FSMTable table = runtime.getTable();
+		FSMStepper stepper = runtime.createStepper(1);
+		for(int instance=0; instance<10; ++instance) {
+			int state = stepper.step(instance, stepper.start(instance));
+			assertEquals(
+					table.indexOf((instance%2)==0 ? this.b : this.c),
+					state);
+		}
+	}
+
+	/**
+	 */
+	public void testUnboundGuardIsFalse() {
+		connect(this.start, this.a, null, null);
+		connect(this.a, this.b, "unbound", null); //$NON-NLS-1$
+		connect(this.a, this.c, FSMTable.ELSE_GUARD, null);
+
+		FSMRuntime runtime = new FSMRuntime(this.fsm);
+		FSMStepper stepper = runtime.createStepper(1);
+		assertEquals(runtime.getTable().indexOf(this.c),
+				stepper.step(0, stepper.start(0)));
+	}
+
+	/**
+	 */
+	public void testBindUnknownName() {
+		connect(this.start, this.a, "guard", "action"); //$NON-NLS-1$ //$NON-NLS-2$
+		FSMRuntime runtime = new FSMRuntime(this.fsm);
+		assertTrue(runtime.setGuard("guard", EVEN)); //$NON-NLS-1$
+		assertFalse(runtime.setGuard("action", EVEN)); //$NON-NLS-1$
+		assertFalse(runtime.setAction("guard", null)); //$NON-NLS-1$
+		assertFalse(runtime.setAction("unknown", null)); //$NON-NLS-1$
+	}
+
+	/** Without start transition, the initial state is randomly selected.
+	 */
+	public void testRandomInitialState() {
+		FSMRuntime runtime = new FSMRuntime(this.fsm);
+		FSMStepper stepper = runtime.createStepper(1234);
+		int n = runtime.getTable().getStateCount();
+		assertEquals(3, n);
+		for(int instance=0; instance<100; ++instance) {
+			int state = stepper.start(instance);
+			assertTrue(state>=0 && state<n);
+		}
+	}
+
+	/**
+	 */
+	public void testSameSeedSameRun() {
+		connect(this.start, this.a, null, null);
+		connect(this.a, this.b, null, null);
+		connect(this.a, this.c, null, null);
+		connect(this.b, this.a, null, null);
+		connect(this.c, this.a, null, null);
+		connect(this.c, this.end, null, null);
+
+		FSMRuntime runtime = new FSMRuntime(this.fsm);
+		int[] first = new int[100];
+		int[] second = new int[100];
+		FSMStepper s1 = runtime.createStepper(42);
+		FSMStepper s2 = runtime.createStepper(42);
+		s1.start(first, 0, first.length);
+		s2.start(second, 0, second.length);
+		for(int step=0; step<10; ++step) {
+			s1.step(first, 0, first.length);
+			s2.step(second, 0, second.length);
+			for(int i=0; i<first.length; ++i) {
+				assertEquals(first[i], second[i]);
+			}
+		}
+	}
+
+	/**
+	 * @throws Exception
+	 */
+	public void testParallel() throws Exception {
+		this.b.setEnterAction("enterB"); //$NON-NLS-1$
+		connect(this.start, this.a, null, null);
+		connect(this.a, this.b, "even", null); //$NON-NLS-1$
+		connect(this.a, this.c, FSMTable.ELSE_GUARD, null);
+		connect(this.b, this.end, null, null);
+
+		FSMRuntime runtime = new FSMRuntime(this.fsm);
+		final AtomicInteger entered = new AtomicInteger();
+		runtime.setGuard("even", EVEN); //$NON-NLS-1$
+		runtime.setAction("enterB", new FSMAction() { //$NON-NLS-1$
+			@Override
+			public void execute(int instance) {
+				entered.incrementAndGet();
+			}
+		});
+		FSMTable table = runtime.getTable();
+		int ia = table.indexOf(this.a);
+		int ib = table.indexOf(this.b);
+		int ic = table.indexOf(this.c);
+
+		int[] states = new int[1001];
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			runtime.startParallel(states, executor, 4, 1);
+			for(int i=0; i<states.length; ++i) {
+				assertEquals(ia, states[i]);
+			}
+			runtime.stepParallel(states, executor, 4, 1);
+			for(int i=0; i<states.length; ++i) {
+				assertEquals((i%2)==0 ? ib : ic, states[i]);
+			}
+			assertEquals(501, entered.get());
+			runtime.stepParallel(states, executor, 4, 1);
+			for(int i=0; i<states.length; ++i) {
+				assertEquals((i%2)==0 ? FSMTable.END : ic, states[i]);
+			}
+		}
+		finally {
+			executor.shutdownNow();
+		}
+	}
+
+}
@@ -48,8 +48,11 @@ import java.io.FileOutputStream;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.io.PrintWriter;
+import java.io.RandomAccessFile;
 import java.io.StringWriter;
 import java.net.URL;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
@@ -57,6 +60,7 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.TreeMap;
 import java.util.UUID;
+import java.util.concurrent.Executor;
 import java.util.prefs.BackingStoreException;
 import java.util.prefs.Preferences;
 
@@ -91,7 +95,10 @@ import javax.swing.undo.UndoableEdit;
 import org.arakhne.afc.io.filefilter.FileFilter;
 import org.arakhne.afc.io.filefilter.JavaFileFilter;
 import org.arakhne.afc.io.filefilter.NGRFileFilter;
+import org.arakhne.afc.progress.DefaultProgression;
 import org.arakhne.afc.progress.Progression;
+import org.arakhne.afc.progress.ProgressionEvent;
+import org.arakhne.afc.progress.ProgressionListener;
 import org.arakhne.afc.ui.MouseCursor;
 import org.arakhne.afc.ui.actionmode.ActionMode;
 import org.arakhne.afc.ui.actionmode.ActionModeListener;
@@ -129,9 +136,16 @@ import org.arakhne.neteditor.figlayout.sugiyama.GanswerSugiyamaFigureLayout;
 import org.arakhne.neteditor.formalism.ModelObjectEvent;
 import org.arakhne.neteditor.formalism.ModelObjectListener;
 import org.arakhne.neteditor.fsm.about.JAboutDialog;
+import org.arakhne.neteditor.fsm.constructs.FSMAnchor;
+import org.arakhne.neteditor.fsm.constructs.FSMEndPoint;
+import org.arakhne.neteditor.fsm.constructs.FSMStartPoint;
+import org.arakhne.neteditor.fsm.constructs.FSMState;
+import org.arakhne.neteditor.fsm.constructs.FSMTransition;
 import org.arakhne.neteditor.fsm.constructs.FiniteStateMachine;
 import org.arakhne.neteditor.fsm.constructs.java.FSMJavaGenerator;
+import org.arakhne.neteditor.fsm.figures.FSMEndPointFigure;
 import org.arakhne.neteditor.fsm.figures.FSMFigureFactory;
+import org.arakhne.neteditor.fsm.figures.FSMStartPointFigure;
 import org.arakhne.neteditor.fsm.figures.FSMStateFigure;
 import org.arakhne.neteditor.fsm.figures.FSMTransitionFigure;
 import org.arakhne.neteditor.fsm.property.AbstractPropertyPanel;
@@ -144,10 +158,16 @@ import org.arakhne.neteditor.io.BitmapExporter;
 import org.arakhne.neteditor.io.FileCollection;
 import org.arakhne.neteditor.io.NetEditorContentType;
 import org.arakhne.neteditor.io.NetEditorReader;
+import org.arakhne.neteditor.io.TypeRegistry;
 import org.arakhne.neteditor.io.VectorialExporter;
 import org.arakhne.neteditor.io.VectorialPictureFileType;
-import org.arakhne.neteditor.io.bitmap.ImageIOBitmapExporter;
+import org.arakhne.neteditor.io.async.AsyncIOService;
+import org.arakhne.neteditor.io.async.IOCallback;
+import org.arakhne.neteditor.io.async.IOTask;
+import org.arakhne.neteditor.io.async.ThrottledProgressionListener;
+import org.arakhne.neteditor.io.autosave.AutosaveService;
 import org.arakhne.neteditor.io.bitmap.ImageType;
+import org.arakhne.neteditor.io.bitmap.TiledBitmapExporter;
 import org.arakhne.neteditor.io.eps.EpsExporter;
 import org.arakhne.neteditor.io.eps.EpsTeXExporter;
 import org.arakhne.neteditor.io.gml.GMLExporter;
@@ -185,6 +205,17 @@ public class FSMEditor extends JFrame {
 
 	private static final boolean MODE_PERSISTENCE = true;
 
+	private static final File AUTOSAVE_DIRECTORY = new File(System.getProperty("user.home"), ".fsmeditor-autosave"); //$NON-NLS-1$ //$NON-NLS-2$
+	private static final String AUTOSAVE_EXTENSION = ".ngr"; //$NON-NLS-1$
+	private static final String LOCK_EXTENSION = ".lock"; //$NON-NLS-1$
+
+	private static final Executor SWING_EXECUTOR = new Executor() {
+		@Override
+		public void execute(Runnable command) {
+			SwingUtilities.invokeLater(command);
+		}
+	};
+
 	private static final URL LOAD_ICON = Resources.getResource(FSMEditor.class, "load.png"); //$NON-NLS-1$
 	private static final URL SAVE_ICON = Resources.getResource(FSMEditor.class, "save.png"); //$NON-NLS-1$
 	private static final URL SAVEAS_ICON = Resources.getResource(FSMEditor.class, "save-as.png"); //$NON-NLS-1$
@@ -338,6 +369,16 @@ public class FSMEditor extends JFrame {
 
 	private final EventHandler eventHandler = new EventHandler();
 
+	// Each editor has its own autosave files, locked while the editor is running.
+	private final AutosaveService<FiniteStateMachine> autosave = new AutosaveService<FiniteStateMachine>(
+			createAutosaveWriter(),
+			new File(AUTOSAVE_DIRECTORY, UUID.randomUUID().toString() + AUTOSAVE_EXTENSION),
+			SWING_EXECUTOR);
+
+	private FileLock autosaveLock;
+
+	private final AsyncIOService ioService = new AsyncIOService();
+
 	private FiniteStateMachine stateMachine;
 
 	/**
@@ -540,6 +581,12 @@ public class FSMEditor extends JFrame {
 		this.figurePanel.addExceptionListener(this.eventHandler);
 		Toolkit.getDefaultToolkit().getSystemClipboard().addFlavorListener(this.eventHandler);
 		addWindowListener(this.eventHandler);
+
+		AUTOSAVE_DIRECTORY.mkdirs();
+		this.autosaveLock = lockAutosave(this.autosave.getSnapshotFile());
+		if (!recover()) {
+			this.autosave.attach(this.stateMachine, this.figurePanel, null);
+		}
 	}
 
 	/** Replies if the current document has changed since its last saving/loading.
@@ -733,10 +780,167 @@ public class FSMEditor extends JFrame {
 		this.currentDocumentFileFormat = null;
 		saved();
 		this.stateMachine.addModelObjectListener(this.eventHandler);
+		this.autosave.attach(this.stateMachine, this.figurePanel, null);
 
 		return true;
 	}
 
+	/** Recover a document that was automatically saved
+	 * by an editor that is no more running.
+	 * The autosave files that the user does not want to recover
+	 * are removed.
+	 * 
+	 * @return <code>true</code> if a document was recovered;
+	 * otherwise <code>false</code>.
+	 */
+	protected boolean recover() {
+		final File ownSnapshot = this.autosave.getSnapshotFile();
+		File[] snapshots = AUTOSAVE_DIRECTORY.listFiles(new java.io.FileFilter() {
+			@Override
+			public boolean accept(File pathname) {
+				return pathname.isFile()
+						&& pathname.getName().endsWith(AUTOSAVE_EXTENSION)
+						&& !pathname.equals(ownSnapshot);
+			}
+		});
+		if (snapshots!=null) {
+			for(File snapshot : snapshots) {
+				// The files are locked by their editor while it is running
+				FileLock lock = lockAutosave(snapshot);
+				if (lock!=null) {
+					AutosaveService<FiniteStateMachine> orphan = new AutosaveService<FiniteStateMachine>(
+							new NGRWriter(), snapshot, SWING_EXECUTOR);
+					boolean discard = true;
+					try {
+						File document = orphan.getRecoverableDocument();
+						String message;
+						if (document!=null) {
+							message = Locale.getString("RECOVER_DOCUMENT_1", document.getName()); //$NON-NLS-1$
+						}
+						else {
+							message = Locale.getString("RECOVER_DOCUMENT_0"); //$NON-NLS-1$
+						}
+						int opt = JOptionPane.showConfirmDialog(
+								this,
+								message,
+								Locale.getString("RECOVERING"), //$NON-NLS-1$
+								JOptionPane.YES_NO_OPTION,
+								JOptionPane.QUESTION_MESSAGE);
+						if (opt==JOptionPane.YES_OPTION) {
+							try {
+								Map<UUID,List<ViewComponent>> figures = new TreeMap<UUID,List<ViewComponent>>();
+								FiniteStateMachine g = orphan.recover(
+										createReader(),
+										FiniteStateMachine.class,
+										figures);
+								// The autosave files of this editor are written
+								// as soon as the recovered document is imported.
+								this.autosave.attach(this.stateMachine, this.figurePanel, document);
+								this.currentDocument = document;
+								this.currentDocumentFileFormat = null;
+								this.figurePanel.importGraph(null, g, figures);
+								changed();
+								this.figurePanel.fitView();
+								return true;
+							}
+							catch (Throwable ex) {
+								// Keep the files for a next try
+								discard = false;
+								this.figurePanel.fireError(ex);
+							}
+						}
+					}
+					finally {
+						if (discard) orphan.discard(null);
+						orphan.shutdown();
+						unlockAutosave(lock, snapshot);
+					}
+				}
+			}
+		}
+		return false;
+	}
+
+	/** Lock the autosave files with the given snapshot.
+	 * 
+	 * @param snapshot is the snapshot file.
+	 * @return the lock, or <code>null</code> if the files are
+	 * already locked by a running editor.
+	 */
+	private static FileLock lockAutosave(File snapshot) {
+		try {
+			RandomAccessFile file = new RandomAccessFile(snapshot.getPath() + LOCK_EXTENSION, "rw"); //$NON-NLS-1$
+			FileLock lock = null;
+			try {
+				lock = file.getChannel().tryLock();
+			}
+			catch(OverlappingFileLockException e) {
+				// Locked by an editor in this virtual machine
+			}
+			finally {
+				if (lock==null) file.close();
+			}
+			return lock;
+		}
+		catch(IOException e) {
+			return null;
+		}
+	}
+
+	/** Unlock the autosave files with the given snapshot.
+	 * 
+	 * @param lock is the lock to release.
+	 * @param snapshot is the snapshot file.
+	 */
+	private static void unlockAutosave(FileLock lock, File snapshot) {
+		if (lock!=null) {
+			try {
+				lock.release();
+				lock.channel().close();
+			}
+			catch(IOException e) {
+				//
+			}
+			new File(snapshot.getPath() + LOCK_EXTENSION).delete();
+		}
+	}
+
+	/** Create the reader of the FSM documents.
+	 * The types of the FSM constructs and figures are
+	 * registered in the reader to avoid to search them
+	 * for each read object.
+	 * 
+	 * @return the reader.
+	 */
+	protected static NGRReader createReader() {
+		NGRReader reader = new NGRReader();
+		TypeRegistry registry = reader.getTypeRegistry();
+		registry.register(FiniteStateMachine.class);
+		registry.register(FSMState.class);
+		registry.register(FSMStartPoint.class);
+		registry.register(FSMEndPoint.class);
+		registry.register(FSMAnchor.class);
+		registry.register(FSMTransition.class);
+		registry.register(FSMStateFigure.class);
+		registry.register(FSMStartPointFigure.class);
+		registry.register(FSMEndPointFigure.class);
+		registry.register(FSMTransitionFigure.class);
+		return reader;
+	}
+
+	/** Create the writer of the autosave snapshots.
+	 * The content is binary, so that the state of the document
+	 * is captured on the event dispatching thread and encoded
+	 * by the autosave thread.
+	 * 
+	 * @return the writer.
+	 */
+	private static NGRWriter createAutosaveWriter() {
+		NGRWriter writer = new NGRWriter();
+		writer.setContentType(NetEditorContentType.BINARY);
+		return writer;
+	}
+
 	/** Open the "about" dialog box.
 	 */
 	protected void about() {
@@ -745,6 +949,9 @@ public class FSMEditor extends JFrame {
 	}
 
 	/** Load a document.
+	 * <p>
+	 * The document is read in background; the editor is
+	 * updated when the reading is terminated.
 	 */
 	protected void load() {
 		JFileChooser chooser = new JFileChooser(getPreferredDirectory());
@@ -752,23 +959,64 @@ public class FSMEditor extends JFrame {
 		if (chooser.showOpenDialog(FSMEditor.this)==JFileChooser.APPROVE_OPTION) {
 			try {
 				if (newDocument()) {
-					File inputFile = chooser.getSelectedFile();
-					NetEditorReader gw = new NGRReader();
-					Map<UUID,List<ViewComponent>> figures = new TreeMap<UUID,List<ViewComponent>>();
-					Progression progression = ProgressMonitor.createProgression(
+					final File inputFile = chooser.getSelectedFile();
+					final NetEditorReader gw = createReader();
+					final Map<UUID,List<ViewComponent>> figures = new TreeMap<UUID,List<ViewComponent>>();
+					final TaskProgressMonitor monitor = new TaskProgressMonitor(
 							this,
-							Locale.getString("LOADING_FILE", inputFile.getName()), //$NON-NLS-1$
-							null);
+							Locale.getString("LOADING_FILE", inputFile.getName())); //$NON-NLS-1$
+					DefaultProgression progression = new DefaultProgression(0, 100);
+					progression.addProgressionListener(new ThrottledProgressionListener(monitor));
 					gw.setProgression(progression);
-					FiniteStateMachine g = gw.read(
-							FiniteStateMachine.class,
-							inputFile,
-							figures);
-					this.figurePanel.importGraph(null, g, figures);
-					this.currentDocument = inputFile;
-					this.currentDocumentFileFormat = gw.getContentType();
-					saved();
-					this.figurePanel.fitView();
+					setCursor(AwtUtil.getCursor(MouseCursor.WAIT));
+					IOTask<FiniteStateMachine> task = this.ioService.read(gw, FiniteStateMachine.class, inputFile, figures,
+							new IOCallback<FiniteStateMachine>() {
+								@Override
+								public void onSuccess(final FiniteStateMachine result) {
+									SwingUtilities.invokeLater(new Runnable() {
+										@SuppressWarnings("synthetic-access")
+										@Override
+										public void run() {
+											monitor.close();
+											setCursor(AwtUtil.getCursor(MouseCursor.DEFAULT));
+											try {
+												FSMEditor.this.figurePanel.importGraph(null, result, figures);
+												FSMEditor.this.currentDocument = inputFile;
+												FSMEditor.this.currentDocumentFileFormat = gw.getContentType();
+												saved();
+												FSMEditor.this.autosave.discard(inputFile);
+												FSMEditor.this.figurePanel.fitView();
+											}
+											catch (Throwable ex) {
+												FSMEditor.this.figurePanel.fireError(ex);
+											}
+										}
+									});
+								}
+								@Override
+								public void onFailure(final Throwable error) {
+									SwingUtilities.invokeLater(new Runnable() {
+										@SuppressWarnings("synthetic-access")
+										@Override
+										public void run() {
+											monitor.close();
+											setCursor(AwtUtil.getCursor(MouseCursor.DEFAULT));
+											FSMEditor.this.figurePanel.fireError(error);
+										}
+									});
+								}
+								@Override
+								public void onCancel() {
+									SwingUtilities.invokeLater(new Runnable() {
+										@Override
+										public void run() {
+											monitor.close();
+											setCursor(AwtUtil.getCursor(MouseCursor.DEFAULT));
+										}
+									});
+								}
+							});
+					monitor.setTask(task);
 				}
 			}
 			catch (Throwable ex) {
@@ -814,6 +1062,7 @@ public class FSMEditor extends JFrame {
 					tempFile.delete();
 				}
 				saved();
+				this.autosave.discard(this.currentDocument);
 			}
 			catch (Throwable ex) {
 				this.figurePanel.fireError(ex);
@@ -916,6 +1165,7 @@ public class FSMEditor extends JFrame {
 				this.currentDocument = outputFile;
 				this.currentDocumentFileFormat = null;
 				saved();
+				this.autosave.discard(outputFile);
 			}
 			catch (Throwable ex) {
 				this.figurePanel.fireError(ex);
@@ -937,7 +1187,7 @@ public class FSMEditor extends JFrame {
 			if (outputFile!=null) {
 				ImageType type = ImageType.valueOf(outputFile);
 				if (type!=null) {
-					BitmapExporter exporter = new ImageIOBitmapExporter(type);
+					BitmapExporter exporter = new TiledBitmapExporter(type);
 					try {
 						File tmpOutputFile = File.createTempFile("fsmeditorexport", "."+type.getExtension()); //$NON-NLS-1$ //$NON-NLS-2$
 						try {
@@ -1103,6 +1353,10 @@ public class FSMEditor extends JFrame {
 			default:
 			}
 		}
+		this.autosave.discard(this.currentDocument);
+		this.autosave.shutdown();
+		unlockAutosave(this.autosaveLock, this.autosave.getSnapshotFile());
+		this.ioService.shutdown();
 		setVisible(false);
 		dispose();
 		System.exit(0);
@@ -1358,6 +1612,7 @@ public class FSMEditor extends JFrame {
 		@Override
 		public void figureAdded(FigureEvent event) {
 			changed();
+			FSMEditor.this.autosave.figureAdded(event.getAddedFigure());
 		}
 
 		/**
@@ -1366,6 +1621,7 @@ public class FSMEditor extends JFrame {
 		@Override
 		public void figureChanged(FigureEvent event) {
 			changed();
+			FSMEditor.this.autosave.figureChanged(event.getChangedFigure());
 		}
 
 		/**
@@ -1374,6 +1630,7 @@ public class FSMEditor extends JFrame {
 		@Override
 		public void figureRemoved(FigureEvent event) {
 			changed();
+			FSMEditor.this.autosave.figureRemoved(event.getRemovedFigure());
 		}
 
 		/**
@@ -1508,6 +1765,88 @@ public class FSMEditor extends JFrame {
 
 	}
 
+	/** Monitor of the progression of a background I/O task.
+	 * The notifications of the I/O thread are applied to the
+	 * progress dialog on the event dispatch thread; and the
+	 * task is cancelled when the user cancels the dialog.
+	 *
+	 * @author $Author: galland$
+	 * @version $FullVersion$
+	 * @mavengroupid $GroupId$
+	 * @mavenartifactid $ArtifactId$
+	 */
+	private static class TaskProgressMonitor implements ProgressionListener, Runnable {
+
+		private final javax.swing.ProgressMonitor monitor;
+		private IOTask<?> task = null;
+		private volatile int percent = 0;
+
+		/**
+		 * @param parent is the parent component of the dialog.
+		 * @param message is the message displayed in the dialog.
+		 */
+		public TaskProgressMonitor(java.awt.Component parent, String message) {
+			this.monitor = new javax.swing.ProgressMonitor(parent, message, null, 0, 100);
+		}
+
+		/** Set the monitored task. Invoked on the event dispatch thread.
+		 *
+		 * @param task
+		 */
+		public void setTask(IOTask<?> task) {
+			this.task = task;
+		}
+
+		/** Close the dialog. Invoked on the event dispatch thread.
+		 */
+		public void close() {
+			this.task = null;
+			this.monitor.close();
+		}
+
+		private void update(ProgressionEvent event) {
+			Progression progression = event.getProgression();
+			if (progression!=null) {
+				int min = progression.getMinimum();
+				int max = progression.getMaximum();
+				if (max>min) {
+					this.percent = (int)(((long)(progression.getValue() - min) * 100) / (max - min));
+				}
+			}
+			SwingUtilities.invokeLater(this);
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public void onProgressionStateChanged(ProgressionEvent event) {
+			update(event);
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public void onProgressionValueChanged(ProgressionEvent event) {
+			update(event);
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public void run() {
+			if (this.task!=null) {
+				this.monitor.setProgress(this.percent);
+				if (this.monitor.isCanceled()) {
+					this.task.cancel(true);
+				}
+			}
+		}
+
+	}
+
 	/**
 	 * @author $Author: galland$
 	 * @version $FullVersion$
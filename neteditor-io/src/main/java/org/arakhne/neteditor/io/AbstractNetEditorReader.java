@@ -39,6 +39,7 @@ public abstract class AbstractNetEditorReader implements NetEditorReader {
 	
 	private ResourceRepository resourceRepository = new ResourceRepository();
 	private Progression taskProgression = null;
+	private TypeRegistry typeRegistry = new TypeRegistry();
 
 	/**
 	 */
@@ -84,6 +85,26 @@ public abstract class AbstractNetEditorReader implements NetEditorReader {
 		this.resourceRepository = repos;
 	}
 
+	/** Replies the registry of the types that is used
+	 * to create the model objects and the figures.
+	 * 
+	 * @return the registry of the types.
+	 */
+	public final TypeRegistry getTypeRegistry() {
+		return this.typeRegistry;
+	}
+
+	/** Set the registry of the types that is used
+	 * to create the model objects and the figures.
+	 * 
+	 * @param registry is the registry of the types.
+	 */
+	public final void setTypeRegistry(TypeRegistry registry) {
+		if (registry!=null) {
+			this.typeRegistry = registry;
+		}
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
@@ -32,8 +32,11 @@ import org.arakhne.afc.math.continous.object2d.Rectangle2f;
 import org.arakhne.afc.progress.Progression;
 import org.arakhne.afc.progress.ProgressionUtil;
 import org.arakhne.neteditor.fig.figure.Figure;
+import org.arakhne.neteditor.fig.graphics.DisplayList;
+import org.arakhne.neteditor.fig.graphics.RecordingViewGraphics2D;
 import org.arakhne.neteditor.fig.view.ViewComponentContainer;
 import org.arakhne.neteditor.formalism.Graph;
+import org.arakhne.neteditor.io.stream.InterruptibleOutputStream;
 
 /** Abstract implementation of a vector exporter.
  *
@@ -122,7 +125,7 @@ public abstract class AbstractVectorialExporter<D extends AbstractVectorialExpor
 		this.file = output;
 		FileOutputStream fos = new FileOutputStream(output);
 		try {
-			write(fos, graph, container);
+			write(new InterruptibleOutputStream(fos), graph, container);
 		}
 		finally {
 			fos.close();
@@ -137,7 +140,7 @@ public abstract class AbstractVectorialExporter<D extends AbstractVectorialExpor
 		this.file = output;
 		FileOutputStream fos = new FileOutputStream(output);
 		try {
-			write(fos, figures);
+			write(new InterruptibleOutputStream(fos), figures);
 		}
 		finally {
 			fos.close();
@@ -193,35 +196,44 @@ public abstract class AbstractVectorialExporter<D extends AbstractVectorialExpor
 	 */
 	@Override
 	public <G extends Graph<?,?,?,?>> void write(OutputStream output, G graph, ViewComponentContainer<?,G> container) throws IOException {
-		synchronized(container.getTreeLock()) {
-			ProgressionUtil.init(getProgression(), 0, 1000);
-			S stream = createStream(this.file, output);
-			ProgressionUtil.advance(getProgression(), 10);
-			try {
-				D g = prepareExport(this.file, stream, container.getViewBounds());
+		ProgressionUtil.init(getProgression(), 0, 1000);
+		S stream = createStream(this.file, output);
+		ProgressionUtil.advance(getProgression(), 10);
+		try {
+			D g;
+			Rectangle2f bounds;
+			DisplayList list;
+			// The figures are recorded under the lock; they are
+			// serialized from the recording, without the lock.
+			synchronized(container.getTreeLock()) {
+				bounds = container.getViewBounds();
+				g = prepareExport(this.file, stream, bounds);
 				if (g==null) throw new IOException();
 				ProgressionUtil.advance(getProgression(), 100);
-				g.prolog();
-				g.pushRenderingContext(null, null, container.getViewBounds());
+				RecordingViewGraphics2D rg = new RecordingViewGraphics2D(g);
 				boolean oldShadow = container.isShadowDrawn();
 				container.setShadowDrawn(isShadowExported() && isShadowSupported());
-				ProgressionUtil.advance(getProgression(), 10);
 				try {
-					container.paintViewComponents(g);
+					container.paintViewComponents(rg);
 				}
 				finally {
 					container.setShadowDrawn(oldShadow);
 				}
-				ProgressionUtil.advance(getProgression(), 780);
-				g.popRenderingContext();
-				g.epilog();
-				finalizeExport(this.file, stream, container.getViewBounds(), g);
+				list = rg.getDisplayList();
 			}
-			finally {
-				stream.close();
-			}
-			ProgressionUtil.end(getProgression());
+			ProgressionUtil.advance(getProgression(), 10);
+			g.prolog();
+			g.pushRenderingContext(null, null, bounds);
+			list.paint(g);
+			ProgressionUtil.advance(getProgression(), 780);
+			g.popRenderingContext();
+			g.epilog();
+			finalizeExport(this.file, stream, bounds, g);
 		}
+		finally {
+			stream.close();
+		}
+		ProgressionUtil.end(getProgression());
 	}
 	
 	/** Wrap the specified stream to a stream that may 
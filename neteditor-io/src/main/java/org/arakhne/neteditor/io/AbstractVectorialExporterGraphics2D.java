@@ -23,7 +23,6 @@ package org.arakhne.neteditor.io ;
 
 import java.io.IOException;
 import java.net.URL;
-import java.util.LinkedList;
 import java.util.NoSuchElementException;
 
 import org.arakhne.afc.math.continous.object2d.Circle2f;
@@ -50,6 +49,8 @@ import org.arakhne.afc.ui.vector.Stroke;
 import org.arakhne.afc.ui.vector.VectorGraphics2D;
 import org.arakhne.afc.ui.vector.VectorToolkit;
 import org.arakhne.neteditor.fig.figure.Figure;
+import org.arakhne.neteditor.fig.graphics.RenderingContextStack;
+import org.arakhne.neteditor.fig.graphics.TextLayoutCache;
 import org.arakhne.neteditor.fig.graphics.ViewGraphics2D;
 import org.arakhne.neteditor.fig.view.ViewComponentConstants;
 
@@ -67,10 +68,16 @@ public abstract class AbstractVectorialExporterGraphics2D extends AbstractVector
 	 */
 	protected final Transform2D currentTransform = new Transform2D();
 	
-	private final LinkedList<GContext> stack = new LinkedList<GContext>();
+	private final RenderingContextStack<GContext> stack = new RenderingContextStack<GContext>() {
+		@Override
+		protected GContext createFrame() {
+			return new GContext();
+		}
+	};
 
 	private Color background = Colors.WHITE;
 	private Font font;
+	private FontMetrics fontMetrics = null;
 	private Stroke stroke = VectorToolkit.stroke(1f);
 	private Composite composite = VectorToolkit.composite(1.0f);
 	private Shape2f clip = null;
@@ -101,6 +108,7 @@ public abstract class AbstractVectorialExporterGraphics2D extends AbstractVector
 		this.stack.clear();
 		this.background = null;
 		this.font = null;
+		this.fontMetrics = null;
 		this.stroke = null;
 		this.composite = null;
 		this.clip = null;
@@ -113,6 +121,7 @@ public abstract class AbstractVectorialExporterGraphics2D extends AbstractVector
 		this.currentTransform.setIdentity();
 		this.background = Colors.WHITE;
 		this.font = VectorToolkit.font();
+		this.fontMetrics = null;
 		this.stroke = VectorToolkit.stroke(1f);
 		this.composite = VectorToolkit.composite(1.0f);
 		this.clip = null;
@@ -211,6 +220,7 @@ public abstract class AbstractVectorialExporterGraphics2D extends AbstractVector
 		Font f = (font==null) ? VectorToolkit.font() : font;
 		if (!f.equals(this.font)) {
 			this.font = f;
+			this.fontMetrics = null;
 		}
 	}
 
@@ -219,7 +229,10 @@ public abstract class AbstractVectorialExporterGraphics2D extends AbstractVector
 	 */
 	@Override
 	public FontMetrics getFontMetrics() {
-		return new VectorFontMetrics(this.font);
+		if (this.fontMetrics==null) {
+			this.fontMetrics = new VectorFontMetrics(this.font);
+		}
+		return this.fontMetrics;
 	}
 
 	/**
@@ -227,6 +240,9 @@ public abstract class AbstractVectorialExporterGraphics2D extends AbstractVector
 	 */
 	@Override
 	public FontMetrics getFontMetrics(Font f) {
+		if (f!=null && f.equals(this.font)) {
+			return getFontMetrics();
+		}
 		return new VectorFontMetrics(f);
 	}
 
@@ -389,10 +405,10 @@ public abstract class AbstractVectorialExporterGraphics2D extends AbstractVector
 	 */
 	@Override
 	public Rectangle2f getCurrentViewComponentBounds() {
-		if (!this.stack.isEmpty()) {
-			for(GContext c : this.stack) {
-				if (c.bounds!=null) return c.bounds;
-			}
+		GContext c;
+		for(int i=0; i<this.stack.size(); ++i) {
+			c = this.stack.get(i);
+			if (c.bounds!=null) return c.bounds;
 		}
 		throw new NoSuchElementException();
 	}
@@ -402,11 +418,11 @@ public abstract class AbstractVectorialExporterGraphics2D extends AbstractVector
 	 */
 	@Override
 	public Shape2f getCurrentViewComponentShape() {
-		if (!this.stack.isEmpty()) {
-			for(GContext c : this.stack) {
-				if (c.bounds!=null && c.shape==null) return c.bounds;
-				if (c.shape!=null) return c.shape;
-			}
+		GContext c;
+		for(int i=0; i<this.stack.size(); ++i) {
+			c = this.stack.get(i);
+			if (c.bounds!=null && c.shape==null) return c.bounds;
+			if (c.shape!=null) return c.shape;
 		}
 		throw new NoSuchElementException();
 	}
@@ -453,14 +469,12 @@ public abstract class AbstractVectorialExporterGraphics2D extends AbstractVector
 	public void pushRenderingContext(Figure component, Shape2f viewShape,
 			Rectangle2f bounds, Color fillColor, Color lineColor,
 			Transform2D localTransformation) {
-		Transform2D trans;
-		if (localTransformation!=null) {
-			trans = this.currentTransform.clone();
+		GContext context = this.stack.push();
+		context.hasTransformation = (localTransformation!=null);
+		if (context.hasTransformation) {
+			context.transformation.set(this.currentTransform);
 			setTransform(localTransformation);
 		}
-		else {
-			trans = null;
-		}
 		
 		Color ofc = getFillColor();
 		Color fc = null;
@@ -492,7 +506,11 @@ public abstract class AbstractVectorialExporterGraphics2D extends AbstractVector
 		}
 		if (lc!=null) setOutlineColor(lc);
 		
-		this.stack.push(new GContext(viewShape, bounds, trans, ofc, olc, getFont()));
+		context.shape = viewShape;
+		context.bounds = bounds;
+		context.fillColor = ofc;
+		context.lineColor = olc;
+		context.font = getFont();
 	}
 
 
@@ -504,7 +522,7 @@ public abstract class AbstractVectorialExporterGraphics2D extends AbstractVector
 		if (!this.stack.isEmpty()) {
 			GContext c = this.stack.pop();
 			assert(c!=null);
-			if (c.transformation!=null) {
+			if (c.hasTransformation) {
 				setTransform(c.transformation);
 			}
 			if (c.fillColor!=null) {
@@ -526,10 +544,8 @@ public abstract class AbstractVectorialExporterGraphics2D extends AbstractVector
 	 */
 	protected Rectangle2f getRootBounds() {
 		if (!this.stack.isEmpty()) {
-			GContext context = this.stack.getLast();
-			if (context!=null) {
-				return context.bounds;
-			}
+			GContext context = this.stack.get(this.stack.size()-1);
+			return context.bounds;
 		}
 		return null;
 	}
@@ -651,8 +667,7 @@ public abstract class AbstractVectorialExporterGraphics2D extends AbstractVector
 		 */
 		@Override
 		public float stringWidth(String str) {
-			Rectangle2f r = getFont().getStringBounds(str);
-			return r.getWidth();
+			return TextLayoutCache.getSharedCache().getStringWidth(getFont(), str);
 		}
 
 		@Override
@@ -708,31 +723,33 @@ public abstract class AbstractVectorialExporterGraphics2D extends AbstractVector
 	 * @mavengroupid $GroupId$
 	 * @mavenartifactid $ArtifactId$
 	 */
-	private static class GContext {
+	private static class GContext implements RenderingContextStack.Frame {
 
-		public final Shape2f shape;
-		public final Rectangle2f bounds;
-		public final Transform2D transformation;
-		public final Color fillColor;
-		public final Color lineColor;
-		public final Font font; 
+		public Shape2f shape;
+		public Rectangle2f bounds;
+		public final Transform2D transformation = new Transform2D();
+		public boolean hasTransformation;
+		public Color fillColor;
+		public Color lineColor;
+		public Font font; 
 		
 		/**
-		 * @param shape
-		 * @param bounds
-		 * @param transformation
-		 * @param fillColor
-		 * @param lineColor
-		 * @param font
 		 */
-		public GContext(Shape2f shape, Rectangle2f bounds, Transform2D transformation,
-				Color fillColor, Color lineColor, Font font) {
-			this.shape = shape;
-			this.bounds = bounds;
-			this.transformation = transformation;
-			this.fillColor = fillColor;
-			this.lineColor = lineColor;
-			this.font = font;
+		public GContext() {
+			//
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public void clear() {
+			this.shape = null;
+			this.bounds = null;
+			this.hasTransformation = false;
+			this.fillColor = null;
+			this.lineColor = null;
+			this.font = null;
 		}
 
 	}
@@ -0,0 +1,61 @@
+/* 
+ * $Id$
+ * 
+ * Copyright (C) 2013 Stephane GALLAND.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ * This program is free software; you can redistribute it and/or modify
+ */
+
+package org.arakhne.neteditor.io ;
+
+import java.util.UUID;
+
+/** Factory of the objects that are read by a NetEditorReader.
+ * <p>
+ * The factories are registered in a {@link TypeRegistry}.
+ * A factory may be registered for a known type to create
+ * the instances without reflection.
+ *
+ * @author $Author: galland$
+ * @version $FullVersion$
+ * @mavengroupid $GroupId$
+ * @mavenartifactid $ArtifactId$
+ * @see TypeRegistry
+ */
+public interface InstanceFactory {
+
+	/** Replies the type of the instances created by this factory.
+	 * 
+	 * @return the type of the instances.
+	 */
+	public Class<?> getType();
+
+	/** Create a model object.
+	 * 
+	 * @return the new instance.
+	 * @throws Exception if the instance cannot be created.
+	 */
+	public Object newInstance() throws Exception;
+
+	/** Create a figure.
+	 * 
+	 * @param viewId is the identifier of the view of the figure.
+	 * @return the new instance.
+	 * @throws Exception if the instance cannot be created.
+	 */
+	public Object newInstance(UUID viewId) throws Exception;
+
+}
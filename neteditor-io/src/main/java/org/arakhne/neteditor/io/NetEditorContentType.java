@@ -45,6 +45,10 @@ public enum NetEditorContentType {
 	
 	/** The NGR contains a GML description.
 	 */
-	GML;
+	GML,
+	
+	/** The NGR contains a binary description.
+	 */
+	BINARY;
 
 }
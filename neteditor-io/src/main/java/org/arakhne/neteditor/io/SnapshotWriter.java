@@ -0,0 +1,76 @@
+/* 
+ * $Id$
+ * 
+ * Copyright (C) 2013 Stephane GALLAND.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ * This program is free software; you can redistribute it and/or modify
+ */
+
+package org.arakhne.neteditor.io ;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+import org.arakhne.neteditor.fig.view.ViewComponentContainer;
+import org.arakhne.neteditor.formalism.Graph;
+
+/** This interface represents a writer of NetEditor files
+ * that is able to capture the state of a document before
+ * writing it.
+ * <p>
+ * The capture only reads the objects of the document;
+ * it must be invoked by the thread that is changing the document.
+ * The captured state is encoded and written by
+ * {@link #write(OutputStream, Snapshot)}, which does not read
+ * the document and may be invoked by any thread.
+ *
+ * @author $Author: galland$
+ * @version $FullVersion$
+ * @mavengroupid $GroupId$
+ * @mavenartifactid $ArtifactId$
+ */
+public interface SnapshotWriter extends NetEditorWriter {
+
+	/** Capture the state of the specified graph and of the
+	 * view objects stored in the given container.
+	 * 
+	 * @param graph is the graph to capture.
+	 * @param container is the container of the view objects.
+	 * @return the captured state.
+	 * @throws IOException
+	 */
+	public <G extends Graph<?,?,?,?>> Snapshot capture(G graph, ViewComponentContainer<?,G> container) throws IOException;
+
+	/** Write the given captured state into the specified stream.
+	 * 
+	 * @param os is the stream to write in.
+	 * @param snapshot is the state replied by {@link #capture(Graph, ViewComponentContainer)}.
+	 * @throws IOException
+	 */
+	public void write(OutputStream os, Snapshot snapshot) throws IOException;
+
+	/** State of a document captured by a {@link SnapshotWriter}.
+	 *
+	 * @author $Author: galland$
+	 * @version $FullVersion$
+	 * @mavengroupid $GroupId$
+	 * @mavenartifactid $ArtifactId$
+	 */
+	public interface Snapshot {
+		//
+	}
+
+}
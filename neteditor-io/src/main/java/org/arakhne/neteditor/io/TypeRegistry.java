@@ -0,0 +1,161 @@
+/* 
+ * $Id$
+ * 
+ * Copyright (C) 2013 Stephane GALLAND.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ * This program is free software; you can redistribute it and/or modify
+ */
+
+package org.arakhne.neteditor.io ;
+
+import java.lang.reflect.Constructor;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/** Registry of the types that are read by the NetEditorReaders.
+ * <p>
+ * Each name of type is resolved once to an {@link InstanceFactory}.
+ * By default, the factories are using the constructors
+ * of the types, which are retreived once by reflection.
+ * The factories for the known types may be registered
+ * explicitly with {@link #register(String, InstanceFactory)}.
+ * <p>
+ * This registry is thread-safe.
+ *
+ * @author $Author: galland$
+ * @version $FullVersion$
+ * @mavengroupid $GroupId$
+ * @mavenartifactid $ArtifactId$
+ * @see InstanceFactory
+ */
+public class TypeRegistry {
+
+	private final Map<String,InstanceFactory> factories = new ConcurrentHashMap<String,InstanceFactory>();
+
+	/**
+	 */
+	public TypeRegistry() {
+		//
+	}
+
+	/** Register the factory for the given name of type.
+	 * 
+	 * @param typeName is the name of the type, as written in the documents.
+	 * @param factory is the factory of the instances.
+	 */
+	public void register(String typeName, InstanceFactory factory) {
+		this.factories.put(typeName, factory);
+	}
+
+	/** Register the given type. The instances are created
+	 * with the constructors of the type.
+	 * 
+	 * @param type is the type to register.
+	 */
+	public void register(Class<?> type) {
+		InstanceFactory factory = new ConstructorFactory(type);
+		register(type.getName(), factory);
+		String canonicalName = type.getCanonicalName();
+		if (canonicalName!=null && !canonicalName.equals(type.getName())) {
+			register(canonicalName, factory);
+		}
+	}
+
+	/** Unregister the factory for the given name of type.
+	 * 
+	 * @param typeName is the name of the type.
+	 */
+	public void unregister(String typeName) {
+		this.factories.remove(typeName);
+	}
+
+	/** Replies the factory for the given name of type.
+	 * If no factory was registered for the type, the type
+	 * is loaded and a factory is registered for it.
+	 * 
+	 * @param typeName is the name of the type.
+	 * @return the factory, never <code>null</code>.
+	 * @throws ClassNotFoundException if the type cannot be found.
+	 */
+	public InstanceFactory getFactory(String typeName) throws ClassNotFoundException {
+		InstanceFactory factory = this.factories.get(typeName);
+		if (factory==null) {
+			factory = new ConstructorFactory(Class.forName(typeName));
+			this.factories.put(typeName, factory);
+		}
+		return factory;
+	}
+
+	/** Replies the type with the given name.
+	 * 
+	 * @param typeName is the name of the type.
+	 * @return the type, never <code>null</code>.
+	 * @throws ClassNotFoundException if the type cannot be found.
+	 */
+	public Class<?> getType(String typeName) throws ClassNotFoundException {
+		return getFactory(typeName).getType();
+	}
+
+	/** Factory that is invoking the constructors of a type.
+	 * The constructors are retreived on the first use.
+	 * 
+	 * @author $Author: galland$
+	 * @version $FullVersion$
+	 * @mavengroupid $GroupId$
+	 * @mavenartifactid $ArtifactId$
+	 */
+	private static class ConstructorFactory implements InstanceFactory {
+
+		private final Class<?> type;
+		private volatile Constructor<?> defaultConstructor = null;
+		private volatile Constructor<?> figureConstructor = null;
+
+		/**
+		 * @param type
+		 */
+		public ConstructorFactory(Class<?> type) {
+			this.type = type;
+		}
+
+		@Override
+		public Class<?> getType() {
+			return this.type;
+		}
+
+		@Override
+		public Object newInstance() throws Exception {
+			Constructor<?> cons = this.defaultConstructor;
+			if (cons==null) {
+				cons = this.type.getConstructor();
+				this.defaultConstructor = cons;
+			}
+			return cons.newInstance();
+		}
+
+		@Override
+		public Object newInstance(UUID viewId) throws Exception {
+			Constructor<?> cons = this.figureConstructor;
+			if (cons==null) {
+				cons = this.type.getConstructor(UUID.class);
+				this.figureConstructor = cons;
+			}
+			return cons.newInstance(viewId);
+		}
+
+	}
+
+}
@@ -0,0 +1,301 @@
+/* 
+ * $Id$
+ * 
+ * Copyright (C) 2013 Stephane GALLAND.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ * This program is free software; you can redistribute it and/or modify
+ */
+package org.arakhne.neteditor.io.async ;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.net.URLStreamHandler;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import org.arakhne.afc.vmutil.FileSystem;
+import org.arakhne.neteditor.fig.view.ViewComponent;
+import org.arakhne.neteditor.fig.view.ViewComponentContainer;
+import org.arakhne.neteditor.formalism.Graph;
+import org.arakhne.neteditor.io.NetEditorReader;
+import org.arakhne.neteditor.io.NetEditorWriter;
+import org.arakhne.neteditor.io.VectorialExporter;
+import org.arakhne.neteditor.io.stream.InterruptibleInputStream;
+import org.arakhne.neteditor.io.stream.InterruptibleOutputStream;
+
+/** Service that is running the readers, the writers and the
+ * exporters in a background thread.
+ * <p>
+ * Each operation replies an {@link IOTask} that may be used
+ * to wait for the result, or to cancel the operation. The
+ * operations are run one after the other, in the order of their
+ * submission.
+ * <p>
+ * The streams used by the operations are failing as soon as
+ * the task is cancelled, so that a large file is not read or
+ * written until its end; the documents are given to the readers
+ * through URLs whose streams are interruptible. A cancelled or failed operation does
+ * not leave partial state: the figures read from a document
+ * are put in the map given by the caller only when the reading
+ * is successful, and the written files are replaced only when
+ * the writing is successful.
+ * <p>
+ * The progression of the operations is reported through the
+ * progression models of the readers and the writers. The user
+ * interfaces should listen them with a
+ * {@link ThrottledProgressionListener}.
+ *
+ * @author $Author: galland$
+ * @version $FullVersion$
+ * @mavengroupid $GroupId$
+ * @mavenartifactid $ArtifactId$
+ */
+public class AsyncIOService {
+
+	private final ExecutorService executor;
+
+	/**
+	 */
+	public AsyncIOService() {
+		this.executor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread t = new Thread(r, "NetEditor I/O"); //$NON-NLS-1$
+				t.setDaemon(true);
+				return t;
+			}
+		});
+	}
+
+	/** Stop the service. The running operation is cancelled,
+	 * and the pending operations are not run.
+	 */
+	public void shutdown() {
+		this.executor.shutdownNow();
+	}
+
+	private <V> IOTask<V> submit(Callable<V> callable, IOCallback<? super V> callback) {
+		IOTask<V> task = new IOTask<V>(callable, callback);
+		this.executor.execute(task);
+		return task;
+	}
+
+	private static void checkInterruption() throws InterruptedIOException {
+		if (Thread.currentThread().isInterrupted()) {
+			throw new InterruptedIOException();
+		}
+	}
+
+	/** Read a document in background.
+	 * 
+	 * @param <G> is the expected type of the graph to read.
+	 * @param reader is the reader to use.
+	 * @param type is the expected type of the graph to read.
+	 * @param input is the file to read.
+	 * @param figures is filled with the figures read from the file,
+	 * from the front to the background, when the reading is successful.
+	 * @param callback is the listener on the termination of the reading, or <code>null</code>.
+	 * @return the task that is reading the document.
+	 */
+	public <G extends Graph<?,?,?,?>> IOTask<G> read(
+			final NetEditorReader reader,
+			final Class<G> type,
+			final File input,
+			final Map<UUID,List<ViewComponent>> figures,
+			IOCallback<? super G> callback) {
+		return submit(new Callable<G>() {
+			@SuppressWarnings("synthetic-access")
+			@Override
+			public G call() throws Exception {
+				Map<UUID,List<ViewComponent>> readFigures = new TreeMap<UUID,List<ViewComponent>>();
+				// The file is given to the reader through an URL, and not
+				// as a stream, because some readers need the location of
+				// the document, eg. to extract its embedded resources.
+				URL url = new URL(null, input.toURI().toURL().toExternalForm(),
+						InterruptibleFileHandler.SINGLETON);
+				G graph = reader.read(type, url, readFigures);
+				checkInterruption();
+				if (figures!=null) {
+					figures.putAll(readFigures);
+				}
+				return graph;
+			}
+		}, callback);
+	}
+
+	/** Write a document in background.
+	 * <p>
+	 * The document is written in a temporary file that replaces
+	 * the output file when the writing is successful.
+	 * 
+	 * @param <G> is the type of the graph to write.
+	 * @param writer is the writer to use.
+	 * @param output is the file to write.
+	 * @param graph is the graph to write.
+	 * @param container is the container of the figures to write.
+	 * @param callback is the listener on the termination of the writing, or <code>null</code>.
+	 * @return the task that is writing the document.
+	 */
+	public <G extends Graph<?,?,?,?>> IOTask<File> write(
+			final NetEditorWriter writer,
+			final File output,
+			final G graph,
+			final ViewComponentContainer<?,G> container,
+			IOCallback<? super File> callback) {
+		return submit(new Callable<File>() {
+			@SuppressWarnings("synthetic-access")
+			@Override
+			public File call() throws Exception {
+				File tempFile = createTemporaryFile(output);
+				try {
+					OutputStream os = new InterruptibleOutputStream(
+							new BufferedOutputStream(new FileOutputStream(tempFile)));
+					try {
+						writer.write(os, graph, container);
+					}
+					finally {
+						os.close();
+					}
+					replace(tempFile, output);
+				}
+				finally {
+					tempFile.delete();
+				}
+				return output;
+			}
+		}, callback);
+	}
+
+	/** Export a document in background.
+	 * <p>
+	 * The document is exported in a temporary file that replaces
+	 * the output file when the exportation is successful.
+	 * The other files of the {@link VectorialExporter#getFileCollection()
+	 * file collection} of the exporter are not managed by this function.
+	 * 
+	 * @param <G> is the type of the graph to export.
+	 * @param exporter is the exporter to use.
+	 * @param output is the file to write.
+	 * @param graph is the graph to export.
+	 * @param container is the container of the figures to export.
+	 * @param callback is the listener on the termination of the exportation, or <code>null</code>.
+	 * @return the task that is exporting the document.
+	 */
+	public <G extends Graph<?,?,?,?>> IOTask<File> export(
+			final VectorialExporter exporter,
+			final File output,
+			final G graph,
+			final ViewComponentContainer<?,G> container,
+			IOCallback<? super File> callback) {
+		return submit(new Callable<File>() {
+			@SuppressWarnings("synthetic-access")
+			@Override
+			public File call() throws Exception {
+				File tempFile = createTemporaryFile(output);
+				try {
+					exporter.write(tempFile, graph, container);
+					replace(tempFile, output);
+				}
+				finally {
+					tempFile.delete();
+				}
+				return output;
+			}
+		}, callback);
+	}
+
+	/** Handler of the file URLs that opens interruptible streams.
+	 * The URLs created relatively to an URL with this handler
+	 * are using the same handler.
+	 *
+	 * @author $Author: galland$
+	 * @version $FullVersion$
+	 * @mavengroupid $GroupId$
+	 * @mavenartifactid $ArtifactId$
+	 */
+	private static class InterruptibleFileHandler extends URLStreamHandler {
+
+		public static final InterruptibleFileHandler SINGLETON = new InterruptibleFileHandler();
+
+		/**
+		 */
+		public InterruptibleFileHandler() {
+			//
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		protected URLConnection openConnection(URL u) throws IOException {
+			final File file;
+			try {
+				file = new File(u.toURI());
+			}
+			catch(URISyntaxException e) {
+				throw new IOException(e);
+			}
+			return new URLConnection(u) {
+				@Override
+				public void connect() throws IOException {
+					//
+				}
+				@Override
+				public InputStream getInputStream() throws IOException {
+					return new InterruptibleInputStream(
+							new BufferedInputStream(new FileInputStream(file)));
+				}
+			};
+		}
+
+	}
+
+	private static File createTemporaryFile(File output) throws IOException {
+		File directory = output.getAbsoluteFile().getParentFile();
+		String extension = FileSystem.extension(output);
+		return File.createTempFile("tmpio", //$NON-NLS-1$
+				(extension==null || extension.length()==0) ? null : extension,
+				directory);
+	}
+
+	/** Replace the output file by the temporary file,
+	 * if the task was not cancelled.
+	 */
+	private static void replace(File tempFile, File output) throws IOException {
+		checkInterruption();
+		if (!tempFile.renameTo(output)) {
+			// The renaming may fail on some platforms when the output exists
+			FileSystem.copy(tempFile, output);
+		}
+	}
+
+}
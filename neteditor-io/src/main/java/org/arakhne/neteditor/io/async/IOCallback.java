@@ -0,0 +1,57 @@
+/* 
+ * $Id$
+ * 
+ * Copyright (C) 2013 Stephane GALLAND.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ * This program is free software; you can redistribute it and/or modify
+ */
+package org.arakhne.neteditor.io.async ;
+
+import java.util.EventListener;
+
+/** Listener on the termination of an {@link IOTask}.
+ * <p>
+ * The functions of this listener are invoked by the thread
+ * that has terminated the task: the I/O thread, or the thread
+ * that has cancelled the task. The implementations must
+ * forward the notifications to the user interface thread
+ * by themselves.
+ *
+ * @param <V> is the type of the result of the task.
+ * @author $Author: galland$
+ * @version $FullVersion$
+ * @mavengroupid $GroupId$
+ * @mavenartifactid $ArtifactId$
+ */
+public interface IOCallback<V> extends EventListener {
+
+	/** Invoked when the task was successfully terminated.
+	 *
+	 * @param result is the result of the task.
+	 */
+	public void onSuccess(V result);
+
+	/** Invoked when the task has failed.
+	 *
+	 * @param error is the cause of the failure.
+	 */
+	public void onFailure(Throwable error);
+
+	/** Invoked when the task was cancelled.
+	 */
+	public void onCancel();
+
+}
@@ -0,0 +1,78 @@
+/* 
+ * $Id$
+ * 
+ * Copyright (C) 2013 Stephane GALLAND.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ * This program is free software; you can redistribute it and/or modify
+ */
+package org.arakhne.neteditor.io.async ;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+/** Reading or writing task that is run by an {@link AsyncIOService}.
+ * <p>
+ * The task is cancelled with {@link #cancel(boolean)}. When the
+ * task is running, <code>cancel(true)</code> interrupts the
+ * I/O thread; the streams opened by the {@link AsyncIOService}
+ * are failing at their next access, and the partial results
+ * of the task are discarded.
+ *
+ * @param <V> is the type of the result of the task.
+ * @author $Author: galland$
+ * @version $FullVersion$
+ * @mavengroupid $GroupId$
+ * @mavenartifactid $ArtifactId$
+ */
+public class IOTask<V> extends FutureTask<V> {
+
+	private final IOCallback<? super V> callback;
+
+	/**
+	 * @param callable is the code of the task.
+	 * @param callback is the listener on the termination of the task, or <code>null</code>.
+	 */
+	IOTask(Callable<V> callable, IOCallback<? super V> callback) {
+		super(callable);
+		this.callback = callback;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected void done() {
+		if (this.callback!=null) {
+			if (isCancelled()) {
+				this.callback.onCancel();
+			}
+			else {
+				try {
+					this.callback.onSuccess(get());
+				}
+				catch(ExecutionException e) {
+					this.callback.onFailure(e.getCause());
+				}
+				catch(InterruptedException e) {
+					// Never occurs because the task is done
+					Thread.currentThread().interrupt();
+				}
+			}
+		}
+	}
+
+}
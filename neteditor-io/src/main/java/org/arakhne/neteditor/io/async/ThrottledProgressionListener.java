@@ -0,0 +1,94 @@
+/* 
+ * $Id$
+ * 
+ * Copyright (C) 2013 Stephane GALLAND.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ * This program is free software; you can redistribute it and/or modify
+ */
+package org.arakhne.neteditor.io.async ;
+
+import org.arakhne.afc.progress.Progression;
+import org.arakhne.afc.progress.ProgressionEvent;
+import org.arakhne.afc.progress.ProgressionListener;
+
+/** Listener on a task progression that is forwarding the
+ * changes of the value to another listener at a bounded rate.
+ * <p>
+ * The readers and the writers are advancing their progression
+ * for each read or written object. When the progression is
+ * displayed in a user interface, most of these notifications
+ * are useless and slow down the I/O thread. This listener is
+ * forwarding a change of the value only if the previous
+ * forwarded change is older than the given period, or if the
+ * progression has reached its maximum. The changes of the state
+ * of the progression are always forwarded.
+ *
+ * @author $Author: galland$
+ * @version $FullVersion$
+ * @mavengroupid $GroupId$
+ * @mavenartifactid $ArtifactId$
+ */
+public class ThrottledProgressionListener implements ProgressionListener {
+
+	/** Default minimal period between two notifications, in milliseconds.
+	 */
+	public static final long DEFAULT_PERIOD = 100;
+
+	private final ProgressionListener listener;
+	private final long period;
+	private long lastNotification = 0;
+
+	/**
+	 * @param listener is the listener to notify.
+	 */
+	public ThrottledProgressionListener(ProgressionListener listener) {
+		this(listener, DEFAULT_PERIOD);
+	}
+
+	/**
+	 * @param listener is the listener to notify.
+	 * @param period is the minimal period between two notifications, in milliseconds.
+	 */
+	public ThrottledProgressionListener(ProgressionListener listener, long period) {
+		this.listener = listener;
+		this.period = Math.max(0, period);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public synchronized void onProgressionStateChanged(ProgressionEvent event) {
+		this.lastNotification = System.currentTimeMillis();
+		this.listener.onProgressionStateChanged(event);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public synchronized void onProgressionValueChanged(ProgressionEvent event) {
+		long now = System.currentTimeMillis();
+		Progression progression = event.getProgression();
+		if (now-this.lastNotification>=this.period
+			|| progression==null
+			|| progression.getValue()>=progression.getMaximum()) {
+			this.lastNotification = now;
+			this.listener.onProgressionValueChanged(event);
+		}
+	}
+
+}
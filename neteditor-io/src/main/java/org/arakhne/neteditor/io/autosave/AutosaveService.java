@@ -0,0 +1,713 @@
+/* 
+ * $Id$
+ * 
+ * Copyright (C) 2013 Stephane GALLAND.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ * This program is free software; you can redistribute it and/or modify
+ */
+
+package org.arakhne.neteditor.io.autosave ;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.arakhne.afc.vmutil.FileSystem;
+import org.arakhne.neteditor.fig.figure.Figure;
+import org.arakhne.neteditor.fig.view.ViewComponent;
+import org.arakhne.neteditor.fig.view.ViewComponentContainer;
+import org.arakhne.neteditor.formalism.Edge;
+import org.arakhne.neteditor.formalism.Graph;
+import org.arakhne.neteditor.formalism.ModelObject;
+import org.arakhne.neteditor.formalism.ModelObjectEvent;
+import org.arakhne.neteditor.formalism.ModelObjectListener;
+import org.arakhne.neteditor.formalism.Node;
+import org.arakhne.neteditor.io.NetEditorReader;
+import org.arakhne.neteditor.io.NetEditorWriter;
+import org.arakhne.neteditor.io.SnapshotWriter;
+import org.arakhne.neteditor.io.SnapshotWriter.Snapshot;
+
+/** Service that is saving the current document in background.
+ * <p>
+ * The autosave is composed of a snapshot of the document,
+ * written with a {@link NetEditorWriter}, and of a
+ * {@link ChangeJournal} that contains the changes of the
+ * properties of the model objects and of the figures, and the
+ * removals of nodes, edges and figures since the snapshot.
+ * These changes (moves, resizes, renames, deletions...)
+ * are only appended to the journal, so that their cost does
+ * not depend on the size of the document. The additions of
+ * objects or figures and the other changes of links cannot be
+ * journaled; they are causing the snapshot to be rewritten.
+ * <p>
+ * The changed objects are only collected when they are notified.
+ * After a delay, the state of the changed objects, or the
+ * snapshot, is captured on the thread of the user interface,
+ * given by the executor passed to the constructor; so that
+ * the document is never read while it is changed.
+ * Successive changes of the same object are merged, and
+ * the properties are encoded and written by a worker thread.
+ * The snapshot is rewritten when the structure has changed,
+ * or when the journal contains too many records. When the
+ * writer is a {@link SnapshotWriter}, only the state of the
+ * objects is captured on the thread of the user interface;
+ * the snapshot is encoded by the worker thread.
+ * <p>
+ * The service listens the events of the graph by itself;
+ * the changes of the figures must be notified with
+ * {@link #figureAdded(Figure)}, {@link #figureChanged(Figure)}
+ * and {@link #figureRemoved(Figure)}. All the functions
+ * of this service, except the getters, must be invoked
+ * on the thread of the user interface.
+ *
+ * @param <G> is the type of the saved graph.
+ * @author $Author: galland$
+ * @version $FullVersion$
+ * @mavengroupid $GroupId$
+ * @mavenartifactid $ArtifactId$
+ */
+public class AutosaveService<G extends Graph<?,?,?,?>> implements ModelObjectListener {
+
+	/** Default delay between a change and its writing in the journal, in milliseconds.
+	 */
+	public static final long DEFAULT_FLUSH_DELAY = 2000;
+
+	/** Default number of records in the journal that is causing
+	 * the snapshot to be rewritten.
+	 */
+	public static final int DEFAULT_COMPACTION_THRESHOLD = 500;
+
+	private static final String JOURNAL_EXTENSION = ".journal"; //$NON-NLS-1$
+
+	private final NetEditorWriter writer;
+	private final File snapshotFile;
+	private final ChangeJournal journal;
+	private final Executor uiExecutor;
+	private final ScheduledThreadPoolExecutor executor;
+
+	private long flushDelay = DEFAULT_FLUSH_DELAY;
+	private int compactionThreshold = DEFAULT_COMPACTION_THRESHOLD;
+
+	// The following fields are protected by the monitor of this service.
+	private G graph = null;
+	private ViewComponentContainer<?,G> container = null;
+	private File document = null;
+	private final Map<UUID,Change> pending = new LinkedHashMap<UUID,Change>();
+	private final Set<UUID> disconnectedEdges = new HashSet<UUID>();
+	private boolean structureChanged = false;
+	private boolean flushScheduled = false;
+	private boolean snapshotWritten = false;
+	private boolean isShutdown = false;
+	private Throwable lastError = null;
+
+	/**
+	 * @param writer is the writer used to write the snapshots.
+	 * @param snapshotFile is the file of the snapshot. The journal
+	 * is stored in a file with the same name and the extension <code>.journal</code>.
+	 * @param uiExecutor is the executor that runs tasks on the thread
+	 * of the user interface; the state of the document is read by these tasks.
+	 */
+	public AutosaveService(NetEditorWriter writer, File snapshotFile, Executor uiExecutor) {
+		this.writer = writer;
+		this.snapshotFile = snapshotFile;
+		this.uiExecutor = uiExecutor;
+		this.journal = new ChangeJournal(new File(snapshotFile.getPath() + JOURNAL_EXTENSION));
+		this.executor = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread t = new Thread(r, "NetEditor autosave"); //$NON-NLS-1$
+				t.setDaemon(true);
+				t.setPriority(Thread.MIN_PRIORITY);
+				return t;
+			}
+		});
+		// The pending changes are captured by shutdown() itself
+		this.executor.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+	}
+
+	/** Replies the file of the snapshot.
+	 *
+	 * @return the file of the snapshot.
+	 */
+	public File getSnapshotFile() {
+		return this.snapshotFile;
+	}
+
+	/** Replies the file of the journal.
+	 *
+	 * @return the file of the journal.
+	 */
+	public File getJournalFile() {
+		return this.journal.getFile();
+	}
+
+	/** Replies the delay between a change and its writing in the journal.
+	 *
+	 * @return the delay in milliseconds.
+	 */
+	public synchronized long getFlushDelay() {
+		return this.flushDelay;
+	}
+
+	/** Set the delay between a change and its writing in the journal.
+	 *
+	 * @param delay is the delay in milliseconds.
+	 */
+	public synchronized void setFlushDelay(long delay) {
+		this.flushDelay = Math.max(0, delay);
+	}
+
+	/** Replies the number of records in the journal that is causing
+	 * the snapshot to be rewritten.
+	 *
+	 * @return the number of records.
+	 */
+	public synchronized int getCompactionThreshold() {
+		return this.compactionThreshold;
+	}
+
+	/** Set the number of records in the journal that is causing
+	 * the snapshot to be rewritten.
+	 *
+	 * @param threshold is the number of records.
+	 */
+	public synchronized void setCompactionThreshold(int threshold) {
+		this.compactionThreshold = Math.max(1, threshold);
+	}
+
+	/** Replies the last error that occured when writing the autosave.
+	 *
+	 * @return the last error, or <code>null</code>.
+	 */
+	public synchronized Throwable getLastError() {
+		return this.lastError;
+	}
+
+	/** Replies if this service was shut down.
+	 *
+	 * @return <code>true</code> if {@link #shutdown()} was invoked.
+	 */
+	public synchronized boolean isShutdown() {
+		return this.isShutdown;
+	}
+
+	/** Start to autosave the given document.
+	 * The previous autosave files are removed.
+	 *
+	 * @param graph is the graph to save.
+	 * @param container is the container of the figures to save.
+	 * @param document is the file of the document, or <code>null</code>
+	 * if the document was never saved.
+	 * @throws IllegalStateException if the service was shut down.
+	 */
+	public synchronized void attach(G graph, ViewComponentContainer<?,G> container, File document) {
+		if (this.isShutdown) throw new IllegalStateException();
+		detach();
+		this.graph = graph;
+		this.container = container;
+		this.document = document;
+		this.graph.addModelObjectListener(this);
+		discard(document);
+	}
+
+	/** Stop to autosave the current document.
+	 * The autosave files are not removed.
+	 */
+	public synchronized void detach() {
+		if (this.graph!=null) {
+			this.graph.removeModelObjectListener(this);
+			this.graph = null;
+			this.container = null;
+		}
+		this.pending.clear();
+		this.disconnectedEdges.clear();
+		this.structureChanged = false;
+	}
+
+	/** Remove the autosave files, eg. when the document was explicitly saved.
+	 *
+	 * @param document is the file in which the document was saved, or <code>null</code>
+	 * if the document was never saved.
+	 */
+	public synchronized void discard(File document) {
+		this.document = document;
+		this.pending.clear();
+		this.disconnectedEdges.clear();
+		this.structureChanged = false;
+		post(new Runnable() {
+			@Override
+			public void run() {
+				AutosaveService.this.journal.delete();
+				AutosaveService.this.snapshotFile.delete();
+				synchronized(AutosaveService.this) {
+					AutosaveService.this.snapshotWritten = false;
+				}
+			}
+		});
+	}
+
+	/** Write the pending changes and stop the service.
+	 * The changes that are notified after the call to this
+	 * function are ignored.
+	 * This function waits for the end of the writing.
+	 */
+	public void shutdown() {
+		// Capture the last changes on the calling thread
+		capture();
+		synchronized(this) {
+			if (this.isShutdown) return;
+			if (this.graph!=null) {
+				this.graph.removeModelObjectListener(this);
+				this.graph = null;
+				this.container = null;
+			}
+			this.pending.clear();
+			this.disconnectedEdges.clear();
+			this.structureChanged = false;
+			this.isShutdown = true;
+		}
+		this.executor.shutdown();
+		try {
+			this.executor.awaitTermination(1, TimeUnit.MINUTES);
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		try {
+			this.journal.close();
+		}
+		catch(IOException e) {
+			//
+		}
+	}
+
+	/** Replies if the autosave files contain a document
+	 * that may be recovered.
+	 *
+	 * @return <code>true</code> if a document may be recovered.
+	 */
+	public boolean isRecoverable() {
+		return this.snapshotFile.isFile();
+	}
+
+	/** Replies the file of the document that may be recovered.
+	 *
+	 * @return the file of the document, or <code>null</code> if the document
+	 * was never saved.
+	 */
+	public File getRecoverableDocument() {
+		try {
+			return ChangeJournal.readDocument(this.journal.getFile());
+		}
+		catch(IOException e) {
+			return null;
+		}
+	}
+
+	/** Read the snapshot and replay the journal.
+	 *
+	 * @param <T> is the type of the graph to read.
+	 * @param reader is the reader of the snapshot.
+	 * @param type is the type of the graph to read.
+	 * @param figures is filled with the figures of the recovered document.
+	 * @return the recovered graph.
+	 * @throws IOException
+	 */
+	public <T extends Graph<?,?,?,?>> T recover(NetEditorReader reader, Class<T> type,
+			Map<UUID,List<ViewComponent>> figures) throws IOException {
+		T g = reader.read(type, this.snapshotFile, figures);
+		if (g!=null && this.journal.getFile().isFile()) {
+			ChangeJournal.replay(this.journal.getFile(), g, figures);
+		}
+		return g;
+	}
+
+	/** Invoked when a figure was added in the container.
+	 *
+	 * @param figure is the added figure.
+	 */
+	public void figureAdded(Figure figure) {
+		structureChanged();
+	}
+
+	/** Invoked when a figure was removed from the container.
+	 *
+	 * @param figure is the removed figure.
+	 */
+	public void figureRemoved(Figure figure) {
+		changed(ChangeJournal.REMOVED_FIGURE, figure.getUUID(), null, null);
+	}
+
+	/** Invoked when the properties of a figure have changed.
+	 *
+	 * @param figure is the changed figure.
+	 */
+	public void figureChanged(Figure figure) {
+		changed(ChangeJournal.FIGURE, figure.getUUID(), null, figure);
+	}
+
+	private synchronized void structureChanged() {
+		if (this.graph!=null) {
+			this.structureChanged = true;
+			scheduleUpdate();
+		}
+	}
+
+	private synchronized void changed(byte kind, UUID id, ModelObject object, Figure figure) {
+		if (id!=null && this.graph!=null) {
+			// Remove the old change to keep the order of the last changes
+			this.pending.remove(id);
+			this.pending.put(id, new Change(kind, id, object, figure));
+			scheduleUpdate();
+		}
+	}
+
+	private void scheduleUpdate() {
+		if (!this.flushScheduled && !this.isShutdown) {
+			this.flushScheduled = true;
+			this.executor.schedule(new Runnable() {
+				@Override
+				public void run() {
+					AutosaveService.this.uiExecutor.execute(new Runnable() {
+						@Override
+						public void run() {
+							capture();
+						}
+					});
+				}
+			}, this.flushDelay, TimeUnit.MILLISECONDS);
+		}
+	}
+
+	/** Submit a task to the worker thread, if the service
+	 * is not shut down.
+	 * 
+	 * @param task
+	 */
+	private synchronized void post(Runnable task) {
+		if (!this.isShutdown) {
+			try {
+				this.executor.execute(task);
+			}
+			catch(RejectedExecutionException e) {
+				//
+			}
+		}
+	}
+
+	/** Capture the state of the changed objects, or the snapshot
+	 * of the document, and submit its writing to the worker thread.
+	 * Invoked on the thread of the user interface.
+	 */
+	void capture() {
+		Change[] changes;
+		boolean compaction;
+		G g;
+		ViewComponentContainer<?,G> c;
+		final File doc;
+		synchronized(this) {
+			this.flushScheduled = false;
+			if (this.graph==null || (this.pending.isEmpty() && !this.structureChanged)) return;
+			changes = new Change[this.pending.size()];
+			this.pending.values().toArray(changes);
+			this.pending.clear();
+			// An edge that was disconnected and not removed has new links
+			compaction = this.structureChanged
+					|| !this.disconnectedEdges.isEmpty()
+					|| !this.snapshotWritten
+					|| this.journal.getRecordCount()+changes.length>=this.compactionThreshold;
+			this.structureChanged = false;
+			this.disconnectedEdges.clear();
+			g = this.graph;
+			c = this.container;
+			doc = this.document;
+		}
+		if (compaction && this.writer instanceof SnapshotWriter) {
+			final SnapshotWriter snapshotWriter = (SnapshotWriter)this.writer;
+			final Snapshot state;
+			try {
+				state = snapshotWriter.capture(g, c);
+			}
+			catch(Throwable e) {
+				failed(e);
+				return;
+			}
+			post(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						ByteArrayOutputStream baos = new ByteArrayOutputStream();
+						snapshotWriter.write(baos, state);
+						writeSnapshot(baos.toByteArray(), doc);
+					}
+					catch(Throwable e) {
+						failed(e);
+					}
+				}
+			});
+		}
+		else if (compaction) {
+			// The writer cannot capture the document;
+			// the snapshot is written by this thread.
+			final byte[] snapshot;
+			try {
+				ByteArrayOutputStream baos = new ByteArrayOutputStream();
+				this.writer.write(baos, g, c);
+				snapshot = baos.toByteArray();
+			}
+			catch(Throwable e) {
+				failed(e);
+				return;
+			}
+			post(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						writeSnapshot(snapshot, doc);
+					}
+					catch(Throwable e) {
+						failed(e);
+					}
+				}
+			});
+		}
+		else {
+			for(Change change : changes) {
+				change.capture();
+			}
+			final Change[] captured = changes;
+			post(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						for(Change change : captured) {
+							AutosaveService.this.journal.append(change.kind, change.id, change.encode());
+						}
+						AutosaveService.this.journal.flush();
+					}
+					catch(Throwable e) {
+						failed(e);
+					}
+				}
+			});
+		}
+	}
+
+	/** Invoked when the autosave cannot be written.
+	 * 
+	 * @param error
+	 */
+	synchronized void failed(Throwable error) {
+		this.lastError = error;
+		// Retry with a full snapshot on the next change
+		this.snapshotWritten = false;
+	}
+
+	/** Write the snapshot and reset the journal.
+	 * Invoked on the worker thread.
+	 * 
+	 * @param snapshot is the content of the snapshot.
+	 * @param doc is the file of the document.
+	 * @throws IOException
+	 */
+	void writeSnapshot(byte[] snapshot, File doc) throws IOException {
+		File tempFile = File.createTempFile("autosave", null, //$NON-NLS-1$
+				this.snapshotFile.getAbsoluteFile().getParentFile());
+		try {
+			FileOutputStream fos = new FileOutputStream(tempFile);
+			try {
+				fos.write(snapshot);
+			}
+			finally {
+				fos.close();
+			}
+			this.snapshotFile.delete();
+			if (!tempFile.renameTo(this.snapshotFile)) {
+				FileSystem.copy(tempFile, this.snapshotFile);
+			}
+		}
+		finally {
+			tempFile.delete();
+		}
+		// The changes captured after the snapshot are
+		// appended after the reset, because the worker
+		// runs the tasks in their submission order.
+		this.journal.reset(doc);
+		synchronized(this) {
+			this.snapshotWritten = true;
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void modelPropertyChanged(ModelObjectEvent event) {
+		ModelObject source = event.getSource();
+		changed(ChangeJournal.MODEL_OBJECT, source.getUUID(), source, null);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void modelContainerChanged(ModelObjectEvent event) {
+		structureChanged();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void modelLinkChanged(ModelObjectEvent event) {
+		linkChanged(event);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void modelContentChanged(ModelObjectEvent event) {
+		ModelObjectEvent cause = event.getCause();
+		if (cause!=null && cause!=event && cause.getType()==ModelObjectEvent.Type.PROPERTY_CHANGE) {
+			modelPropertyChanged(cause);
+		}
+		else if (cause!=null && cause!=event && cause.getType()==ModelObjectEvent.Type.LINK_CHANGE) {
+			linkChanged(cause);
+		}
+		else {
+			structureChanged();
+		}
+	}
+
+	/** Invoked when a link has changed.
+	 * The disconnection of an edge is not a structural change
+	 * if the edge is removed before the next capture; it is
+	 * the case when a node or an edge is removed from the graph.
+	 * 
+	 * @param event
+	 */
+	private void linkChanged(ModelObjectEvent event) {
+		if (event.getNewLinkedObject()==null) {
+			ModelObject edge = event.getSource();
+			if (!(edge instanceof Edge<?,?,?,?>)) {
+				edge = event.getOldLinkedObject();
+			}
+			if (edge instanceof Edge<?,?,?,?>) {
+				synchronized(this) {
+					if (this.graph!=null) {
+						this.disconnectedEdges.add(edge.getUUID());
+						scheduleUpdate();
+					}
+				}
+				return;
+			}
+		}
+		structureChanged();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void modelComponentAdded(ModelObjectEvent event) {
+		structureChanged();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void modelComponentRemoved(ModelObjectEvent event) {
+		ModelObject removed = event.getRemovedObject();
+		if (event.getSource()==this.graph
+			&& (removed instanceof Node<?,?,?,?> || removed instanceof Edge<?,?,?,?>)) {
+			synchronized(this) {
+				this.disconnectedEdges.remove(removed.getUUID());
+			}
+			changed(ChangeJournal.REMOVED_MODEL_OBJECT, removed.getUUID(), null, null);
+		}
+		else {
+			structureChanged();
+		}
+	}
+
+	/** Change of an object.
+	 *
+	 * @author $Author: galland$
+	 * @version $FullVersion$
+	 * @mavengroupid $GroupId$
+	 * @mavenartifactid $ArtifactId$
+	 */
+	private static class Change {
+
+		public final byte kind;
+		public final UUID id;
+		private final ModelObject object;
+		private final Figure figure;
+		private Map<String,Object> properties = null;
+
+		/**
+		 * @param kind
+		 * @param id
+		 * @param object is the changed model object, or <code>null</code>.
+		 * @param figure is the changed figure, or <code>null</code>.
+		 */
+		public Change(byte kind, UUID id, ModelObject object, Figure figure) {
+			this.kind = kind;
+			this.id = id;
+			this.object = object;
+			this.figure = figure;
+		}
+
+		/** Read the properties of the changed object.
+		 * Invoked on the thread of the user interface.
+		 */
+		public void capture() {
+			if (this.object!=null) {
+				this.properties = this.object.getProperties();
+			}
+			else if (this.figure!=null) {
+				this.properties = this.figure.getProperties();
+			}
+		}
+
+		/** Encode the captured properties.
+		 * Invoked on the worker thread.
+		 * 
+		 * @return the encoded properties, or <code>null</code> for a removal.
+		 * @throws IOException
+		 */
+		public byte[] encode() throws IOException {
+			if (this.properties==null) return null;
+			return ChangeJournal.encodeProperties(this.properties);
+		}
+
+	}
+
+}
@@ -0,0 +1,371 @@
+/* 
+ * $Id$
+ * 
+ * Copyright (C) 2013 Stephane GALLAND.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ * This program is free software; you can redistribute it and/or modify
+ */
+
+package org.arakhne.neteditor.io.autosave ;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.zip.CRC32;
+
+import org.arakhne.neteditor.fig.view.ViewComponent;
+import org.arakhne.neteditor.formalism.Edge;
+import org.arakhne.neteditor.formalism.Graph;
+import org.arakhne.neteditor.formalism.ModelObject;
+import org.arakhne.neteditor.formalism.Node;
+
+/** Append-only journal of the changes of the properties
+ * of the model objects and of the figures, and of their removals.
+ * <p>
+ * Each record of the journal contains the identifier of
+ * the changed object and the full map of its properties,
+ * as replied by <code>getProperties()</code>; or only the
+ * identifier of the removed object.
+ * Because a record does not depend on the previous
+ * records, the replay of the journal is idempotent: a
+ * record that is already included in the snapshot of the
+ * document does not change it.
+ * <p>
+ * Each record is protected by a checksum; the replay is
+ * stopped on the first truncated or corrupted record,
+ * eg. when the application has crashed while writing it.
+ *
+ * @author $Author: galland$
+ * @version $FullVersion$
+ * @mavengroupid $GroupId$
+ * @mavenartifactid $ArtifactId$
+ */
+public class ChangeJournal {
+
+	/** Kind of the records that are changing a model object.
+	 */
+	public static final byte MODEL_OBJECT = 1;
+
+	/** Kind of the records that are changing a figure.
+	 */
+	public static final byte FIGURE = 2;
+
+	/** Kind of the records that are removing a node or an edge from the graph.
+	 */
+	public static final byte REMOVED_MODEL_OBJECT = 3;
+
+	/** Kind of the records that are removing a figure.
+	 */
+	public static final byte REMOVED_FIGURE = 4;
+
+	private static final int MAGIC = 0x4E454A31;
+
+	/** Size of the kind, the identifier and the length of a record.
+	 */
+	private static final int RECORD_HEADER_SIZE = 21;
+
+	/** Maximal size of the properties in a record; used to detect
+	 * corrupted records.
+	 */
+	private static final int MAX_RECORD_SIZE = 16 * 1024 * 1024;
+
+	private final File file;
+	private DataOutputStream output = null;
+	private int recordCount = 0;
+
+	/**
+	 * @param file is the file of the journal.
+	 */
+	public ChangeJournal(File file) {
+		this.file = file;
+	}
+
+	/** Replies the file of the journal.
+	 *
+	 * @return the file of the journal.
+	 */
+	public File getFile() {
+		return this.file;
+	}
+
+	/** Replies the number of records written in the
+	 * journal since the last reset.
+	 *
+	 * @return the number of records.
+	 */
+	public synchronized int getRecordCount() {
+		return this.recordCount;
+	}
+
+	/** Remove all the records from the journal, and start
+	 * a new journal for the given document.
+	 *
+	 * @param document is the file of the document that is journaled;
+	 * or <code>null</code> if the document was never saved.
+	 * @throws IOException
+	 */
+	public synchronized void reset(File document) throws IOException {
+		close();
+		this.output = new DataOutputStream(new BufferedOutputStream(
+				new FileOutputStream(this.file, false)));
+		this.output.writeInt(MAGIC);
+		this.output.writeUTF(document==null ? "" : document.getAbsolutePath()); //$NON-NLS-1$
+		this.output.flush();
+		this.recordCount = 0;
+	}
+
+	/** Append a record in the journal.
+	 * The journal must be reset before the first record is appended.
+	 *
+	 * @param kind is the kind of the record, {@link #MODEL_OBJECT}, {@link #FIGURE},
+	 * {@link #REMOVED_MODEL_OBJECT} or {@link #REMOVED_FIGURE}.
+	 * @param id is the identifier of the changed object.
+	 * @param properties are the properties encoded with {@link #encodeProperties(Map)};
+	 * or <code>null</code> for the removals.
+	 * @throws IOException
+	 */
+	public synchronized void append(byte kind, UUID id, byte[] properties) throws IOException {
+		if (this.output==null) throw new IOException("journal is closed"); //$NON-NLS-1$
+		int length = (properties==null) ? 0 : properties.length;
+		ByteArrayOutputStream baos = new ByteArrayOutputStream(length+32);
+		DataOutputStream record = new DataOutputStream(baos);
+		record.writeByte(kind);
+		record.writeLong(id.getMostSignificantBits());
+		record.writeLong(id.getLeastSignificantBits());
+		record.writeInt(length);
+		if (properties!=null) record.write(properties);
+		record.close();
+		byte[] data = baos.toByteArray();
+		CRC32 crc = new CRC32();
+		crc.update(data);
+		this.output.write(data);
+		this.output.writeInt((int)crc.getValue());
+		++this.recordCount;
+	}
+
+	/** Force the appended records to be written in the file.
+	 *
+	 * @throws IOException
+	 */
+	public synchronized void flush() throws IOException {
+		if (this.output!=null) this.output.flush();
+	}
+
+	/** Close the journal. The file is not removed.
+	 *
+	 * @throws IOException
+	 */
+	public synchronized void close() throws IOException {
+		if (this.output!=null) {
+			try {
+				this.output.close();
+			}
+			finally {
+				this.output = null;
+			}
+		}
+	}
+
+	/** Close the journal and remove its file.
+	 */
+	public synchronized void delete() {
+		try {
+			close();
+		}
+		catch(IOException e) {
+			//
+		}
+		this.file.delete();
+		this.recordCount = 0;
+	}
+
+	/** Encode the given properties for a record of the journal.
+	 * The values that are not serializable are ignored.
+	 *
+	 * @param properties are the properties to encode.
+	 * @return the encoded properties.
+	 * @throws IOException
+	 */
+	public static byte[] encodeProperties(Map<String,Object> properties) throws IOException {
+		TreeMap<String,Object> serializable = new TreeMap<String,Object>();
+		for(Entry<String,Object> entry : properties.entrySet()) {
+			Object value = entry.getValue();
+			if (value==null || value instanceof Serializable) {
+				serializable.put(entry.getKey(), value);
+			}
+		}
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		ObjectOutputStream oos = new ObjectOutputStream(baos);
+		try {
+			oos.writeObject(serializable);
+		}
+		finally {
+			oos.close();
+		}
+		return baos.toByteArray();
+	}
+
+	@SuppressWarnings("unchecked")
+	private static Map<String,Object> decodeProperties(byte[] data) throws IOException {
+		ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(data));
+		try {
+			return (Map<String,Object>)ois.readObject();
+		}
+		catch(ClassNotFoundException e) {
+			throw new IOException(e);
+		}
+		finally {
+			ois.close();
+		}
+	}
+
+	/** Replies the document that is journaled in the given file.
+	 *
+	 * @param journal is the file of the journal.
+	 * @return the document, or <code>null</code> if the document was never saved.
+	 * @throws IOException if the file is not a journal.
+	 */
+	public static File readDocument(File journal) throws IOException {
+		DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(journal)));
+		try {
+			return readHeader(input);
+		}
+		finally {
+			input.close();
+		}
+	}
+
+	private static File readHeader(DataInputStream input) throws IOException {
+		if (input.readInt()!=MAGIC) throw new IOException("not a journal"); //$NON-NLS-1$
+		String document = input.readUTF();
+		if (document.length()==0) return null;
+		return new File(document);
+	}
+
+	/** Replay the records of the journal on the given graph and
+	 * figures. The records that are targeting an unknown
+	 * object are ignored. The removed figures are removed
+	 * from the given map.
+	 *
+	 * @param journal is the file of the journal.
+	 * @param graph is the graph to update.
+	 * @param figures are the figures to update, as replied by the readers.
+	 * @return the number of applied records.
+	 * @throws IOException if the file is not a journal.
+	 */
+	public static int replay(File journal, Graph<?,?,?,?> graph, Map<UUID,List<ViewComponent>> figures) throws IOException {
+		Map<UUID,ViewComponent> components = new TreeMap<UUID,ViewComponent>();
+		if (figures!=null) {
+			for(List<ViewComponent> list : figures.values()) {
+				for(ViewComponent component : list) {
+					components.put(component.getUUID(), component);
+				}
+			}
+		}
+
+		int applied = 0;
+		DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(journal)));
+		try {
+			readHeader(input);
+			CRC32 crc = new CRC32();
+			byte[] head = new byte[RECORD_HEADER_SIZE];
+			while (true) {
+				try {
+					input.readFully(head);
+					DataInputStream header = new DataInputStream(new ByteArrayInputStream(head));
+					byte kind = header.readByte();
+					long msb = header.readLong();
+					long lsb = header.readLong();
+					int length = header.readInt();
+					if (length<0 || length>MAX_RECORD_SIZE) break;
+					byte[] encoded = new byte[length];
+					input.readFully(encoded);
+					crc.reset();
+					crc.update(head);
+					crc.update(encoded);
+					if (input.readInt()!=(int)crc.getValue()) break;
+
+					UUID id = new UUID(msb, lsb);
+					if (kind==MODEL_OBJECT) {
+						ModelObject object = graph.findModelObject(id);
+						if (object!=null) {
+							object.setProperties(decodeProperties(encoded));
+							++applied;
+						}
+					}
+					else if (kind==FIGURE) {
+						ViewComponent component = components.get(id);
+						if (component!=null) {
+							component.setProperties(decodeProperties(encoded));
+							++applied;
+						}
+					}
+					else if (kind==REMOVED_MODEL_OBJECT) {
+						if (removeModelObject(graph, graph.findModelObject(id))) {
+							++applied;
+						}
+					}
+					else if (kind==REMOVED_FIGURE) {
+						ViewComponent component = components.remove(id);
+						if (component!=null && figures!=null) {
+							for(List<ViewComponent> list : figures.values()) {
+								list.remove(component);
+							}
+							++applied;
+						}
+					}
+				}
+				catch(EOFException e) {
+					break;
+				}
+			}
+		}
+		finally {
+			input.close();
+		}
+		return applied;
+	}
+
+	@SuppressWarnings({"unchecked","rawtypes"})
+	private static boolean removeModelObject(Graph graph, ModelObject object) {
+		if (object instanceof Node) {
+			graph.removeNode((Node)object);
+			return true;
+		}
+		if (object instanceof Edge) {
+			graph.removeEdge((Edge)object);
+			return true;
+		}
+		return false;
+	}
+
+}
@@ -0,0 +1,142 @@
+/* 
+ * $Id$
+ * 
+ * Copyright (C) 2013 Stephane GALLAND.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ * This program is free software; you can redistribute it and/or modify
+ */
+
+package org.arakhne.neteditor.io.binary ;
+
+/** Constants for the NetEditor binary format.
+ * <p>
+ * A binary document starts with {@link #MAGIC_NUMBER} and the
+ * version of the specification. It is followed by a sequence of
+ * sections, each one composed of a section tag
+ * ({@link #S_GRAPH}, {@link #S_VIEW} or {@link #S_INDEXED_VIEW}), the length in bytes of
+ * the section, and the content of the section. The document
+ * is terminated by {@link #S_END}.
+ * <p>
+ * The sections are self-contained: each section has its own table
+ * of strings, in which the class names, the property names and the
+ * string values are written once and referenced by their index
+ * after. The model objects are identified by their index in the
+ * graph sections; the view sections refer to the model objects
+ * with these indexes.
+ * <p>
+ * The counts, lengths and indexes are unsigned variable-length
+ * integers; the integer values and the floating-point values without
+ * fractional part are zigzag-encoded variable-length integers.
+ *
+ * @author $Author: galland$
+ * @version $FullVersion$
+ * @mavengroupid $GroupId$
+ * @mavenartifactid $ArtifactId$
+ */
+public interface BinaryConstants {
+
+	/** Magic number at the beginning of a binary document ("NGB" and a zero).
+	 */
+	public static final int MAGIC_NUMBER = 0x4E474200;
+
+	/** Version of the specification supported by the binary tools.
+	 */
+	public static final int SPECIFICATION_VERSION = 1;
+
+	/** Tag of the end of the document.
+	 */
+	public static final byte S_END = 0;
+
+	/** Tag of a section that contains a graph.
+	 */
+	public static final byte S_GRAPH = 1;
+
+	/** Tag of a section that contains the figures of a view.
+	 */
+	public static final byte S_VIEW = 2;
+
+	/** Tag of a section that contains the figures of a view,
+	 * with the identifier and the bounds of each figure.
+	 * The record of each figure has its own table of strings,
+	 * so that the figures may be decoded in any order.
+	 */
+	public static final byte S_INDEXED_VIEW = 3;
+
+	/** Type of a <code>null</code> value.
+	 */
+	public static final byte V_NULL = 0;
+
+	/** Type of the boolean value <code>false</code>.
+	 */
+	public static final byte V_FALSE = 1;
+
+	/** Type of the boolean value <code>true</code>.
+	 */
+	public static final byte V_TRUE = 2;
+
+	/** Type of an integer value.
+	 */
+	public static final byte V_INTEGER = 3;
+
+	/** Type of a single-precision floating-point value.
+	 */
+	public static final byte V_FLOAT = 4;
+
+	/** Type of a single-precision floating-point value without fractional part.
+	 */
+	public static final byte V_INTEGRAL_FLOAT = 5;
+
+	/** Type of a double-precision floating-point value.
+	 */
+	public static final byte V_DOUBLE = 6;
+
+	/** Type of a double-precision floating-point value without fractional part.
+	 */
+	public static final byte V_INTEGRAL_DOUBLE = 7;
+
+	/** Type of a string value.
+	 */
+	public static final byte V_STRING = 8;
+
+	/** Type of an enumeration constant.
+	 */
+	public static final byte V_ENUM = 9;
+
+	/** Type of an URL, or of a resource in the resource repository.
+	 */
+	public static final byte V_URL = 10;
+
+	/** Type of an UUID.
+	 */
+	public static final byte V_UUID = 11;
+
+	/** Type of a set of values.
+	 */
+	public static final byte V_SET = 12;
+
+	/** Type of a list of values.
+	 */
+	public static final byte V_LIST = 13;
+
+	/** Type of a collection of values.
+	 */
+	public static final byte V_COLLECTION = 14;
+
+	/** Type of a serialized Java object.
+	 */
+	public static final byte V_SERIAL = 15;
+
+}
@@ -0,0 +1,65 @@
+/* 
+ * $Id$
+ * 
+ * Copyright (C) 2013 Stephane GALLAND.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ * This program is free software; you can redistribute it and/or modify
+ */
+
+package org.arakhne.neteditor.io.binary ;
+
+import java.io.IOException;
+
+/** Exception dedicated to the NetEditor binary format.
+ *
+ * @author $Author: galland$
+ * @version $FullVersion$
+ * @mavengroupid $GroupId$
+ * @mavenartifactid $ArtifactId$
+ */
+public class BinaryException extends IOException {
+
+	private static final long serialVersionUID = -3121872095317455627L;
+
+	/**
+	 */
+	public BinaryException() {
+		super();
+	}
+		
+	/**
+	 * @param message
+	 */
+	public BinaryException(String message) {
+		super(message);
+	}
+
+	/**
+	 * @param exception
+	 */
+	public BinaryException(Throwable exception) {
+		super(exception);
+	}
+
+	/**
+	 * @param message
+	 * @param exception
+	 */
+	public BinaryException(String message, Throwable exception) {
+		super(message, exception);
+	}
+
+}
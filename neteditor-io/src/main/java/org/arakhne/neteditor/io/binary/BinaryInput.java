@@ -0,0 +1,255 @@
+/* 
+ * $Id$
+ * 
+ * Copyright (C) 2013 Stephane GALLAND.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ * This program is free software; you can redistribute it and/or modify
+ */
+
+package org.arakhne.neteditor.io.binary ;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/** Decoder of a section of a binary document.
+ * It contains the table of the strings of the section.
+ * <p>
+ * The decoder reads the bytes with absolute positions in
+ * the buffer, so that it may be used on a memory-mapped file.
+ *
+ * @author $Author: galland$
+ * @version $FullVersion$
+ * @mavengroupid $GroupId$
+ * @mavenartifactid $ArtifactId$
+ */
+class BinaryInput {
+
+	private final ByteBuffer buffer;
+	private final int end;
+	private int position;
+	private final List<String> strings = new ArrayList<String>();
+
+	/**
+	 * @param buffer is the buffer that contains the section.
+	 * @param offset is the position of the section in the buffer.
+	 * @param length is the length of the section.
+	 */
+	public BinaryInput(byte[] buffer, int offset, int length) {
+		this(ByteBuffer.wrap(buffer), offset, length);
+	}
+
+	/**
+	 * @param buffer is the buffer that contains the section.
+	 * @param offset is the position of the section in the buffer.
+	 * @param length is the length of the section.
+	 */
+	public BinaryInput(ByteBuffer buffer, int offset, int length) {
+		this.buffer = buffer;
+		this.position = offset;
+		this.end = offset + length;
+	}
+
+	/** Replies the current position in the buffer.
+	 *
+	 * @return the position of the next byte to read.
+	 */
+	public int getPosition() {
+		return this.position;
+	}
+
+	/** Replies if the section contains unread bytes.
+	 *
+	 * @return <code>true</code> if bytes remain to read.
+	 */
+	public boolean hasRemaining() {
+		return this.position<this.end;
+	}
+
+	private void ensureAvailable(int n) throws BinaryException {
+		if (n<0 || n>this.end-this.position) {
+			throw new BinaryException("unexpected end of section"); //$NON-NLS-1$
+		}
+	}
+
+	/** Replies the decoder of the section of the given length
+	 * that is starting at the current position, and move the
+	 * current position after this section.
+	 * The returned decoder has its own table of strings.
+	 *
+	 * @param length is the length of the section.
+	 * @return the decoder of the section.
+	 * @throws BinaryException
+	 */
+	public BinaryInput readSection(int length) throws BinaryException {
+		ensureAvailable(length);
+		BinaryInput section = new BinaryInput(this.buffer, this.position, length);
+		this.position += length;
+		return section;
+	}
+
+	/** Move the current position after the given number of bytes.
+	 *
+	 * @param n is the number of bytes to skip.
+	 * @throws BinaryException
+	 */
+	public void skip(int n) throws BinaryException {
+		ensureAvailable(n);
+		this.position += n;
+	}
+
+	/** Read a byte.
+	 *
+	 * @return the byte.
+	 * @throws BinaryException
+	 */
+	public byte readByte() throws BinaryException {
+		ensureAvailable(1);
+		return this.buffer.get(this.position++);
+	}
+
+	/** Read bytes.
+	 *
+	 * @param n is the number of bytes to read.
+	 * @return the bytes.
+	 * @throws BinaryException
+	 */
+	public byte[] readBytes(int n) throws BinaryException {
+		ensureAvailable(n);
+		byte[] b = new byte[n];
+		for(int i=0; i<n; ++i) {
+			b[i] = this.buffer.get(this.position+i);
+		}
+		this.position += n;
+		return b;
+	}
+
+	/** Read an unsigned variable-length integer.
+	 *
+	 * @return the value.
+	 * @throws BinaryException
+	 */
+	public long readVarint() throws BinaryException {
+		long value = 0;
+		int shift = 0;
+		byte b;
+		do {
+			if (shift>63) throw new BinaryException("malformed integer"); //$NON-NLS-1$
+			b = readByte();
+			value |= (long)(b & 0x7F) << shift;
+			shift += 7;
+		}
+		while ((b & 0x80)!=0);
+		return value;
+	}
+
+	/** Read a signed variable-length integer encoded with the zigzag encoding.
+	 *
+	 * @return the value.
+	 * @throws BinaryException
+	 */
+	public long readSignedVarint() throws BinaryException {
+		long v = readVarint();
+		return (v >>> 1) ^ -(v & 1);
+	}
+
+	/** Read a count or a length. The count cannot be greater than
+	 * the number of unread bytes, so that a corrupted count does
+	 * not cause the allocation of huge arrays.
+	 *
+	 * @return the count.
+	 * @throws BinaryException
+	 */
+	public int readCount() throws BinaryException {
+		long v = readVarint();
+		if (v<0 || v>this.end-this.position) {
+			throw new BinaryException("invalid count: "+v); //$NON-NLS-1$
+		}
+		return (int)v;
+	}
+
+	/** Read a 32-bit integer.
+	 *
+	 * @return the value.
+	 * @throws BinaryException
+	 */
+	public int readInt() throws BinaryException {
+		ensureAvailable(4);
+		int value = this.buffer.getInt(this.position);
+		this.position += 4;
+		return value;
+	}
+
+	/** Read a 64-bit integer.
+	 *
+	 * @return the value.
+	 * @throws BinaryException
+	 */
+	public long readLong() throws BinaryException {
+		long high = readInt() & 0xFFFFFFFFL;
+		long low = readInt() & 0xFFFFFFFFL;
+		return (high << 32) | low;
+	}
+
+	/** Read a single-precision floating-point number.
+	 *
+	 * @return the value.
+	 * @throws BinaryException
+	 */
+	public float readFloat() throws BinaryException {
+		return Float.intBitsToFloat(readInt());
+	}
+
+	/** Read a double-precision floating-point number.
+	 *
+	 * @return the value.
+	 * @throws BinaryException
+	 */
+	public double readDouble() throws BinaryException {
+		return Double.longBitsToDouble(readLong());
+	}
+
+	/** Read an UUID.
+	 *
+	 * @return the value.
+	 * @throws BinaryException
+	 */
+	public UUID readUUID() throws BinaryException {
+		long msb = readLong();
+		long lsb = readLong();
+		return new UUID(msb, lsb);
+	}
+
+	/** Read a string, or a reference to a string in the table of strings.
+	 *
+	 * @return the value.
+	 * @throws BinaryException
+	 */
+	public String readString() throws BinaryException {
+		long ref = readVarint();
+		if (ref==0) {
+			String value = new String(readBytes(readCount()), BinaryOutput.UTF8);
+			this.strings.add(value);
+			return value;
+		}
+		if (ref>this.strings.size()) {
+			throw new BinaryException("invalid string reference: "+ref); //$NON-NLS-1$
+		}
+		return this.strings.get((int)ref-1);
+	}
+
+}
@@ -0,0 +1,203 @@
+/* 
+ * $Id$
+ * 
+ * Copyright (C) 2013 Stephane GALLAND.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ * This program is free software; you can redistribute it and/or modify
+ */
+
+package org.arakhne.neteditor.io.binary ;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/** Buffer in which a section of a binary document is encoded.
+ * It contains the table of the strings of the section.
+ *
+ * @author $Author: galland$
+ * @version $FullVersion$
+ * @mavengroupid $GroupId$
+ * @mavenartifactid $ArtifactId$
+ */
+class BinaryOutput {
+
+	/** Charset of the strings.
+	 */
+	static final Charset UTF8 = Charset.forName("UTF-8"); //$NON-NLS-1$
+
+	private byte[] buffer;
+	private int size = 0;
+	private final Map<String,Integer> strings = new HashMap<String,Integer>();
+
+	/**
+	 * @param capacity is the initial capacity of the buffer.
+	 */
+	public BinaryOutput(int capacity) {
+		this.buffer = new byte[Math.max(16, capacity)];
+	}
+
+	/** Clear the buffer and the table of strings.
+	 */
+	public void reset() {
+		this.size = 0;
+		this.strings.clear();
+	}
+
+	/** Replies the number of bytes in the buffer.
+	 *
+	 * @return the number of bytes.
+	 */
+	public int size() {
+		return this.size;
+	}
+
+	/** Replies a copy of the content of the buffer.
+	 *
+	 * @return the bytes in the buffer.
+	 */
+	public byte[] toByteArray() {
+		return Arrays.copyOf(this.buffer, this.size);
+	}
+
+	/** Write the content of the buffer in the given stream.
+	 *
+	 * @param stream
+	 * @throws IOException
+	 */
+	public void writeTo(OutputStream stream) throws IOException {
+		stream.write(this.buffer, 0, this.size);
+	}
+
+	private void ensureCapacity(int n) {
+		int required = this.size + n;
+		if (required>this.buffer.length) {
+			this.buffer = Arrays.copyOf(this.buffer, Math.max(required, this.buffer.length * 2));
+		}
+	}
+
+	/** Write a byte.
+	 *
+	 * @param b
+	 */
+	public void writeByte(int b) {
+		ensureCapacity(1);
+		this.buffer[this.size++] = (byte)b;
+	}
+
+	/** Write the given bytes.
+	 *
+	 * @param b
+	 */
+	public void writeBytes(byte[] b) {
+		ensureCapacity(b.length);
+		System.arraycopy(b, 0, this.buffer, this.size, b.length);
+		this.size += b.length;
+	}
+
+	/** Write an unsigned variable-length integer.
+	 *
+	 * @param value
+	 */
+	public void writeVarint(long value) {
+		ensureCapacity(10);
+		long v = value;
+		while ((v & ~0x7FL)!=0) {
+			this.buffer[this.size++] = (byte)((v & 0x7F) | 0x80);
+			v >>>= 7;
+		}
+		this.buffer[this.size++] = (byte)v;
+	}
+
+	/** Write a signed variable-length integer with the zigzag encoding.
+	 *
+	 * @param value
+	 */
+	public void writeSignedVarint(long value) {
+		writeVarint((value << 1) ^ (value >> 63));
+	}
+
+	/** Write a 32-bit integer.
+	 *
+	 * @param value
+	 */
+	public void writeInt(int value) {
+		ensureCapacity(4);
+		this.buffer[this.size++] = (byte)(value >>> 24);
+		this.buffer[this.size++] = (byte)(value >>> 16);
+		this.buffer[this.size++] = (byte)(value >>> 8);
+		this.buffer[this.size++] = (byte)value;
+	}
+
+	/** Write a 64-bit integer.
+	 *
+	 * @param value
+	 */
+	public void writeLong(long value) {
+		writeInt((int)(value >>> 32));
+		writeInt((int)value);
+	}
+
+	/** Write a single-precision floating-point number.
+	 *
+	 * @param value
+	 */
+	public void writeFloat(float value) {
+		writeInt(Float.floatToIntBits(value));
+	}
+
+	/** Write a double-precision floating-point number.
+	 *
+	 * @param value
+	 */
+	public void writeDouble(double value) {
+		writeLong(Double.doubleToLongBits(value));
+	}
+
+	/** Write an UUID.
+	 *
+	 * @param id
+	 */
+	public void writeUUID(UUID id) {
+		writeLong(id.getMostSignificantBits());
+		writeLong(id.getLeastSignificantBits());
+	}
+
+	/** Write a string. The first occurrence of a string is written
+	 * with its characters; the next occurrences are written with
+	 * the index of the string in the table of strings.
+	 *
+	 * @param value
+	 */
+	public void writeString(String value) {
+		Integer index = this.strings.get(value);
+		if (index!=null) {
+			writeVarint(index.intValue()+1);
+		}
+		else {
+			this.strings.put(value, Integer.valueOf(this.strings.size()));
+			byte[] utf = value.getBytes(UTF8);
+			writeVarint(0);
+			writeVarint(utf.length);
+			writeBytes(utf);
+		}
+	}
+
+}
@@ -0,0 +1,829 @@
+/* 
+ * $Id$
+ * 
+ * Copyright (C) 2013 Stephane GALLAND.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ * This program is free software; you can redistribute it and/or modify
+ */
+
+package org.arakhne.neteditor.io.binary ;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.ObjectInputStream;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.arakhne.afc.progress.Progression;
+import org.arakhne.afc.progress.ProgressionInputStream;
+import org.arakhne.afc.progress.ProgressionUtil;
+import org.arakhne.afc.vmutil.FileSystem;
+import org.arakhne.afc.vmutil.locale.Locale;
+import org.arakhne.neteditor.fig.figure.Figure;
+import org.arakhne.neteditor.fig.figure.coercion.CoercedFigure;
+import org.arakhne.neteditor.fig.subfigure.SubFigure;
+import org.arakhne.neteditor.fig.view.ModelObjectView;
+import org.arakhne.neteditor.fig.view.ViewComponent;
+import org.arakhne.neteditor.formalism.Anchor;
+import org.arakhne.neteditor.formalism.Edge;
+import org.arakhne.neteditor.formalism.Graph;
+import org.arakhne.neteditor.formalism.ModelObject;
+import org.arakhne.neteditor.formalism.Node;
+import org.arakhne.neteditor.io.AbstractNetEditorReader;
+import org.arakhne.neteditor.io.InstanceFactory;
+import org.arakhne.neteditor.io.NetEditorContentType;
+import org.arakhne.neteditor.io.resource.ResourceRepository;
+
+/** This class permits to read the
+ *  <strong>graph-model</strong> from the NetEditor binary format.
+ *  <p>
+ *  The model objects and the figures are created with the
+ *  factories from the registry of the types.
+ *
+ * @author $Author: galland$
+ * @version $FullVersion$
+ * @mavengroupid $GroupId$
+ * @mavenartifactid $ArtifactId$
+ * @see BinaryWriter
+ */
+@SuppressWarnings({ "rawtypes", "unchecked" })
+public class BinaryReader extends AbstractNetEditorReader implements BinaryConstants {
+
+	/** Size of the buffer used to read the binary content.
+	 */
+	private static final int BUFFER_SIZE = 65536;
+
+	/** Size of the identifier and of the bounds of a figure
+	 * in an indexed view section.
+	 */
+	static final int INDEX_ENTRY_SIZE = 32;
+
+	private final List<ModelObject> modelObjects = new ArrayList<ModelObject>();
+	private final Map<UUID,Figure> figuresById = new HashMap<UUID,Figure>();
+	private int threadCount = Runtime.getRuntime().availableProcessors();
+
+	/** Construct a new BinaryReader.          
+	 */
+	public BinaryReader() {    
+		//
+	}
+
+	/** Replies the number of threads used to parse the sections.
+	 *
+	 * @return the number of parsing threads.
+	 */
+	public int getThreadCount() {
+		return this.threadCount;
+	}
+
+	/** Set the number of threads used to parse the sections.
+	 * If the number is <code>1</code>, the sections are parsed
+	 * by the calling thread.
+	 *
+	 * @param count is the number of parsing threads.
+	 */
+	public void setThreadCount(int count) {
+		this.threadCount = Math.max(1, count);
+	}
+
+	@Override
+	public final NetEditorContentType getContentType() {
+		return NetEditorContentType.BINARY;
+	}
+
+	@Override
+	public final <G extends Graph<?, ?, ?, ?>> G read(Class<G> type, File inputFile,
+			Map<UUID, List<ViewComponent>> figures) throws IOException {
+		ResourceRepository rr = getResourceRepository();
+		if (rr!=null) rr.setRoot(FileSystem.dirname(inputFile));
+		FileInputStream fis = new FileInputStream(inputFile);
+		try {
+			return read(type, fis, figures);
+		}
+		finally {
+			fis.close();
+		}
+	}
+
+	@Override
+	public final <G extends Graph<?, ?, ?, ?>> G read(Class<G> type, URL inputURL,
+			Map<UUID, List<ViewComponent>> figures) throws IOException {
+		ResourceRepository rr = getResourceRepository();
+		if (rr!=null) rr.setRoot(FileSystem.dirname(inputURL));
+		InputStream is = inputURL.openStream();
+		try {
+			return read(type, is, figures);
+		}
+		finally {
+			is.close();
+		}
+	}
+
+	@Override
+	public final <G extends Graph<?, ?, ?, ?>> G read(Class<G> type, InputStream is,
+			Map<UUID, List<ViewComponent>> figures) throws IOException {
+		ProgressionUtil.init(getProgression(), 0, 100000);
+		try {
+			byte[] content = readFully(new ProgressionInputStream(
+					is, ProgressionUtil.sub(getProgression(), 50000)));
+
+			ProgressionUtil.ensureNoSubTask(getProgression());
+
+			G g = readGraph(type, new BinaryInput(content, 0, content.length), figures,
+					ProgressionUtil.subToEnd(getProgression()));
+
+			ProgressionUtil.end(getProgression());
+
+			return g;
+		}
+		finally {
+			this.modelObjects.clear();
+			this.figuresById.clear();
+		}
+	}
+
+	private static byte[] readFully(InputStream is) throws IOException {
+		ByteArrayOutputStream baos = new ByteArrayOutputStream(BUFFER_SIZE);
+		byte[] buffer = new byte[BUFFER_SIZE];
+		int n;
+		while ((n=is.read(buffer))>0) {
+			baos.write(buffer, 0, n);
+		}
+		return baos.toByteArray();
+	}
+
+	/** Read the graph from the given binary document.
+	 * <p>
+	 * The document is split into its sections. The graph sections
+	 * are parsed in parallel, and the view sections are parsed
+	 * in parallel after them. The cross-references between the
+	 * objects of the different sections (edge ends, model objects
+	 * of the figures, coercions) are set by the current thread
+	 * after each parallel phase, in the order of the document.
+	 * 
+	 * @param type is the expected type of the graph.
+	 * @param input is the binary document.
+	 * @param figures is the map to fill with the figures of the views.
+	 * @param progression is the progression indicator to be used.
+	 * @return the graph.
+	 * @throws IOException
+	 */
+	private <G extends Graph<?, ?, ?, ?>> G readGraph(Class<G> type, BinaryInput input,
+			Map<UUID, List<ViewComponent>> figures, Progression progression) throws IOException {
+		readHeader(input);
+
+		ProgressionUtil.init(progression, 0, 3);
+
+		final List<GraphSection> graphSections = new ArrayList<GraphSection>();
+		final List<ViewSection> viewSections = new ArrayList<ViewSection>();
+
+		byte tag = input.readByte();
+		while (tag!=S_END) {
+			BinaryInput section = input.readSection(input.readCount());
+			switch(tag) {
+			case S_GRAPH:
+				graphSections.add(new GraphSection(section));
+				break;
+			case S_VIEW:
+				viewSections.add(new ViewSection(section, false));
+				break;
+			case S_INDEXED_VIEW:
+				viewSections.add(new ViewSection(section, true));
+				break;
+			default:
+				// Unknown section: ignore it
+			}
+			tag = input.readByte();
+		}
+
+		ProgressionUtil.advance(progression);
+
+		int threads = Math.min(getThreadCount(),
+				Math.max(graphSections.size(), viewSections.size()));
+		ExecutorService executor = (threads>1) ? Executors.newFixedThreadPool(threads) : null;
+		try {
+			List<Callable<Void>> tasks = new ArrayList<Callable<Void>>(graphSections.size());
+			for(final GraphSection section : graphSections) {
+				tasks.add(new Callable<Void>() {
+					@SuppressWarnings("synthetic-access")
+					@Override
+					public Void call() throws Exception {
+						parseGraphSection(section);
+						return null;
+					}
+				});
+			}
+			runAll(executor, tasks);
+			for(GraphSection section : graphSections) {
+				linkGraphSection(section);
+			}
+
+			ProgressionUtil.advance(progression);
+
+			Graph<?,?,?,?> graph = graphSections.isEmpty() ? null : graphSections.get(0).graph;
+			assertGraphType(type, graph);
+
+			tasks = new ArrayList<Callable<Void>>(viewSections.size());
+			for(final ViewSection section : viewSections) {
+				tasks.add(new Callable<Void>() {
+					@SuppressWarnings("synthetic-access")
+					@Override
+					public Void call() throws Exception {
+						parseViewSection(section);
+						return null;
+					}
+				});
+			}
+			runAll(executor, tasks);
+			Map<Figure,Map<String,UUID>> coercedFigures = new HashMap<Figure,Map<String,UUID>>();
+			for(ViewSection section : viewSections) {
+				linkViewSection(section, figures, coercedFigures);
+			}
+			linkCoercedFigures(coercedFigures);
+
+			ProgressionUtil.end(progression);
+
+			return type.cast(graph);
+		}
+		finally {
+			if (executor!=null) executor.shutdownNow();
+		}
+	}
+
+	/** Run the given tasks and wait for their termination.
+	 * 
+	 * @param executor is the executor to use, or <code>null</code>
+	 * to run the tasks in the current thread.
+	 * @param tasks are the tasks to run.
+	 * @throws IOException
+	 */
+	private static void runAll(ExecutorService executor, List<Callable<Void>> tasks) throws IOException {
+		try {
+			if (executor==null || tasks.size()<=1) {
+				for(Callable<Void> task : tasks) {
+					task.call();
+				}
+			}
+			else {
+				for(Future<Void> future : executor.invokeAll(tasks)) {
+					future.get();
+				}
+			}
+		}
+		catch(InterruptedException e) {
+			throw new InterruptedIOException();
+		}
+		catch(ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof IOException) throw (IOException)cause;
+			if (cause instanceof RuntimeException) throw (RuntimeException)cause;
+			if (cause instanceof Error) throw (Error)cause;
+			throw new BinaryException(cause);
+		}
+		catch(IOException e) {
+			throw e;
+		}
+		catch(RuntimeException e) {
+			throw e;
+		}
+		catch(Exception e) {
+			throw new BinaryException(e);
+		}
+	}
+
+	/** Read the header of the binary document.
+	 * 
+	 * @param input is the binary document.
+	 * @throws IOException
+	 */
+	void readHeader(BinaryInput input) throws IOException {
+		if (input.readInt()!=MAGIC_NUMBER) {
+			throw new BinaryException(Locale.getString(BinaryReader.class, "INVALID_MAGIC_NUMBER")); //$NON-NLS-1$
+		}
+		long version = input.readVarint();
+		if (version!=SPECIFICATION_VERSION) {
+			throw new BinaryException(Locale.getString(BinaryReader.class,
+					"INVALID_SPECIFICATION_VERSION", //$NON-NLS-1$
+					Long.toString(version), Integer.toString(SPECIFICATION_VERSION)));
+		}
+		// Creator of the document
+		input.readString();
+	}
+
+	/** Throw an exception if the graph is not of the given type.
+	 * 
+	 * @param type is the expected type of the graph.
+	 * @param graph is the graph.
+	 * @throws IOException
+	 */
+	static void assertGraphType(Class<?> type, Graph<?,?,?,?> graph) throws IOException {
+		if (graph!=null && !(type.isInstance(graph)))
+			throw new IOException(Locale.getString(BinaryReader.class, "INVALID_GRAPH_TYPE", type.getCanonicalName())); //$NON-NLS-1$
+	}
+
+	/** Link the figures to their coerced figures.
+	 * 
+	 * @param coercedFigures are the coercions of the figures.
+	 */
+	void linkCoercedFigures(Map<Figure,Map<String,UUID>> coercedFigures) {
+		for(Entry<Figure,Map<String,UUID>> map1 : coercedFigures.entrySet()) {
+			for(Entry<String,UUID> map2 : map1.getValue().entrySet()) {
+				Figure slaveFigure = this.figuresById.get(map2.getValue());
+				if (slaveFigure instanceof CoercedFigure) {
+					map1.getKey().addAssociatedFigureIntoView(map2.getKey(), (CoercedFigure)slaveFigure);
+				}
+			}
+		}
+	}
+
+	/** Read a graph section.
+	 * 
+	 * @param input is the graph section.
+	 * @return the graph.
+	 * @throws IOException
+	 */
+	Graph<?,?,?,?> parseGraph(BinaryInput input) throws IOException {
+		GraphSection section = new GraphSection(input);
+		parseGraphSection(section);
+		linkGraphSection(section);
+		return section.graph;
+	}
+
+	/** Create the objects of a graph section.
+	 * This function does not use the objects of the
+	 * other sections, so that the sections may be
+	 * parsed in parallel.
+	 * 
+	 * @param section is the graph section.
+	 * @throws IOException
+	 */
+	private void parseGraphSection(GraphSection section) throws IOException {
+		BinaryInput input = section.input;
+		Graph graph = createInstance(Graph.class, input.readString());
+		graph.setUUID(input.readUUID());
+		graph.setProperties(parseAttributes(input));
+		section.graph = graph;
+
+		boolean anchors = input.readByte()==V_TRUE;
+		section.anchors = anchors;
+
+		int nodeCount = input.readCount();
+		for(int i=0; i<nodeCount; ++i) {
+			Node node = createInstance(Node.class, input.readString());
+			node.setUUID(input.readUUID());
+			node.setProperties(parseAttributes(input));
+			graph.addNode(node);
+			section.objects.add(node);
+			if (anchors) {
+				int anchorCount = input.readCount();
+				for(int j=0; j<anchorCount; ++j) {
+					Anchor anchor = createInstance(Anchor.class, input.readString());
+					anchor.setUUID(input.readUUID());
+					anchor.setProperties(parseAttributes(input));
+					node.addAnchor(anchor);
+					section.objects.add(anchor);
+				}
+			}
+		}
+
+		int edgeCount = input.readCount();
+		section.edgeEnds = new long[edgeCount*2];
+		for(int i=0; i<edgeCount; ++i) {
+			Edge edge = createInstance(Edge.class, input.readString());
+			edge.setUUID(input.readUUID());
+			edge.setProperties(parseAttributes(input));
+			graph.addEdge(edge);
+			section.objects.add(edge);
+			section.edges.add(edge);
+			// The ends are identified by the global indexes of
+			// the objects, which are known when the section is linked.
+			section.edgeEnds[i*2] = input.readVarint();
+			section.edgeEnds[i*2+1] = input.readVarint();
+		}
+	}
+
+	/** Register the objects of a graph section
+	 * and connect its edges.
+	 * 
+	 * @param section is the graph section.
+	 * @throws IOException
+	 */
+	private void linkGraphSection(GraphSection section) throws IOException {
+		this.modelObjects.addAll(section.objects);
+		int i = 0;
+		for(Edge edge : section.edges) {
+			edge.setStartAnchor(getEdgeEnd(section.edgeEnds[i++], section.anchors));
+			edge.setEndAnchor(getEdgeEnd(section.edgeEnds[i++], section.anchors));
+		}
+	}
+
+	private Anchor getEdgeEnd(long id, boolean anchors) throws IOException {
+		ModelObject object = getModelObject(id);
+		if (anchors) {
+			if (object instanceof Anchor) return (Anchor)object;
+		}
+		else if (object instanceof Node) {
+			List<Anchor> nodeAnchors = ((Node)object).getAnchors();
+			if (!nodeAnchors.isEmpty()) return nodeAnchors.get(0);
+		}
+		throw new BinaryException();
+	}
+
+	private ModelObject getModelObject(long id) throws BinaryException {
+		if (id<0 || id>=this.modelObjects.size()) throw new BinaryException();
+		return this.modelObjects.get((int)id);
+	}
+
+	private ModelObject getReferencedModelObject(BinaryInput input) throws BinaryException {
+		long ref = input.readVarint();
+		if (ref==0) return null;
+		return getModelObject(ref-1);
+	}
+
+	/** Read a view section.
+	 * 
+	 * @param input is the view section.
+	 * @param figures is the map to fill with the figures of the view.
+	 * @param coercedFigures is the map to fill with the coercions of the figures.
+	 * @param indexed indicates if the section is an indexed view section.
+	 * @throws IOException
+	 */
+	void parseView(BinaryInput input, Map<UUID, List<ViewComponent>> figures,
+			Map<Figure,Map<String,UUID>> coercedFigures, boolean indexed) throws IOException {
+		ViewSection section = new ViewSection(input, indexed);
+		parseViewSection(section);
+		linkViewSection(section, figures, coercedFigures);
+	}
+
+	/** Create the figures of a view section.
+	 * The figures are not connected to their model objects,
+	 * so that the sections may be parsed in parallel.
+	 * 
+	 * @param section is the view section.
+	 * @throws IOException
+	 */
+	private void parseViewSection(ViewSection section) throws IOException {
+		BinaryInput input = section.input;
+		UUID viewId = input.readUUID();
+		int figureCount = input.readCount();
+		section.viewId = viewId;
+		section.figures = new ArrayList<Figure>(figureCount);
+		for(int i=0; i<figureCount; ++i) {
+			if (section.indexed) {
+				// Skip the identifier and the bounds of the figure
+				input.skip(INDEX_ENTRY_SIZE);
+				section.figures.add(parseFigure(input.readSection(input.readCount()), viewId, section));
+			}
+			else {
+				section.figures.add(parseFigure(input, viewId, section));
+			}
+		}
+	}
+
+	/** Connect the figures of a view section to their model objects,
+	 * and register them.
+	 * 
+	 * @param section is the view section.
+	 * @param figures is the map to fill with the figures of the view.
+	 * @param coercedFigures is the map to fill with the coercions of the figures.
+	 */
+	private void linkViewSection(ViewSection section, Map<UUID, List<ViewComponent>> figures,
+			Map<Figure,Map<String,UUID>> coercedFigures) {
+		section.bind();
+		List<ViewComponent> components = null;
+		if (figures!=null) {
+			components = figures.get(section.viewId);
+			if (components==null) {
+				components = new ArrayList<ViewComponent>(section.figures.size());
+				figures.put(section.viewId, components);
+			}
+		}
+		for(Figure figure : section.figures) {
+			this.figuresById.put(figure.getUUID(), figure);
+			if (components!=null) components.add(figure);
+		}
+		coercedFigures.putAll(section.coercions);
+	}
+
+	/** Read a figure and its subfigures.
+	 * 
+	 * @param input is the binary document.
+	 * @param viewId is the identifier of the view of the figure.
+	 * @param coercedFigures is the map to fill with the coercions of the figure.
+	 * @return the figure.
+	 * @throws IOException
+	 */
+	Figure parseFigure(BinaryInput input, UUID viewId, Map<Figure,Map<String,UUID>> coercedFigures) throws IOException {
+		ViewSection section = new ViewSection(null, false);
+		Figure figure = parseFigure(input, viewId, section);
+		section.bind();
+		coercedFigures.putAll(section.coercions);
+		return figure;
+	}
+
+	private Figure parseFigure(BinaryInput input, UUID viewId, ViewSection section) throws IOException {
+		Figure figure = createFigureInstance(Figure.class, input.readString(), viewId);
+		UUID figureId = input.readUUID();
+		ModelObject mo = getReferencedModelObject(input);
+		figure.setProperties(parseAttributes(input));
+		figure.setUUID(figureId);
+		figure.setViewUUID(viewId);
+		if (figure instanceof ModelObjectView<?>
+			&& (mo instanceof Node || mo instanceof Edge)) {
+			section.addBinding((ModelObjectView)figure, mo);
+		}
+
+		int subfigureCount = input.readCount();
+		for(int j=0; j<subfigureCount; ++j) {
+			SubFigure subfigure = createFigureInstance(SubFigure.class, input.readString(), viewId);
+			UUID subfigureId = input.readUUID();
+			ModelObject anchor = getReferencedModelObject(input);
+			subfigure.setProperties(parseAttributes(input));
+			subfigure.setUUID(subfigureId);
+			subfigure.setViewUUID(viewId);
+			if (anchor instanceof Anchor && subfigure instanceof ModelObjectView<?>) {
+				section.addBinding((ModelObjectView)subfigure, anchor);
+			}
+		}
+
+		int coercionCount = input.readCount();
+		if (coercionCount>0) {
+			Map<String,UUID> figs = new HashMap<String,UUID>();
+			for(int j=0; j<coercionCount; ++j) {
+				String coercionId = input.readString();
+				figs.put(coercionId, input.readUUID());
+			}
+			section.coercions.put(figure, figs);
+		}
+		return figure;
+	}
+
+	private Map<String,Object> parseAttributes(BinaryInput input) throws IOException {
+		Map<String,Object> properties = new TreeMap<String,Object>();
+		int count = input.readCount();
+		for(int i=0; i<count; ++i) {
+			String name = input.readString();
+			Object value = parseAttributeValue(input);
+			if (value!=null) {
+				properties.put(name, value);
+			}
+		}
+		return properties;
+	}
+
+	private Object parseAttributeValue(BinaryInput input) throws IOException {
+		byte type = input.readByte();
+		switch(type) {
+		case V_NULL:
+			return null;
+		case V_FALSE:
+			return Boolean.FALSE;
+		case V_TRUE:
+			return Boolean.TRUE;
+		case V_INTEGER:
+			return Long.valueOf(input.readSignedVarint());
+		case V_FLOAT:
+			return Float.valueOf(input.readFloat());
+		case V_INTEGRAL_FLOAT:
+			return Float.valueOf(input.readSignedVarint());
+		case V_DOUBLE:
+			return Double.valueOf(input.readDouble());
+		case V_INTEGRAL_DOUBLE:
+			return Double.valueOf(input.readSignedVarint());
+		case V_STRING:
+			return input.readString();
+		case V_ENUM:
+			return parseEnum(input.readString(), input.readString());
+		case V_URL:
+			return parseURL(input.readString());
+		case V_UUID:
+			return input.readUUID();
+		case V_SET:
+			return parseCollection(input, new HashSet<Object>());
+		case V_LIST:
+		case V_COLLECTION:
+			return parseCollection(input, new ArrayList<Object>());
+		case V_SERIAL:
+			return parseSerial(input.readBytes(input.readCount()));
+		default:
+		}
+		throw new BinaryException("unsupported value type: "+type); //$NON-NLS-1$
+	}
+
+	private Collection<Object> parseCollection(BinaryInput input, Collection<Object> collection) throws IOException {
+		int count = input.readCount();
+		for(int i=0; i<count; ++i) {
+			Object value = parseAttributeValue(input);
+			if (value!=null) collection.add(value);
+		}
+		return collection;
+	}
+
+	private static Object parseEnum(String name, String value) throws IOException {
+		try {
+			Class<?> type = Class.forName(name);
+			if (type.isEnum()) {
+				Class<? extends Enum<?>> enumType = (Class<? extends Enum<?>>)type;
+				for(Enum<?> enumConstant : enumType.getEnumConstants()) {
+					if (enumConstant.name().equals(value)) {
+						return enumConstant;
+					}
+				}
+			}
+			throw new BinaryException();
+		}
+		catch (ClassNotFoundException e) {
+			throw new BinaryException(e);
+		}
+	}
+
+	private URL parseURL(String value) throws IOException {
+		String href = value.trim();
+		ResourceRepository resourceRepository = getResourceRepository();
+		try {
+			URL u = (resourceRepository==null) ? null : resourceRepository.getURL(href);
+			if (u==null) {
+				u = FileSystem.convertStringToURL(href, true);
+			}
+			return u;
+		}
+		catch (Exception _) {
+			try {
+				File file;
+				if (FileSystem.isWindowsNativeFilename(href)) {
+					file = FileSystem.normalizeWindowsNativeFilename(href);
+				}
+				else {
+					file = new File(href);
+				}
+				if (resourceRepository!=null) {
+					URL root = resourceRepository.getRoot();
+					if (root!=null) {
+						return FileSystem.makeAbsolute(file, root);
+					}
+				}
+				return file.toURI().toURL();
+			}
+			catch (Throwable e) {
+				throw new BinaryException(e);
+			}
+		}
+	}
+
+	private static Object parseSerial(byte[] value) throws IOException {
+		ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(value));
+		try {
+			return ois.readObject();
+		}
+		catch (ClassNotFoundException e) {
+			throw new BinaryException(e);
+		}
+		finally {
+			ois.close();
+		}
+	}
+
+	private InstanceFactory getFactory(Class<?> expectedType, String typeName) throws IOException {
+		InstanceFactory factory;
+		try {
+			factory = getTypeRegistry().getFactory(typeName);
+		}
+		catch (ClassNotFoundException e) {
+			throw new BinaryException(e);
+		}
+		if (!expectedType.isAssignableFrom(factory.getType())) {
+			throw new BinaryException(Locale.getString(BinaryReader.class,
+					"UNEXPECTED_TYPE", typeName, expectedType.getCanonicalName())); //$NON-NLS-1$
+		}
+		return factory;
+	}
+
+	private <T> T createInstance(Class<T> type, String typeName) throws IOException {
+		InstanceFactory factory = getFactory(type, typeName);
+		try {
+			return type.cast(factory.newInstance());
+		}
+		catch (Exception e) {
+			throw new BinaryException(e);
+		}
+	}
+
+	private <T extends ViewComponent> T createFigureInstance(Class<T> type, String typeName, UUID viewId) throws IOException {
+		InstanceFactory factory = getFactory(type, typeName);
+		try {
+			return type.cast(factory.newInstance(viewId));
+		}
+		catch (Exception e) {
+			throw new BinaryException(e);
+		}
+	}
+
+	/** Graph section of a binary document.
+	 * 
+	 * @author $Author: galland$
+	 * @version $FullVersion$
+	 * @mavengroupid $GroupId$
+	 * @mavenartifactid $ArtifactId$
+	 */
+	private static class GraphSection {
+
+		public final BinaryInput input;
+		public Graph graph = null;
+		public boolean anchors = false;
+		/** Model objects in the order of their indexes. */
+		public final List<ModelObject> objects = new ArrayList<ModelObject>();
+		public final List<Edge> edges = new ArrayList<Edge>();
+		/** Indexes of the start and end of each edge. */
+		public long[] edgeEnds = null;
+
+		/**
+		 * @param input
+		 */
+		public GraphSection(BinaryInput input) {
+			this.input = input;
+		}
+
+	}
+
+	/** View section of a binary document.
+	 * 
+	 * @author $Author: galland$
+	 * @version $FullVersion$
+	 * @mavengroupid $GroupId$
+	 * @mavenartifactid $ArtifactId$
+	 */
+	private static class ViewSection {
+
+		public final BinaryInput input;
+		public final boolean indexed;
+		public UUID viewId = null;
+		public List<Figure> figures = null;
+		public final Map<Figure,Map<String,UUID>> coercions = new HashMap<Figure,Map<String,UUID>>();
+		private final List<ModelObjectView> views = new ArrayList<ModelObjectView>();
+		private final List<ModelObject> models = new ArrayList<ModelObject>();
+
+		/**
+		 * @param input
+		 * @param indexed
+		 */
+		public ViewSection(BinaryInput input, boolean indexed) {
+			this.input = input;
+			this.indexed = indexed;
+		}
+
+		/** Add a connection between a figure and a model object.
+		 * 
+		 * @param view
+		 * @param model
+		 */
+		public void addBinding(ModelObjectView view, ModelObject model) {
+			this.views.add(view);
+			this.models.add(model);
+		}
+
+		/** Connect the figures to their model objects,
+		 * in the order of the document.
+		 */
+		public void bind() {
+			for(int i=0; i<this.views.size(); ++i) {
+				this.views.get(i).setModelObject(this.models.get(i));
+			}
+			this.views.clear();
+			this.models.clear();
+		}
+
+	}
+
+}
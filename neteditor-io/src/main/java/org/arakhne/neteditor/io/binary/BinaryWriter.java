@@ -0,0 +1,855 @@
+/* 
+ * $Id$
+ * 
+ * Copyright (C) 2013 Stephane GALLAND.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ * This program is free software; you can redistribute it and/or modify
+ */
+
+package org.arakhne.neteditor.io.binary ;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.net.URI;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.arakhne.afc.math.continous.object2d.Rectangle2f;
+import org.arakhne.afc.progress.Progression;
+import org.arakhne.afc.progress.ProgressionUtil;
+import org.arakhne.afc.ui.vector.Image;
+import org.arakhne.afc.vmutil.ExternalizableResource;
+import org.arakhne.neteditor.fig.figure.Figure;
+import org.arakhne.neteditor.fig.figure.ModelObjectFigure;
+import org.arakhne.neteditor.fig.figure.coercion.CoercedFigure;
+import org.arakhne.neteditor.fig.subfigure.SubFigure;
+import org.arakhne.neteditor.fig.view.ModelObjectView;
+import org.arakhne.neteditor.fig.view.ViewComponent;
+import org.arakhne.neteditor.fig.view.ViewComponentContainer;
+import org.arakhne.neteditor.formalism.Anchor;
+import org.arakhne.neteditor.formalism.Edge;
+import org.arakhne.neteditor.formalism.Graph;
+import org.arakhne.neteditor.formalism.ModelObject;
+import org.arakhne.neteditor.formalism.Node;
+import org.arakhne.neteditor.io.AbstractNetEditorWriter;
+import org.arakhne.neteditor.io.SnapshotWriter;
+import org.arakhne.neteditor.io.resource.ResourceRepository;
+
+/** This class permits to export the
+ *  <strong>graph-model</strong> into the NetEditor binary format.
+ *  <p>
+ *  The binary format is a compact alternative to the XML-based
+ *  formats: the numbers are not converted to text, and the class
+ *  names and property names are written once per section.
+ *  See {@link BinaryConstants} for the layout of the documents.
+ *
+ * @author $Author: galland$
+ * @version $FullVersion$
+ * @mavengroupid $GroupId$
+ * @mavenartifactid $ArtifactId$
+ */
+public class BinaryWriter extends AbstractNetEditorWriter implements SnapshotWriter, BinaryConstants {
+
+	/** Size of the buffer used to write the binary content.
+	 */
+	private static final int BUFFER_SIZE = 65536;
+
+	private final Map<UUID,Integer> uuidTouniqIds = new HashMap<UUID,Integer>();  
+	private BinaryOutput section = null;
+	private boolean indexOutput = false;
+
+	/** Construct a new BinaryWriter.          
+	 */
+	public BinaryWriter() {    
+		//
+	}
+
+	/** Replies if the figures are written in indexed view sections.
+	 * The indexed view sections permit to load the figures lazily
+	 * with {@link LazyBinaryDocument}, but they are bigger because
+	 * the table of strings is not shared by the figures.
+	 * 
+	 * @return <code>true</code> if the views are indexed;
+	 * <code>false</code> otherwise.
+	 */
+	public boolean isIndexOutput() {
+		return this.indexOutput;
+	}
+
+	/** Set if the figures are written in indexed view sections.
+	 * 
+	 * @param index is <code>true</code> if the views are indexed;
+	 * <code>false</code> otherwise.
+	 */
+	public void setIndexOutput(boolean index) {
+		this.indexOutput = index;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public final void write(OutputStream os, Graph<?, ?, ?, ?> graph)
+			throws IOException {
+		Map<UUID,Graph<?,?,?,?>> graphs = new TreeMap<UUID,Graph<?,?,?,?>>();
+		if (graph!=null) graphs.put(graph.getUUID(), graph);
+		List<? extends Figure> figures = Collections.emptyList();
+		writeGraph(os, graphs, figures, getProgression());
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public final <G extends Graph<?, ?, ?, ?>> void write(OutputStream os, G graph,
+			ViewComponentContainer<?, G> container) throws IOException {
+		ProgressionUtil.init(getProgression(), 0, 100000);
+		try {
+			Map<UUID,Graph<?,?,?,?>> graphs = new TreeMap<UUID,Graph<?,?,?,?>>();
+			if (graph!=null) graphs.put(graph.getUUID(), graph);
+			List<Figure> figures = new ArrayList<Figure>();
+			for(ViewComponent vc : container.getFigureSnapshot()) {
+				if (vc instanceof Figure) {
+					figures.add((Figure)vc);
+				}
+				ProgressionUtil.advance(getProgression());
+			}
+			writeGraph(os, graphs, figures,
+					ProgressionUtil.subToEnd(getProgression()));
+		}
+		finally {
+			ProgressionUtil.end(getProgression());
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public final void write(OutputStream os, Collection<? extends Figure> figures)
+			throws IOException {
+		// Find a graph.
+		ProgressionUtil.init(getProgression(), 0, 3*figures.size());
+		Map<UUID,Graph<?,?,?,?>> graphs = new TreeMap<UUID,Graph<?,?,?,?>>();
+		Graph<?,?,?,?> g;
+		for(Figure figure : figures) {
+			if (figure instanceof ModelObjectFigure<?>) {
+				g = null;
+				ModelObject mo = ((ModelObjectFigure<?>)figure).getModelObject();
+				if (mo instanceof Graph<?,?,?,?>) {
+					g = (Graph<?,?,?,?>)mo;
+				}
+				else if (mo instanceof Node<?,?,?,?>) {
+					g = ((Node<?,?,?,?>)mo).getGraph();
+				}
+				else if (mo instanceof Edge<?,?,?,?>) {
+					g = ((Edge<?,?,?,?>)mo).getGraph();
+				}
+				if (g!=null) {
+					graphs.put(g.getUUID(), g);
+				}
+			}
+			ProgressionUtil.advance(getProgression());
+		}
+
+		// Write
+		writeGraph(os, graphs, figures, ProgressionUtil.subToEnd(getProgression()));
+
+		ProgressionUtil.end(getProgression());
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public final <G extends Graph<?, ?, ?, ?>> Snapshot capture(G graph,
+			ViewComponentContainer<?, G> container) {
+		Map<UUID,Graph<?,?,?,?>> graphs = new TreeMap<UUID,Graph<?,?,?,?>>();
+		if (graph!=null) graphs.put(graph.getUUID(), graph);
+		List<Figure> figures = new ArrayList<Figure>();
+		for(ViewComponent vc : container.getFigureSnapshot()) {
+			if (vc instanceof Figure) {
+				figures.add((Figure)vc);
+			}
+		}
+		return capture(graphs, figures);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public final void write(OutputStream os, Snapshot snapshot) throws IOException {
+		if (!(snapshot instanceof BinarySnapshot)) throw new IllegalArgumentException();
+		ProgressionUtil.init(getProgression(), 0, 1);
+		try {
+			writeSnapshot(os, (BinarySnapshot)snapshot, ProgressionUtil.subToEnd(getProgression()));
+		}
+		finally {
+			ProgressionUtil.end(getProgression());
+		}
+	}
+
+	/** Write the graph.
+	 * <p>
+	 * This function could be overridden by subclasses.
+	 * 
+	 * @param os is the output stream.
+	 * @param graphs are the graphs to output.
+	 * @param figures are the figures to output. The list is ordered
+	 * from the front layer to the background layer.
+	 * @param progression is the progression indicator to be used.
+	 * @throws IOException
+	 */
+	protected void writeGraph(
+			OutputStream os,
+			Map<UUID, ? extends Graph<?,?,?,?>> graphs, 
+			Collection<? extends Figure> figures,
+			Progression progression) throws IOException {
+		BinarySnapshot snapshot;
+		try {
+			snapshot = capture(graphs, figures);
+		}
+		catch(RuntimeException e) {
+			os.close();
+			throw e;
+		}
+		writeSnapshot(os, snapshot, progression);
+	}
+
+	/** Capture the state of the graphs and of the figures.
+	 * The properties of the objects are read, but they are not encoded.
+	 * 
+	 * @param graphs are the graphs to capture.
+	 * @param figures are the figures to capture. The list is ordered
+	 * from the front layer to the background layer.
+	 * @return the captured state.
+	 */
+	private BinarySnapshot capture(Map<UUID, ? extends Graph<?,?,?,?>> graphs, 
+			Collection<? extends Figure> figures) {
+		boolean anchorOutput = isAnchorOutput();
+		boolean index = isIndexOutput();
+		List<GraphRecord> graphRecords = new ArrayList<GraphRecord>(graphs.size());
+		for(Graph<?,?,?,?> graph : graphs.values()) {
+			graphRecords.add(new GraphRecord(graph, anchorOutput));
+		}
+		List<FigureRecord> figureRecords = new ArrayList<FigureRecord>(figures.size());
+		for(Figure figure : figures) {
+			figureRecords.add(new FigureRecord(figure, index));
+		}
+		return new BinarySnapshot(graphRecords, figureRecords, index);
+	}
+
+	/** Write the captured state.
+	 * 
+	 * @param os is the output stream.
+	 * @param snapshot is the captured state.
+	 * @param progression is the progression indicator to be used.
+	 * @throws IOException
+	 */
+	private void writeSnapshot(OutputStream os, BinarySnapshot snapshot,
+			Progression progression) throws IOException {
+		ProgressionUtil.init(progression, 0, snapshot.figures.size()+snapshot.graphs.size());
+
+		OutputStream out = new BufferedOutputStream(os, BUFFER_SIZE);
+		try {
+			this.uuidTouniqIds.clear();
+			this.section = new BinaryOutput(BUFFER_SIZE);
+
+			BinaryOutput header = this.section;
+			header.writeInt(MAGIC_NUMBER);
+			header.writeVarint(SPECIFICATION_VERSION);
+			header.writeString(getClass().getCanonicalName()+" "+getWriterVersion()); //$NON-NLS-1$
+			header.writeTo(out);
+
+			for(GraphRecord graph : snapshot.graphs) {
+				this.section.reset();
+				printGraph(graph);
+				flushSection(out, S_GRAPH);
+				ProgressionUtil.advance(progression);
+			}
+
+			// Group the figures per view, with the order of the layers
+			Map<UUID,List<FigureRecord>> views = new LinkedHashMap<UUID,List<FigureRecord>>();
+			for(FigureRecord figure : snapshot.figures) {
+				List<FigureRecord> view = views.get(figure.viewId);
+				if (view==null) {
+					view = new ArrayList<FigureRecord>();
+					views.put(figure.viewId, view);
+				}
+				view.add(figure);
+			}
+
+			for(Entry<UUID,List<FigureRecord>> view : views.entrySet()) {
+				this.section.reset();
+				if (snapshot.index) {
+					printIndexedView(view.getKey(), view.getValue(), progression);
+					flushSection(out, S_INDEXED_VIEW);
+				}
+				else {
+					printView(view.getKey(), view.getValue(), progression);
+					flushSection(out, S_VIEW);
+				}
+			}
+
+			out.write(S_END);
+
+			ProgressionUtil.end(progression);
+		}
+		finally {
+			out.close();
+			this.section = null;
+			this.uuidTouniqIds.clear();
+		}
+	}
+
+	private void flushSection(OutputStream out, byte tag) throws IOException {
+		out.write(tag);
+		BinaryOutput length = new BinaryOutput(16);
+		length.writeVarint(this.section.size());
+		length.writeTo(out);
+		this.section.writeTo(out);
+	}
+
+	private void printGraph(GraphRecord graph) throws IOException {
+		BinaryOutput out = this.section;
+		printObject(graph);
+
+		out.writeByte(graph.anchorOutput ? V_TRUE : V_FALSE);
+
+		out.writeVarint(graph.nodes.size());
+		for(NodeRecord node : graph.nodes) {
+			printNode(node, graph.anchorOutput);
+		}
+
+		out.writeVarint(graph.edges.size());
+		for(EdgeRecord edge : graph.edges) {
+			printEdge(edge);
+		}
+	}
+
+	private void printNode(NodeRecord node, boolean anchorOutput) throws IOException {
+		newUniqId(node.id);
+		printObject(node);
+
+		if (anchorOutput) {
+			this.section.writeVarint(node.anchors.size());
+			for(ObjectRecord anchor : node.anchors) {
+				newUniqId(anchor.id);
+				printObject(anchor);
+			}
+		}
+	}
+
+	private void printEdge(EdgeRecord edge) throws IOException {
+		newUniqId(edge.id);
+		printObject(edge);
+		printReference(edge.start);
+		printReference(edge.end);
+	}
+
+	private void printObject(ObjectRecord object) throws IOException {
+		this.section.writeString(object.type);
+		this.section.writeUUID(object.id);
+		printAttributes(object.properties);
+	}
+
+	private void printReference(UUID id) throws IOException {
+		int n = getUniqId(id);
+		if (n<0) throw new BinaryException();
+		this.section.writeVarint(n);
+	}
+
+	private void printModelReference(UUID modelObject) {
+		int id = -1;
+		if (modelObject!=null) id = getUniqId(modelObject);
+		this.section.writeVarint(id+1);
+	}
+
+	private void printView(UUID viewId, List<FigureRecord> figures, Progression progression) throws IOException {
+		BinaryOutput out = this.section;
+		out.writeUUID(viewId);
+		out.writeVarint(figures.size());
+		for(FigureRecord figure : figures) {
+			printFigure(figure);
+			ProgressionUtil.advance(progression);
+		}
+	}
+
+	private void printIndexedView(UUID viewId, List<FigureRecord> figures, Progression progression) throws IOException {
+		BinaryOutput out = this.section;
+		BinaryOutput record = new BinaryOutput(1024);
+		out.writeUUID(viewId);
+		out.writeVarint(figures.size());
+		try {
+			for(FigureRecord figure : figures) {
+				Rectangle2f bounds = figure.bounds;
+				out.writeUUID(figure.id);
+				out.writeFloat(bounds.getMinX());
+				out.writeFloat(bounds.getMinY());
+				out.writeFloat(bounds.getWidth());
+				out.writeFloat(bounds.getHeight());
+				record.reset();
+				this.section = record;
+				printFigure(figure);
+				this.section = out;
+				out.writeVarint(record.size());
+				out.writeBytes(record.toByteArray());
+				ProgressionUtil.advance(progression);
+			}
+		}
+		finally {
+			this.section = out;
+		}
+	}
+
+	private void printFigure(FigureRecord figure) throws IOException {
+		BinaryOutput out = this.section;
+		out.writeString(figure.type);
+		out.writeUUID(figure.id);
+		printModelReference(figure.modelObject);
+		printAttributes(figure.properties);
+
+		out.writeVarint(figure.subfigures.size());
+		for(ComponentRecord subFigure : figure.subfigures) {
+			out.writeString(subFigure.type);
+			out.writeUUID(subFigure.id);
+			printModelReference(subFigure.modelObject);
+			printAttributes(subFigure.properties);
+		}
+
+		out.writeVarint(figure.coercions.size());
+		for(Entry<String,UUID> entry : figure.coercions.entrySet()) {
+			out.writeString(entry.getKey());
+			out.writeUUID(entry.getValue());
+		}
+	}
+
+	private void printAttributes(Map<String,Object> properties) throws IOException {
+		if (properties==null || properties.isEmpty()) {
+			this.section.writeVarint(0);
+		}
+		else {
+			int count = 0;
+			for(Entry<String,Object> property : properties.entrySet()) {
+				if (isAttribute(property)) ++count;
+			}
+			this.section.writeVarint(count);
+			for(Entry<String,Object> property : properties.entrySet()) {
+				if (isAttribute(property)) {
+					this.section.writeString(property.getKey());
+					printAttributeValue(property.getValue());
+				}
+			}
+		}
+	}
+
+	private static boolean isAttribute(Entry<String,Object> property) {
+		String name = property.getKey();
+		return property.getValue()!=null && name!=null && !name.isEmpty();
+	}
+
+	private static boolean isIntegral(double value) {
+		return value==(long)value && Math.abs(value)<1e15 && (value!=0. || 1./value>0.);
+	}
+
+	private void printAttributeValue(Object value) throws IOException {
+		BinaryOutput out = this.section;
+		if (value==null) {
+			out.writeByte(V_NULL);
+		}
+		else if (isInteger(value)) {
+			out.writeByte(V_INTEGER);
+			out.writeSignedVarint(((Number)value).longValue());
+		}
+		else if (value instanceof Float) {
+			float v = ((Float)value).floatValue();
+			if (isIntegral(v)) {
+				out.writeByte(V_INTEGRAL_FLOAT);
+				out.writeSignedVarint((long)v);
+			}
+			else {
+				out.writeByte(V_FLOAT);
+				out.writeFloat(v);
+			}
+		}
+		else if (isFloat(value)) {
+			double v = ((Number)value).doubleValue();
+			if (isIntegral(v)) {
+				out.writeByte(V_INTEGRAL_DOUBLE);
+				out.writeSignedVarint((long)v);
+			}
+			else {
+				out.writeByte(V_DOUBLE);
+				out.writeDouble(v);
+			}
+		}
+		else if (isBoolean(value)) {
+			boolean b = (value instanceof AtomicBoolean)
+					? ((AtomicBoolean)value).get()
+							: ((Boolean)value).booleanValue();
+			out.writeByte(b ? V_TRUE : V_FALSE);
+		}
+		else if (isString(value)) {
+			out.writeByte(V_STRING);
+			out.writeString(value.toString());
+		}
+		else if (value instanceof Enum<?>) {
+			Enum<?> enumValue = (Enum<?>)value;
+			out.writeByte(V_ENUM);
+			out.writeString(enumValue.getDeclaringClass().getName());
+			out.writeString(enumValue.name());
+		}
+		else if (value instanceof URL) {
+			ResourceRepository rr = getResourceRepository();
+			printURL((rr==null)
+					? ((URL)value).toExternalForm()
+							: rr.mapsTo((URL)value));
+		}
+		else if (value instanceof File) {
+			ResourceRepository rr = getResourceRepository();
+			printURL((rr==null)
+					? ((File)value).toURI().toASCIIString()
+							: rr.mapsTo(((File)value).toURI().toURL()));
+		}
+		else if (value instanceof URI) {
+			String r;
+			ResourceRepository rr = getResourceRepository();
+			try {
+				URL u = ((URI)value).toURL();
+				r = (rr==null)
+						? u.toExternalForm()
+								: rr.mapsTo(u);
+			}
+			catch (Throwable e) {
+				r = ((URI)value).toASCIIString();
+			}
+			printURL(r);
+		}
+		else if (value instanceof Set<?>) {
+			printCollection(V_SET, (Set<?>)value);
+		}
+		else if (value instanceof List<?>) {
+			printCollection(V_LIST, (List<?>)value);
+		}
+		else if (value instanceof Collection<?>) {
+			printCollection(V_COLLECTION, (Collection<?>)value);
+		}
+		else if (value instanceof ExternalizableResource) {
+			URL erUrl = ((ExternalizableResource)value).getExternalizableResourceLocation();
+			if (erUrl!=null) {
+				printURL(erUrl.toExternalForm());
+			}
+			else {
+				out.writeByte(V_NULL);
+			}
+		}
+		else if (value instanceof Image) {
+			ResourceRepository rr = getResourceRepository();
+			if (rr!=null) {
+				printURL(rr.mapsTo((Image)value));
+			}
+			else {
+				out.writeByte(V_NULL);
+			}
+		}
+		else if (value instanceof UUID) {
+			out.writeByte(V_UUID);
+			out.writeUUID((UUID)value);
+		}
+		else if (value instanceof Serializable) {
+			ByteArrayOutputStream baos = new ByteArrayOutputStream();
+			ObjectOutputStream oos = new ObjectOutputStream(baos);
+			try {
+				oos.writeObject(value);
+			}
+			finally {
+				oos.close();
+			}
+			byte[] tab = baos.toByteArray();
+			out.writeByte(V_SERIAL);
+			out.writeVarint(tab.length);
+			out.writeBytes(tab);
+		}
+		else {
+			out.writeByte(V_NULL);
+		}
+	}
+
+	private void printURL(String url) {
+		this.section.writeByte(V_URL);
+		this.section.writeString(url);
+	}
+
+	private void printCollection(byte type, Collection<?> values) throws IOException {
+		// The collection is copied to be sure that the
+		// number of values is the number of written values.
+		List<Object> copy = new ArrayList<Object>(values);
+		this.section.writeByte(type);
+		this.section.writeVarint(copy.size());
+		for(Object v : copy) {
+			printAttributeValue(v);
+		}
+	}
+
+	private void newUniqId(UUID id) {
+		this.uuidTouniqIds.put(id, Integer.valueOf(this.uuidTouniqIds.size()));
+	}
+
+	private int getUniqId(UUID uuid) {
+		Integer v = this.uuidTouniqIds.get(uuid);
+		if (v==null) return -1;
+		return v.intValue();
+	}
+
+	private static UUID getModelObjectId(ViewComponent component) {
+		if (component instanceof ModelObjectView<?>) {
+			ModelObject mo = ((ModelObjectView<?>)component).getModelObject();
+			if (mo!=null) return mo.getUUID();
+		}
+		return null;
+	}
+
+	/** State of a document captured by a {@link BinaryWriter}.
+	 * 
+	 * @author $Author: galland$
+	 * @version $FullVersion$
+	 * @mavengroupid $GroupId$
+	 * @mavenartifactid $ArtifactId$
+	 */
+	private static class BinarySnapshot implements Snapshot {
+
+		public final List<GraphRecord> graphs;
+		public final List<FigureRecord> figures;
+		public final boolean index;
+
+		/**
+		 * @param graphs
+		 * @param figures
+		 * @param index indicates if the views are indexed.
+		 */
+		public BinarySnapshot(List<GraphRecord> graphs, List<FigureRecord> figures, boolean index) {
+			this.graphs = graphs;
+			this.figures = figures;
+			this.index = index;
+		}
+
+	}
+
+	/** Captured state of an object.
+	 * 
+	 * @author $Author: galland$
+	 * @version $FullVersion$
+	 * @mavengroupid $GroupId$
+	 * @mavenartifactid $ArtifactId$
+	 */
+	private static class ObjectRecord {
+
+		public final String type;
+		public final UUID id;
+		public final Map<String,Object> properties;
+
+		/**
+		 * @param object is the captured object.
+		 * @param id is the identifier of the object.
+		 * @param properties are the properties of the object.
+		 */
+		public ObjectRecord(Object object, UUID id, Map<String,Object> properties) {
+			this.type = object.getClass().getName();
+			this.id = id;
+			this.properties = properties;
+		}
+
+	}
+
+	/** Captured state of a graph.
+	 * 
+	 * @author $Author: galland$
+	 * @version $FullVersion$
+	 * @mavengroupid $GroupId$
+	 * @mavenartifactid $ArtifactId$
+	 */
+	private static class GraphRecord extends ObjectRecord {
+
+		public final boolean anchorOutput;
+		public final List<NodeRecord> nodes;
+		public final List<EdgeRecord> edges;
+
+		/**
+		 * @param graph
+		 * @param anchorOutput indicates if the anchors are captured.
+		 */
+		public GraphRecord(Graph<?,?,?,?> graph, boolean anchorOutput) {
+			super(graph, graph.getUUID(), graph.getProperties());
+			this.anchorOutput = anchorOutput;
+			this.nodes = new ArrayList<NodeRecord>(graph.getNodes().size());
+			for(Node<?,?,?,?> node : graph.getNodes()) {
+				this.nodes.add(new NodeRecord(node, anchorOutput));
+			}
+			this.edges = new ArrayList<EdgeRecord>(graph.getEdges().size());
+			for(Edge<?,?,?,?> edge : graph.getEdges()) {
+				this.edges.add(new EdgeRecord(edge, anchorOutput));
+			}
+		}
+
+	}
+
+	/** Captured state of a node.
+	 * 
+	 * @author $Author: galland$
+	 * @version $FullVersion$
+	 * @mavengroupid $GroupId$
+	 * @mavenartifactid $ArtifactId$
+	 */
+	private static class NodeRecord extends ObjectRecord {
+
+		public final List<ObjectRecord> anchors;
+
+		/**
+		 * @param node
+		 * @param anchorOutput indicates if the anchors are captured.
+		 */
+		public NodeRecord(Node<?,?,?,?> node, boolean anchorOutput) {
+			super(node, node.getUUID(), node.getProperties());
+			if (anchorOutput) {
+				this.anchors = new ArrayList<ObjectRecord>(node.getAnchors().size());
+				for(Anchor<?,?,?,?> anchor : node.getAnchors()) {
+					this.anchors.add(new ObjectRecord(anchor, anchor.getUUID(), anchor.getProperties()));
+				}
+			}
+			else {
+				this.anchors = Collections.emptyList();
+			}
+		}
+
+	}
+
+	/** Captured state of an edge.
+	 * 
+	 * @author $Author: galland$
+	 * @version $FullVersion$
+	 * @mavengroupid $GroupId$
+	 * @mavenartifactid $ArtifactId$
+	 */
+	private static class EdgeRecord extends ObjectRecord {
+
+		/** Identifier of the start anchor, or of the start node
+		 * if the anchors are not captured.
+		 */
+		public final UUID start;
+
+		/** Identifier of the end anchor, or of the end node
+		 * if the anchors are not captured.
+		 */
+		public final UUID end;
+
+		/**
+		 * @param edge
+		 * @param anchorOutput indicates if the anchors are captured.
+		 */
+		public EdgeRecord(Edge<?,?,?,?> edge, boolean anchorOutput) {
+			super(edge, edge.getUUID(), edge.getProperties());
+			if (anchorOutput) {
+				this.start = edge.getStartAnchor().getUUID();
+				this.end = edge.getEndAnchor().getUUID();
+			}
+			else {
+				this.start = edge.getStartAnchor().getNode().getUUID();
+				this.end = edge.getEndAnchor().getNode().getUUID();
+			}
+		}
+
+	}
+
+	/** Captured state of a subfigure.
+	 * 
+	 * @author $Author: galland$
+	 * @version $FullVersion$
+	 * @mavengroupid $GroupId$
+	 * @mavenartifactid $ArtifactId$
+	 */
+	private static class ComponentRecord extends ObjectRecord {
+
+		/** Identifier of the model object of the component, or <code>null</code>.
+		 */
+		public final UUID modelObject;
+
+		/**
+		 * @param component
+		 */
+		public ComponentRecord(ViewComponent component) {
+			super(component, component.getUUID(), component.getProperties());
+			this.modelObject = getModelObjectId(component);
+		}
+
+	}
+
+	/** Captured state of a figure.
+	 * 
+	 * @author $Author: galland$
+	 * @version $FullVersion$
+	 * @mavengroupid $GroupId$
+	 * @mavenartifactid $ArtifactId$
+	 */
+	private static class FigureRecord extends ComponentRecord {
+
+		public final UUID viewId;
+		public final Rectangle2f bounds;
+		public final List<ComponentRecord> subfigures;
+		public final Map<String,UUID> coercions;
+
+		/**
+		 * @param figure
+		 * @param index indicates if the bounds of the figure are captured.
+		 */
+		public FigureRecord(Figure figure, boolean index) {
+			super(figure);
+			this.viewId = figure.getViewUUID();
+			this.bounds = index ? figure.getBounds().clone() : null;
+			this.subfigures = new ArrayList<ComponentRecord>();
+			for(SubFigure subFigure : figure.getSubFigures()) {
+				this.subfigures.add(new ComponentRecord(subFigure));
+			}
+			if (figure instanceof CoercedFigure) {
+				this.coercions = Collections.emptyMap();
+			}
+			else {
+				this.coercions = new LinkedHashMap<String,UUID>();
+				for(Entry<String,CoercedFigure> entry : figure.getAssociatedFiguresInView().entrySet()) {
+					this.coercions.put(entry.getKey(), entry.getValue().getUUID());
+				}
+			}
+		}
+
+	}
+
+}
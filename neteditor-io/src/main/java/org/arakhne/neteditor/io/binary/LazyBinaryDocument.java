@@ -0,0 +1,568 @@
+/* 
+ * $Id$
+ * 
+ * Copyright (C) 2013 Stephane GALLAND.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ * This program is free software; you can redistribute it and/or modify
+ */
+
+package org.arakhne.neteditor.io.binary ;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+
+import org.arakhne.afc.math.continous.object2d.Rectangle2f;
+import org.arakhne.neteditor.fig.figure.Figure;
+import org.arakhne.neteditor.fig.figure.coercion.CoercedFigure;
+import org.arakhne.neteditor.fig.view.ViewComponent;
+import org.arakhne.neteditor.fig.view.ViewComponentContainer;
+import org.arakhne.neteditor.formalism.Graph;
+import org.arakhne.neteditor.io.TypeRegistry;
+import org.arakhne.neteditor.io.resource.ResourceRepository;
+
+/** Binary document that is loading its figures on demand.
+ * <p>
+ * The document is mapped in memory. The graph is read when the
+ * document is opened; the figures of the indexed view sections
+ * (see {@link BinaryWriter#setIndexOutput(boolean)}) are
+ * not read: only their identifiers and their bounds are loaded.
+ * The figures are created when they are inside the area given
+ * to {@link #getFigures(UUID, Rectangle2f)}, or when they are
+ * requested with {@link #getFigure(UUID)}.
+ * The figures that are not inside the last requested area
+ * are kept in a cache; the least recently used ones are
+ * released when the cache is full, and they are read again
+ * from the mapped document when they are requested.
+ * <p>
+ * The figures of the view sections that are not indexed are
+ * read when the document is opened.
+ * <p>
+ * Because the released figures are read again from the document,
+ * the changes made on the figures that are not inside the requested
+ * area may be lost. This document is intended to display the
+ * large graphs; the full document should be read with
+ * {@link BinaryReader} to be edited.
+ *
+ * @param <G> is the type of the graph.
+ * @author $Author: galland$
+ * @version $FullVersion$
+ * @mavengroupid $GroupId$
+ * @mavenartifactid $ArtifactId$
+ */
+public class LazyBinaryDocument<G extends Graph<?,?,?,?>> implements BinaryConstants {
+
+	/** Default number of figures that are kept in memory
+	 * when they are outside the requested area.
+	 */
+	public static final int DEFAULT_CACHE_SIZE = 1024;
+
+	private final BinaryReader reader;
+	private final ByteBuffer buffer;
+	private final File file;
+	private final boolean deleteOnClose;
+	private final G graph;
+	private final Map<UUID,ViewIndex> views = new LinkedHashMap<UUID,ViewIndex>();
+	private final Map<UUID,ViewIndex> figureViews = new HashMap<UUID,ViewIndex>();
+	private final Map<UUID,List<ViewComponent>> loadedViews = new TreeMap<UUID,List<ViewComponent>>();
+	private final Map<UUID,Figure> visibleFigures = new HashMap<UUID,Figure>();
+	private final FigureCache cachedFigures = new FigureCache();
+	private int cacheSize = DEFAULT_CACHE_SIZE;
+
+	/** Open the given binary document.
+	 * 
+	 * @param type is the expected type of the graph.
+	 * @param file is the binary document.
+	 * @param repository is the resource repository to use, or <code>null</code>.
+	 * @throws IOException
+	 */
+	public LazyBinaryDocument(Class<G> type, File file, ResourceRepository repository) throws IOException {
+		this(type, file, repository, null, false);
+	}
+
+	/** Open the given binary document.
+	 * 
+	 * @param type is the expected type of the graph.
+	 * @param file is the binary document.
+	 * @param repository is the resource repository to use, or <code>null</code>.
+	 * @param registry is the registry of the types to use, or <code>null</code>.
+	 * @param deleteOnClose indicates if the file is deleted by {@link #close()}.
+	 * @throws IOException
+	 */
+	public LazyBinaryDocument(Class<G> type, File file, ResourceRepository repository,
+			TypeRegistry registry, boolean deleteOnClose) throws IOException {
+		this.file = file;
+		this.deleteOnClose = deleteOnClose;
+		this.reader = new BinaryReader();
+		this.reader.setResourceRepository(repository);
+		this.reader.setTypeRegistry(registry);
+
+		RandomAccessFile raf = new RandomAccessFile(file, "r"); //$NON-NLS-1$
+		try {
+			FileChannel channel = raf.getChannel();
+			// The mapping stays valid after the channel is closed.
+			this.buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		}
+		finally {
+			raf.close();
+		}
+
+		BinaryInput input = new BinaryInput(this.buffer, 0, this.buffer.capacity());
+		this.reader.readHeader(input);
+
+		Graph<?,?,?,?> g = null;
+		Map<Figure,Map<String,UUID>> coercedFigures = new HashMap<Figure,Map<String,UUID>>();
+
+		byte tag = input.readByte();
+		while (tag!=S_END) {
+			BinaryInput section = input.readSection(input.readCount());
+			switch(tag) {
+			case S_GRAPH:
+				Graph<?,?,?,?> sg = this.reader.parseGraph(section);
+				if (g==null) g = sg;
+				break;
+			case S_VIEW:
+				this.reader.parseView(section, this.loadedViews, coercedFigures, false);
+				break;
+			case S_INDEXED_VIEW:
+				parseIndex(section);
+				break;
+			default:
+				// Unknown section: ignore it
+			}
+			tag = input.readByte();
+		}
+
+		BinaryReader.assertGraphType(type, g);
+		this.reader.linkCoercedFigures(coercedFigures);
+		this.graph = type.cast(g);
+	}
+
+	private void parseIndex(BinaryInput input) throws IOException {
+		UUID viewId = input.readUUID();
+		int count = input.readCount();
+		ViewIndex index = this.views.get(viewId);
+		if (index==null) {
+			index = new ViewIndex(viewId, count);
+			this.views.put(viewId, index);
+		}
+		else {
+			index.ensureCapacity(count);
+		}
+		UUID id;
+		float x, y, w, h;
+		int length;
+		for(int i=0; i<count; ++i) {
+			id = input.readUUID();
+			x = input.readFloat();
+			y = input.readFloat();
+			w = input.readFloat();
+			h = input.readFloat();
+			length = input.readCount();
+			index.add(id, x, y, w, h, input.getPosition(), length);
+			input.skip(length);
+			this.figureViews.put(id, index);
+		}
+	}
+
+	/** Release the resources of the document.
+	 * The figures that are already loaded are still valid.
+	 */
+	public void close() {
+		this.views.clear();
+		this.figureViews.clear();
+		this.visibleFigures.clear();
+		this.cachedFigures.clear();
+		if (this.deleteOnClose) {
+			// The mapping prevents the deletion on some platforms.
+			if (!this.file.delete()) this.file.deleteOnExit();
+		}
+	}
+
+	/** Replies the graph of the document.
+	 * 
+	 * @return the graph.
+	 */
+	public G getGraph() {
+		return this.graph;
+	}
+
+	/** Replies the identifiers of the views in the document.
+	 * 
+	 * @return the identifiers of the views.
+	 */
+	public Set<UUID> getViews() {
+		Set<UUID> ids = new LinkedHashSet<UUID>(this.views.keySet());
+		ids.addAll(this.loadedViews.keySet());
+		return Collections.unmodifiableSet(ids);
+	}
+
+	/** Replies the number of figures in the given view.
+	 * 
+	 * @param viewId is the identifier of the view.
+	 * @return the number of figures in the view.
+	 */
+	public int getFigureCount(UUID viewId) {
+		int count = 0;
+		ViewIndex index = this.views.get(viewId);
+		if (index!=null) count += index.size;
+		List<ViewComponent> loaded = this.loadedViews.get(viewId);
+		if (loaded!=null) count += loaded.size();
+		return count;
+	}
+
+	/** Replies the maximal number of figures that are kept
+	 * in memory when they are not inside the requested area.
+	 * 
+	 * @return the size of the cache of figures.
+	 */
+	public int getCacheSize() {
+		return this.cacheSize;
+	}
+
+	/** Set the maximal number of figures that are kept
+	 * in memory when they are not inside the requested area.
+	 * 
+	 * @param size is the size of the cache of figures.
+	 */
+	public void setCacheSize(int size) {
+		this.cacheSize = Math.max(0, size);
+		this.cachedFigures.shrink();
+	}
+
+	/** Replies the number of figures that are currently
+	 * loaded from the indexed view sections.
+	 * 
+	 * @return the number of loaded figures.
+	 */
+	public int getLoadedFigureCount() {
+		return this.visibleFigures.size() + this.cachedFigures.size();
+	}
+
+	/** Replies the figure with the given identifier.
+	 * The figure is read from the document if it is not loaded.
+	 * 
+	 * @param id is the identifier of the figure.
+	 * @return the figure, or <code>null</code> if not found.
+	 * @throws IOException
+	 */
+	public Figure getFigure(UUID id) throws IOException {
+		Figure figure = this.visibleFigures.get(id);
+		if (figure!=null) return figure;
+		figure = this.cachedFigures.get(id);
+		if (figure!=null) return figure;
+		ViewIndex index = this.figureViews.get(id);
+		if (index!=null) {
+			figure = load(index, index.indexOf(id));
+			this.cachedFigures.put(id, figure);
+			return figure;
+		}
+		for(List<ViewComponent> components : this.loadedViews.values()) {
+			for(ViewComponent component : components) {
+				if (component instanceof Figure && id.equals(component.getUUID())) {
+					return (Figure)component;
+				}
+			}
+		}
+		return null;
+	}
+
+	/** Replies the figures of the given view that are intersecting
+	 * the given area. The figures are read from the document if
+	 * they are not loaded. The returned figures become the visible
+	 * figures of the view; the previously visible figures that are
+	 * not returned are moved in the cache.
+	 * 
+	 * @param viewId is the identifier of the view.
+	 * @param area is the area in the view, or <code>null</code> for
+	 * all the figures of the view.
+	 * @return the figures from the front layer to the background layer.
+	 * @throws IOException
+	 */
+	public List<Figure> getFigures(UUID viewId, Rectangle2f area) throws IOException {
+		List<Figure> figures = new ArrayList<Figure>();
+
+		List<ViewComponent> loaded = this.loadedViews.get(viewId);
+		if (loaded!=null) {
+			for(ViewComponent component : loaded) {
+				if (component instanceof Figure
+					&& (area==null || component.getBounds().intersects(area))) {
+					figures.add((Figure)component);
+				}
+			}
+		}
+
+		ViewIndex index = this.views.get(viewId);
+		if (index!=null) {
+			Map<UUID,Figure> oldVisible = index.visible;
+			Map<UUID,Figure> newVisible = new HashMap<UUID,Figure>();
+			UUID id;
+			Figure figure;
+			for(int i=0; i<index.size; ++i) {
+				if (area==null || index.intersects(i, area)) {
+					id = index.ids[i];
+					figure = oldVisible.remove(id);
+					if (figure==null) {
+						figure = this.cachedFigures.remove(id);
+						if (figure==null) {
+							figure = load(index, i);
+						}
+						this.visibleFigures.put(id, figure);
+					}
+					newVisible.put(id, figure);
+					figures.add(figure);
+				}
+			}
+			// The figures that are no more visible are moved in the cache
+			for(Entry<UUID,Figure> entry : oldVisible.entrySet()) {
+				this.visibleFigures.remove(entry.getKey());
+				this.cachedFigures.put(entry.getKey(), entry.getValue());
+			}
+			index.visible = newVisible;
+		}
+
+		return figures;
+	}
+
+	/** Update the figures in the given container with the figures
+	 * of the view that are intersecting the given area.
+	 * This function should be invoked when the visible area of
+	 * the container has changed, eg. after a scroll or a zoom.
+	 * <p>
+	 * Only the figures of the view that are leaving the area are
+	 * removed from the container, without unlinking them from their
+	 * model objects; and only the figures that are entering the area
+	 * are added, in front of the figures that are staying in the
+	 * container. The other figures of the container are not changed.
+	 * 
+	 * @param container is the container to update.
+	 * @param viewId is the identifier of the view.
+	 * @param area is the visible area of the container.
+	 * @return <code>true</code> if the container has changed;
+	 * <code>false</code> otherwise.
+	 * @throws IOException
+	 */
+	public boolean synchronizeView(ViewComponentContainer<Figure,?> container, UUID viewId, Rectangle2f area) throws IOException {
+		List<Figure> figures = getFigures(viewId, area);
+		Set<Figure> visible = Collections.newSetFromMap(new IdentityHashMap<Figure,Boolean>());
+		visible.addAll(figures);
+
+		List<Figure> current = container.getFigureSnapshot();
+		Set<Figure> present = Collections.newSetFromMap(new IdentityHashMap<Figure,Boolean>());
+		List<Figure> leaving = new ArrayList<Figure>();
+		for(Figure figure : current) {
+			present.add(figure);
+			if (!visible.contains(figure) && isFigureOfView(viewId, figure)) {
+				leaving.add(figure);
+			}
+		}
+
+		List<Figure> entering = new ArrayList<Figure>();
+		for(Figure figure : figures) {
+			if (!present.contains(figure)) {
+				entering.add(figure);
+			}
+		}
+
+		if (!leaving.isEmpty()) {
+			// The figures are only hidden; they stay linked to their model objects.
+			container.removeFigures(leaving, false);
+		}
+		if (!entering.isEmpty()) {
+			container.addFigures(entering);
+		}
+		return !leaving.isEmpty() || !entering.isEmpty();
+	}
+
+	/** Replies if the given figure was read from the given view of the document.
+	 * 
+	 * @param viewId is the identifier of the view.
+	 * @param figure is the figure.
+	 * @return <code>true</code> if the figure is in the view.
+	 */
+	private boolean isFigureOfView(UUID viewId, Figure figure) {
+		ViewIndex index = this.figureViews.get(figure.getUUID());
+		if (index!=null) return index.viewId.equals(viewId);
+		List<ViewComponent> loaded = this.loadedViews.get(viewId);
+		if (loaded!=null) {
+			for(ViewComponent component : loaded) {
+				if (component==figure) return true;
+			}
+		}
+		return false;
+	}
+
+	private Figure load(ViewIndex index, int i) throws IOException {
+		BinaryInput record = new BinaryInput(this.buffer, index.offsets[i], index.lengths[i]);
+		Map<Figure,Map<String,UUID>> coercions = new HashMap<Figure,Map<String,UUID>>(1);
+		Figure figure = this.reader.parseFigure(record, index.viewId, coercions);
+		Map<String,UUID> figureCoercions = coercions.get(figure);
+		if (figureCoercions!=null) {
+			Figure slave;
+			for(Entry<String,UUID> coercion : figureCoercions.entrySet()) {
+				slave = getFigure(coercion.getValue());
+				if (slave instanceof CoercedFigure) {
+					figure.addAssociatedFigureIntoView(coercion.getKey(), (CoercedFigure)slave);
+				}
+			}
+		}
+		return figure;
+	}
+
+	/** Index of the figures of a view.
+	 * 
+	 * @author $Author: galland$
+	 * @version $FullVersion$
+	 * @mavengroupid $GroupId$
+	 * @mavenartifactid $ArtifactId$
+	 */
+	private static class ViewIndex {
+
+		public final UUID viewId;
+		public int size = 0;
+		public UUID[] ids;
+		/** minX, minY, maxX, maxY of each figure. */
+		public float[] bounds;
+		public int[] offsets;
+		public int[] lengths;
+		public Map<UUID,Figure> visible = new HashMap<UUID,Figure>();
+		private Map<UUID,Integer> positions = new HashMap<UUID,Integer>();
+
+		/**
+		 * @param viewId
+		 * @param capacity
+		 */
+		public ViewIndex(UUID viewId, int capacity) {
+			this.viewId = viewId;
+			this.ids = new UUID[capacity];
+			this.bounds = new float[capacity*4];
+			this.offsets = new int[capacity];
+			this.lengths = new int[capacity];
+		}
+
+		/** Ensure that the given number of figures could be added.
+		 * 
+		 * @param count
+		 */
+		public void ensureCapacity(int count) {
+			int capacity = this.size + count;
+			if (capacity>this.ids.length) {
+				this.ids = Arrays.copyOf(this.ids, capacity);
+				this.bounds = Arrays.copyOf(this.bounds, capacity*4);
+				this.offsets = Arrays.copyOf(this.offsets, capacity);
+				this.lengths = Arrays.copyOf(this.lengths, capacity);
+			}
+		}
+
+		/** Add a figure in the index.
+		 * 
+		 * @param id
+		 * @param x
+		 * @param y
+		 * @param width
+		 * @param height
+		 * @param offset
+		 * @param length
+		 */
+		public void add(UUID id, float x, float y, float width, float height, int offset, int length) {
+			int i = this.size++;
+			this.ids[i] = id;
+			this.bounds[i*4] = x;
+			this.bounds[i*4+1] = y;
+			this.bounds[i*4+2] = x + width;
+			this.bounds[i*4+3] = y + height;
+			this.offsets[i] = offset;
+			this.lengths[i] = length;
+			this.positions.put(id, Integer.valueOf(i));
+		}
+
+		/** Replies the position of the given figure in the index.
+		 * 
+		 * @param id
+		 * @return the position of the figure.
+		 */
+		public int indexOf(UUID id) {
+			return this.positions.get(id).intValue();
+		}
+
+		/** Replies if the figure at the given position intersects the area.
+		 * 
+		 * @param i
+		 * @param area
+		 * @return <code>true</code> if the figure intersects the area.
+		 */
+		public boolean intersects(int i, Rectangle2f area) {
+			int j = i*4;
+			return this.bounds[j]<=area.getMaxX()
+					&& this.bounds[j+2]>=area.getMinX()
+					&& this.bounds[j+1]<=area.getMaxY()
+					&& this.bounds[j+3]>=area.getMinY();
+		}
+
+	}
+
+	/** Cache of the figures that are not visible.
+	 * The least recently used figures are released
+	 * when the cache is full.
+	 * 
+	 * @author $Author: galland$
+	 * @version $FullVersion$
+	 * @mavengroupid $GroupId$
+	 * @mavenartifactid $ArtifactId$
+	 */
+	private class FigureCache extends LinkedHashMap<UUID,Figure> {
+
+		private static final long serialVersionUID = -1405726281513498217L;
+
+		/**
+		 */
+		public FigureCache() {
+			super(16, .75f, true);
+		}
+
+		/** Release the least recently used figures
+		 * until the size of the cache is reached.
+		 */
+		public void shrink() {
+			int max = getCacheSize();
+			while (size()>max) {
+				remove(keySet().iterator().next());
+			}
+		}
+
+		@Override
+		protected boolean removeEldestEntry(Entry<UUID,Figure> eldest) {
+			return size()>getCacheSize();
+		}
+
+	}
+
+}
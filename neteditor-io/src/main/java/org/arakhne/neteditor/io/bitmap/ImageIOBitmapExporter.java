@@ -24,6 +24,7 @@ package org.arakhne.neteditor.io.bitmap ;
 
 import java.io.IOException;
 import java.io.OutputStream;
+import java.util.Collections;
 
 import org.arakhne.afc.math.continous.object2d.Rectangle2f;
 import org.arakhne.afc.progress.Progression;
@@ -31,6 +32,8 @@ import org.arakhne.afc.progress.ProgressionUtil;
 import org.arakhne.afc.ui.Graphics2DLOD;
 import org.arakhne.afc.ui.vector.Image;
 import org.arakhne.afc.ui.vector.VectorToolkit;
+import org.arakhne.neteditor.fig.graphics.DisplayList;
+import org.arakhne.neteditor.fig.graphics.RecordingViewGraphics2D;
 import org.arakhne.neteditor.fig.graphics.ViewGraphics2D;
 import org.arakhne.neteditor.fig.graphics.ViewGraphicsUtil;
 import org.arakhne.neteditor.fig.view.ViewComponentContainer;
@@ -56,6 +59,14 @@ public class ImageIOBitmapExporter implements BitmapExporter {
 		this.type = type;
 	}
 	
+	/** Replies the type of the generated images.
+	 * 
+	 * @return the type of the images.
+	 */
+	public ImageType getImageType() {
+		return this.type;
+	}
+	
 	/**
 	 * {@inheritDoc}
 	 */
@@ -87,18 +98,19 @@ public class ImageIOBitmapExporter implements BitmapExporter {
 	@Override
     public boolean write(OutputStream stream, ViewComponentContainer<?,?> container, float scale) 
 	throws IOException {
-		synchronized(container.getTreeLock()) {
-			ProgressionUtil.init(getProgression(), 0, 0, 100, false, false);
-			Image img = generateImage(container, scale,
-					ProgressionUtil.sub(getProgression(), 50));
-	    	writeImage(stream, img,
-	    			ProgressionUtil.sub(getProgression(), 50));
-			ProgressionUtil.end(getProgression());
-	    	return true;
-		}
+		ProgressionUtil.init(getProgression(), 0, 0, 100, false, false);
+		Image img = generateImage(container, scale,
+				ProgressionUtil.sub(getProgression(), 50));
+    	writeImage(stream, img,
+    			ProgressionUtil.sub(getProgression(), 50));
+		ProgressionUtil.end(getProgression());
+    	return true;
     }
 	
 	/** Generate the image.
+	 * The figures are recorded under the tree lock of the
+	 * container; the image is rendered from the recording,
+	 * without the lock.
 	 * 
 	 * @param container is the component to render.
 	 * @param scale is the scaling factor to apply to the image.
@@ -107,11 +119,28 @@ public class ImageIOBitmapExporter implements BitmapExporter {
 	 */
 	protected Image generateImage(ViewComponentContainer<?,?> container, float scale, Progression progression) {
 		ProgressionUtil.init(progression, 0, 3);
-    	Rectangle2f dim = container.getViewBounds();
-    	int iw = (int)(Math.ceil(dim.getWidth())*scale);
-    	int ih = (int)(Math.ceil(dim.getHeight())*scale);
-    	Image image = VectorToolkit.image(iw, ih, this.type.isAlphaSupported());
-    	ViewGraphics2D vg = ViewGraphicsUtil.createViewGraphics(image.getVectorGraphics(), true, true, Graphics2DLOD.HIGH_LEVEL_OF_DETAIL);
+		Rectangle2f dim;
+		Image image;
+		ViewGraphics2D vg;
+		int iw, ih;
+		DisplayList list;
+		synchronized(container.getTreeLock()) {
+			dim = container.getViewBounds();
+	    	iw = (int)(Math.ceil(dim.getWidth())*scale);
+	    	ih = (int)(Math.ceil(dim.getHeight())*scale);
+	    	image = VectorToolkit.image(iw, ih, this.type.isAlphaSupported());
+	    	vg = ViewGraphicsUtil.createViewGraphics(image.getVectorGraphics(), true, true, Graphics2DLOD.HIGH_LEVEL_OF_DETAIL);
+	    	RecordingViewGraphics2D rg = new RecordingViewGraphics2D(vg);
+	    	boolean isShadow = container.isShadowDrawn();
+	    	container.setShadowDrawn(isShadowExported());
+	    	try {
+	    		container.paintViewComponents(rg);
+	    	}
+	    	finally {
+	    		container.setShadowDrawn(isShadow);
+	    	}
+	    	list = rg.getDisplayList();
+		}
 
 		ProgressionUtil.advance(progression);
     	if (!this.type.isAlphaSupported()) {
@@ -122,14 +151,7 @@ public class ImageIOBitmapExporter implements BitmapExporter {
     	vg.translate(-dim.getMinX(), -dim.getMinY());
     	
 		ProgressionUtil.advance(progression);
-    	boolean isShadow = container.isShadowDrawn();
-    	container.setShadowDrawn(isShadowExported());
-    	try {
-    		container.paintViewComponents(vg);
-    	}
-    	finally {
-    		container.setShadowDrawn(isShadow);
-    	}
+		ViewGraphicsUtil.paintDisplayLists(vg, Collections.singletonList(list), null);
     	vg.dispose();
 		ProgressionUtil.end(progression);
     	return image;
@@ -0,0 +1,238 @@
+/*
+ * $Id$
+ *
+ * Copyright (C) 2013 Stephane GALLAND.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ * This program is free software; you can redistribute it and/or modify
+ */
+
+package org.arakhne.neteditor.io.bitmap ;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+/** Encoder of PNG pictures that is receiving the pixels
+ * row by row, and that is writing them immediately
+ * in the output stream.
+ * <p>
+ * Only the 8-bit truecolor formats (RGB and RGBA) are
+ * supported. Each row is filtered with the "Sub" filter
+ * of the PNG specification.
+ * <p>
+ * The encoder is using a native zlib compressor; so that
+ * {@link #close()} must be invoked when the encoder is no more
+ * used, even when the picture was not finished.
+ *
+ * @author $Author: galland$
+ * @version $FullVersion$
+ * @mavengroupid $GroupId$
+ * @mavenartifactid $ArtifactId$
+ * @see <a href="http://www.w3.org/TR/PNG/">PNG Specification</a>
+ */
+class PngStreamEncoder implements Closeable {
+
+	private static final byte[] SIGNATURE = new byte[] {
+		(byte)137, 80, 78, 71, 13, 10, 26, 10
+	};
+
+	private static final int COLOR_TYPE_RGB = 2;
+	private static final int COLOR_TYPE_RGBA = 6;
+	private static final int FILTER_SUB = 1;
+
+	/** Maximal size of the IDAT chunks.
+	 */
+	private static final int CHUNK_SIZE = 65536;
+
+	private final OutputStream output;
+	private final int width;
+	private final int height;
+	private final boolean alpha;
+	private final int bytesPerPixel;
+	private final byte[] row;
+	private final Deflater deflater;
+	private final DeflaterOutputStream idat;
+	private int writtenRows = 0;
+
+	/**
+	 * @param output is the stream to write into.
+	 * @param width is the width of the picture.
+	 * @param height is the height of the picture.
+	 * @param alpha indicates if the alpha channel is written.
+	 */
+	public PngStreamEncoder(OutputStream output, int width, int height, boolean alpha) {
+		this.output = output;
+		this.width = width;
+		this.height = height;
+		this.alpha = alpha;
+		this.bytesPerPixel = alpha ? 4 : 3;
+		this.row = new byte[1 + width * this.bytesPerPixel];
+		this.deflater = new Deflater(Deflater.DEFAULT_COMPRESSION);
+		this.idat = new DeflaterOutputStream(new ChunkOutputStream(), this.deflater, CHUNK_SIZE);
+	}
+
+	/** Write the PNG header.
+	 *
+	 * @throws IOException
+	 */
+	public void writeHeader() throws IOException {
+		this.output.write(SIGNATURE);
+		byte[] header = new byte[13];
+		writeInt(header, 0, this.width);
+		writeInt(header, 4, this.height);
+		header[8] = 8;
+		header[9] = (byte)(this.alpha ? COLOR_TYPE_RGBA : COLOR_TYPE_RGB);
+		header[10] = 0;
+		header[11] = 0;
+		header[12] = 0;
+		writeChunk("IHDR", header, 0, header.length); //$NON-NLS-1$
+	}
+
+	/** Write the given rows of pixels.
+	 *
+	 * @param pixels are the ARGB pixels, stored row by row.
+	 * @param rowCount is the number of rows in <var>pixels</var>.
+	 * @throws IOException
+	 */
+	public void writeRows(int[] pixels, int rowCount) throws IOException {
+		int offset = 0;
+		for(int r=0; r<rowCount && this.writtenRows<this.height; ++r) {
+			this.row[0] = FILTER_SUB;
+			int idx = 1;
+			int pr = 0, pg = 0, pb = 0, pa = 0;
+			int pixel, cr, cg, cb, ca;
+			for(int x=0; x<this.width; ++x, ++offset) {
+				pixel = pixels[offset];
+				cr = (pixel >> 16) & 0xFF;
+				cg = (pixel >> 8) & 0xFF;
+				cb = pixel & 0xFF;
+				this.row[idx++] = (byte)(cr - pr);
+				this.row[idx++] = (byte)(cg - pg);
+				this.row[idx++] = (byte)(cb - pb);
+				pr = cr;
+				pg = cg;
+				pb = cb;
+				if (this.alpha) {
+					ca = (pixel >>> 24) & 0xFF;
+					this.row[idx++] = (byte)(ca - pa);
+					pa = ca;
+				}
+			}
+			this.idat.write(this.row);
+			++this.writtenRows;
+		}
+	}
+
+	/** Finish the PNG picture and write the trailer.
+	 * The underlying stream is not closed.
+	 *
+	 * @throws IOException
+	 */
+	public void finish() throws IOException {
+		this.idat.finish();
+		this.idat.flush();
+		writeChunk("IEND", new byte[0], 0, 0); //$NON-NLS-1$
+		this.output.flush();
+	}
+
+	/** Release the native resources of the compressor.
+	 * The underlying stream is not closed.
+	 * This function may be invoked several times.
+	 */
+	@Override
+	public void close() {
+		this.deflater.end();
+	}
+
+	private void writeChunk(String type, byte[] data, int offset, int length) throws IOException {
+		byte[] buffer = new byte[4];
+		byte[] btype = type.getBytes("US-ASCII"); //$NON-NLS-1$
+		writeInt(buffer, 0, length);
+		this.output.write(buffer);
+		this.output.write(btype);
+		if (length>0) this.output.write(data, offset, length);
+		CRC32 crc = new CRC32();
+		crc.update(btype);
+		if (length>0) crc.update(data, offset, length);
+		writeInt(buffer, 0, (int)crc.getValue());
+		this.output.write(buffer);
+	}
+
+	private static void writeInt(byte[] buffer, int offset, int value) {
+		buffer[offset] = (byte)((value >>> 24) & 0xFF);
+		buffer[offset+1] = (byte)((value >>> 16) & 0xFF);
+		buffer[offset+2] = (byte)((value >>> 8) & 0xFF);
+		buffer[offset+3] = (byte)(value & 0xFF);
+	}
+
+	/** Stream that is packing the compressed data
+	 * into IDAT chunks.
+	 *
+	 * @author $Author: galland$
+	 * @version $FullVersion$
+	 * @mavengroupid $GroupId$
+	 * @mavenartifactid $ArtifactId$
+	 */
+	private class ChunkOutputStream extends OutputStream {
+
+		private final byte[] buffer = new byte[CHUNK_SIZE];
+		private int size = 0;
+
+		/**
+		 */
+		public ChunkOutputStream() {
+			//
+		}
+
+		@Override
+		public void write(int b) throws IOException {
+			if (this.size>=this.buffer.length) flushChunk();
+			this.buffer[this.size++] = (byte)b;
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			int o = off;
+			int l = len;
+			int n;
+			while (l>0) {
+				if (this.size>=this.buffer.length) flushChunk();
+				n = Math.min(l, this.buffer.length - this.size);
+				System.arraycopy(b, o, this.buffer, this.size, n);
+				this.size += n;
+				o += n;
+				l -= n;
+			}
+		}
+
+		@Override
+		public void flush() throws IOException {
+			flushChunk();
+		}
+
+		private void flushChunk() throws IOException {
+			if (this.size>0) {
+				writeChunk("IDAT", this.buffer, 0, this.size); //$NON-NLS-1$
+				this.size = 0;
+			}
+		}
+
+	}
+
+}
@@ -0,0 +1,365 @@
+/*
+ * $Id$
+ *
+ * Copyright (C) 2013 Stephane GALLAND.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ * This program is free software; you can redistribute it and/or modify
+ */
+
+package org.arakhne.neteditor.io.bitmap ;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+
+import org.arakhne.afc.math.continous.object2d.Rectangle2f;
+import org.arakhne.afc.progress.ProgressionUtil;
+import org.arakhne.afc.ui.Graphics2DLOD;
+import org.arakhne.afc.ui.vector.Color;
+import org.arakhne.afc.ui.vector.Image;
+import org.arakhne.afc.ui.vector.VectorToolkit;
+import org.arakhne.afc.vmutil.locale.Locale;
+import org.arakhne.neteditor.fig.graphics.DisplayList;
+import org.arakhne.neteditor.fig.graphics.RecordingViewGraphics2D;
+import org.arakhne.neteditor.fig.graphics.ViewGraphics2D;
+import org.arakhne.neteditor.fig.graphics.ViewGraphicsUtil;
+import org.arakhne.neteditor.fig.view.ViewComponentContainer;
+
+/** Bitmap exporter that is rendering the picture
+ * by horizontal bands.
+ * <p>
+ * The figures are recorded once under the tree lock of
+ * the container; the bands are rendered from the recording,
+ * without the lock, by a fixed number of threads. Only the
+ * figures intersecting a band are painted in this band.
+ * The bands are encoded row by row in the output stream,
+ * in their order. The number of bands in memory is bounded
+ * by the number of threads, and the images of the bands are
+ * reused; so that the memory footprint does not depend on
+ * the height of the exported picture.
+ * <p>
+ * The streaming encoder supports only the PNG format.
+ * For the other formats, this exporter is
+ * behaving as {@link ImageIOBitmapExporter}.
+ *
+ * @author $Author: galland$
+ * @version $FullVersion$
+ * @mavengroupid $GroupId$
+ * @mavenartifactid $ArtifactId$
+ */
+public class TiledBitmapExporter extends ImageIOBitmapExporter {
+
+	/** Default height of the bands, in pixels.
+	 */
+	public static final int DEFAULT_BAND_HEIGHT = 256;
+
+	/** Margin around a band, in logical units, in which the
+	 * figures are painted in the band. It covers the strokes
+	 * that are outside the bounds of the figures.
+	 */
+	private static final float FIGURE_MARGIN = 5f;
+
+	private int bandHeight = DEFAULT_BAND_HEIGHT;
+	private int threadCount = Runtime.getRuntime().availableProcessors();
+
+	/**
+	 * @param type
+	 */
+	public TiledBitmapExporter(ImageType type) {
+		super(type);
+	}
+
+	/** Replies the height of the rendered bands.
+	 *
+	 * @return the height of the bands in pixels.
+	 */
+	public int getBandHeight() {
+		return this.bandHeight;
+	}
+
+	/** Set the height of the rendered bands.
+	 *
+	 * @param height is the height of the bands in pixels.
+	 */
+	public void setBandHeight(int height) {
+		this.bandHeight = Math.max(1, height);
+	}
+
+	/** Replies the number of threads used to render the bands.
+	 *
+	 * @return the number of rendering threads.
+	 */
+	public int getThreadCount() {
+		return this.threadCount;
+	}
+
+	/** Set the number of threads used to render the bands.
+	 * If the number is <code>1</code>, the bands are rendered
+	 * by the calling thread.
+	 *
+	 * @param count is the number of rendering threads.
+	 */
+	public void setThreadCount(int count) {
+		this.threadCount = Math.max(1, count);
+	}
+
+	/** {@inheritDoc}
+	 */
+	@Override
+	public boolean write(OutputStream stream, ViewComponentContainer<?,?> container, float scale)
+	throws IOException {
+		if (getImageType()!=ImageType.PNG) {
+			return super.write(stream, container, scale);
+		}
+		boolean alpha = getImageType().isAlphaSupported();
+		Rectangle2f dim;
+		Color background;
+		DisplayList list;
+		// The figures are recorded under the lock; the bands
+		// are rendered from the recording, without the lock.
+		synchronized(container.getTreeLock()) {
+			dim = container.getViewBounds();
+			background = container.getBackgroundColor();
+			Image reference = VectorToolkit.image(1, 1, alpha);
+			ViewGraphics2D vg = ViewGraphicsUtil.createViewGraphics(reference.getVectorGraphics(), true, true, Graphics2DLOD.HIGH_LEVEL_OF_DETAIL);
+			try {
+				RecordingViewGraphics2D rg = new RecordingViewGraphics2D(vg);
+				boolean isShadow = container.isShadowDrawn();
+				container.setShadowDrawn(isShadowExported());
+				try {
+					container.paintViewComponents(rg);
+				}
+				finally {
+					container.setShadowDrawn(isShadow);
+				}
+				list = rg.getDisplayList();
+			}
+			finally {
+				vg.dispose();
+			}
+		}
+
+		int iw = (int)(Math.ceil(dim.getWidth())*scale);
+		int ih = (int)(Math.ceil(dim.getHeight())*scale);
+		if (iw<=0 || ih<=0) {
+			throw new IOException(Locale.getString("EMPTY_PICTURE")); //$NON-NLS-1$
+		}
+		int bh = Math.min(this.bandHeight, ih);
+		int nbBands = (ih + bh - 1) / bh;
+
+		ProgressionUtil.init(getProgression(), 0, nbBands);
+
+		int threads = Math.min(getThreadCount(), nbBands);
+		// One more band than threads, so that a band is encoded
+		// while the other bands are rendered.
+		int window = (threads>1) ? threads + 1 : 1;
+		ExecutorService executor = (threads>1) ? Executors.newFixedThreadPool(threads) : null;
+		PngStreamEncoder encoder = new PngStreamEncoder(stream, iw, ih, alpha);
+		try {
+			encoder.writeHeader();
+			LinkedList<Band> freeBands = new LinkedList<Band>();
+			LinkedList<Future<Band>> pendingBands = new LinkedList<Future<Band>>();
+			int nextBand = 0;
+			Band band;
+			for(int i=0; i<nbBands; ++i) {
+				while (nextBand<nbBands && pendingBands.size()<window) {
+					band = freeBands.isEmpty() ? new Band(iw, bh, alpha) : freeBands.removeFirst();
+					BandRenderer renderer = new BandRenderer(band, list, dim, scale, background,
+							nextBand, Math.min(bh, ih - nextBand * bh));
+					pendingBands.add(executor==null ? new ImmediateFuture(renderer) : executor.submit(renderer));
+					++nextBand;
+				}
+				band = waitFor(pendingBands.removeFirst());
+				encoder.writeRows(band.pixels, band.height);
+				freeBands.add(band);
+				ProgressionUtil.advance(getProgression());
+			}
+			encoder.finish();
+		}
+		finally {
+			if (executor!=null) executor.shutdownNow();
+			encoder.close();
+		}
+
+		ProgressionUtil.end(getProgression());
+		return true;
+	}
+
+	/** Wait for the rendering of a band.
+	 * 
+	 * @param future is the rendering of the band.
+	 * @return the rendered band.
+	 * @throws IOException
+	 */
+	private static Band waitFor(Future<Band> future) throws IOException {
+		try {
+			return future.get();
+		}
+		catch(InterruptedException e) {
+			throw new InterruptedIOException();
+		}
+		catch(ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof IOException) throw (IOException)cause;
+			if (cause instanceof RuntimeException) throw (RuntimeException)cause;
+			if (cause instanceof Error) throw (Error)cause;
+			throw new IOException(cause);
+		}
+	}
+
+	/** Buffers of a band, reused from a band to another.
+	 *
+	 * @author $Author: galland$
+	 * @version $FullVersion$
+	 * @mavengroupid $GroupId$
+	 * @mavenartifactid $ArtifactId$
+	 */
+	private static class Band {
+
+		/** Image in which the band is painted.
+		 */
+		public final Image image;
+
+		/** ARGB pixels of the band, row by row.
+		 */
+		public final int[] pixels;
+
+		/** Width of the band.
+		 */
+		public final int width;
+
+		/** Maximal number of rows in the band.
+		 */
+		public final int maxHeight;
+
+		/** Number of rows in the band.
+		 */
+		public int height;
+
+		/**
+		 * @param width is the width of the band.
+		 * @param maxHeight is the maximal height of the band.
+		 * @param alpha indicates if the alpha channel is supported.
+		 */
+		public Band(int width, int maxHeight, boolean alpha) {
+			this.image = VectorToolkit.image(width, maxHeight, alpha);
+			this.pixels = new int[width * maxHeight];
+			this.width = width;
+			this.maxHeight = maxHeight;
+		}
+
+	}
+
+	/** Render a band of the picture from the recorded figures.
+	 *
+	 * @author $Author: galland$
+	 * @version $FullVersion$
+	 * @mavengroupid $GroupId$
+	 * @mavenartifactid $ArtifactId$
+	 */
+	private class BandRenderer implements Callable<Band> {
+
+		private final Band band;
+		private final DisplayList list;
+		private final Rectangle2f viewBounds;
+		private final float scale;
+		private final Color background;
+		private final int index;
+		private final int height;
+
+		/**
+		 * @param band are the buffers to fill.
+		 * @param list is the recording of the figures.
+		 * @param viewBounds are the bounds of the document.
+		 * @param scale is the scaling factor.
+		 * @param background is the background color of the document.
+		 * @param index is the index of the band.
+		 * @param height is the height of the band.
+		 */
+		public BandRenderer(Band band, DisplayList list, Rectangle2f viewBounds, float scale,
+				Color background, int index, int height) {
+			this.band = band;
+			this.list = list;
+			this.viewBounds = viewBounds;
+			this.scale = scale;
+			this.background = background;
+			this.index = index;
+			this.height = height;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@SuppressWarnings("synthetic-access")
+		@Override
+		public Band call() {
+			Image image = this.band.image;
+			int width = this.band.width;
+			int bh = this.band.maxHeight;
+			boolean alpha = getImageType().isAlphaSupported();
+			ViewGraphics2D vg = ViewGraphicsUtil.createViewGraphics(image.getVectorGraphics(), true, true, Graphics2DLOD.HIGH_LEVEL_OF_DETAIL);
+			try {
+				// The image of the band is reused
+				vg.setBackground(alpha ? VectorToolkit.color(0, 0, 0, 0) : this.background);
+				vg.clear(new Rectangle2f(0f, 0f, width, bh));
+				float top = this.viewBounds.getMinY() + (this.index * bh) / this.scale;
+				vg.scale(this.scale, this.scale);
+				vg.translate(-this.viewBounds.getMinX(), -top);
+				Rectangle2f area = new Rectangle2f(
+						this.viewBounds.getMinX() - FIGURE_MARGIN,
+						top - FIGURE_MARGIN,
+						this.viewBounds.getWidth() + 2f * FIGURE_MARGIN,
+						this.height / this.scale + 2f * FIGURE_MARGIN);
+				ViewGraphicsUtil.paintDisplayLists(vg, Collections.singletonList(this.list), area);
+			}
+			finally {
+				vg.dispose();
+			}
+			image.getRGB(0, 0, width, this.height, this.band.pixels, 0, width);
+			this.band.height = this.height;
+			return this.band;
+		}
+
+	}
+
+	/** Future of a band that is rendered by the calling thread.
+	 *
+	 * @author $Author: galland$
+	 * @version $FullVersion$
+	 * @mavengroupid $GroupId$
+	 * @mavenartifactid $ArtifactId$
+	 */
+	private static class ImmediateFuture extends FutureTask<Band> {
+
+		/**
+		 * @param renderer is the renderer of the band.
+		 */
+		public ImmediateFuture(BandRenderer renderer) {
+			super(renderer);
+			run();
+		}
+
+	}
+
+}
@@ -38,6 +38,7 @@ import org.arakhne.neteditor.formalism.ModelObject;
 import org.arakhne.neteditor.formalism.Node;
 import org.arakhne.neteditor.io.FileCollection;
 import org.arakhne.neteditor.io.VectorialExporter;
+import org.arakhne.neteditor.io.stream.InterruptibleOutputStream;
 
 
 /** This class permits to export the
@@ -128,7 +129,7 @@ public class GMLExporter implements VectorialExporter {
 			ViewComponentContainer<?, G> container) throws IOException {
 		FileOutputStream fos = new FileOutputStream(output);
 		try {
-			write(fos, graph, container);
+			write(new InterruptibleOutputStream(fos), graph, container);
 		}
 		finally {
 			fos.close();
@@ -143,7 +144,7 @@ public class GMLExporter implements VectorialExporter {
 			throws IOException {
 		FileOutputStream fos = new FileOutputStream(output);
 		try {
-			write(fos, figures);
+			write(new InterruptibleOutputStream(fos), figures);
 		}
 		finally {
 			fos.close();
@@ -120,6 +120,7 @@ public class GMLReader extends AbstractXMLToolReader implements GMLConstants {
 			
 			AbstractGMLReader backgroundReader = AbstractGMLReader.createGMLReader(specVersion);
 			backgroundReader.setResourceRepository(getResourceRepository());
+			backgroundReader.setTypeRegistry(getTypeRegistry());
 			
 			ProgressionUtil.ensureNoSubTask(getProgression());
 
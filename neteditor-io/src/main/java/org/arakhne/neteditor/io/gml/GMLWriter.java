@@ -21,20 +21,24 @@
 
 package org.arakhne.neteditor.io.gml ;
 
+import java.io.BufferedWriter;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.ObjectOutputStream;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
-import java.io.PrintWriter;
 import java.io.Serializable;
+import java.io.Writer;
 import java.net.MalformedURLException;
 import java.net.URI;
 import java.net.URL;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
@@ -84,10 +88,17 @@ public class GMLWriter extends AbstractNetEditorWriter implements GMLConstants {
 	 */
 	public static String SPECIFICATION_VERSION = "2"; //$NON-NLS-1$
 	
-	private PrintWriter out = null;
+	/** Size of the buffer used to write the GML content.
+	 */
+	private static final int BUFFER_SIZE = 65536;
+	
+	private static final char[] LINE_SEPARATOR = System.getProperty("line.separator", "\n").toCharArray(); //$NON-NLS-1$ //$NON-NLS-2$
+	
+	private Writer out = null;
 	private int indent = 0; 
-	private final List<UUID> uniqIdsToUUID = new ArrayList<UUID>(); 
-	private final Map<UUID,Integer> uuidTouniqIds = new TreeMap<UUID,Integer>();  
+	private char[] indentBuffer = new char[32];
+	private final char[] numberBuffer = new char[20];
+	private final Map<UUID,Integer> uuidTouniqIds = new HashMap<UUID,Integer>();  
 
 	/** Construct a new GraphWriter.          
 	 */
@@ -113,9 +124,12 @@ public class GMLWriter extends AbstractNetEditorWriter implements GMLConstants {
 	@Override
 	public final <G extends Graph<?, ?, ?, ?>> void write(OutputStream os, G graph,
 			ViewComponentContainer<?, G> container) throws IOException {
-		synchronized(container.getTreeLock()) {
-			ProgressionUtil.init(getProgression(), 0, 100000);
-			try {
+		ProgressionUtil.init(getProgression(), 0, 100000);
+		try {
+			// The GML text is generated under the lock; it is
+			// written into the stream without the lock.
+			ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+			synchronized(container.getTreeLock()) {
 				Map<UUID,Graph<?,?,?,?>> graphs = new TreeMap<UUID,Graph<?,?,?,?>>();
 				if (graph!=null) graphs.put(graph.getUUID(), graph);
 				List<Figure> figures = new ArrayList<Figure>();
@@ -125,12 +139,14 @@ public class GMLWriter extends AbstractNetEditorWriter implements GMLConstants {
 					}
 					ProgressionUtil.advance(getProgression());
 				}
-				writeGraph(os, graphs, figures,
+				writeGraph(buffer, graphs, figures,
 						ProgressionUtil.subToEnd(getProgression()));
 			}
-			finally {
-				ProgressionUtil.end(getProgression());
-			}
+			buffer.writeTo(os);
+		}
+		finally {
+			os.close();
+			ProgressionUtil.end(getProgression());
 		}
 	}
 
@@ -188,12 +204,12 @@ public class GMLWriter extends AbstractNetEditorWriter implements GMLConstants {
 			Progression progression) throws IOException {
 		ProgressionUtil.init(progression, 0, figures.size()+graphs.size());
 		
-		PrintWriter out = new PrintWriter(new OutputStreamWriter(os, "ISO-8859-1")); //$NON-NLS-1$
+		Writer out = new BufferedWriter(new OutputStreamWriter(os, "ISO-8859-1"), BUFFER_SIZE); //$NON-NLS-1$
 		try {
 
 			this.out = out;
 			this.indent = 0;
-			this.uniqIdsToUUID.clear();
+			Arrays.fill(this.indentBuffer, ' ');
 			this.uuidTouniqIds.clear();
 
 			printComment("!/usr/bin/gmlviewer"); //$NON-NLS-1$
@@ -213,7 +229,6 @@ public class GMLWriter extends AbstractNetEditorWriter implements GMLConstants {
 			out.close();
 			this.out = null;
 			this.indent = 0;
-			this.uniqIdsToUUID.clear();
 			this.uuidTouniqIds.clear();
 		}
 	}
@@ -345,41 +360,143 @@ public class GMLWriter extends AbstractNetEditorWriter implements GMLConstants {
 
 	private void printAttributes(Map<String,Object> properties) throws IOException {
 		if (properties!=null && !properties.isEmpty()) {
-			Iterator<Entry<String,Object>> iterator = properties.entrySet().iterator();
-			if (iterator.hasNext()) {
-				start(K_ATTRIBUTES);
-				
-				Namespace rootNs = new Namespace();
-	
-				Entry<String,Object> property;
-				
-				while (iterator.hasNext()) {
-					property = iterator.next();
-					Object value = property.getValue();
-					if (value!=null) {
-						String name = property.getKey();
-						if (name!=null && !name.isEmpty()) {
-							String[] n = name.split("[.]"); //$NON-NLS-1$
-							if (n.length==1) {
-								printAttributeValue(name, value);
-							}
-							else {
-								Namespace ns = rootNs;
-								for(String nns : n) {
-									if (nns!=null && !nns.isEmpty())
-										ns = ns.ensure(nns);
+			start(K_ATTRIBUTES);
+
+			// The properties with a dotted name are put in namespaces.
+			// They are sorted to output each namespace in one block.
+			List<String[]> qualifiedNames = null;
+			List<Object> qualifiedValues = null;
+
+			for(Entry<String,Object> property : properties.entrySet()) {
+				Object value = property.getValue();
+				if (value!=null) {
+					String name = property.getKey();
+					if (name!=null && !name.isEmpty()) {
+						if (name.indexOf('.')<0) {
+							printAttributeValue(name, value);
+						}
+						else {
+							String[] n = splitNamespaces(name);
+							if (n.length>0) {
+								if (qualifiedNames==null) {
+									qualifiedNames = new ArrayList<String[]>();
+									qualifiedValues = new ArrayList<Object>();
 								}
-								ns.setValue(value);
+								qualifiedNames.add(n);
+								qualifiedValues.add(value);
 							}
 						}
 					}
 				}
-				
-				rootNs.print();
-	
-				end();
 			}
+
+			if (qualifiedNames!=null) {
+				printNamespaces(qualifiedNames, qualifiedValues);
+			}
+
+			end();
+		}
+	}
+
+	/** Split the given name in namespace components.
+	 * The empty components are ignored.
+	 * 
+	 * @param name
+	 * @return the components of the name.
+	 */
+	private static String[] splitNamespaces(String name) {
+		String[] n = name.split("[.]"); //$NON-NLS-1$
+		int count = 0;
+		for(String nns : n) {
+			if (nns!=null && !nns.isEmpty()) ++count;
+		}
+		if (count==n.length) return n;
+		String[] r = new String[count];
+		int i = 0;
+		for(String nns : n) {
+			if (nns!=null && !nns.isEmpty()) r[i++] = nns;
+		}
+		return r;
+	}
+
+	/** Output the properties with qualified names.
+	 * The properties are sorted by namespace, and the namespace
+	 * blocks are opened and closed while the sorted names are
+	 * traversed.
+	 * 
+	 * @param names are the qualified names of the properties.
+	 * @param values are the values of the properties.
+	 * @throws IOException
+	 */
+	private void printNamespaces(final List<String[]> names, List<Object> values) throws IOException {
+		int count = names.size();
+		Integer[] order = new Integer[count];
+		for(int i=0; i<count; ++i) {
+			order[i] = Integer.valueOf(i);
+		}
+		Arrays.sort(order, new Comparator<Integer>() {
+			@SuppressWarnings("synthetic-access")
+			@Override
+			public int compare(Integer o1, Integer o2) {
+				int cmp = compareNames(names.get(o1.intValue()), names.get(o2.intValue()));
+				if (cmp!=0) return cmp;
+				return o1.compareTo(o2);
+			}
+		});
+
+		String[] opened = new String[0];
+		int depth = 0;
+		for(int i=0; i<count; ++i) {
+			String[] name = names.get(order[i].intValue());
+			String[] next = (i+1<count) ? names.get(order[i+1].intValue()) : null;
+			// The last value that is set for the same name is the one to output.
+			// A name that is also a namespace does not output its value.
+			if (next==null || (compareNames(name, next)!=0 && !isPrefix(name, next))) {
+				int common = 0;
+				while (common<depth && common<name.length-1
+						&& opened[common].equals(name[common])) {
+					++common;
+				}
+				while (depth>common) {
+					end();
+					end();
+					--depth;
+				}
+				if (opened.length<name.length) {
+					opened = Arrays.copyOf(opened, name.length);
+				}
+				for(; depth<name.length-1; ++depth) {
+					opened[depth] = name[depth];
+					start(name[depth]);
+					printString(K_TYPE, K_NS);
+					start(K_VALUE);
+				}
+				printAttributeValue(name[name.length-1], values.get(order[i].intValue()));
+			}
+		}
+		while (depth>0) {
+			end();
+			end();
+			--depth;
+		}
+	}
+
+	private static int compareNames(String[] n1, String[] n2) {
+		int len = Math.min(n1.length, n2.length);
+		int cmp;
+		for(int i=0; i<len; ++i) {
+			cmp = n1[i].compareTo(n2[i]);
+			if (cmp!=0) return cmp;
 		}
+		return n1.length - n2.length;
+	}
+
+	private static boolean isPrefix(String[] prefix, String[] name) {
+		if (prefix.length>=name.length) return false;
+		for(int i=0; i<prefix.length; ++i) {
+			if (!prefix[i].equals(name[i])) return false;
+		}
+		return true;
 	}
 
 	private void printAttributeValue(String name, Object value) throws IOException {
@@ -521,38 +638,75 @@ public class GMLWriter extends AbstractNetEditorWriter implements GMLConstants {
 		}
 	}
 
-	private void printString(String name, String value) {
-		StringBuilder str = new StringBuilder();
-		str.append("\""); //$NON-NLS-1$
-		str.append(TextUtil.toHTML(value));
-		str.append("\""); //$NON-NLS-1$
-		this.out.println(computeIndent()+name+" "+str.toString()); //$NON-NLS-1$
+	private void printString(String name, String value) throws IOException {
+		writeIndent();
+		this.out.write(name);
+		this.out.write(" \""); //$NON-NLS-1$
+		this.out.write(TextUtil.toHTML(value));
+		this.out.write('"');
+		this.out.write(LINE_SEPARATOR);
 	}
 
-	private void printComment(String comment) {
-		StringBuilder b = new StringBuilder();
-		b.append(computeIndent());
-		b.append("#"); //$NON-NLS-1$
+	private void printComment(String comment) throws IOException {
+		writeIndent();
+		this.out.write('#');
 		if (comment!=null) {
 			if (!comment.startsWith("!")) //$NON-NLS-1$
-				b.append(" "); //$NON-NLS-1$
-			b.append(comment);
+				this.out.write(' ');
+			this.out.write(comment);
 		}
-		this.out.println(b.toString());
+		this.out.write(LINE_SEPARATOR);
 	}
 
-	private void printNumber(String name, long n) {
-		this.out.println(computeIndent()+name+" "+Long.toString(n)); //$NON-NLS-1$
+	private void printNumber(String name, long n) throws IOException {
+		writeIndent();
+		this.out.write(name);
+		this.out.write(' ');
+		writeLong(n);
+		this.out.write(LINE_SEPARATOR);
 	}
 
-	private void printNumber(String name, double n) {
-		this.out.println(computeIndent()+name+" "+Double.toString(n)); //$NON-NLS-1$
+	private void printNumber(String name, double n) throws IOException {
+		writeIndent();
+		this.out.write(name);
+		this.out.write(' ');
+		if (n==(long)n && Math.abs(n)<1e7 && (n!=0. || 1./n>0.)) {
+			// Same output as Double.toString() without allocating a string
+			writeLong((long)n);
+			this.out.write(".0"); //$NON-NLS-1$
+		}
+		else {
+			this.out.write(Double.toString(n));
+		}
+		this.out.write(LINE_SEPARATOR);
 	}
 
-	private void printUniqId(UUID id) {
-		int iid = this.uniqIdsToUUID.size();
-		this.uuidTouniqIds.put(id, iid);
-		this.uniqIdsToUUID.add(id);
+	/** Write the decimal representation of the given number
+	 * without allocating a string.
+	 * 
+	 * @param n
+	 * @throws IOException
+	 */
+	private void writeLong(long n) throws IOException {
+		if (n==Long.MIN_VALUE) {
+			this.out.write(Long.toString(n));
+			return;
+		}
+		char[] buffer = this.numberBuffer;
+		int pos = buffer.length;
+		long v = (n<0) ? -n : n;
+		do {
+			buffer[--pos] = (char)('0' + (int)(v % 10));
+			v /= 10;
+		}
+		while (v!=0);
+		if (n<0) buffer[--pos] = '-';
+		this.out.write(buffer, pos, buffer.length - pos);
+	}
+
+	private void printUniqId(UUID id) throws IOException {
+		int iid = this.uuidTouniqIds.size();
+		this.uuidTouniqIds.put(id, Integer.valueOf(iid));
 		printNumber(K_ID, iid);
 	}
 	
@@ -562,22 +716,27 @@ public class GMLWriter extends AbstractNetEditorWriter implements GMLConstants {
 		return v.intValue();
 	}
 
-	private void start(String keyName) {
-		this.out.println(computeIndent()+keyName + " ["); //$NON-NLS-1$
+	private void start(String keyName) throws IOException {
+		writeIndent();
+		this.out.write(keyName);
+		this.out.write(" ["); //$NON-NLS-1$
+		this.out.write(LINE_SEPARATOR);
 		this.indent += 2;
 	}
 
-	private void end() {
+	private void end() throws IOException {
 		this.indent -= 2;
-		this.out.println(computeIndent()+"]"); //$NON-NLS-1$
+		writeIndent();
+		this.out.write(']');
+		this.out.write(LINE_SEPARATOR);
 	}
 
-	private String computeIndent() {
-		StringBuilder b = new StringBuilder();
-		for(int i=0; i<this.indent; ++i) {
-			b.append(" "); //$NON-NLS-1$
+	private void writeIndent() throws IOException {
+		if (this.indent>this.indentBuffer.length) {
+			this.indentBuffer = new char[this.indent * 2];
+			Arrays.fill(this.indentBuffer, ' ');
 		}
-		return b.toString();
+		this.out.write(this.indentBuffer, 0, this.indent);
 	}
 	
 	private void printType(ModelObject object) throws IOException {
@@ -606,77 +765,4 @@ public class GMLWriter extends AbstractNetEditorWriter implements GMLConstants {
 		printString(K_TYPE, specification.toExternalForm());
 	}
 
-	/** 
-	 * @author $Author: galland$
-	 * @version $FullVersion$
-	 * @mavengroupid $GroupId$
-	 * @mavenartifactid $ArtifactId$
-	 * @since 16.0
-	 */
-	private class Namespace {
-
-		private final Map<String,Namespace> children = new TreeMap<String,Namespace>();
-		private final String name;
-		private Object value = null;
-		
-		/**
-		 */
-		public Namespace() {
-			this.name = null;
-		}
-		
-		private Namespace(String name) {
-			this.name = name;
-		}
-
-		/** Ensure that the child namespace with the given name exists.
-		 * 
-		 * @param childName
-		 * @return the child
-		 */
-		public Namespace ensure(String childName) {
-			Namespace ns = this.children.get(childName);
-			if (ns==null) {
-				ns = new Namespace(childName);
-				this.children.put(childName, ns);
-			}
-			return ns;
-		}
-		
-		/** Set the value associated to the namespace.
-		 * 
-		 * @param value
-		 */
-		public void setValue(Object value) {
-			this.value = value;
-		}
-		
-		/** Output the properties in the namespaces.
-		 * 
-		 * @throws IOException
-		 */
-		@SuppressWarnings("synthetic-access")
-		public void print() throws IOException {
-			if (this.children.isEmpty()) {
-				if (this.name!=null && !this.name.isEmpty() && this.value!=null)
-					printAttributeValue(this.name, this.value);
-			}
-			else {
-				if (this.name!=null && !this.name.isEmpty()) {
-					start(this.name);
-					printString(K_TYPE, K_NS);
-					start(K_VALUE);
-				}
-				for(Namespace ns : this.children.values()) {
-					ns.print();
-				}
-				if (this.name!=null && !this.name.isEmpty()) {
-					end();
-					end();
-				}
-			}
-		}
-		
-	}
-	
 }
@@ -39,6 +39,7 @@ import org.arakhne.neteditor.formalism.ModelObject;
 import org.arakhne.neteditor.formalism.Node;
 import org.arakhne.neteditor.io.FileCollection;
 import org.arakhne.neteditor.io.VectorialExporter;
+import org.arakhne.neteditor.io.stream.InterruptibleOutputStream;
 
 
 /** This class permits to export the
@@ -131,7 +132,7 @@ public class GraphMLExporter implements VectorialExporter {
 			ViewComponentContainer<?, G> container) throws IOException {
 		FileOutputStream fos = new FileOutputStream(output);
 		try {
-			write(fos, graph, container);
+			write(new InterruptibleOutputStream(fos), graph, container);
 		}
 		finally {
 			fos.close();
@@ -146,7 +147,7 @@ public class GraphMLExporter implements VectorialExporter {
 			throws IOException {
 		FileOutputStream fos = new FileOutputStream(output);
 		try {
-			write(fos, figures);
+			write(new InterruptibleOutputStream(fos), figures);
 		}
 		finally {
 			fos.close();
@@ -202,6 +202,7 @@ public class GraphMLReader extends AbstractXMLToolReader implements GraphMLConst
 			reader.setDTDValidation(isDTDValidation());
 			reader.setFigureConnection(isFigureConnection());
 			reader.setResourceRepository(getResourceRepository());
+			reader.setTypeRegistry(getTypeRegistry());
 			
 			ProgressionUtil.ensureNoSubTask(getProgression());
 
@@ -25,6 +25,7 @@ import java.io.File;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.io.PrintWriter;
+import java.io.StringWriter;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Date;
@@ -139,9 +140,13 @@ public class DotExporter implements VectorialExporter {
 	@Override
 	public <G extends Graph<?, ?, ?, ?>> void write(File output, G graph,
 			ViewComponentContainer<?, G> container) throws IOException {
-		synchronized(container.getTreeLock()) {
-			printIn(new PrintWriter(output), graph, true, isFigureExported(),
-					getProgression());
+		String text = print(graph, container);
+		PrintWriter writer = new PrintWriter(output);
+		try {
+			writer.write(text);
+		}
+		finally {
+			writer.close();
 		}
 	}
 
@@ -167,10 +172,27 @@ public class DotExporter implements VectorialExporter {
 	@Override
 	public <G extends Graph<?, ?, ?, ?>> void write(OutputStream output,
 			G graph, ViewComponentContainer<?, G> container) throws IOException {
+		String text = print(graph, container);
+		PrintWriter writer = new PrintWriter(output);
+		writer.write(text);
+		writer.flush();
+	}
+
+	/** Generate the Dot text of the graph under the tree lock
+	 * of the container; so that the text may be written
+	 * without the lock.
+	 * 
+	 * @param graph is the graph to export.
+	 * @param container is the container of the figures.
+	 * @return the Dot text.
+	 */
+	private <G extends Graph<?, ?, ?, ?>> String print(G graph, ViewComponentContainer<?, G> container) {
+		StringWriter buffer = new StringWriter();
 		synchronized(container.getTreeLock()) {
-			printIn(new PrintWriter(output), graph, false, isFigureExported(),
+			printIn(new PrintWriter(buffer), graph, true, isFigureExported(),
 					getProgression());
 		}
+		return buffer.toString();
 	}
 
 	/**
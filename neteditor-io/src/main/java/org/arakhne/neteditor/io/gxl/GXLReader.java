@@ -205,6 +205,7 @@ public class GXLReader extends AbstractXMLToolReader implements GXLConstants {
 			reader.setDTDValidation(isDTDValidation());
 			reader.setFigureConnection(isFigureConnection());
 			reader.setResourceRepository(getResourceRepository());
+			reader.setTypeRegistry(getTypeRegistry());
 			
 			ProgressionUtil.ensureNoSubTask(getProgression());
 
@@ -24,6 +24,7 @@ package org.arakhne.neteditor.io.ngr ;
 
 import java.io.File;
 import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URL;
@@ -35,11 +36,14 @@ import java.util.jar.JarInputStream;
 
 import org.arakhne.afc.io.stream.UnclosableInputStream;
 import org.arakhne.afc.vmutil.FileSystem;
+import org.arakhne.neteditor.fig.graphics.ImageCache;
 import org.arakhne.neteditor.fig.view.ViewComponent;
 import org.arakhne.neteditor.formalism.Graph;
 import org.arakhne.neteditor.io.AbstractNetEditorReader;
 import org.arakhne.neteditor.io.NetEditorContentType;
 import org.arakhne.neteditor.io.NetEditorReader;
+import org.arakhne.neteditor.io.binary.BinaryReader;
+import org.arakhne.neteditor.io.binary.LazyBinaryDocument;
 import org.arakhne.neteditor.io.gml.GMLReader;
 import org.arakhne.neteditor.io.graphml.GraphMLReader;
 import org.arakhne.neteditor.io.gxl.GXLReader;
@@ -60,9 +64,14 @@ import org.arakhne.neteditor.io.resource.ResourceRepository;
  * @see GXLReader
  * @see GraphMLReader
  * @see GMLReader
+ * @see BinaryReader
  */
 public class NGRReader extends AbstractNetEditorReader implements NGRConstants {
 
+	/** Size of the buffer used to extract the binary content.
+	 */
+	private static final int BUFFER_SIZE = 65536;
+
 	private boolean isDtdValidation = true;
 	private boolean connectFigures = true;
 	private NetEditorContentType type = null;
@@ -186,6 +195,65 @@ public class NGRReader extends AbstractNetEditorReader implements NGRConstants {
 		}
 	}
 
+	/** Open the given NGR file for a lazy loading of the figures.
+	 * <p>
+	 * The binary content of the NGR file is extracted in
+	 * a temporary file that is mapped in memory. The figures
+	 * are read from this file when they are requested.
+	 * The temporary file is deleted when the document is closed.
+	 * 
+	 * @param type is the expected type of the graph.
+	 * @param inputFile is the NGR file.
+	 * @return the document, or <code>null</code> if the NGR file
+	 * does not contain a binary content.
+	 * @throws IOException
+	 * @see LazyBinaryDocument
+	 */
+	@SuppressWarnings("resource")
+	public <G extends Graph<?,?,?,?>> LazyBinaryDocument<G> readLazily(
+			Class<G> type,
+			File inputFile) throws IOException {
+		extractResources(
+				inputFile.toURI().toURL(),
+				getResourceRepository(),
+				new JarInputStream(new FileInputStream(inputFile)));
+
+		JarInputStream jis = new JarInputStream(new FileInputStream(inputFile));
+		try {
+			JarEntry je = jis.getNextJarEntry();
+			while (je!=null) {
+				if (!je.isDirectory() && BINARY_INNER_FILENAME.equalsIgnoreCase(je.getName())) {
+					File content = File.createTempFile("neteditor", ".bin"); //$NON-NLS-1$ //$NON-NLS-2$
+					try {
+						FileOutputStream fos = new FileOutputStream(content);
+						try {
+							byte[] buffer = new byte[BUFFER_SIZE];
+							int n;
+							while ((n=jis.read(buffer))>0) {
+								fos.write(buffer, 0, n);
+							}
+						}
+						finally {
+							fos.close();
+						}
+						this.type = NetEditorContentType.BINARY;
+						return new LazyBinaryDocument<G>(type, content,
+								getResourceRepository(), getTypeRegistry(), true);
+					}
+					catch(IOException e) {
+						content.delete();
+						throw e;
+					}
+				}
+				je = jis.getNextJarEntry();
+			}
+		}
+		finally {
+			jis.close();
+		}
+		return null;
+	}
+
 	private static void extractResources(URL url, ResourceRepository resourceRepository, JarInputStream jis) throws IOException {
 		resourceRepository.setRoot(FileSystem.dirname(url));
 
@@ -194,8 +262,14 @@ public class NGRReader extends AbstractNetEditorReader implements NGRConstants {
 			if (!je.isDirectory() && 
 				je.getName().startsWith(RESOURCE_DIRNAME)) {
 				String name = je.getName().substring(10);
-				resourceRepository.register(name,
-						FileSystem.toJarURL(url, je.getName()));
+				URL resourceURL = FileSystem.toJarURL(url, je.getName());
+				// The names of the resources are given again when the
+				// document is saved; the bitmaps are cached by content.
+				String digest = ResourceRepository.digest(jis);
+				resourceRepository.register(name, resourceURL, digest);
+				if (digest!=null) {
+					ImageCache.getSharedCache().setContentKey(resourceURL, digest);
+				}
 			}
 			je = jis.getNextJarEntry();
 		}
@@ -233,6 +307,10 @@ public class NGRReader extends AbstractNetEditorReader implements NGRConstants {
 					reader = gmlReader;
 					this.type = NetEditorContentType.GML;
 				}
+				else if (BINARY_INNER_FILENAME.equalsIgnoreCase(je.getName())) {
+					reader = new BinaryReader();
+					this.type = NetEditorContentType.BINARY;
+				}
 			}
 			if (reader==null) je = jis.getNextJarEntry();
 		}
@@ -241,6 +319,9 @@ public class NGRReader extends AbstractNetEditorReader implements NGRConstants {
 		
 		if (reader!=null) {
 			reader.setResourceRepository(getResourceRepository());
+			if (reader instanceof AbstractNetEditorReader) {
+				((AbstractNetEditorReader)reader).setTypeRegistry(getTypeRegistry());
+			}
 			reader.setProgression(getProgression());
 			graph = reader.read(type, new UnclosableInputStream(jis), figures);			
 		}
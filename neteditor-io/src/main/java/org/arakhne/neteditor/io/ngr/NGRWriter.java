@@ -22,6 +22,7 @@
 
 package org.arakhne.neteditor.io.ngr ;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
@@ -31,6 +32,8 @@ import java.io.OutputStream;
 import java.net.URL;
 import java.util.Collection;
 import java.util.Map.Entry;
+import java.util.Set;
+import java.util.TreeSet;
 import java.util.jar.JarEntry;
 import java.util.jar.JarOutputStream;
 
@@ -46,6 +49,8 @@ import org.arakhne.neteditor.formalism.Graph;
 import org.arakhne.neteditor.io.AbstractNetEditorWriter;
 import org.arakhne.neteditor.io.NetEditorContentType;
 import org.arakhne.neteditor.io.NetEditorWriter;
+import org.arakhne.neteditor.io.SnapshotWriter;
+import org.arakhne.neteditor.io.binary.BinaryWriter;
 import org.arakhne.neteditor.io.gml.GMLWriter;
 import org.arakhne.neteditor.io.graphml.GraphMLWriter;
 import org.arakhne.neteditor.io.gxl.GXLWriter;
@@ -67,10 +72,12 @@ import org.arakhne.neteditor.io.resource.ResourceRepository;
  * @see GXLWriter
  * @see GraphMLWriter
  * @see GMLWriter
+ * @see BinaryWriter
  */
-public class NGRWriter extends AbstractNetEditorWriter implements NGRConstants {
+public class NGRWriter extends AbstractNetEditorWriter implements SnapshotWriter, NGRConstants {
 	
 	private NetEditorContentType type = NetEditorContentType.GRAPHML;
+	private boolean binaryIndex = true;
 
 	/**
 	 */
@@ -98,6 +105,28 @@ public class NGRWriter extends AbstractNetEditorWriter implements NGRConstants {
 		}
 	}
 
+	/** Replies if the views are indexed when the content is binary.
+	 * The indexed views permit to load the figures lazily
+	 * with {@link NGRReader#readLazily(Class, File)}.
+	 * 
+	 * @return <code>true</code> if the views are indexed;
+	 * <code>false</code> otherwise.
+	 * @see BinaryWriter#isIndexOutput()
+	 */
+	public boolean isBinaryIndexOutput() {
+		return this.binaryIndex;
+	}
+
+	/** Set if the views are indexed when the content is binary.
+	 * 
+	 * @param index is <code>true</code> if the views are indexed;
+	 * <code>false</code> otherwise.
+	 * @see BinaryWriter#setIndexOutput(boolean)
+	 */
+	public void setBinaryIndexOutput(boolean index) {
+		this.binaryIndex = index;
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
@@ -135,6 +164,14 @@ public class NGRWriter extends AbstractNetEditorWriter implements NGRConstants {
 					innerFilename = GML_INNER_FILENAME;
 					break;
 				}
+				case BINARY:
+				{
+					BinaryWriter binaryWriter = new BinaryWriter();
+					xmlWriter = binaryWriter;
+					binaryWriter.setIndexOutput(isBinaryIndexOutput());
+					innerFilename = BINARY_INNER_FILENAME;
+					break;
+				}
 				default:
 					throw new IllegalStateException();
 				}
@@ -199,6 +236,14 @@ public class NGRWriter extends AbstractNetEditorWriter implements NGRConstants {
 					innerFilename = GML_INNER_FILENAME;
 					break;
 				}
+				case BINARY:
+				{
+					BinaryWriter binaryWriter = new BinaryWriter();
+					xmlWriter = binaryWriter;
+					binaryWriter.setIndexOutput(isBinaryIndexOutput());
+					innerFilename = BINARY_INNER_FILENAME;
+					break;
+				}
 				default:
 					throw new IllegalStateException();
 				}
@@ -265,6 +310,14 @@ public class NGRWriter extends AbstractNetEditorWriter implements NGRConstants {
 					innerFilename = GML_INNER_FILENAME;
 					break;
 				}
+				case BINARY:
+				{
+					BinaryWriter binaryWriter = new BinaryWriter();
+					xmlWriter = binaryWriter;
+					binaryWriter.setIndexOutput(isBinaryIndexOutput());
+					innerFilename = BINARY_INNER_FILENAME;
+					break;
+				}
 				default:
 					throw new IllegalStateException();
 				}
@@ -292,6 +345,68 @@ public class NGRWriter extends AbstractNetEditorWriter implements NGRConstants {
 		}
 	}
 
+	/** {@inheritDoc}
+	 * <p>
+	 * Only the {@link NetEditorContentType#BINARY binary content}
+	 * is captured without being encoded. For the other types of
+	 * content, the archive is written by this function, and the
+	 * replied state contains the bytes of the archive.
+	 */
+	@Override
+	public <G extends Graph<?, ?, ?, ?>> Snapshot capture(G graph,
+			ViewComponentContainer<?, G> container) throws IOException {
+		if (getContentType()==NetEditorContentType.BINARY) {
+			BinaryWriter binaryWriter = new BinaryWriter();
+			binaryWriter.setIndexOutput(isBinaryIndexOutput());
+			binaryWriter.setAnchorOutput(isAnchorOutput());
+			return new NGRSnapshot(binaryWriter, binaryWriter.capture(graph, container), null);
+		}
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		write(baos, graph, container);
+		return new NGRSnapshot(null, null, baos.toByteArray());
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@SuppressWarnings("resource")
+	@Override
+	public void write(OutputStream outputStream, Snapshot snapshot) throws IOException {
+		if (!(snapshot instanceof NGRSnapshot)) throw new IllegalArgumentException();
+		NGRSnapshot s = (NGRSnapshot)snapshot;
+		if (s.archive!=null) {
+			outputStream.write(s.archive);
+			outputStream.flush();
+			return;
+		}
+		ProgressionUtil.init(getProgression(), 0, 300000);
+		// Create temp file to be sure that there is not conflict between the reader and the writer of the resources
+		File tempFile = File.createTempFile("neteditor", ".dta");  //$NON-NLS-1$//$NON-NLS-2$
+		try {
+			JarOutputStream jos = new JarOutputStream(new FileOutputStream(tempFile));
+			try {
+				ResourceRepository rr = getResourceRepository();
+				s.writer.setResourceRepository(rr);
+				s.writer.setProgression(ProgressionUtil.sub(getProgression(), 100000));
+				jos.putNextEntry(new JarEntry(BINARY_INNER_FILENAME));
+				s.writer.write(new UnclosableOutputStream(jos), s.content);
+				jos.closeEntry();
+				jos.putNextEntry(new JarEntry(RESOURCE_DIRNAME));
+				jos.closeEntry();
+				writeResources(jos, rr, ProgressionUtil.sub(getProgression(), 100000));
+				jos.finish();
+			}
+			finally {
+				jos.close();
+			}
+			copyToStream(outputStream, tempFile, ProgressionUtil.sub(getProgression(), 100000));
+		}
+		finally {
+			if (tempFile.exists()) tempFile.delete();
+			ProgressionUtil.end(getProgression());
+		}
+	}
+
 	/** Write the content of the resource index.
 	 * 
 	 * @param stream is the stream inside which the indexes must be put.
@@ -304,7 +419,13 @@ public class NGRWriter extends AbstractNetEditorWriter implements NGRConstants {
 		ProgressionUtil.init(progression, 0, repository.getURLEntries().size()*2);
 		byte[] buffer = new byte[512];
 		int len;
+		// Several URLs with the same content are mapped to the same resource
+		Set<String> written = new TreeSet<String>();
 		for(Entry<URL,String> entry : repository.getURLEntries()) {
+			if (!written.add(entry.getValue())) {
+				ProgressionUtil.advance(progression);
+				continue;
+			}
 			stream.putNextEntry(new JarEntry(RESOURCE_DIRNAME+entry.getValue()));
 			InputStream is = entry.getKey().openStream();
 			try {
@@ -322,7 +443,13 @@ public class NGRWriter extends AbstractNetEditorWriter implements NGRConstants {
 		}
 		for(Pair<String,Image> pair : repository.getImages()) {
 			stream.putNextEntry(new JarEntry(RESOURCE_DIRNAME+pair.getA()));
-			VectorToolkit.writeImage(pair.getB(), "png", stream); //$NON-NLS-1$
+			byte[] encoded = repository.getEncodedImage(pair.getA());
+			if (encoded!=null) {
+				stream.write(encoded);
+			}
+			else {
+				VectorToolkit.writeImage(pair.getB(), "png", stream); //$NON-NLS-1$
+			}
 			stream.closeEntry();
 			ProgressionUtil.advance(progression);
 		}
@@ -348,4 +475,38 @@ public class NGRWriter extends AbstractNetEditorWriter implements NGRConstants {
 		ProgressionUtil.end(progression);
 	}
 	
+	/** State of a document captured by a {@link NGRWriter}.
+	 * 
+	 * @author $Author: galland$
+	 * @version $FullVersion$
+	 * @mavengroupid $GroupId$
+	 * @mavenartifactid $ArtifactId$
+	 */
+	private static class NGRSnapshot implements Snapshot {
+
+		/** Writer of the binary content, or <code>null</code>.
+		 */
+		public final BinaryWriter writer;
+
+		/** Captured binary content, or <code>null</code>.
+		 */
+		public final Snapshot content;
+
+		/** Bytes of the archive when the content is not binary, or <code>null</code>.
+		 */
+		public final byte[] archive;
+
+		/**
+		 * @param writer
+		 * @param content
+		 * @param archive
+		 */
+		public NGRSnapshot(BinaryWriter writer, Snapshot content, byte[] archive) {
+			this.writer = writer;
+			this.content = content;
+			this.archive = archive;
+		}
+
+	}
+
 }
@@ -22,11 +22,17 @@
 
 package org.arakhne.neteditor.io.resource ;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -35,10 +41,16 @@ import java.util.Set;
 import java.util.TreeMap;
 
 import org.arakhne.afc.ui.vector.Image;
+import org.arakhne.afc.ui.vector.VectorToolkit;
 import org.arakhne.afc.util.Pair;
 import org.arakhne.afc.vmutil.FileSystem;
 
 /** Repository of resources that are pointed by the NetEditor files. 
+ * <p>
+ * The resources are identified by the digest of their content;
+ * so that two URLs or two images with the same content are
+ * mapped to the same internal identifier, and their content is
+ * stored once in the NetEditor files.
  *
  * @author $Author: galland$
  * @version $FullVersion$
@@ -61,6 +73,9 @@ public class ResourceRepository {
 		}
 	});
 	private final Map<String,Object> internalToUrlMapping = new TreeMap<String, Object>();
+	private final Map<Image,String> imageToInternalMapping = new IdentityHashMap<Image,String>();
+	private final Map<String,String> digestToInternalMapping = new TreeMap<String,String>();
+	private final Map<String,byte[]> encodedImages = new TreeMap<String,byte[]>();
 	
 	/**
 	 */
@@ -101,6 +116,9 @@ public class ResourceRepository {
 		if (repos!=null) {
 			this.urlToInternalMapping.putAll(repos.urlToInternalMapping);
 			this.internalToUrlMapping.putAll(repos.internalToUrlMapping);
+			this.imageToInternalMapping.putAll(repos.imageToInternalMapping);
+			this.digestToInternalMapping.putAll(repos.digestToInternalMapping);
+			this.encodedImages.putAll(repos.encodedImages);
 			this.num = Math.max(this.num, repos.num);
 		}
 	}
@@ -131,8 +149,25 @@ public class ResourceRepository {
 		this.urlToInternalMapping.put(url, iid);
 	}
 
+	/** Register the specified pair, with the digest of
+	 * the content of the resource.
+	 * 
+	 * @param iid
+	 * @param url
+	 * @param digest is the digest of the content, as replied by
+	 * {@link #digest(InputStream)}, or <code>null</code> if unknown.
+	 */
+	public synchronized void register(String iid, URL url, String digest) {
+		register(iid, url);
+		if (digest!=null) {
+			this.digestToInternalMapping.put(digest+FileSystem.extension(url), iid);
+		}
+	}
+
 	/** Register the specified URL and replies the internal identifier
 	 * for this resource.
+	 * If a resource with the same content was already registered,
+	 * its internal identifier is replied.
 	 * @param url
 	 * @return the internal identifier for the specified resource.
 	 */
@@ -140,25 +175,129 @@ public class ResourceRepository {
 		String iid = this.urlToInternalMapping.get(url);
 		if (iid!=null) return iid;
 		String ext = FileSystem.extension(url);
+		String digest = digest(url);
+		if (digest!=null) {
+			iid = this.digestToInternalMapping.get(digest+ext);
+			if (iid!=null) {
+				this.urlToInternalMapping.put(url, iid);
+				return iid;
+			}
+		}
 		iid = "r"+this.num+ext; //$NON-NLS-1$
 		++this.num;
 		this.urlToInternalMapping.put(url, iid);
 		this.internalToUrlMapping.put(iid, url);
+		if (digest!=null) this.digestToInternalMapping.put(digest+ext, iid);
 		return iid;
 	}
 	
 	/** Register the specified image and replies the internal identifier
 	 * for this resource.
+	 * If an image with the same content was already registered,
+	 * its internal identifier is replied.
 	 * @param image
 	 * @return the internal identifier for the specified resource.
 	 */
 	public synchronized String mapsTo(Image image) {
-		String iid = "r"+this.num+".png"; //$NON-NLS-1$ //$NON-NLS-2$
+		String iid = this.imageToInternalMapping.get(image);
+		if (iid!=null) return iid;
+		byte[] encoded = null;
+		String digest = null;
+		try {
+			ByteArrayOutputStream baos = new ByteArrayOutputStream();
+			VectorToolkit.writeImage(image, "png", baos); //$NON-NLS-1$
+			encoded = baos.toByteArray();
+			digest = digest(encoded);
+		}
+		catch (IOException e) {
+			// The image is encoded when it is written
+		}
+		if (digest!=null) {
+			iid = this.digestToInternalMapping.get(digest+".png"); //$NON-NLS-1$
+			if (iid!=null) {
+				this.imageToInternalMapping.put(image, iid);
+				return iid;
+			}
+		}
+		iid = "r"+this.num+".png"; //$NON-NLS-1$ //$NON-NLS-2$
 		++this.num;
 		this.internalToUrlMapping.put(iid, image);
+		this.imageToInternalMapping.put(image, iid);
+		if (digest!=null) {
+			this.digestToInternalMapping.put(digest+".png", iid); //$NON-NLS-1$
+			this.encodedImages.put(iid, encoded);
+		}
 		return iid;
 	}
 
+	/** Replies the digest of the content of the given URL.
+	 * 
+	 * @param url
+	 * @return the digest, or <code>null</code> if the content cannot be read.
+	 */
+	private static String digest(URL url) {
+		try {
+			InputStream is = url.openStream();
+			try {
+				return digest(is);
+			}
+			finally {
+				is.close();
+			}
+		}
+		catch (IOException e) {
+			return null;
+		}
+	}
+
+	/** Replies the digest of the content of the given stream.
+	 * The stream is read until its end, and it is not closed.
+	 * 
+	 * @param is
+	 * @return the digest, or <code>null</code> if no digest algorithm is available.
+	 * @throws IOException
+	 */
+	public static String digest(InputStream is) throws IOException {
+		MessageDigest md = createMessageDigest();
+		if (md==null) return null;
+		byte[] buffer = new byte[4096];
+		int n = is.read(buffer);
+		while (n>0) {
+			md.update(buffer, 0, n);
+			n = is.read(buffer);
+		}
+		return toHex(md.digest());
+	}
+
+	/** Replies the digest of the given bytes.
+	 * 
+	 * @param data
+	 * @return the digest, or <code>null</code> if no digest algorithm is available.
+	 */
+	private static String digest(byte[] data) {
+		MessageDigest md = createMessageDigest();
+		if (md==null) return null;
+		return toHex(md.digest(data));
+	}
+
+	private static MessageDigest createMessageDigest() {
+		try {
+			return MessageDigest.getInstance("SHA-1"); //$NON-NLS-1$
+		}
+		catch (NoSuchAlgorithmException e) {
+			return null;
+		}
+	}
+
+	private static String toHex(byte[] digest) {
+		StringBuilder b = new StringBuilder(digest.length*2);
+		for(byte v : digest) {
+			b.append(Character.forDigit((v >> 4) & 0xF, 16));
+			b.append(Character.forDigit(v & 0xF, 16));
+		}
+		return b.toString();
+	}
+
 	/** Replies the internal identifier for the specified URL.
 	 * @param url
 	 * @return the internal identifier for the specified resource;
@@ -207,6 +346,17 @@ public class ResourceRepository {
 		return null;
 	}
 
+	/** Replies the PNG encoding of the image for the specified
+	 * internal identifier, if it was computed when the image
+	 * was registered.
+	 * @param iid
+	 * @return the PNG encoding of the image;
+	 * or <code>null</code> if it is unknown.
+	 */
+	public synchronized byte[] getEncodedImage(String iid) {
+		return this.encodedImages.get(iid);
+	}
+
 	/**
 	 * @author $Author: galland$
 	 * @version $FullVersion$
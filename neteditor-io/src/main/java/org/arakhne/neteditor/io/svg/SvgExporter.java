@@ -38,6 +38,8 @@ import org.arakhne.afc.math.continous.object2d.Rectangle2f;
 import org.arakhne.afc.progress.ProgressionUtil;
 import org.arakhne.afc.vmutil.locale.Locale;
 import org.arakhne.neteditor.fig.figure.Figure;
+import org.arakhne.neteditor.fig.graphics.DisplayList;
+import org.arakhne.neteditor.fig.graphics.RecordingViewGraphics2D;
 import org.arakhne.neteditor.fig.view.ViewComponentContainer;
 import org.arakhne.neteditor.formalism.Graph;
 import org.arakhne.neteditor.io.AbstractVectorialExporter;
@@ -158,33 +160,43 @@ public class SvgExporter extends AbstractVectorialExporter<SvgGraphics2D, Output
 	 * @since 16.0
 	 */
 	public <G extends Graph<?,?,?,?>> Element generateXML(Document xmlDocument, G graph, ViewComponentContainer<?,G> container) throws IOException {
-		synchronized(container.getTreeLock()) {
-			ProgressionUtil.init(getProgression(), 0, container.getFigureCount()+5);
-			try {
-				SvgGraphics2D g = prepareExport(null, null, container.getViewBounds());
+		ProgressionUtil.init(getProgression(), 0, 5);
+		try {
+			SvgGraphics2D g;
+			Rectangle2f bounds;
+			DisplayList list;
+			// The figures are recorded under the lock; the XML elements
+			// are generated from the recording, without the lock.
+			synchronized(container.getTreeLock()) {
+				bounds = container.getViewBounds();
+				g = prepareExport(null, null, bounds);
 				if (g==null) throw new IOException();
-				g.xmldocument = xmlDocument; // Force to use the given XML document
-				g.pushRenderingContext(null, null, container.getViewBounds());
-				g.prolog();
+				RecordingViewGraphics2D rg = new RecordingViewGraphics2D(g);
 				boolean oldShadow = container.isShadowDrawn();
 				container.setShadowDrawn(isShadowExported() && isShadowSupported());
-				ProgressionUtil.advance(getProgression());
 				try {
-					container.paintViewComponents(g);
+					container.paintViewComponents(rg);
 				}
 				finally {
 					container.setShadowDrawn(oldShadow);
 				}
-				ProgressionUtil.advance(getProgression(), container.getFigureCount());
-				g.epilog();
-				g.popRenderingContext();
-				finalizeExport(null, null, container.getViewBounds(), g);
-				
-				return extractNode(g.xmldocument, g.tag("svg")); //$NON-NLS-1$
-			}
-			finally {
-				ProgressionUtil.end(getProgression());
+				list = rg.getDisplayList();
 			}
+			ProgressionUtil.advance(getProgression());
+			g.xmldocument = xmlDocument; // Force to use the given XML document
+			g.pushRenderingContext(null, null, bounds);
+			g.prolog();
+			ProgressionUtil.advance(getProgression());
+			list.paint(g);
+			ProgressionUtil.advance(getProgression());
+			g.epilog();
+			g.popRenderingContext();
+			finalizeExport(null, null, bounds, g);
+			
+			return extractNode(g.xmldocument, g.tag("svg")); //$NON-NLS-1$
+		}
+		finally {
+			ProgressionUtil.end(getProgression());
 		}
 	}
 
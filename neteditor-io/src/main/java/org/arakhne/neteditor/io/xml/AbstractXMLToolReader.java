@@ -23,7 +23,6 @@
 package org.arakhne.neteditor.io.xml ;
 
 import java.io.IOException;
-import java.lang.reflect.Constructor;
 import java.util.Iterator;
 import java.util.NoSuchElementException;
 import java.util.UUID;
@@ -34,6 +33,7 @@ import org.arakhne.afc.vmutil.locale.Locale;
 import org.arakhne.neteditor.fig.view.ViewComponent;
 import org.arakhne.neteditor.formalism.Graph;
 import org.arakhne.neteditor.io.AbstractNetEditorReader;
+import org.arakhne.neteditor.io.InstanceFactory;
 import org.w3c.dom.Element;
 import org.w3c.dom.Node;
 import org.w3c.dom.NodeList;
@@ -172,9 +172,21 @@ public abstract class AbstractXMLToolReader extends AbstractNetEditorReader {
 	 * @throws IOException
 	 */
 	protected final Class<?> extractTypeClass(Element node) throws IOException {
+		return extractTypeFactory(node).getType();
+	}
+
+	/** Extract the type of the specified node as a factory of instances.
+	 * The factory is replied by the registry of the types.
+	 * 
+	 * @param node is the node to explore
+	 * @return the factory of the type of the node, never <code>null</code>.
+	 * @throws IOException
+	 * @see #getTypeRegistry()
+	 */
+	protected final InstanceFactory extractTypeFactory(Element node) throws IOException {
 		String type = extractType(node);
 		try {
-			return Class.forName(type);
+			return getTypeRegistry().getFactory(type);
 		}
 		catch (ClassNotFoundException _) {
 			//
@@ -190,10 +202,10 @@ public abstract class AbstractXMLToolReader extends AbstractNetEditorReader {
 	 * @throws IOException
 	 */
 	protected final <T> T createInstance(Class<T> type, Element node) throws IOException {
-		Class<?> foundType = extractTypeClass(node);
-		if (type.isAssignableFrom(foundType)) {
+		InstanceFactory factory = extractTypeFactory(node);
+		if (type.isAssignableFrom(factory.getType())) {
 			try {
-				Object obj = foundType.newInstance();
+				Object obj = factory.newInstance();
 				return type.cast(obj);
 			}
 			catch (Exception e) {
@@ -212,11 +224,10 @@ public abstract class AbstractXMLToolReader extends AbstractNetEditorReader {
 	 * @throws IOException
 	 */
 	protected final <T extends ViewComponent> T createFigureInstance(Class<T> type, Element node, UUID viewId) throws IOException {
-		Class<?> foundType = extractTypeClass(node);
-		if (type.isAssignableFrom(foundType)) {
+		InstanceFactory factory = extractTypeFactory(node);
+		if (type.isAssignableFrom(factory.getType())) {
 			try {
-				Constructor<?> cons = foundType.getConstructor(UUID.class);
-				Object obj = cons.newInstance(viewId);
+				Object obj = factory.newInstance(viewId);
 				return type.cast(obj);
 			}
 			catch (Exception e) {
@@ -284,22 +284,45 @@ public abstract class AbstractXMLWriter extends AbstractNetEditorWriter implemen
 	 * @param progression is the task progression.
 	 * @throws IOException
 	 */
-	@SuppressWarnings("resource")
 	private void writeGraph(
 			OutputStream os,
 			Map<UUID, ? extends Graph<?,?,?,?>> graphs, 
 			Collection<? extends Figure> figures,
 			Progression progression) throws IOException {
+		ProgressionUtil.init(progression, 0, 10000);
+		Document xmldocument = null;
+		try {
+			xmldocument = createDocument(graphs, figures,
+					ProgressionUtil.sub(progression, 8000));
+		}
+		finally {
+			if (xmldocument==null && os!=null) os.close();
+		}
+		writeDocument(os, xmldocument);
+		ProgressionUtil.end(progression);
+	}
+
+	/** Create the XML document of the graph.
+	 * 
+	 * @param graphs are the graphs to output.
+	 * @param figures are the figures to output. The list is sorted from
+	 * the front layer to the background layer.
+	 * @param progression is the task progression.
+	 * @return the XML document.
+	 * @throws IOException
+	 */
+	private Document createDocument(
+			Map<UUID, ? extends Graph<?,?,?,?>> graphs, 
+			Collection<? extends Figure> figures,
+			Progression progression) throws IOException {
 		try {
-			ProgressionUtil.init(progression, 0, 10000);
 			DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
 			DocumentBuilder builder = factory.newDocumentBuilder();
 			Document xmldocument = builder.newDocument();
 			
 			this.currentDocument = xmldocument;
 
-			Node node = createGraphDOM(graphs, figures,
-					ProgressionUtil.sub(progression, 8000));
+			Node node = createGraphDOM(graphs, figures, progression);
 
 			if (node==null) throw new IOException();
 
@@ -317,6 +340,32 @@ public abstract class AbstractXMLWriter extends AbstractNetEditorWriter implemen
 
 			xmldocument.appendChild(node);
 
+			ProgressionUtil.end(progression);
+			return xmldocument;
+		}
+		catch(IOException e) {
+			throw e;
+		}
+		catch(Exception e) {
+			throw new IOException(e);
+		}		
+		finally {
+			this.currentDocument = null;
+		}
+	}
+
+	/** Write the given XML document.
+	 * The document is not read from the graphs nor the figures;
+	 * so that this function does not need the tree lock of
+	 * their container.
+	 * 
+	 * @param os is the output stream, closed by this function.
+	 * @param xmldocument is the document to write.
+	 * @throws IOException
+	 */
+	@SuppressWarnings("resource")
+	private void writeDocument(OutputStream os, Document xmldocument) throws IOException {
+		try {
 			TransformerFactory transFactory = TransformerFactory.newInstance();
 			try {
 				transFactory.setAttribute("indent-number", Integer.valueOf(2)); //$NON-NLS-1$
@@ -346,7 +395,6 @@ public abstract class AbstractXMLWriter extends AbstractNetEditorWriter implemen
 			DOMSource source = new DOMSource(xmldocument);
 			StreamResult xmlStream = new StreamResult(new OutputStreamWriter(os, "UTF-8")); //$NON-NLS-1$
 			trans.transform(source, xmlStream);
-			ProgressionUtil.end(progression);
 		}
 		catch(IOException e) {
 			throw e;
@@ -355,7 +403,6 @@ public abstract class AbstractXMLWriter extends AbstractNetEditorWriter implemen
 			throw new IOException(e);
 		}		
 		finally {
-			this.currentDocument = null;
 			if (os!=null) os.close();
 		}
 	}
@@ -376,21 +423,30 @@ public abstract class AbstractXMLWriter extends AbstractNetEditorWriter implemen
 	 */
 	@Override
 	public final <G extends Graph<?,?,?,?>> void write(OutputStream os, G graph, ViewComponentContainer<?,G> container) throws IOException {
-		synchronized(container.getTreeLock()) {
-			ProgressionUtil.init(getProgression(), 0, 100000);
-			Map<UUID,Graph<?,?,?,?>> graphs = new TreeMap<UUID, Graph<?,?,?,?>>();
-			if (graph!=null) graphs.put(graph.getUUID(), graph);
-			List<Figure> figures = new ArrayList<Figure>();
-			for(ViewComponent vc : container) {
-				if (vc instanceof Figure) {
-					figures.add((Figure)vc);
+		ProgressionUtil.init(getProgression(), 0, 100000);
+		Document xmldocument = null;
+		try {
+			// The document is created under the lock; it is
+			// written without the lock.
+			synchronized(container.getTreeLock()) {
+				Map<UUID,Graph<?,?,?,?>> graphs = new TreeMap<UUID, Graph<?,?,?,?>>();
+				if (graph!=null) graphs.put(graph.getUUID(), graph);
+				List<Figure> figures = new ArrayList<Figure>();
+				for(ViewComponent vc : container) {
+					if (vc instanceof Figure) {
+						figures.add((Figure)vc);
+					}
+					ProgressionUtil.advance(getProgression(), 1);
 				}
-				ProgressionUtil.advance(getProgression(), 1);
+				xmldocument = createDocument(graphs, figures,
+						ProgressionUtil.sub(getProgression(), 80000));
 			}
-			writeGraph(os, graphs, figures,
-					ProgressionUtil.subToEnd(getProgression()));
-			ProgressionUtil.end(getProgression());
 		}
+		finally {
+			if (xmldocument==null && os!=null) os.close();
+		}
+		writeDocument(os, xmldocument);
+		ProgressionUtil.end(getProgression());
 	}
 
 	/**
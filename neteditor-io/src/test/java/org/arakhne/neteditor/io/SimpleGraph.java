@@ -0,0 +1,134 @@
+/* 
+ * $Id$
+ * 
+ * Copyright (C) 2013 Stephane GALLAND.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ * This program is free software; you can redistribute it and/or modify
+ */
+package org.arakhne.neteditor.io ;
+
+import org.arakhne.neteditor.formalism.standard.StandardAnchor;
+import org.arakhne.neteditor.formalism.standard.StandardEdge;
+import org.arakhne.neteditor.formalism.standard.StandardGraph;
+import org.arakhne.neteditor.formalism.standard.StandardMonoAnchorNode;
+
+/** Graph used by the unit tests of the readers and the writers.
+ * The nested types are public and have a public
+ * default constructor, so that the readers are able
+ * to instantiate them from their names.
+ *
+ * @author $Author: galland$
+ * @version $FullVersion$
+ * @mavengroupid $GroupId$
+ * @mavenartifactid $ArtifactId$
+ */
+public class SimpleGraph extends StandardGraph<SimpleGraph,SimpleGraph.SimpleNode,SimpleGraph.SimpleAnchor,SimpleGraph.SimpleEdge> {
+
+	private static final long serialVersionUID = -2815573386391465215L;
+
+	/**
+	 */
+	public SimpleGraph() {
+		//
+	}
+
+	/** Create a node and add it into this graph.
+	 * 
+	 * @param name is the name of the node.
+	 * @return the node.
+	 */
+	public SimpleNode createNode(String name) {
+		SimpleNode node = new SimpleNode();
+		node.setName(name);
+		addNode(node);
+		return node;
+	}
+
+	/** Create an edge between the anchors of the given
+	 * nodes and add it into this graph.
+	 * 
+	 * @param name is the name of the edge.
+	 * @param start is the start node of the edge.
+	 * @param end is the end node of the edge.
+	 * @return the edge.
+	 */
+	public SimpleEdge createEdge(String name, SimpleNode start, SimpleNode end) {
+		SimpleEdge edge = new SimpleEdge();
+		edge.setName(name);
+		addEdge(edge);
+		edge.setStartAnchor(start.getAnchors().get(0));
+		edge.setEndAnchor(end.getAnchors().get(0));
+		return edge;
+	}
+
+	/** Node of a {@link SimpleGraph}.
+	 *
+	 * @author $Author: galland$
+	 * @version $FullVersion$
+	 * @mavengroupid $GroupId$
+	 * @mavenartifactid $ArtifactId$
+	 */
+	public static class SimpleNode extends StandardMonoAnchorNode<SimpleGraph,SimpleNode,SimpleAnchor,SimpleEdge> {
+
+		private static final long serialVersionUID = 4632581283425871736L;
+
+		/**
+		 */
+		public SimpleNode() {
+			super(new SimpleAnchor());
+		}
+
+	}
+
+	/** Anchor of a {@link SimpleGraph}.
+	 *
+	 * @author $Author: galland$
+	 * @version $FullVersion$
+	 * @mavengroupid $GroupId$
+	 * @mavenartifactid $ArtifactId$
+	 */
+	public static class SimpleAnchor extends StandardAnchor<SimpleGraph,SimpleNode,SimpleAnchor,SimpleEdge> {
+
+		private static final long serialVersionUID = -5385917402215347739L;
+
+		/**
+		 */
+		public SimpleAnchor() {
+			//
+		}
+
+	}
+
+	/** Edge of a {@link SimpleGraph}.
+	 *
+	 * @author $Author: galland$
+	 * @version $FullVersion$
+	 * @mavengroupid $GroupId$
+	 * @mavenartifactid $ArtifactId$
+	 */
+	public static class SimpleEdge extends StandardEdge<SimpleGraph,SimpleNode,SimpleAnchor,SimpleEdge> {
+
+		private static final long serialVersionUID = 7390127438125542219L;
+
+		/**
+		 */
+		public SimpleEdge() {
+			//
+		}
+
+	}
+
+}
@@ -0,0 +1,192 @@
+/* 
+ * $Id$
+ * 
+ * Copyright (C) 2013 Stephane GALLAND.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ * This program is free software; you can redistribute it and/or modify
+ */
+package org.arakhne.neteditor.io.autosave ;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.util.Map;
+import java.util.UUID;
+
+import junit.framework.TestCase;
+
+import org.arakhne.neteditor.formalism.PropertyNames;
+import org.arakhne.neteditor.io.SimpleGraph;
+import org.arakhne.neteditor.io.SimpleGraph.SimpleNode;
+
+/** Unit tests for {@link ChangeJournal}.
+ *
+ * @author $Author: galland$
+ * @version $FullVersion$
+ * @mavengroupid $GroupId$
+ * @mavenartifactid $ArtifactId$
+ */
+public class ChangeJournalTest extends TestCase {
+
+	private File file;
+	private ChangeJournal journal;
+	private SimpleGraph graph;
+	private SimpleNode n1;
+	private SimpleNode n2;
+	private SimpleNode n3;
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		this.file = File.createTempFile("journal", ".tmp"); //$NON-NLS-1$ //$NON-NLS-2$
+		this.journal = new ChangeJournal(this.file);
+		this.graph = new SimpleGraph();
+		this.n1 = this.graph.createNode("n1"); //$NON-NLS-1$
+		this.n2 = this.graph.createNode("n2"); //$NON-NLS-1$
+		this.n3 = this.graph.createNode("n3"); //$NON-NLS-1$
+		this.graph.createEdge("e1", this.n1, this.n2); //$NON-NLS-1$
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected void tearDown() throws Exception {
+		this.journal.delete();
+		this.journal = null;
+		this.file = null;
+		this.graph = null;
+		this.n1 = this.n2 = this.n3 = null;
+		super.tearDown();
+	}
+
+	private static byte[] rename(SimpleNode node, String name) throws Exception {
+		Map<String,Object> properties = node.getProperties();
+		properties.put(PropertyNames.PROPERTY_NAME, name);
+		return ChangeJournal.encodeProperties(properties);
+	}
+
+	private void appendRecords() throws Exception {
+		this.journal.reset(null);
+		this.journal.append(ChangeJournal.MODEL_OBJECT, this.n1.getUUID(), rename(this.n1, "renamed")); //$NON-NLS-1$
+		this.journal.append(ChangeJournal.REMOVED_MODEL_OBJECT, this.n3.getUUID(), null);
+		this.journal.close();
+	}
+
+	/**
+	 * @throws Exception
+	 */
+	public void testReadDocument() throws Exception {
+		File document = new File(this.file.getParentFile(), "document.ngr"); //$NON-NLS-1$
+		this.journal.reset(document);
+		this.journal.close();
+		assertEquals(document.getAbsoluteFile(), ChangeJournal.readDocument(this.file));
+
+		this.journal.reset(null);
+		this.journal.close();
+		assertNull(ChangeJournal.readDocument(this.file));
+	}
+
+	/**
+	 * @throws Exception
+	 */
+	public void testGetRecordCount() throws Exception {
+		this.journal.reset(null);
+		assertEquals(0, this.journal.getRecordCount());
+		this.journal.append(ChangeJournal.REMOVED_MODEL_OBJECT, this.n3.getUUID(), null);
+		assertEquals(1, this.journal.getRecordCount());
+		this.journal.reset(null);
+		assertEquals(0, this.journal.getRecordCount());
+	}
+
+	/**
+	 * @throws Exception
+	 */
+	public void testReplay() throws Exception {
+		appendRecords();
+		assertEquals(2, ChangeJournal.replay(this.file, this.graph, null));
+		assertEquals("renamed", this.n1.getName()); //$NON-NLS-1$
+		assertEquals("n2", this.n2.getName()); //$NON-NLS-1$
+		assertNull(this.graph.findModelObject(this.n3.getUUID()));
+		assertEquals(2, this.graph.getNodeCount());
+	}
+
+	/**
+	 * @throws Exception
+	 */
+	public void testReplayUnknownObject() throws Exception {
+		this.journal.reset(null);
+		this.journal.append(ChangeJournal.MODEL_OBJECT, UUID.randomUUID(), rename(this.n1, "renamed")); //$NON-NLS-1$
+		this.journal.append(ChangeJournal.REMOVED_MODEL_OBJECT, UUID.randomUUID(), null);
+		this.journal.close();
+		assertEquals(0, ChangeJournal.replay(this.file, this.graph, null));
+		assertEquals("n1", this.n1.getName()); //$NON-NLS-1$
+		assertEquals(3, this.graph.getNodeCount());
+	}
+
+	/**
+	 * @throws Exception
+	 */
+	public void testReplayCorruptedRecord() throws Exception {
+		appendRecords();
+		// Change the last byte of the identifier of the last record
+		RandomAccessFile raf = new RandomAccessFile(this.file, "rw"); //$NON-NLS-1$
+		try {
+			long position = raf.length() - 9;
+			raf.seek(position);
+			int b = raf.read();
+			raf.seek(position);
+			raf.write(~b);
+		}
+		finally {
+			raf.close();
+		}
+		assertEquals(1, ChangeJournal.replay(this.file, this.graph, null));
+		assertEquals("renamed", this.n1.getName()); //$NON-NLS-1$
+		assertSame(this.n3, this.graph.findModelObject(this.n3.getUUID()));
+	}
+
+	/**
+	 * @throws Exception
+	 */
+	public void testReplayTruncatedRecord() throws Exception {
+		appendRecords();
+		RandomAccessFile raf = new RandomAccessFile(this.file, "rw"); //$NON-NLS-1$
+		try {
+			raf.setLength(raf.length() - 2);
+		}
+		finally {
+			raf.close();
+		}
+		assertEquals(1, ChangeJournal.replay(this.file, this.graph, null));
+		assertEquals("renamed", this.n1.getName()); //$NON-NLS-1$
+		assertSame(this.n3, this.graph.findModelObject(this.n3.getUUID()));
+	}
+
+	/**
+	 * @throws Exception
+	 */
+	public void testReplayIsIdempotent() throws Exception {
+		appendRecords();
+		ChangeJournal.replay(this.file, this.graph, null);
+		ChangeJournal.replay(this.file, this.graph, null);
+		assertEquals("renamed", this.n1.getName()); //$NON-NLS-1$
+		assertEquals(2, this.graph.getNodeCount());
+	}
+
+}
@@ -0,0 +1,214 @@
+/* 
+ * $Id$
+ * 
+ * Copyright (C) 2013 Stephane GALLAND.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ * This program is free software; you can redistribute it and/or modify
+ */
+package org.arakhne.neteditor.io.binary ;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+
+import junit.framework.TestCase;
+
+import org.arakhne.neteditor.fig.view.ViewComponent;
+import org.arakhne.neteditor.io.SimpleGraph;
+import org.arakhne.neteditor.io.SimpleGraph.SimpleEdge;
+import org.arakhne.neteditor.io.SimpleGraph.SimpleNode;
+
+/** Unit tests for {@link BinaryWriter} and {@link BinaryReader}.
+ *
+ * @author $Author: galland$
+ * @version $FullVersion$
+ * @mavengroupid $GroupId$
+ * @mavenartifactid $ArtifactId$
+ */
+public class BinaryWriterTest extends TestCase {
+
+	private SimpleGraph graph;
+	private SimpleNode n1;
+	private SimpleNode n2;
+	private SimpleNode n3;
+	private SimpleEdge e1;
+	private SimpleEdge e2;
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		this.graph = new SimpleGraph();
+		this.graph.setName("graph"); //$NON-NLS-1$
+		this.n1 = this.graph.createNode("n1"); //$NON-NLS-1$
+		this.n2 = this.graph.createNode("n2"); //$NON-NLS-1$
+		this.n3 = this.graph.createNode("n3"); //$NON-NLS-1$
+		this.e1 = this.graph.createEdge("e1", this.n1, this.n2); //$NON-NLS-1$
+		this.e2 = this.graph.createEdge("e2", this.n2, this.n3); //$NON-NLS-1$
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected void tearDown() throws Exception {
+		this.graph = null;
+		this.n1 = this.n2 = this.n3 = null;
+		this.e1 = this.e2 = null;
+		super.tearDown();
+	}
+
+	private static byte[] write(SimpleGraph graph) throws IOException {
+		return write(graph, true);
+	}
+
+	private static byte[] write(SimpleGraph graph, boolean anchors) throws IOException {
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		BinaryWriter writer = new BinaryWriter();
+		writer.setAnchorOutput(anchors);
+		writer.write(baos, graph);
+		return baos.toByteArray();
+	}
+
+	private static SimpleGraph read(byte[] document, int threads) throws IOException {
+		BinaryReader reader = new BinaryReader();
+		reader.setThreadCount(threads);
+		Map<UUID,List<ViewComponent>> figures = new TreeMap<UUID,List<ViewComponent>>();
+		return reader.read(SimpleGraph.class, new ByteArrayInputStream(document), figures);
+	}
+
+	private void assertSameEdge(SimpleEdge expected, SimpleGraph actualGraph) {
+		SimpleEdge actual = actualGraph.getEdgeByUUID(expected.getUUID());
+		assertNotNull(actual);
+		assertEquals(expected.getName(), actual.getName());
+		assertNotNull(actual.getStartAnchor());
+		assertNotNull(actual.getEndAnchor());
+		assertEquals(expected.getStartAnchor().getUUID(), actual.getStartAnchor().getUUID());
+		assertEquals(expected.getEndAnchor().getUUID(), actual.getEndAnchor().getUUID());
+		assertEquals(expected.getStartAnchor().getNode().getUUID(),
+				actual.getStartAnchor().getNode().getUUID());
+		assertEquals(expected.getEndAnchor().getNode().getUUID(),
+				actual.getEndAnchor().getNode().getUUID());
+	}
+
+	private void assertSameGraph(SimpleGraph actual) {
+		assertNotNull(actual);
+		assertNotSame(this.graph, actual);
+		assertEquals(this.graph.getUUID(), actual.getUUID());
+		assertEquals(this.graph.getName(), actual.getName());
+		assertEquals(this.graph.getNodeCount(), actual.getNodeCount());
+		assertEquals(this.graph.getEdgeCount(), actual.getEdgeCount());
+		for(SimpleNode expected : new SimpleNode[] {this.n1, this.n2, this.n3}) {
+			SimpleNode node = actual.getNodeByUUID(expected.getUUID());
+			assertNotNull(node);
+			assertEquals(expected.getName(), node.getName());
+			assertEquals(expected.getAnchors().size(), node.getAnchors().size());
+		}
+		assertSameEdge(this.e1, actual);
+		assertSameEdge(this.e2, actual);
+	}
+
+	/**
+	 * @throws Exception
+	 */
+	public void testRoundTrip() throws Exception {
+		assertSameGraph(read(write(this.graph), 1));
+	}
+
+	/**
+	 * @throws Exception
+	 */
+	public void testRoundTripParallelReader() throws Exception {
+		assertSameGraph(read(write(this.graph), 4));
+	}
+
+	/**
+	 * @throws Exception
+	 */
+	public void testRoundTripTwice() throws Exception {
+		byte[] first = write(this.graph);
+		byte[] second = write(read(first, 1));
+		assertSameGraph(read(second, 1));
+	}
+
+	/** Without the anchors, the edges are connected to
+	 * the anchors of the nodes.
+	 * 
+	 * @throws Exception
+	 */
+	public void testRoundTripWithoutAnchors() throws Exception {
+		SimpleGraph actual = read(write(this.graph, false), 1);
+		assertNotNull(actual);
+		assertEquals(this.graph.getNodeCount(), actual.getNodeCount());
+		for(SimpleEdge expected : new SimpleEdge[] {this.e1, this.e2}) {
+			SimpleEdge edge = actual.getEdgeByUUID(expected.getUUID());
+			assertNotNull(edge);
+			assertEquals(expected.getStartAnchor().getNode().getUUID(),
+					edge.getStartAnchor().getNode().getUUID());
+			assertEquals(expected.getEndAnchor().getNode().getUUID(),
+					edge.getEndAnchor().getNode().getUUID());
+		}
+	}
+
+	/**
+	 * @throws Exception
+	 */
+	public void testEmptyGraph() throws Exception {
+		SimpleGraph empty = new SimpleGraph();
+		SimpleGraph actual = read(write(empty), 1);
+		assertNotNull(actual);
+		assertEquals(empty.getUUID(), actual.getUUID());
+		assertTrue(actual.isEmpty());
+	}
+
+	/**
+	 * @throws Exception
+	 */
+	public void testInvalidMagicNumber() throws Exception {
+		byte[] document = write(this.graph);
+		document[0] = (byte)~document[0];
+		try {
+			read(document, 1);
+			fail("an IOException is expected"); //$NON-NLS-1$
+		}
+		catch(IOException e) {
+			// Expected exception
+		}
+	}
+
+	/**
+	 * @throws Exception
+	 */
+	public void testTruncatedDocument() throws Exception {
+		byte[] document = write(this.graph);
+		byte[] truncated = new byte[document.length/2];
+		System.arraycopy(document, 0, truncated, 0, truncated.length);
+		try {
+			read(truncated, 1);
+			fail("an IOException is expected"); //$NON-NLS-1$
+		}
+		catch(IOException e) {
+			// Expected exception
+		}
+	}
+
+}
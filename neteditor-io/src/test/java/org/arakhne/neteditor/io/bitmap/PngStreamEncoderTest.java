@@ -0,0 +1,161 @@
+/* 
+ * $Id$
+ * 
+ * Copyright (C) 2013 Stephane GALLAND.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ * This program is free software; you can redistribute it and/or modify
+ */
+package org.arakhne.neteditor.io.bitmap ;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.Random;
+
+import javax.imageio.ImageIO;
+
+import junit.framework.TestCase;
+
+/** Unit tests for {@link PngStreamEncoder}.
+ * The produced pictures are decoded with ImageIO.
+ *
+ * @author $Author: galland$
+ * @version $FullVersion$
+ * @mavengroupid $GroupId$
+ * @mavenartifactid $ArtifactId$
+ */
+public class PngStreamEncoderTest extends TestCase {
+
+	private static int[] createPixels(int width, int height, boolean alpha) {
+		int[] pixels = new int[width*height];
+		int i = 0;
+		for(int y=0; y<height; ++y) {
+			for(int x=0; x<width; ++x, ++i) {
+				int a = alpha ? ((x+y)*7) & 0xFF : 0xFF;
+				int r = (x*13) & 0xFF;
+				int g = (y*29) & 0xFF;
+				int b = (x*y) & 0xFF;
+				pixels[i] = (a<<24) | (r<<16) | (g<<8) | b;
+			}
+		}
+		return pixels;
+	}
+
+	/** Encode the given pixels, by giving at most <var>band</var>
+	 * rows at each invocation of the encoder.
+	 */
+	private static byte[] encode(int[] pixels, int width, int height, boolean alpha, int band) throws Exception {
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		PngStreamEncoder encoder = new PngStreamEncoder(baos, width, height, alpha);
+		try {
+			encoder.writeHeader();
+			int[] rows = new int[width*band];
+			for(int y=0; y<height; y+=band) {
+				int count = Math.min(band, height-y);
+				System.arraycopy(pixels, y*width, rows, 0, count*width);
+				encoder.writeRows(rows, count);
+			}
+			encoder.finish();
+		}
+		finally {
+			encoder.close();
+		}
+		return baos.toByteArray();
+	}
+
+	private static void assertPicture(int[] expected, int width, int height, boolean alpha, byte[] png) throws Exception {
+		BufferedImage image = ImageIO.read(new ByteArrayInputStream(png));
+		assertNotNull(image);
+		assertEquals(width, image.getWidth());
+		assertEquals(height, image.getHeight());
+		assertEquals(alpha, image.getColorModel().hasAlpha());
+		int i = 0;
+		for(int y=0; y<height; ++y) {
+			for(int x=0; x<width; ++x, ++i) {
+				assertEquals("pixel ("+x+";"+y+")", //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+						Integer.toHexString(expected[i]),
+						Integer.toHexString(image.getRGB(x, y)));
+			}
+		}
+	}
+
+	/**
+	 * @throws Exception
+	 */
+	public void testRGB() throws Exception {
+		int[] pixels = createPixels(37, 23, false);
+		assertPicture(pixels, 37, 23, false, encode(pixels, 37, 23, false, 23));
+	}
+
+	/**
+	 * @throws Exception
+	 */
+	public void testRGBA() throws Exception {
+		int[] pixels = createPixels(37, 23, true);
+		assertPicture(pixels, 37, 23, true, encode(pixels, 37, 23, true, 23));
+	}
+
+	/**
+	 * @throws Exception
+	 */
+	public void testBands() throws Exception {
+		int[] pixels = createPixels(41, 50, true);
+		assertPicture(pixels, 41, 50, true, encode(pixels, 41, 50, true, 7));
+	}
+
+	/**
+	 * @throws Exception
+	 */
+	public void testSingleRowBands() throws Exception {
+		int[] pixels = createPixels(16, 9, false);
+		assertPicture(pixels, 16, 9, false, encode(pixels, 16, 9, false, 1));
+	}
+
+	/** The IDAT chunks are limited in size; a large
+	 * picture is written in several chunks.
+	 * 
+	 * @throws Exception
+	 */
+	public void testSeveralChunks() throws Exception {
+		int[] pixels = new int[512*512];
+		Random random = new Random(1234);
+		for(int i=0; i<pixels.length; ++i) {
+			pixels[i] = random.nextInt();
+		}
+		assertPicture(pixels, 512, 512, true, encode(pixels, 512, 512, true, 64));
+	}
+
+	/**
+	 * @throws Exception
+	 */
+	public void testExtraRowsIgnored() throws Exception {
+		int[] pixels = createPixels(10, 10, false);
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		PngStreamEncoder encoder = new PngStreamEncoder(baos, 10, 5, false);
+		try {
+			encoder.writeHeader();
+			encoder.writeRows(pixels, 10);
+			encoder.finish();
+		}
+		finally {
+			encoder.close();
+		}
+		int[] expected = new int[50];
+		System.arraycopy(pixels, 0, expected, 0, expected.length);
+		assertPicture(expected, 10, 5, false, baos.toByteArray());
+	}
+
+}
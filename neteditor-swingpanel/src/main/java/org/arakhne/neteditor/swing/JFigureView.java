@@ -25,10 +25,13 @@ import java.awt.AWTEvent;
 import java.awt.EventQueue;
 import java.awt.Font;
 import java.awt.Graphics2D;
+import java.awt.Rectangle;
 import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
 import java.awt.event.ComponentEvent;
 import java.awt.event.ComponentListener;
 import java.awt.event.InputEvent;
+import java.awt.geom.AffineTransform;
 import java.awt.geom.GeneralPath;
 import java.awt.geom.Line2D;
 import java.awt.geom.Rectangle2D;
@@ -39,6 +42,7 @@ import java.lang.ref.WeakReference;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
@@ -48,12 +52,16 @@ import java.util.Set;
 import java.util.TreeMap;
 import java.util.TreeSet;
 import java.util.UUID;
+import java.util.concurrent.Executor;
 import java.util.concurrent.locks.ReentrantLock;
 
 import javax.swing.Action;
 import javax.swing.ActionMap;
+import javax.swing.Timer;
 import javax.swing.TransferHandler;
 import javax.swing.UIManager;
+import javax.swing.event.ChangeEvent;
+import javax.swing.event.ChangeListener;
 
 import org.arakhne.afc.math.continous.object2d.Circle2f;
 import org.arakhne.afc.math.continous.object2d.Point2f;
@@ -61,7 +69,6 @@ import org.arakhne.afc.math.continous.object2d.Rectangle2f;
 import org.arakhne.afc.math.continous.object2d.Shape2f;
 import org.arakhne.afc.math.generic.Point2D;
 import org.arakhne.afc.math.generic.Vector2D;
-import org.arakhne.afc.math.matrix.Transform2D;
 import org.arakhne.afc.ui.CenteringTransform;
 import org.arakhne.afc.ui.Graphics2DLOD;
 import org.arakhne.afc.ui.MouseCursor;
@@ -92,7 +99,10 @@ import org.arakhne.afc.ui.vector.VectorGraphics2D;
 import org.arakhne.afc.ui.vector.VectorToolkit;
 import org.arakhne.afc.vmutil.locale.Locale;
 import org.arakhne.neteditor.fig.factory.CollisionAvoider;
+import org.arakhne.neteditor.fig.factory.CollisionResolver;
 import org.arakhne.neteditor.fig.factory.FigureFactory;
+import org.arakhne.neteditor.fig.factory.FreeSpaceLocator;
+import org.arakhne.neteditor.fig.factory.OccupancyGrid;
 import org.arakhne.neteditor.fig.figure.BlockFigure;
 import org.arakhne.neteditor.fig.figure.Figure;
 import org.arakhne.neteditor.fig.figure.ModelObjectFigure;
@@ -101,8 +111,12 @@ import org.arakhne.neteditor.fig.figure.decoration.DecorationFigure;
 import org.arakhne.neteditor.fig.figure.decoration.TextFigure;
 import org.arakhne.neteditor.fig.figure.edge.EdgeFigure;
 import org.arakhne.neteditor.fig.figure.node.NodeFigure;
+import org.arakhne.neteditor.fig.graphics.DisplayList;
+import org.arakhne.neteditor.fig.graphics.DisplayListCache;
+import org.arakhne.neteditor.fig.graphics.FrameBudget;
 import org.arakhne.neteditor.fig.graphics.ShadowViewGraphics2D;
 import org.arakhne.neteditor.fig.graphics.ViewGraphics2D;
+import org.arakhne.neteditor.fig.graphics.ImageCache;
 import org.arakhne.neteditor.fig.graphics.ViewGraphicsUtil;
 import org.arakhne.neteditor.fig.graphics.ViewGraphicsUtil.Factory;
 import org.arakhne.neteditor.fig.subfigure.SubFigure;
@@ -115,6 +129,7 @@ import org.arakhne.neteditor.fig.view.ViewComponentContainer;
 import org.arakhne.neteditor.fig.view.ViewComponentLayoutListener;
 import org.arakhne.neteditor.fig.view.ViewComponentPropertyChangeEvent;
 import org.arakhne.neteditor.fig.view.ViewComponentPropertyChangeListener;
+import org.arakhne.neteditor.fig.view.ZOrderedList;
 import org.arakhne.neteditor.formalism.Anchor;
 import org.arakhne.neteditor.formalism.Edge;
 import org.arakhne.neteditor.formalism.Graph;
@@ -130,7 +145,9 @@ import org.arakhne.neteditor.swing.actionmode.base.BaseMode;
 import org.arakhne.neteditor.swing.dnd.FigureTransferHandler;
 import org.arakhne.neteditor.swing.event.FigureEvent;
 import org.arakhne.neteditor.swing.event.FigureListener;
+import org.arakhne.neteditor.swing.graphics.BackgroundRenderer;
 import org.arakhne.neteditor.swing.graphics.DelegatedViewGraphics2D;
+import org.arakhne.neteditor.swing.graphics.ShadowLayer;
 import org.arakhne.neteditor.swing.graphics.SwingViewGraphics2D;
 import org.arakhne.neteditor.swing.selection.JSelectionManager;
 
@@ -158,8 +175,25 @@ implements ViewComponentContainer<Figure, G> {
 	 */
 	public static final int CLICK_PRECISION = 5;
 
+	/** Delay without change of the view after which a zoom
+	 * or a pan gesture is assumed to be terminated (in milliseconds).
+	 */
+	private static final int GESTURE_SETTLE_DELAY = 200;
+
+	/** Default time budget for painting a frame during
+	 * a zoom or a pan gesture (in milliseconds).
+	 */
+	public static final long DEFAULT_FRAME_BUDGET = 16;
+
+	/** Margin added around the figures to invalidate their shadows.
+	 * It permits to take into account the strokes that are drawn
+	 * outside the bounds of the figures (in the logical coordinate space).
+	 */
+	private static final float SHADOW_MARGIN = 5f;
+
 	static {
 		ViewGraphicsUtil.setFactory(new ViewGraphicsFactory());
+		ImageCache.getSharedCache().setNotificationExecutor(new EventQueueExecutor());
 	}
 
 
@@ -167,7 +201,7 @@ implements ViewComponentContainer<Figure, G> {
 	
 	private final ViewDocumentWrapper documentWrapper;
 
-	private volatile LinkedList<Figure> figures = new LinkedList<Figure>();
+	private volatile ZOrderedList<Figure> figures = new ZOrderedList<Figure>();
 
 	private SoftReference<Rectangle2f> documentBounds = null;
 
@@ -181,6 +215,66 @@ implements ViewComponentContainer<Figure, G> {
 
 	private final CollisionAvoider collisionAvoider = new CAvoider();
 
+	/** Areas occupied by the block figures, used to avoid collisions.
+	 */
+	private final OccupancyGrid<Figure> occupancyGrid = new OccupancyGrid<Figure>();
+
+	/** Engine that is moving the figures out of the collisions.
+	 */
+	private final CollisionResolver<Figure> collisionResolver = new CollisionResolver<Figure>(this.occupancyGrid);
+
+	/** Cached shadows of the figures.
+	 */
+	private final ShadowLayer shadowLayer = new ShadowLayer();
+
+	/** Bounds of the figures when their shadows were
+	 * rendered in the shadow layer.
+	 */
+	private final Map<Figure,Rectangle2f> shadowBounds = new IdentityHashMap<Figure,Rectangle2f>();
+
+	/** Margin around the figures that is covered by their shadows,
+	 * in the logical coordinate space.
+	 */
+	private float shadowMargin = SHADOW_MARGIN;
+
+	/** Graphics on which the shadow layer was already painted
+	 * during the current drawing of the view.
+	 */
+	private transient ViewGraphics2D shadowLayerGraphics = null;
+
+	/** Renderer of the figures in a background thread,
+	 * or <code>null</code> if the figures are rendered
+	 * by the event dispatching thread.
+	 */
+	private BackgroundRenderer backgroundRenderer = null;
+
+	/** Display lists of the figures that are painted by
+	 * the background renderer. They are recorded by the
+	 * event dispatching thread.
+	 */
+	private transient DisplayListCache displayLists = null;
+
+	/** Stamp of the figures, changed each time a figure
+	 * is added, removed or changed.
+	 */
+	private int figureStamp = 0;
+
+	/** Last frame requested to the background renderer.
+	 */
+	private ViewRenderRequest lastRenderRequest = null;
+
+	private boolean isProgressiveRendering = false;
+	private volatile FrameBudget frameBudget = new FrameBudget(DEFAULT_FRAME_BUDGET * 1000000L);
+
+	/** Indicates if a zoom or a pan gesture is running.
+	 */
+	private boolean isGestureActive = false;
+	private Timer gestureTimer = null;
+	private boolean hasPaintedView = false;
+	private float paintedOriginX;
+	private float paintedOriginY;
+	private float paintedScale;
+
 	private boolean isAxisDraw = false;
 	private boolean isShadowDraw = true;
 	private boolean isOutsideGrayed = false;
@@ -204,6 +298,10 @@ implements ViewComponentContainer<Figure, G> {
 
 	private boolean skipFigureModelUnlink = false;
 
+	/** Changes in the collection of figures that are not yet notified.
+	 */
+	private FigureBatch figureBatch = null;
+
 	/** Lock resource that may be used for deletion actions.
 	 */
 	protected final ReentrantLock deletionLock = new ReentrantLock();
@@ -313,6 +411,34 @@ implements ViewComponentContainer<Figure, G> {
 		this.listenerList.remove(FigureListener.class, listener);
 	}
 
+	/** Add listener on the changes of the visible area of the view.
+	 * 
+	 * @param listener
+	 */
+	public void addViewportChangeListener(ChangeListener listener) {
+		this.listenerList.add(ChangeListener.class, listener);
+	}
+
+	/** Remove listener on the changes of the visible area of the view.
+	 * 
+	 * @param listener
+	 */
+	public void removeViewportChangeListener(ChangeListener listener) {
+		this.listenerList.remove(ChangeListener.class, listener);
+	}
+
+	/** Notifies the listeners about the change of the visible area of the view.
+	 */
+	protected void fireViewportChange() {
+		ChangeListener[] listeners = this.listenerList.getListeners(ChangeListener.class);
+		if (listeners.length>0) {
+			ChangeEvent event = new ChangeEvent(this);
+			for(ChangeListener listener : listeners) {
+				listener.stateChanged(event);
+			}
+		}
+	}
+
 	/** Notifies the listeners about the removal of a figure.
 	 * 
 	 * @param removed
@@ -346,6 +472,90 @@ implements ViewComponentContainer<Figure, G> {
 		}
 	}
 
+	/** Notifies the listeners about the addition of figures.
+	 * By default, this function invokes {@link #fireFigureAdded(Figure)}
+	 * for each added figure.
+	 * 
+	 * @param added
+	 */
+	protected void fireFiguresAdded(Collection<? extends Figure> added) {
+		for(Figure figure : added) {
+			fireFigureAdded(figure);
+		}
+	}
+
+	/** Notifies the listeners about the removal of figures.
+	 * By default, this function invokes {@link #fireFigureRemoved(Figure)}
+	 * for each removed figure.
+	 * 
+	 * @param removed
+	 */
+	protected void fireFiguresRemoved(Collection<? extends Figure> removed) {
+		for(Figure figure : removed) {
+			fireFigureRemoved(figure);
+		}
+	}
+
+	/** Start a batch of changes in the collection of figures.
+	 * Until the call to {@link #endFigureBatch()}, the view parameters
+	 * are not updated, the view is not repainted, and the
+	 * figure listeners are not notified. All these actions are
+	 * done once at the end of the batch.
+	 * The batches may be nested.
+	 * 
+	 * @see #endFigureBatch()
+	 */
+	protected void beginFigureBatch() {
+		if (this.figureBatch==null) {
+			this.figureBatch = new FigureBatch(this.figures.isEmpty());
+		}
+		++this.figureBatch.depth;
+	}
+
+	/** End a batch of changes in the collection of figures.
+	 * 
+	 * @see #beginFigureBatch()
+	 */
+	protected void endFigureBatch() {
+		FigureBatch batch = this.figureBatch;
+		if (batch!=null && --batch.depth<=0) {
+			this.figureBatch = null;
+			if (!batch.added.isEmpty() || !batch.removed.isEmpty()) {
+				onUpdateViewParameters();
+				if (batch.wasEmpty && !batch.added.isEmpty()) setScalingFactorForPixelRatio(1f);
+				fireFiguresRemoved(batch.removed);
+				fireFiguresAdded(batch.added);
+				repaint();
+			}
+		}
+	}
+
+	private void onFiguresAdded(Collection<? extends Figure> added, boolean firstComponent) {
+		invalidateRenderedFigures();
+		this.documentBounds = null;
+		if (this.figureBatch!=null) {
+			this.figureBatch.added.addAll(added);
+		}
+		else {
+			onUpdateViewParameters();
+			if (firstComponent) setScalingFactorForPixelRatio(1f);
+			fireFiguresAdded(added);
+		}
+	}
+
+	private void onFiguresRemoved(Collection<? extends Figure> removed) {
+		invalidateRenderedFigures();
+		this.documentBounds = null;
+		if (this.figureBatch!=null) {
+			this.figureBatch.removed.addAll(removed);
+		}
+		else {
+			onUpdateViewParameters();
+			fireFiguresRemoved(removed);
+			repaint();
+		}
+	}
+
 	/** Replies if this viewer is interactively editable.
 	 * 
 	 * @return <code>true</code> if this viewer is editable; otherwise <code>false</code>.
@@ -460,6 +670,12 @@ implements ViewComponentContainer<Figure, G> {
 			((ModelObjectFigure<?>)figure).removeViewComponentBindingListener(this.eventHandler);
 	}
 
+	private void indexFigure(Figure figure) {
+		if (figure instanceof BlockFigure) {
+			this.occupancyGrid.put(figure, figure.getBounds());
+		}
+	}
+
 	private void addFigureListeners(Figure figure) {
 		figure.addViewComponentChangeListener(this.eventHandler);
 		figure.addViewComponentPropertyChangeListener(this.eventHandler);
@@ -545,14 +761,11 @@ implements ViewComponentContainer<Figure, G> {
 			if (this.graph!=null) 
 				this.graph.removeModelObjectListener(this.eventHandler);
 			this.graph = g;
-			Iterator<Figure> iterator = this.figures.iterator();
-			Figure fig;
-			while (iterator.hasNext()) {
-				fig = iterator.next();
+			for(Figure fig : this.figures) {
 				fig.setViewComponentContainer(this);
 				removeFigureListeners(fig);
-				iterator.remove();
 			}
+			this.figures.clear();
 			this.documentBounds = null;
 			this.graph.addModelObjectListener(this.eventHandler);
 			firePropertyChange("graph", old, this.graph); //$NON-NLS-1$
@@ -585,6 +798,14 @@ implements ViewComponentContainer<Figure, G> {
 		return this.figures.get(index);
 	}
 
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public List<Figure> getFigureSnapshot() {
+		return this.figures.snapshot();
+	}
+
 	/**
 	 * {@inheritDoc}
 	 * @see #importFigure(DecorationFigure)
@@ -597,16 +818,36 @@ implements ViewComponentContainer<Figure, G> {
 			boolean firstComponent = this.figures.isEmpty();
 			position = 0;
 			this.figures.add(position,component);
-			this.documentBounds = null;
 			component.setViewComponentContainer(this);
 			addFigureListeners(component);
-			onUpdateViewParameters();
-			if (firstComponent) setScalingFactorForPixelRatio(1f);
-			fireFigureAdded(component);
+			indexFigure(component);
+			onFiguresAdded(Collections.singletonList(component), firstComponent);
 		}
 		return position;
 	}
 
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int addFigures(Collection<? extends Figure> components) {
+		List<Figure> added = new ArrayList<Figure>(components.size());
+		for(Figure component : components) {
+			if (component!=null) added.add(component);
+		}
+		if (!added.isEmpty()) {
+			boolean firstComponent = this.figures.isEmpty();
+			this.figures.addAll(0, added);
+			for(Figure component : added) {
+				component.setViewComponentContainer(this);
+				addFigureListeners(component);
+				indexFigure(component);
+			}
+			onFiguresAdded(added, firstComponent);
+		}
+		return added.size();
+	}
+
 	/**
 	 * {@inheritDoc}
 	 * This function also unlink the model object associated to the figure.
@@ -636,15 +877,13 @@ implements ViewComponentContainer<Figure, G> {
 					this.figures.remove(position);
 					component.setViewComponentContainer(null);
 					removeFigureListeners(component);
+					this.occupancyGrid.remove(component);
 					if (!this.skipFigureModelUnlink && 
 							unlinkToModelObject &&
 							component instanceof ModelObjectFigure<?>) {
 						((ModelObjectFigure<?>)component).setModelObject(null);
 					}
-					this.documentBounds = null;
-					onUpdateViewParameters();
-					fireFigureRemoved(component);
-					repaint();
+					onFiguresRemoved(Collections.singletonList(component));
 				}
 			}
 			return position;
@@ -654,6 +893,51 @@ implements ViewComponentContainer<Figure, G> {
 		}
 	}
 
+	/**
+	 * {@inheritDoc}
+	 * This function also unlink the model objects associated to the figures.
+	 * @see #removeFigures(Collection, boolean)
+	 */
+	@Override
+	public int removeFigures(Collection<? extends Figure> components) {
+		return removeFigures(components, true);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * The figures are removed in one pass over the collection of figures.
+	 * @see #removeFigures(Collection)
+	 */
+	@Override
+	public int removeFigures(Collection<? extends Figure> components, boolean unlinkToModelObject) {
+		try {
+			this.deletionLock.lock();
+			Set<Figure> toRemove = Collections.newSetFromMap(new IdentityHashMap<Figure,Boolean>());
+			for(Figure component : components) {
+				if (component!=null) toRemove.add(component);
+			}
+			List<Figure> removed = new ArrayList<Figure>(toRemove.size());
+			this.figures.removeAll(toRemove, removed);
+			for(Figure component : removed) {
+				component.setViewComponentContainer(null);
+				removeFigureListeners(component);
+				this.occupancyGrid.remove(component);
+				if (!this.skipFigureModelUnlink && 
+						unlinkToModelObject &&
+						component instanceof ModelObjectFigure<?>) {
+					((ModelObjectFigure<?>)component).setModelObject(null);
+				}
+			}
+			if (!removed.isEmpty()) {
+				onFiguresRemoved(removed);
+			}
+			return removed.size();
+		}
+		finally {
+			this.deletionLock.unlock();
+		}
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
@@ -663,9 +947,8 @@ implements ViewComponentContainer<Figure, G> {
 		if (fig!=null) {
 			fig.setViewComponentContainer(null);
 			removeFigureListeners(fig);
-			this.documentBounds = null;
-			onUpdateViewParameters();
-			fireFigureRemoved(fig);
+			this.occupancyGrid.remove(fig);
+			onFiguresRemoved(Collections.singletonList(fig));
 		}
 		return fig;
 	}
@@ -677,22 +960,215 @@ implements ViewComponentContainer<Figure, G> {
 	public void removeAllFigures() {
 		if (!this.figures.isEmpty()) {
 			List<Figure> oldFigures = this.figures;
-			this.figures = new LinkedList<Figure>();
+			this.figures = new ZOrderedList<Figure>();
+			this.occupancyGrid.clear();
 
 			for(Figure fig : oldFigures) {
 				fig.setViewComponentContainer(null);
 				removeFigureListeners(fig);
 			}
 
-			this.documentBounds = null;
-			onUpdateViewParameters();
+			onFiguresRemoved(oldFigures);
+		}
+	}
 
-			for(Figure fig : oldFigures) {
-				fireFigureRemoved(fig);
+	/** Invalidate the cached renderings of the figures.
+	 */
+	private void invalidateRenderedFigures() {
+		this.shadowLayer.invalidate();
+		++this.figureStamp;
+	}
+
+	/** Invalidate the area of the shadow layer that is
+	 * covered by the shadow of the given component, before
+	 * and after the change of its bounds.
+	 * 
+	 * @param component is the changed component.
+	 */
+	private void invalidateShadow(ViewComponent component) {
+		Rectangle2f old = this.shadowBounds.get(component);
+		Rectangle2f bounds = component.getBounds();
+		if (old==null && bounds==null) return;
+		float minx = Float.POSITIVE_INFINITY;
+		float miny = Float.POSITIVE_INFINITY;
+		float maxx = Float.NEGATIVE_INFINITY;
+		float maxy = Float.NEGATIVE_INFINITY;
+		for(Rectangle2f r : new Rectangle2f[] {old, bounds}) {
+			if (r!=null) {
+				minx = Math.min(minx, r.getMinX());
+				miny = Math.min(miny, r.getMinY());
+				maxx = Math.max(maxx, r.getMaxX());
+				maxy = Math.max(maxy, r.getMaxY());
+			}
+		}
+		float margin = this.shadowMargin;
+		float x1 = logical2pixel_x(minx - margin);
+		float y1 = logical2pixel_y(miny - margin);
+		float x2 = logical2pixel_x(maxx + margin);
+		float y2 = logical2pixel_y(maxy + margin);
+		int px = (int)Math.floor(Math.min(x1, x2));
+		int py = (int)Math.floor(Math.min(y1, y2));
+		this.shadowLayer.invalidate(new Rectangle(px, py,
+				(int)Math.ceil(Math.max(x1, x2)) - px + 1,
+				(int)Math.ceil(Math.max(y1, y2)) - py + 1));
+	}
+
+	/** Replies if the figures are rendered in a background thread.
+	 * 
+	 * @return <code>true</code> if the figures are rendered
+	 * in a background thread; <code>false</code> if they are
+	 * rendered by the event dispatching thread.
+	 */
+	public boolean isBackgroundRendering() {
+		return this.backgroundRenderer!=null;
+	}
+
+	/** Set if the figures are rendered in a background thread.
+	 * <p>
+	 * In background rendering mode, the event dispatching thread
+	 * records the figures into immutable display lists; only the
+	 * figures that have changed since the previous frame are
+	 * recorded again. A dedicated thread is painting these lists
+	 * into a back buffer, and the event dispatching thread is
+	 * only painting the last completed frame and the feedback
+	 * of the action modes. The rendering thread never reads
+	 * the figures; so that it does not need the tree lock.
+	 * 
+	 * @param enable is <code>true</code> to render the figures
+	 * in a background thread; <code>false</code> to render them
+	 * in the event dispatching thread.
+	 */
+	public void setBackgroundRendering(boolean enable) {
+		if (enable!=isBackgroundRendering()) {
+			if (enable) {
+				this.backgroundRenderer = new BackgroundRenderer(this.eventHandler);
+				this.displayLists = new DisplayListCache();
+			}
+			else {
+				this.backgroundRenderer.shutdown();
+				this.backgroundRenderer = null;
+				this.displayLists = null;
+				this.lastRenderRequest = null;
+			}
+			firePropertyChange("isBackgroundRendering", !enable, enable); //$NON-NLS-1$
+			repaint();
+		}
+	}
+
+	/** Replies if the view is progressively rendered during
+	 * the zoom and pan gestures.
+	 * 
+	 * @return <code>true</code> if the progressive rendering is enabled;
+	 * otherwise <code>false</code>.
+	 */
+	public boolean isProgressiveRendering() {
+		return this.isProgressiveRendering;
+	}
+
+	/** Set if the view is progressively rendered during
+	 * the zoom and pan gestures.
+	 * <p>
+	 * When the progressive rendering is enabled, and while the
+	 * scaling factor or the translation of the view are changing,
+	 * the figures are painted at the
+	 * {@link Graphics2DLOD#LOW_LEVEL_OF_DETAIL low level of detail},
+	 * without anti-aliasing and without shadows, and within the
+	 * {@link #getFrameBudget() frame budget}. When the budget is too
+	 * short for all the figures, the selected figures and the
+	 * front-most figures are painted, and the figures behind them
+	 * are skipped.
+	 * In {@link #isBackgroundRendering() background rendering mode},
+	 * the last rendered frame is also transformed to give an
+	 * immediate feedback until the coarse frame is completed.
+	 * The figures are painted at full detail when the view
+	 * is not changing since a short delay.
+	 * 
+	 * @param enable is <code>true</code> to enable the progressive rendering;
+	 * otherwise <code>false</code>.
+	 */
+	public void setProgressiveRendering(boolean enable) {
+		if (this.isProgressiveRendering!=enable) {
+			this.isProgressiveRendering = enable;
+			if (!enable) {
+				this.isGestureActive = false;
+				if (this.gestureTimer!=null) this.gestureTimer.stop();
 			}
+			firePropertyChange("isProgressiveRendering", !enable, enable); //$NON-NLS-1$
+			repaint();
+		}
+	}
+
+	/** Replies the time budget for painting a frame during
+	 * a zoom or a pan gesture.
+	 * 
+	 * @return the budget in milliseconds.
+	 * @see #setProgressiveRendering(boolean)
+	 */
+	public long getFrameBudget() {
+		return this.frameBudget.getBudget() / 1000000L;
+	}
+
+	/** Set the time budget for painting a frame during
+	 * a zoom or a pan gesture.
+	 * 
+	 * @param budget is the budget in milliseconds.
+	 * @see #setProgressiveRendering(boolean)
+	 */
+	public void setFrameBudget(long budget) {
+		long b = Math.max(1, budget);
+		long old = getFrameBudget();
+		if (b!=old) {
+			this.frameBudget = new FrameBudget(b * 1000000L);
+			firePropertyChange("frameBudget", old, b); //$NON-NLS-1$
 		}
 	}
 
+	/** Update the view parameters of the painted frame,
+	 * and notifies the viewport listeners when they have changed.
+	 * 
+	 * @param context is the zooming context of the painted frame.
+	 * @return <code>true</code> if the visible area has changed
+	 * since the previous painted frame.
+	 */
+	private boolean updatePaintedViewport(ZoomableContext context) {
+		float ox = context.logical2pixel_x(0);
+		float oy = context.logical2pixel_y(0);
+		float scale = context.logical2pixel_size(1);
+		boolean moved = this.hasPaintedView
+			&& (ox!=this.paintedOriginX || oy!=this.paintedOriginY || scale!=this.paintedScale);
+		this.hasPaintedView = true;
+		this.paintedOriginX = ox;
+		this.paintedOriginY = oy;
+		this.paintedScale = scale;
+		if (moved) fireViewportChange();
+		return moved;
+	}
+
+	/** Update the state of the zoom and pan gestures.
+	 * 
+	 * @param moved indicates if the visible area has changed
+	 * since the previous painted frame.
+	 * @return <code>true</code> if a gesture is running.
+	 */
+	private boolean updateGesture(boolean moved) {
+		if (moved) {
+			this.isGestureActive = true;
+			if (this.gestureTimer==null) {
+				this.gestureTimer = new Timer(GESTURE_SETTLE_DELAY, new ActionListener() {
+					@SuppressWarnings("synthetic-access")
+					@Override
+					public void actionPerformed(ActionEvent e) {
+						JFigureView.this.isGestureActive = false;
+						repaint();
+					}
+				});
+				this.gestureTimer.setRepeats(false);
+			}
+			this.gestureTimer.restart();
+		}
+		return this.isGestureActive;
+	}
+
 	/** Replies if the axis are drawn.
 	 * 
 	 * @return <code>true</code> if the axis are drawn;
@@ -750,6 +1226,10 @@ implements ViewComponentContainer<Figure, G> {
 	public void setShadowDrawn(boolean draw) {
 		if (this.isShadowDraw!=draw) {
 			this.isShadowDraw = draw;
+			if (!draw) {
+				this.shadowLayer.release();
+				this.shadowBounds.clear();
+			}
 			firePropertyChange("isShadowDraw", !draw, draw); //$NON-NLS-1$
 			repaint();
 		}
@@ -764,22 +1244,9 @@ implements ViewComponentContainer<Figure, G> {
 
 		VectorToolkit.prepareDrawing(g);
 
-		if (isShadowDrawn() && g.getLOD().compareTo(Graphics2DLOD.NORMAL_LEVEL_OF_DETAIL)>=0) {
-			Iterator<Figure> iterator = this.figures.descendingIterator();
-			Figure figure;
-			ViewGraphics2D sg = new ShadowViewGraphics2D(g);
-			Transform2D trans = g.getTransform().clone();
-			trans.translate(
-					g.getShadowTranslationX(),
-					g.getShadowTranslationY());
-			while (iterator.hasNext()) {
-				figure = iterator.next();
-				bounds = figure.getBounds();
-				sg.pushRenderingContext(
-						figure, figure.getClip(bounds), bounds, null, null, trans);
-				figure.paint(sg);
-				sg.popRenderingContext();
-			}
+		if (g!=this.shadowLayerGraphics && isShadowDrawn()
+			&& g.getLOD().compareTo(Graphics2DLOD.NORMAL_LEVEL_OF_DETAIL)>=0) {
+			paintShadows(g);
 		}
 
 		Iterator<Figure> iterator = this.figures.descendingIterator();
@@ -798,6 +1265,117 @@ implements ViewComponentContainer<Figure, G> {
 		VectorToolkit.finalizeDrawing(g);		
 	}
 
+	/** Paint the shadows of the figures.
+	 * 
+	 * @param g
+	 */
+	private void paintShadows(ViewGraphics2D g) {
+		paintShadows(g, null, false);
+	}
+
+	/** Paint the shadows of the figures that are intersecting the given area.
+	 * 
+	 * @param g
+	 * @param area is the area to paint, or <code>null</code> for all the figures.
+	 * @param recordBounds indicates if the bounds of the painted figures are
+	 * saved for the invalidation of the shadow layer.
+	 */
+	private void paintShadows(ViewGraphics2D g, Rectangle2f area, boolean recordBounds) {
+		Rectangle2f bounds;
+		Iterator<Figure> iterator = this.figures.descendingIterator();
+		Figure figure;
+		ViewGraphics2D sg = new ShadowViewGraphics2D(g);
+		// The shadow translation is applied once for all the figures,
+		// instead of a transformation per rendering context.
+		float dx = g.getShadowTranslationX();
+		float dy = g.getShadowTranslationY();
+		if (recordBounds) {
+			this.shadowMargin = Math.max(Math.abs(dx), Math.abs(dy)) + SHADOW_MARGIN;
+		}
+		sg.translate(dx, dy);
+		try {
+			while (iterator.hasNext()) {
+				figure = iterator.next();
+				bounds = figure.getBounds();
+				if (area==null || (bounds!=null && bounds.intersects(area))) {
+					sg.pushRenderingContext(
+							figure, figure.getClip(bounds), bounds);
+					figure.paint(sg);
+					sg.popRenderingContext();
+					if (recordBounds) {
+						this.shadowBounds.put(figure, bounds==null ? null : bounds.clone());
+					}
+				}
+			}
+		}
+		finally {
+			sg.translate(-dx, -dy);
+		}
+	}
+
+	/** Paint the cached shadows of the figures.
+	 * The shadows are rendered again only if the cache
+	 * was invalidated or if the view parameters have changed;
+	 * when only some figures have moved, only the damaged
+	 * area of the cache is rendered again.
+	 * 
+	 * @param g is the graphics of the view.
+	 * @param scaleFactor is the scaling factor of the view.
+	 * @param centeringTransform is the centering transformation of the view.
+	 */
+	private void paintShadowLayer(SwingViewGraphics2D g, float scaleFactor, CenteringTransform centeringTransform) {
+		int width = getWidth();
+		int height = getHeight();
+		Color background = getBackgroundColor();
+		Graphics2D lg = null;
+		Rectangle2f area = null;
+		if (!this.shadowLayer.isValidFor(width, height, g, background)) {
+			lg = this.shadowLayer.beginRendering(width, height, g, background);
+			this.shadowBounds.clear();
+		}
+		else if (this.shadowLayer.getDamagedArea()!=null) {
+			// Only the shadows that are intersecting the damaged area are painted again
+			Rectangle damage = this.shadowLayer.getDamagedArea();
+			float x1 = pixel2logical_x(damage.x);
+			float y1 = pixel2logical_y(damage.y);
+			float x2 = pixel2logical_x(damage.x + damage.width);
+			float y2 = pixel2logical_y(damage.y + damage.height);
+			float margin = this.shadowMargin;
+			area = new Rectangle2f(
+					Math.min(x1, x2) - margin, Math.min(y1, y2) - margin,
+					Math.abs(x2 - x1) + 2f * margin, Math.abs(y2 - y1) + 2f * margin);
+			lg = this.shadowLayer.beginRepairing();
+		}
+		if (lg!=null) {
+			try {
+				SwingViewGraphics2D sg = new SwingViewGraphics2D(
+						lg,
+						scaleFactor,
+						centeringTransform,
+						background,
+						getLOD()==Graphics2DLOD.HIGH_LEVEL_OF_DETAIL || isAntiAliased(),
+						getScalingSensitivity(),
+						getFocusX(),
+						getFocusY(),
+						getMinScalingFactor(),
+						getMaxScalingFactor());
+				try {
+					VectorToolkit.prepareDrawing(sg);
+					paintShadows(sg, area, true);
+					VectorToolkit.finalizeDrawing(sg);
+				}
+				finally {
+					sg.dispose();
+				}
+			}
+			finally {
+				lg.dispose();
+			}
+			this.shadowLayer.endRendering();
+		}
+		this.shadowLayer.paint(g.getNativeGraphics2D());
+	}
+
 	@Override
 	protected float getPreferredFocusX() {
 		Rectangle2f r = getViewBounds();
@@ -830,7 +1408,86 @@ implements ViewComponentContainer<Figure, G> {
 			paintOutsideGrayed(gzoom);
 		}
 		if (isAxisDrawn()) paintAxis(gzoom);
-		paintViewComponents(gzoom);
+
+		boolean moved = updatePaintedViewport(gzoom);
+		boolean coarse = isProgressiveRendering() && updateGesture(moved);
+
+		BackgroundRenderer renderer = this.backgroundRenderer;
+		if (renderer!=null) {
+			ViewRenderRequest request = new ViewRenderRequest(
+					getWidth(), getHeight(),
+					this.figureStamp,
+					gzoom, scaleFactor, centeringTransform,
+					getBackgroundColor(),
+					!coarse && (getLOD()==Graphics2DLOD.HIGH_LEVEL_OF_DETAIL || isAntiAliased()),
+					getScalingSensitivity(),
+					getFocusX(), getFocusY(),
+					getMinScalingFactor(), getMaxScalingFactor(),
+					!coarse && isShadowDrawn(),
+					coarse ? this.frameBudget : null,
+					coarse ? new ArrayList<Figure>(getSelectionManager()) : null);
+			// The frame completion is also repainting the view;
+			// a new frame is requested only when the view has changed.
+			if (!request.isSameFrame(this.lastRenderRequest)) {
+				// The figures are recorded by this thread; the
+				// rendering thread is painting the recorded lists.
+				ViewGraphics2D reference = gzoom;
+				if (coarse) {
+					SwingViewGraphics2D cg = new SwingViewGraphics2D(
+							canvas,
+							scaleFactor,
+							centeringTransform,
+							getBackgroundColor(),
+							false,
+							getScalingSensitivity(),
+							getFocusX(),
+							getFocusY(),
+							getMinScalingFactor(),
+							getMaxScalingFactor());
+					cg.setLOD(Graphics2DLOD.LOW_LEVEL_OF_DETAIL);
+					reference = cg;
+				}
+				request.setDisplayLists(this.displayLists.record(
+						reference, getFigureSnapshot(), !coarse && isShadowDrawn()));
+				this.lastRenderRequest = request;
+				renderer.request(request);
+			}
+			// The last completed frame is transformed to the current
+			// view parameters until the requested frame is completed.
+			renderer.paint(gzoom.getNativeGraphics2D(), request);
+			getModeManager().paint(gzoom);
+			return;
+		}
+
+		if (coarse) {
+			SwingViewGraphics2D cg = new SwingViewGraphics2D(
+					canvas,
+					scaleFactor,
+					centeringTransform,
+					getBackgroundColor(),
+					false,
+					getScalingSensitivity(),
+					getFocusX(),
+					getFocusY(),
+					getMinScalingFactor(),
+					getMaxScalingFactor());
+			cg.setLOD(Graphics2DLOD.LOW_LEVEL_OF_DETAIL);
+			ViewGraphicsUtil.paintViewComponents(cg, getFigureSnapshot(), false, null,
+					getSelectionManager(), this.frameBudget);
+			getModeManager().paint(gzoom);
+			return;
+		}
+
+		if (isShadowDrawn() && gzoom.getLOD().compareTo(Graphics2DLOD.NORMAL_LEVEL_OF_DETAIL)>=0) {
+			paintShadowLayer(gzoom, scaleFactor, centeringTransform);
+			this.shadowLayerGraphics = gzoom;
+		}
+		try {
+			paintViewComponents(gzoom);
+		}
+		finally {
+			this.shadowLayerGraphics = null;
+		}
 		getModeManager().paint(gzoom);
 	}
 
@@ -884,6 +1541,7 @@ implements ViewComponentContainer<Figure, G> {
 	protected void onUpdateViewParameters() {
 		super.onUpdateViewParameters();
 		this.documentWrapper.fireChange();
+		fireViewportChange();
 	}
 
 	/** Paint the outside of the workspace with gray.
@@ -937,6 +1595,33 @@ implements ViewComponentContainer<Figure, G> {
 		rg.draw(new Line2D.Float(0, y0, getWidth(), y0));
 	}
 
+	/** Move the given block figures out of the collisions
+	 * with the other block figures, eg. after they were pasted
+	 * or laid out.
+	 * The figures are moved one after the other, in the order
+	 * of the collection.
+	 * 
+	 * @param figures are the figures to move.
+	 * @return the number of moved figures.
+	 */
+	public int removeOverlaps(Collection<? extends Figure> figures) {
+		Map<Figure,Rectangle2f> moved = this.collisionResolver.resolveAll(figures);
+		if (!moved.isEmpty()) {
+			beginFigureBatch();
+			try {
+				Rectangle2f r;
+				for(Entry<Figure,Rectangle2f> entry : moved.entrySet()) {
+					r = entry.getValue();
+					entry.getKey().setBounds(r.getMinX(), r.getMinY(), r.getWidth(), r.getHeight());
+				}
+			}
+			finally {
+				endFigureBatch();
+			}
+		}
+		return moved.size();
+	}
+
 	/** Repaint the graphical area around the specified figure.
 	 * If the specified object is <code>null</code>
 	 * the entire area is repainted.
@@ -1122,8 +1807,7 @@ implements ViewComponentContainer<Figure, G> {
 		int idx = indexOfFigure(figure);
 		if (idx>0) {
 			Figure o = this.figures.get(idx-1);
-			this.figures.set(idx, o);
-			this.figures.set(idx-1, figure);
+			this.figures.swap(idx, idx-1);
 
 			Rectangle2f r = figure.getBounds();
 			r = o.getBounds().createUnion(r);
@@ -1140,8 +1824,7 @@ implements ViewComponentContainer<Figure, G> {
 		int idx = indexOfFigure(figure);
 		if (idx>=0 && idx<this.figures.size()-1) {
 			Figure o = this.figures.get(idx+1);
-			this.figures.set(idx, o);
-			this.figures.set(idx+1, figure);
+			this.figures.swap(idx, idx+1);
 
 			Rectangle2f r = figure.getBounds();
 			r = o.getBounds().createUnion(r);
@@ -1157,8 +1840,7 @@ implements ViewComponentContainer<Figure, G> {
 	public void moveFigureFront(Figure figure) {
 		int idx = indexOfFigure(figure);
 		if (idx>0) {
-			this.figures.remove(idx);
-			this.figures.add(0, figure);
+			this.figures.move(idx, 0);
 			repaint(figure);
 		}
 	}
@@ -1170,8 +1852,7 @@ implements ViewComponentContainer<Figure, G> {
 	public void moveFigureBackground(Figure figure) {
 		int idx = indexOfFigure(figure);
 		if (idx>=0 && idx<this.figures.size()-1) {
-			this.figures.remove(idx);
-			this.figures.add(figure);
+			this.figures.move(idx, this.figures.size()-1);
 			repaint(figure);
 		}
 	}
@@ -1189,8 +1870,7 @@ implements ViewComponentContainer<Figure, G> {
 			throw new IllegalArgumentException();
 		int idx = indexOfFigure(figure);
 		if (idx!=index && idx>=0) {
-			this.figures.remove(idx);
-			this.figures.add(index, figure);
+			this.figures.move(idx, index);
 			repaint(figure);
 		}
 		return idx;
@@ -1223,15 +1903,14 @@ implements ViewComponentContainer<Figure, G> {
 		gUndo.doEdit();
 		cEdit.addEdit(gUndo);
 
+		// The last set is put in front of the others
+		LinkedList<ViewComponent> allFigures = new LinkedList<ViewComponent>();
 		for(List<ViewComponent> theSet : figures.values()) {
-			ViewComponent o;
-			for(int i=theSet.size()-1; i>=0; --i) {
-				o = theSet.get(i);
-				FigureImportUndo undo = new FigureImportUndo(o, false);
-				undo.doEdit();
-				cEdit.addEdit(undo);
-			}
+			allFigures.addAll(0, theSet);
 		}
+		FiguresImportUndo undo = new FiguresImportUndo(allFigures, false);
+		undo.doEdit();
+		cEdit.addEdit(undo);
 
 		cEdit.end();
 		return cEdit;
@@ -1252,13 +1931,9 @@ implements ViewComponentContainer<Figure, G> {
 		gUndo.doEdit();
 		cEdit.addEdit(gUndo);
 
-		ViewComponent o;
-		for(int i=figures.size()-1; i>=0; --i) {
-			o = figures.get(i);
-			FigureImportUndo undo = new FigureImportUndo(o, false);
-			undo.doEdit();
-			cEdit.addEdit(undo);
-		}
+		FiguresImportUndo undo = new FiguresImportUndo(figures, false);
+		undo.doEdit();
+		cEdit.addEdit(undo);
 
 		cEdit.end();
 		return cEdit;
@@ -1585,7 +2260,7 @@ implements ViewComponentContainer<Figure, G> {
 	 * @mavengroupid $GroupId$
 	 * @mavenartifactid $ArtifactId$
 	 */
-	private class CAvoider implements CollisionAvoider {
+	private class CAvoider implements CollisionAvoider, FreeSpaceLocator {
 
 		/**
 		 */
@@ -1596,37 +2271,29 @@ implements ViewComponentContainer<Figure, G> {
 		/**
 		 * {@inheritDoc}
 		 */
+		@SuppressWarnings("synthetic-access")
 		@Override
 		public boolean isCollisionFree(Rectangle2f bounds, Set<? extends ViewComponent> exceptions) {
-			Rectangle2f r;
-			for(Figure figure : JFigureView.this) {
-				if (figure instanceof BlockFigure && !exceptions.contains(figure)) {
-					r = figure.getBounds();
-					if (r!=null && !r.isEmpty()
-							&& r.intersects(bounds)) {
-						return false;
-					}
-				}
-			}
-			return true;
+			return JFigureView.this.occupancyGrid.isFree(bounds, exceptions);
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@SuppressWarnings("synthetic-access")
+		@Override
+		public Rectangle2f findFreeSpace(float width, float height, float x, float y) {
+			return JFigureView.this.occupancyGrid.findFreeSpace(width, height, x, y);
 		}
 
 		/**
 		 * {@inheritDoc}
 		 */
+		@SuppressWarnings("synthetic-access")
 		@Override
 		public Rectangle2f detectCollision(Rectangle2f bounds, Set<? extends ViewComponent> exceptions) {
-			Rectangle2f r;
-			for(Figure figure : JFigureView.this) {
-				if (figure instanceof BlockFigure && !exceptions.contains(figure)) {
-					r = figure.getBounds();
-					if (r!=null && !r.isEmpty()
-							&& r.intersects(bounds)) {
-						return r;
-					}
-				}
-			}
-			return null;
+			Figure figure = JFigureView.this.occupancyGrid.getIntersectingObject(bounds, exceptions);
+			return (figure==null) ? null : JFigureView.this.occupancyGrid.getBounds(figure);
 		}
 
 	} // class CAvoider
@@ -1724,6 +2391,122 @@ implements ViewComponentContainer<Figure, G> {
 
 	} // class FigureUndo
 
+	/**
+	 * @author $Author: galland$
+	 * @version $FullVersion$
+	 * @mavengroupid $GroupId$
+	 * @mavenartifactid $ArtifactId$
+	 */
+	private class FiguresImportUndo extends AbstractCallableUndoableEdit {
+
+		private static final long serialVersionUID = -4716285496513012788L;
+
+		private final List<ViewComponent> addedFigures;
+		private final List<Figure> figures = new ArrayList<Figure>();
+		private boolean isSignificant;
+
+		/**
+		 * @param addedFigures are the figures to import, from front to background.
+		 * @param isSignificant
+		 */
+		public FiguresImportUndo(List<ViewComponent> addedFigures, boolean isSignificant) {
+			this.isSignificant = isSignificant;
+			this.addedFigures = new ArrayList<ViewComponent>(addedFigures);
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public boolean isSignificant() {
+			return this.isSignificant;
+		}
+
+		@Override
+		public void doEdit() {
+			UUID newViewId = JFigureView.this.getUUID();
+			List<Figure> replacedFigures = new ArrayList<Figure>();
+			this.figures.clear();
+
+			ViewComponent component;
+			for(int i=this.addedFigures.size()-1; i>=0; --i) {
+				component = this.addedFigures.get(i);
+				ModelObject modelObject = null;
+				if (component instanceof ModelObjectView<?>) {
+					modelObject = ((ModelObjectView<?>)component).getModelObject();
+				}
+
+				if (component instanceof Figure) {
+					Figure aFigure = (Figure)component;
+
+					UUID oldViewId = aFigure.getViewUUID();
+
+					// Ensure that the subfigures have the same view Id as the parent figure
+					for(SubFigure subfigure : aFigure.getSubFigures()) {
+						if (subfigure instanceof ModelObjectView<?>) {
+							ModelObject mo = ((ModelObjectView<?>)subfigure).getModelObject();
+							if (mo!=null) {
+								ViewBinding binding = mo.getViewBinding();
+								binding.replaceView(oldViewId, newViewId);
+							}
+						}
+						subfigure.setViewUUID(newViewId);
+					}
+
+					if (modelObject!=null) {
+						ViewBinding binding = modelObject.getViewBinding();
+						View old = binding.replaceView(oldViewId, newViewId);
+						if (old instanceof Figure && old!=aFigure) {
+							replacedFigures.add((Figure)old);
+						}
+					}
+					this.figures.add(aFigure);
+				}
+				else if (component instanceof SubFigure) {
+					if (modelObject!=null) {
+						UUID oldViewId = component.getViewUUID();
+						ViewBinding binding = modelObject.getViewBinding();
+						binding.replaceView(
+								oldViewId,
+								newViewId);
+					}
+					component.setViewUUID(newViewId);
+				}
+			}
+
+			// The figures were collected from background to front
+			Collections.reverse(this.figures);
+
+			beginFigureBatch();
+			try {
+				if (!replacedFigures.isEmpty()) {
+					JFigureView.this.removeFigures(replacedFigures);
+				}
+				JFigureView.this.addFigures(this.figures);
+			}
+			finally {
+				endFigureBatch();
+			}
+		}
+
+		@Override
+		public void undoEdit() {
+			JFigureView.this.removeFigures(this.figures, false);
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public String getPresentationName() {
+			if (this.addedFigures.size()==1) {
+				return Locale.getString(JFigureView.class, "UNDO_PRESENTATION_ADD_FIGURE", this.addedFigures.get(0).getName()); //$NON-NLS-1$
+			}
+			return Locale.getString(JFigureView.class, "UNDO_PRESENTATION_ADD_FIGURES"); //$NON-NLS-1$
+		}
+
+	} // class FiguresImportUndo
+
 	/**
 	 * @author $Author: galland$
 	 * @version $FullVersion$
@@ -1953,6 +2736,60 @@ implements ViewComponentContainer<Figure, G> {
 
 	} // class FigureRemovalUndo
 
+	/** 
+	 * @author $Author: galland$
+	 * @version $FullVersion$
+	 * @mavengroupid $GroupId$
+	 * @mavenartifactid $ArtifactId$
+	 */
+	private class FiguresRemovalUndo extends AbstractCallableUndoableEdit {
+
+		private static final long serialVersionUID = 2350950932425167155L;
+
+		/** The removed figures, from front to background.
+		 */
+		private final List<Figure> figures;
+
+		/**
+		 * @param figures are the figures to remove.
+		 */
+		public FiguresRemovalUndo(List<Figure> figures) {
+			this.figures = new ArrayList<Figure>(figures);
+		}
+
+		@Override
+		public void doEdit() {
+			// Keep the z-order of the figures for the undo
+			Set<Figure> set = Collections.newSetFromMap(new IdentityHashMap<Figure,Boolean>());
+			set.addAll(this.figures);
+			this.figures.clear();
+			for(Figure figure : JFigureView.this.figures) {
+				if (set.contains(figure)) this.figures.add(figure);
+			}
+			removeFigures(this.figures, true);
+		}
+
+		@Override
+		public void undoEdit() {
+			addFigures(this.figures);
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public final String getPresentationName() {
+			if (this.figures.size()==1) {
+				String txt = this.figures.get(0).toString();
+				if (txt!=null && !txt.isEmpty()) {
+					return Locale.getString(JFigureView.class, "UNDO_PRESENTATION_FIGURE_REMOVAL_1", txt); //$NON-NLS-1$
+				}
+			}
+			return Locale.getString(JFigureView.class, "UNDO_PRESENTATION_FIGURE_REMOVAL_n"); //$NON-NLS-1$
+		}
+
+	} // class FiguresRemovalUndo
+
 	/** 
 	 * @author $Author: galland$
 	 * @version $FullVersion$
@@ -2096,6 +2933,57 @@ implements ViewComponentContainer<Figure, G> {
 
 	} // class NodeFigureRemovalUndo
 
+	/** Changes in the collection of figures that are
+	 * notified at the end of a batch.
+	 * 
+	 * @author $Author: galland$
+	 * @version $FullVersion$
+	 * @mavengroupid $GroupId$
+	 * @mavenartifactid $ArtifactId$
+	 * @see JFigureView#beginFigureBatch()
+	 */
+	private static class FigureBatch {
+
+		/** Number of nested batches. */
+		int depth = 0;
+		/** Indicates if the view was empty at the beginning of the batch. */
+		final boolean wasEmpty;
+		/** Added figures. */
+		final List<Figure> added = new ArrayList<Figure>();
+		/** Removed figures. */
+		final List<Figure> removed = new ArrayList<Figure>();
+
+		/**
+		 * @param wasEmpty
+		 */
+		public FigureBatch(boolean wasEmpty) {
+			this.wasEmpty = wasEmpty;
+		}
+
+	} // class FigureBatch
+
+	/** Executor that is running the tasks on the AWT event dispatching thread.
+	 * 
+	 * @author $Author: galland$
+	 * @version $FullVersion$
+	 * @mavengroupid $GroupId$
+	 * @mavenartifactid $ArtifactId$
+	 */
+	private static class EventQueueExecutor implements Executor {
+
+		/**
+		 */
+		public EventQueueExecutor() {
+			//
+		}
+
+		@Override
+		public void execute(Runnable command) {
+			EventQueue.invokeLater(command);
+		}
+
+	}
+
 	/**
 	 * @author $Author: galland$
 	 * @version $FullVersion$
@@ -2356,12 +3244,20 @@ implements ViewComponentContainer<Figure, G> {
 
 				UndoableGroup group = new UndoableGroup(label);
 
-				for(ModelObjectFigure<?> figure : removeModels) {
-					group.add(removeFigure(deleteModel, disconnectFigureAndModel, figure));
-				}
+				beginFigureBatch();
+				try {
+					for(ModelObjectFigure<?> figure : removeModels) {
+						group.add(removeFigure(deleteModel, disconnectFigureAndModel, figure));
+					}
 
-				for(Figure figure : removeFigures) {
-					group.add(removeFigure(false, false, figure));
+					if (!removeFigures.isEmpty()) {
+						FiguresRemovalUndo undo = new FiguresRemovalUndo(removeFigures);
+						undo.doEdit();
+						group.add(undo);
+					}
+				}
+				finally {
+					endFigureBatch();
 				}
 
 				group.end();
@@ -2435,7 +3331,8 @@ implements ViewComponentContainer<Figure, G> {
 	 */
 	private class EventHandler implements ViewComponentLayoutListener, ModelObjectListener,
 	SelectionListener, ViewComponentChangeListener, ViewComponentPropertyChangeListener,
-	ViewComponentBindingListener, FigureListener, SelectableInteractionListener {
+	ViewComponentBindingListener, FigureListener, SelectableInteractionListener,
+	BackgroundRenderer.FrameListener {
 
 		/**
 		 */
@@ -2448,6 +3345,9 @@ implements ViewComponentContainer<Figure, G> {
 		 */
 		@Override
 		public void selectionChanged(SelectionEvent event) {
+			// The selected figures are not drawn as the others;
+			// the frames of the background renderer are obsolete.
+			++JFigureView.this.figureStamp;
 			repaint();
 		}
 
@@ -2515,7 +3415,14 @@ implements ViewComponentContainer<Figure, G> {
 		@SuppressWarnings("synthetic-access")
 		@Override
 		public void componentRepaint(ViewComponent component, boolean boundsChanged) {
+			++JFigureView.this.figureStamp;
 			if (boundsChanged) {
+				// The shape of a shadow changes only with the bounds of its figure
+				invalidateShadow(component);
+				if (component instanceof Figure
+					&& JFigureView.this.occupancyGrid.contains((Figure)component)) {
+					indexFigure((Figure)component);
+				}
 				JFigureView.this.documentBounds = null;
 				onUpdateViewParameters();
 			}
@@ -2526,28 +3433,44 @@ implements ViewComponentContainer<Figure, G> {
 		/**
 		 * {@inheritDoc}
 		 */
+		@SuppressWarnings("synthetic-access")
 		@Override
 		public void collisionAvoidance(ViewComponent component) {
 			if (component instanceof Figure) {
-				Rectangle2f componentBounds = component.getBounds().clone();
 				CollisionAvoider avoider = getCollisionAvoider();
-				Set<ViewComponent> myself = Collections.singleton(component);
-				Rectangle2f collide = avoider.detectCollision(
-						componentBounds, myself);
-				Vector2D v = null;
-				if (collide!=null) {
-					do {
-						v = componentBounds.avoidCollisionWith(collide, v);
-						collide = avoider.detectCollision(
-								componentBounds, myself);
+				if (avoider==JFigureView.this.collisionAvoider) {
+					// Use the grid to find the smallest displacement
+					Rectangle2f componentBounds = component.getBounds();
+					Rectangle2f resolved = JFigureView.this.collisionResolver.resolve(
+							(Figure)component, componentBounds);
+					if (resolved!=componentBounds) {
+						component.setBounds(
+								resolved.getMinX(),
+								resolved.getMinY(),
+								resolved.getWidth(),
+								resolved.getHeight());
 					}
-					while (collide!=null);
+				}
+				else {
+					Rectangle2f componentBounds = component.getBounds().clone();
+					Set<ViewComponent> myself = Collections.singleton(component);
+					Rectangle2f collide = avoider.detectCollision(
+							componentBounds, myself);
+					Vector2D v = null;
+					if (collide!=null) {
+						do {
+							v = componentBounds.avoidCollisionWith(collide, v);
+							collide = avoider.detectCollision(
+									componentBounds, myself);
+						}
+						while (collide!=null);
 
-					component.setBounds(
-							componentBounds.getMinX(),
-							componentBounds.getMinY(),
-							componentBounds.getWidth(),
-							componentBounds.getHeight());
+						component.setBounds(
+								componentBounds.getMinX(),
+								componentBounds.getMinY(),
+								componentBounds.getWidth(),
+								componentBounds.getHeight());
+					}
 				}
 			}
 		}
@@ -2687,6 +3610,183 @@ implements ViewComponentContainer<Figure, G> {
 			}
 		}
 
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public void frameRendered(BackgroundRenderer.Request request) {
+			repaint();
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public void frameFailed(BackgroundRenderer.Request request, final Throwable error) {
+			EventQueue.invokeLater(new Runnable() {
+				@Override
+				public void run() {
+					fireError(error);
+				}
+			});
+		}
+
 	} // class EventHandler
 
+	/** Request of a frame to the background renderer.
+	 * 
+	 * @author $Author: galland$
+	 * @version $FullVersion$
+	 * @mavengroupid $GroupId$
+	 * @mavenartifactid $ArtifactId$
+	 */
+	private static class ViewRenderRequest extends BackgroundRenderer.Request {
+
+		private final int figureStamp;
+		private List<DisplayList> displayLists = Collections.emptyList();
+		private final float originX;
+		private final float originY;
+		private final float pixelScale;
+		private final float scaleFactor;
+		private final CenteringTransform centeringTransform;
+		private final Color background;
+		private final boolean isAntiAlias;
+		private final float scalingSensitivity;
+		private final float focusX;
+		private final float focusY;
+		private final float minScaleFactor;
+		private final float maxScaleFactor;
+		private final boolean shadows;
+		private final FrameBudget budget;
+		private final List<Figure> priorities;
+
+		/**
+		 * @param width
+		 * @param height
+		 * @param figureStamp
+		 * @param context
+		 * @param scaleFactor
+		 * @param centeringTransform
+		 * @param background
+		 * @param isAntiAlias
+		 * @param scalingSensitivity
+		 * @param focusX
+		 * @param focusY
+		 * @param minScaleFactor
+		 * @param maxScaleFactor
+		 * @param shadows
+		 * @param budget is the time budget of a coarse frame, painted at the low level
+		 * of detail; or <code>null</code> for a frame at full detail.
+		 * @param priorities are the figures to paint first in a coarse frame.
+		 */
+		public ViewRenderRequest(int width, int height,
+				int figureStamp,
+				ZoomableContext context, float scaleFactor, CenteringTransform centeringTransform,
+				Color background, boolean isAntiAlias, float scalingSensitivity,
+				float focusX, float focusY, float minScaleFactor, float maxScaleFactor,
+				boolean shadows, FrameBudget budget, List<Figure> priorities) {
+			super(width, height);
+			this.figureStamp = figureStamp;
+			this.originX = context.logical2pixel_x(0);
+			this.originY = context.logical2pixel_y(0);
+			this.pixelScale = context.logical2pixel_size(1);
+			this.scaleFactor = scaleFactor;
+			this.centeringTransform = centeringTransform;
+			this.background = background;
+			this.isAntiAlias = isAntiAlias;
+			this.scalingSensitivity = scalingSensitivity;
+			this.focusX = focusX;
+			this.focusY = focusY;
+			this.minScaleFactor = minScaleFactor;
+			this.maxScaleFactor = maxScaleFactor;
+			this.shadows = shadows;
+			this.budget = budget;
+			this.priorities = priorities;
+		}
+
+		/** Set the display lists to paint.
+		 * This function must be invoked before the request
+		 * is given to the renderer.
+		 * 
+		 * @param lists are the display lists, in the painting order.
+		 */
+		public void setDisplayLists(List<DisplayList> lists) {
+			this.displayLists = lists;
+		}
+
+		/** Replies if this request and the given request
+		 * are rendering the same frame.
+		 * 
+		 * @param request
+		 * @return <code>true</code> if the frames are the same;
+		 * otherwise <code>false</code>.
+		 */
+		public boolean isSameFrame(ViewRenderRequest request) {
+			return request!=null
+					&& getWidth()==request.getWidth()
+					&& getHeight()==request.getHeight()
+					&& this.figureStamp==request.figureStamp
+					&& this.originX==request.originX
+					&& this.originY==request.originY
+					&& this.pixelScale==request.pixelScale
+					&& this.isAntiAlias==request.isAntiAlias
+					&& this.shadows==request.shadows
+					&& (this.budget==null)==(request.budget==null)
+					&& (this.background==null ? request.background==null : this.background.equals(request.background));
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		protected AffineTransform getTransformFrom(BackgroundRenderer.Request rendered) {
+			if (rendered instanceof ViewRenderRequest) {
+				ViewRenderRequest r = (ViewRenderRequest)rendered;
+				if (r.pixelScale!=0f) {
+					float k = this.pixelScale / r.pixelScale;
+					return new AffineTransform(
+							k, 0, 0, k,
+							this.originX - r.originX * k,
+							this.originY - r.originY * k);
+				}
+			}
+			return null;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		protected void render(Graphics2D g) {
+			SwingViewGraphics2D vg = new SwingViewGraphics2D(
+					g,
+					this.scaleFactor,
+					this.centeringTransform,
+					this.background,
+					this.isAntiAlias,
+					this.scalingSensitivity,
+					this.focusX,
+					this.focusY,
+					this.minScaleFactor,
+					this.maxScaleFactor);
+			if (this.budget!=null) {
+				vg.setLOD(Graphics2DLOD.LOW_LEVEL_OF_DETAIL);
+			}
+			try {
+				// The display lists are immutable; the figures are not read.
+				if (this.budget!=null) {
+					ViewGraphicsUtil.paintDisplayLists(vg, this.displayLists,
+							this.priorities, this.budget);
+				}
+				else {
+					ViewGraphicsUtil.paintDisplayLists(vg, this.displayLists, null);
+				}
+			}
+			finally {
+				vg.dispose();
+			}
+		}
+
+	} // class ViewRenderRequest
+
 }
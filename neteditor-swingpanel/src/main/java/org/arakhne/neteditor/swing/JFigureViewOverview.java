@@ -0,0 +1,388 @@
+/* 
+ * $Id$
+ * 
+ * Copyright (C) 2013 Stephane GALLAND.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ * This program is free software; you can redistribute it and/or modify
+ */
+package org.arakhne.neteditor.swing;
+
+import java.awt.Dimension;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.geom.Rectangle2D;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import javax.swing.JComponent;
+import javax.swing.event.ChangeEvent;
+import javax.swing.event.ChangeListener;
+
+import org.arakhne.afc.math.continous.object2d.Rectangle2f;
+import org.arakhne.afc.ui.Graphics2DLOD;
+import org.arakhne.afc.ui.vector.Color;
+import org.arakhne.afc.ui.vector.Image;
+import org.arakhne.afc.ui.vector.VectorToolkit;
+import org.arakhne.neteditor.fig.factory.OccupancyGrid;
+import org.arakhne.neteditor.fig.figure.Figure;
+import org.arakhne.neteditor.fig.graphics.ViewGraphics2D;
+import org.arakhne.neteditor.fig.graphics.ViewGraphicsUtil;
+import org.arakhne.neteditor.fig.view.ViewComponent;
+import org.arakhne.neteditor.fig.view.ViewComponentLayoutListener;
+import org.arakhne.neteditor.swing.event.FigureEvent;
+import org.arakhne.neteditor.swing.event.FigureListener;
+
+/** Overview of the document displayed by a {@link JFigureView}.
+ * <p>
+ * The overview is painting the whole document at a small scale,
+ * and the area of the document that is visible in the view.
+ * The document is rendered into a cached low-resolution picture.
+ * When a figure is changed, only the area damaged by this change,
+ * ie. the union of the old and the new bounds of the figure,
+ * is rendered again with the figures intersecting it; so that the
+ * cost of an update depends on the number of changes, not on the
+ * size of the document. The whole picture is rendered again only
+ * when the bounds of the document or the size of the overview
+ * have changed.
+ *
+ * @author $Author: galland$
+ * @version $FullVersion$
+ * @mavengroupid $GroupId$
+ * @mavenartifactid $ArtifactId$
+ */
+public class JFigureViewOverview extends JComponent {
+
+	private static final long serialVersionUID = -2419736401839128870L;
+
+	/** Maximal number of damaged areas that are rendered
+	 * separately; above this number, the union of the
+	 * damaged areas is rendered.
+	 */
+	private static final int MAX_DAMAGED_AREAS = 32;
+
+	/** Margin added around the bounds of the figures to take
+	 * into account the strokes drawn outside of them.
+	 */
+	private static final float DAMAGE_MARGIN = 2f;
+
+	private final JFigureView<?> view;
+	private final EventHandler eventHandler = new EventHandler();
+
+	/** Bounds of the figures, when they were rendered in the picture.
+	 */
+	private final OccupancyGrid<Figure> renderedFigures = new OccupancyGrid<Figure>();
+
+	private final List<Rectangle2f> damagedAreas = new ArrayList<Rectangle2f>();
+	private boolean isFullyDamaged = true;
+
+	private transient Image picture = null;
+	private Rectangle2f pictureDocument = null;
+	private float pictureScale = 1f;
+	private float pictureX = 0f;
+	private float pictureY = 0f;
+
+	private Color viewportColor = VectorToolkit.color(255, 0, 0);
+
+	/**
+	 * @param view is the view to display.
+	 */
+	public JFigureViewOverview(JFigureView<?> view) {
+		assert(view!=null);
+		this.view = view;
+		setPreferredSize(new Dimension(200, 150));
+		setOpaque(true);
+		for(Figure figure : view.getFigureSnapshot()) {
+			attach(figure);
+		}
+		view.addFigureListener(this.eventHandler);
+		view.addViewportChangeListener(this.eventHandler);
+	}
+
+	/** Replies the view displayed by this overview.
+	 * 
+	 * @return the view.
+	 */
+	public JFigureView<?> getView() {
+		return this.view;
+	}
+
+	/** Replies the color used to draw the visible area of the view.
+	 * 
+	 * @return the color of the viewport.
+	 */
+	public Color getViewportColor() {
+		return this.viewportColor;
+	}
+
+	/** Set the color used to draw the visible area of the view.
+	 * 
+	 * @param color is the color of the viewport.
+	 */
+	public void setViewportColor(Color color) {
+		if (color!=null && !color.equals(this.viewportColor)) {
+			Color old = this.viewportColor;
+			this.viewportColor = color;
+			firePropertyChange("viewportColor", old, color); //$NON-NLS-1$
+			repaint();
+		}
+	}
+
+	/** Detach this overview from its view.
+	 * The overview is no more updated after
+	 * a call to this function.
+	 */
+	public void release() {
+		this.view.removeFigureListener(this.eventHandler);
+		this.view.removeViewportChangeListener(this.eventHandler);
+		for(Figure figure : this.view.getFigureSnapshot()) {
+			figure.removeViewComponentRepaintListener(this.eventHandler);
+		}
+		this.renderedFigures.clear();
+		this.damagedAreas.clear();
+		this.picture = null;
+		this.pictureDocument = null;
+	}
+
+	private static Rectangle2f damagedBounds(Figure figure) {
+		Rectangle2f bounds = figure.getBounds();
+		if (bounds==null) return null;
+		return new Rectangle2f(
+				bounds.getMinX() - DAMAGE_MARGIN,
+				bounds.getMinY() - DAMAGE_MARGIN,
+				bounds.getWidth() + 2f * DAMAGE_MARGIN,
+				bounds.getHeight() + 2f * DAMAGE_MARGIN);
+	}
+
+	private void attach(Figure figure) {
+		figure.addViewComponentRepaintListener(this.eventHandler);
+		Rectangle2f bounds = damagedBounds(figure);
+		this.renderedFigures.put(figure, bounds);
+		damage(bounds);
+	}
+
+	private void detach(Figure figure) {
+		figure.removeViewComponentRepaintListener(this.eventHandler);
+		damage(this.renderedFigures.getBounds(figure));
+		this.renderedFigures.remove(figure);
+	}
+
+	private void update(Figure figure) {
+		Rectangle2f old = this.renderedFigures.getBounds(figure);
+		Rectangle2f bounds = damagedBounds(figure);
+		damage(old);
+		damage(bounds);
+		this.renderedFigures.put(figure, bounds);
+	}
+
+	/** Mark the given area of the document as damaged.
+	 * 
+	 * @param area
+	 */
+	private void damage(Rectangle2f area) {
+		if (area!=null && !area.isEmpty() && !this.isFullyDamaged) {
+			if (this.damagedAreas.size()>=MAX_DAMAGED_AREAS) {
+				Rectangle2f union = area.clone();
+				for(Rectangle2f r : this.damagedAreas) {
+					union = union.createUnion(r);
+				}
+				this.damagedAreas.clear();
+				this.damagedAreas.add(union);
+			}
+			else {
+				this.damagedAreas.add(area);
+			}
+		}
+		repaint();
+	}
+
+	/** Render the damaged areas of the document into the picture.
+	 * 
+	 * @param width is the width of the overview.
+	 * @param height is the height of the overview.
+	 * @param document are the bounds of the document.
+	 */
+	private void updatePicture(int width, int height, Rectangle2f document) {
+		if (this.picture==null
+			|| this.picture.getWidth(null)!=width
+			|| this.picture.getHeight(null)!=height
+			|| !document.equals(this.pictureDocument)) {
+			if (this.picture==null
+				|| this.picture.getWidth(null)!=width
+				|| this.picture.getHeight(null)!=height) {
+				this.picture = VectorToolkit.image(width, height, false);
+			}
+			this.pictureDocument = document.clone();
+			this.pictureScale = Math.min(
+					width / document.getWidth(),
+					height / document.getHeight());
+			this.pictureX = (width - document.getWidth() * this.pictureScale) / 2f;
+			this.pictureY = (height - document.getHeight() * this.pictureScale) / 2f;
+			this.isFullyDamaged = true;
+		}
+
+		if (!this.isFullyDamaged && this.damagedAreas.isEmpty()) return;
+
+		Color background = this.view.getBackgroundColor();
+		ViewGraphics2D vg = ViewGraphicsUtil.createViewGraphics(
+				this.picture.getVectorGraphics(), false, false, Graphics2DLOD.LOW_LEVEL_OF_DETAIL);
+		try {
+			vg.setBackground(background);
+			if (this.isFullyDamaged) {
+				vg.clear(new Rectangle2f(0f, 0f, width, height));
+			}
+			vg.translate(this.pictureX, this.pictureY);
+			vg.scale(this.pictureScale, this.pictureScale);
+			vg.translate(-document.getMinX(), -document.getMinY());
+
+			if (this.isFullyDamaged) {
+				ViewGraphicsUtil.paintViewComponents(vg, this.view.getFigureSnapshot(), false, null);
+			}
+			else {
+				List<Figure> figures;
+				for(Rectangle2f area : this.damagedAreas) {
+					vg.setClip(area);
+					vg.clear(area);
+					figures = this.renderedFigures.getIntersectingObjects(area, null);
+					// The figures are painted from the front to the background
+					Collections.sort(figures, new ZOrderComparator(this.view));
+					ViewGraphicsUtil.paintViewComponents(vg, figures, false, area);
+				}
+			}
+		}
+		finally {
+			vg.dispose();
+		}
+		this.damagedAreas.clear();
+		this.isFullyDamaged = false;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected void paintComponent(Graphics g) {
+		Graphics2D g2d = (Graphics2D)g;
+		int width = getWidth();
+		int height = getHeight();
+		Rectangle2f document = this.view.getViewBounds();
+		if (width<=0 || height<=0 || document==null || document.isEmpty()) {
+			g2d.setColor(getBackground());
+			g2d.fillRect(0, 0, width, height);
+			return;
+		}
+
+		updatePicture(width, height, document);
+		g2d.drawImage(VectorToolkit.nativeUIObject(java.awt.Image.class, this.picture), 0, 0, null);
+
+		// Draw the visible area of the view
+		float x1 = this.view.pixel2logical_x(0);
+		float y1 = this.view.pixel2logical_y(0);
+		float x2 = this.view.pixel2logical_x(this.view.getWidth());
+		float y2 = this.view.pixel2logical_y(this.view.getHeight());
+		float s = this.pictureScale;
+		g2d.setColor(VectorToolkit.nativeUIObject(java.awt.Color.class, this.viewportColor));
+		g2d.draw(new Rectangle2D.Float(
+				this.pictureX + (Math.min(x1, x2) - document.getMinX()) * s,
+				this.pictureY + (Math.min(y1, y2) - document.getMinY()) * s,
+				Math.abs(x2 - x1) * s,
+				Math.abs(y2 - y1) * s));
+	}
+
+	/** Comparator of figures according to their
+	 * position in a view, from the front to the background.
+	 *
+	 * @author $Author: galland$
+	 * @version $FullVersion$
+	 * @mavengroupid $GroupId$
+	 * @mavenartifactid $ArtifactId$
+	 */
+	private static class ZOrderComparator implements Comparator<Figure> {
+
+		private final JFigureView<?> view;
+
+		/**
+		 * @param view
+		 */
+		public ZOrderComparator(JFigureView<?> view) {
+			this.view = view;
+		}
+
+		@Override
+		public int compare(Figure o1, Figure o2) {
+			int i1 = this.view.indexOfFigure(o1);
+			int i2 = this.view.indexOfFigure(o2);
+			return (i1<i2) ? -1 : ((i1>i2) ? 1 : 0);
+		}
+
+	}
+
+	/**
+	 * @author $Author: galland$
+	 * @version $FullVersion$
+	 * @mavengroupid $GroupId$
+	 * @mavenartifactid $ArtifactId$
+	 */
+	private class EventHandler implements FigureListener, ViewComponentLayoutListener, ChangeListener {
+
+		/**
+		 */
+		public EventHandler() {
+			//
+		}
+
+		@SuppressWarnings("synthetic-access")
+		@Override
+		public void figureAdded(FigureEvent event) {
+			Figure figure = event.getAddedFigure();
+			if (figure!=null) attach(figure);
+		}
+
+		@SuppressWarnings("synthetic-access")
+		@Override
+		public void figureRemoved(FigureEvent event) {
+			Figure figure = event.getRemovedFigure();
+			if (figure!=null) detach(figure);
+		}
+
+		@Override
+		public void figureChanged(FigureEvent event) {
+			// The change of the figure is notified by componentRepaint()
+		}
+
+		@SuppressWarnings("synthetic-access")
+		@Override
+		public void componentRepaint(ViewComponent component, boolean boundsChanged) {
+			if (component instanceof Figure) {
+				update((Figure)component);
+			}
+		}
+
+		@Override
+		public void collisionAvoidance(ViewComponent component) {
+			//
+		}
+
+		@Override
+		public void stateChanged(ChangeEvent e) {
+			// The visible area of the view has changed
+			repaint();
+		}
+
+	}
+
+}
@@ -0,0 +1,339 @@
+/* 
+ * $Id$
+ * 
+ * Copyright (C) 2013 Stephane GALLAND.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ * This program is free software; you can redistribute it and/or modify
+ */
+package org.arakhne.neteditor.swing.graphics;
+
+import java.awt.AlphaComposite;
+import java.awt.Graphics2D;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.util.EventListener;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/** Renderer that is painting the frames of a view
+ * in a background thread.
+ * <p>
+ * The frames are painted into a back buffer by a dedicated
+ * thread. When a frame is completed, it becomes the front
+ * buffer, and the previous front buffer is reused as the
+ * back buffer of the next frame. The event dispatching thread
+ * is only painting the front buffer with {@link #paint(Graphics2D)}.
+ * <p>
+ * When the frames are requested faster than they are rendered,
+ * the requests that are not started yet are replaced by the
+ * last one; so that the renderer is always painting the most
+ * recent state of the view.
+ *
+ * @author $Author: galland$
+ * @version $FullVersion$
+ * @mavengroupid $GroupId$
+ * @mavenartifactid $ArtifactId$
+ */
+public class BackgroundRenderer {
+
+	private final ExecutorService executor;
+	private final FrameListener listener;
+	private final Runnable renderingTask = new RenderingTask();
+
+	private final Object requestLock = new Object();
+	private Request pendingRequest = null;
+	private boolean isScheduled = false;
+	private int skippedFrames = 0;
+
+	private final Object frontLock = new Object();
+	private Request frontRequest = null;
+	private BufferedImage frontBuffer = null;
+
+	private BufferedImage backBuffer = null;
+
+	/**
+	 * @param listener is notified, from the rendering thread, when
+	 * a frame is completed.
+	 */
+	public BackgroundRenderer(FrameListener listener) {
+		this.listener = listener;
+		this.executor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread t = new Thread(r, "NetEditor Renderer"); //$NON-NLS-1$
+				t.setDaemon(true);
+				return t;
+			}
+		});
+	}
+
+	/** Stop the renderer. The pending requests are not rendered,
+	 * and the buffers are released.
+	 */
+	public void shutdown() {
+		this.executor.shutdownNow();
+		synchronized(this.requestLock) {
+			this.pendingRequest = null;
+		}
+		synchronized(this.frontLock) {
+			if (this.frontBuffer!=null) this.frontBuffer.flush();
+			this.frontBuffer = null;
+			this.frontRequest = null;
+		}
+	}
+
+	/** Request the rendering of a frame.
+	 * If a request is waiting for its rendering,
+	 * it is replaced by the given request.
+	 * 
+	 * @param request
+	 */
+	public void request(Request request) {
+		assert(request!=null);
+		synchronized(this.requestLock) {
+			if (this.pendingRequest!=null) ++this.skippedFrames;
+			this.pendingRequest = request;
+			if (!this.isScheduled && !this.executor.isShutdown()) {
+				this.isScheduled = true;
+				this.executor.execute(this.renderingTask);
+			}
+		}
+	}
+
+	/** Replies the number of requests that were replaced
+	 * by a more recent request before their rendering.
+	 * 
+	 * @return the number of skipped frames.
+	 */
+	public int getSkippedFrameCount() {
+		synchronized(this.requestLock) {
+			return this.skippedFrames;
+		}
+	}
+
+	/** Replies the request of the last completed frame.
+	 * 
+	 * @return the request of the front buffer, or <code>null</code>
+	 * if no frame was completed.
+	 */
+	public Request getCompletedRequest() {
+		synchronized(this.frontLock) {
+			return this.frontRequest;
+		}
+	}
+
+	/** Paint the last completed frame at the origin of the
+	 * given canvas.
+	 * 
+	 * @param canvas
+	 * @return the request of the painted frame, or <code>null</code>
+	 * if no frame was completed.
+	 */
+	public Request paint(Graphics2D canvas) {
+		return paint(canvas, null);
+	}
+
+	/** Paint the last completed frame on the given canvas,
+	 * transformed to match the given request.
+	 * It permits to give an immediate feedback when the
+	 * view has changed since the last completed frame,
+	 * eg. during a zoom or a pan.
+	 * 
+	 * @param canvas
+	 * @param current is the request of the frame that should be
+	 * displayed, or <code>null</code> to paint the completed
+	 * frame as-is.
+	 * @return the request of the painted frame, or <code>null</code>
+	 * if no frame was completed.
+	 * @see Request#getTransformFrom(Request)
+	 */
+	public Request paint(Graphics2D canvas, Request current) {
+		synchronized(this.frontLock) {
+			if (this.frontBuffer!=null) {
+				AffineTransform trans = null;
+				if (current!=null && current!=this.frontRequest) {
+					trans = current.getTransformFrom(this.frontRequest);
+				}
+				if (trans==null || trans.isIdentity()) {
+					canvas.drawImage(this.frontBuffer, 0, 0, null);
+				}
+				else {
+					canvas.drawImage(this.frontBuffer, trans, null);
+				}
+			}
+			return this.frontRequest;
+		}
+	}
+
+	/** Render the given request into the back buffer,
+	 * and swap the buffers.
+	 * 
+	 * @param request
+	 */
+	void render(Request request) {
+		int w = Math.max(1, request.getWidth());
+		int h = Math.max(1, request.getHeight());
+		BufferedImage image = this.backBuffer;
+		this.backBuffer = null;
+		if (image==null || image.getWidth()!=w || image.getHeight()!=h) {
+			if (image!=null) image.flush();
+			image = new BufferedImage(w, h, BufferedImage.TYPE_INT_ARGB);
+		}
+		Graphics2D g = image.createGraphics();
+		try {
+			g.setComposite(AlphaComposite.Clear);
+			g.fillRect(0, 0, w, h);
+			g.setComposite(AlphaComposite.SrcOver);
+			request.render(g);
+		}
+		catch(Throwable e) {
+			this.backBuffer = image;
+			if (this.listener!=null) this.listener.frameFailed(request, e);
+			return;
+		}
+		finally {
+			g.dispose();
+		}
+		synchronized(this.frontLock) {
+			this.backBuffer = this.frontBuffer;
+			this.frontBuffer = image;
+			this.frontRequest = request;
+		}
+		if (this.listener!=null) this.listener.frameRendered(request);
+	}
+
+	/** Task that is rendering the pending requests.
+	 *
+	 * @author $Author: galland$
+	 * @version $FullVersion$
+	 * @mavengroupid $GroupId$
+	 * @mavenartifactid $ArtifactId$
+	 */
+	private class RenderingTask implements Runnable {
+
+		/**
+		 */
+		public RenderingTask() {
+			//
+		}
+
+		@SuppressWarnings("synthetic-access")
+		@Override
+		public void run() {
+			Request request;
+			while (!Thread.currentThread().isInterrupted()) {
+				synchronized(BackgroundRenderer.this.requestLock) {
+					request = BackgroundRenderer.this.pendingRequest;
+					BackgroundRenderer.this.pendingRequest = null;
+					if (request==null) {
+						BackgroundRenderer.this.isScheduled = false;
+						return;
+					}
+				}
+				render(request);
+			}
+		}
+
+	}
+
+	/** Request of rendering of a frame.
+	 *
+	 * @author $Author: galland$
+	 * @version $FullVersion$
+	 * @mavengroupid $GroupId$
+	 * @mavenartifactid $ArtifactId$
+	 */
+	public static abstract class Request {
+
+		private final int width;
+		private final int height;
+
+		/**
+		 * @param width is the width of the frame.
+		 * @param height is the height of the frame.
+		 */
+		public Request(int width, int height) {
+			this.width = width;
+			this.height = height;
+		}
+
+		/** Replies the width of the frame.
+		 * 
+		 * @return the width of the frame.
+		 */
+		public int getWidth() {
+			return this.width;
+		}
+
+		/** Replies the height of the frame.
+		 * 
+		 * @return the height of the frame.
+		 */
+		public int getHeight() {
+			return this.height;
+		}
+
+		/** Replies the transformation from the pixels of
+		 * the frame of the given request to the pixels of
+		 * the frame of this request.
+		 * 
+		 * @param rendered is the request of a rendered frame.
+		 * @return the transformation, or <code>null</code>
+		 * if the frame must be painted as-is.
+		 */
+		protected AffineTransform getTransformFrom(Request rendered) {
+			return null;
+		}
+
+		/** Paint the frame. This function is invoked
+		 * from the rendering thread, on a cleared and
+		 * transparent buffer.
+		 * 
+		 * @param g is the canvas of the back buffer.
+		 */
+		protected abstract void render(Graphics2D g);
+
+	}
+
+	/** Listener on the frames rendered by a {@link BackgroundRenderer}.
+	 * The functions are invoked from the rendering thread.
+	 *
+	 * @author $Author: galland$
+	 * @version $FullVersion$
+	 * @mavengroupid $GroupId$
+	 * @mavenartifactid $ArtifactId$
+	 */
+	public interface FrameListener extends EventListener {
+
+		/** Invoked when a frame is completed and
+		 * became the front buffer.
+		 * 
+		 * @param request is the request of the frame.
+		 */
+		public void frameRendered(Request request);
+
+		/** Invoked when the rendering of a frame has failed.
+		 * The front buffer is unchanged.
+		 * 
+		 * @param request is the request of the frame.
+		 * @param error is the cause of the failure.
+		 */
+		public void frameFailed(Request request, Throwable error);
+
+	}
+
+}
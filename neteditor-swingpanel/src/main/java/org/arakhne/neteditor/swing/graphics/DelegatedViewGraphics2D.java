@@ -21,7 +21,6 @@
  */
 package org.arakhne.neteditor.swing.graphics;
 
-import java.util.LinkedList;
 import java.util.NoSuchElementException;
 
 import org.arakhne.afc.math.continous.object2d.Rectangle2f;
@@ -33,6 +32,7 @@ import org.arakhne.afc.ui.vector.Paint;
 import org.arakhne.afc.ui.vector.Stroke;
 import org.arakhne.afc.ui.vector.VectorGraphics2D;
 import org.arakhne.neteditor.fig.figure.Figure;
+import org.arakhne.neteditor.fig.graphics.RenderingContextStack;
 import org.arakhne.neteditor.fig.graphics.ViewGraphics2D;
 
 /** This is the implementation of a ViewGraphics2D which is
@@ -46,7 +46,12 @@ import org.arakhne.neteditor.fig.graphics.ViewGraphics2D;
  */
 public class DelegatedViewGraphics2D extends DelegatedVectorGraphics2D<VectorGraphics2D> implements ViewGraphics2D {
 
-	private final LinkedList<GContext> stack = new LinkedList<GContext>();
+	private final RenderingContextStack<GContext> stack = new RenderingContextStack<GContext>() {
+		@Override
+		protected GContext createFrame() {
+			return new GContext();
+		}
+	};
 
 	/**
 	 * @param context
@@ -76,7 +81,9 @@ public class DelegatedViewGraphics2D extends DelegatedVectorGraphics2D<VectorGra
 	 */
 	protected Figure getTopFigure() {
 		if (!this.stack.isEmpty()) {
-			for(GContext c : this.stack) {
+			GContext c;
+			for(int i=0; i<this.stack.size(); ++i) {
+				c = this.stack.get(i);
 				if (c.component!=null) return c.component;
 			}
 		}
@@ -94,7 +101,9 @@ public class DelegatedViewGraphics2D extends DelegatedVectorGraphics2D<VectorGra
 	@Override
 	public Rectangle2f getCurrentViewComponentBounds() {
 		if (!this.stack.isEmpty()) {
-			for(GContext c : this.stack) {
+			GContext c;
+			for(int i=0; i<this.stack.size(); ++i) {
+				c = this.stack.get(i);
 				if (c.bounds!=null) return c.bounds;
 			}
 		}
@@ -104,7 +113,9 @@ public class DelegatedViewGraphics2D extends DelegatedVectorGraphics2D<VectorGra
 	@Override
 	public Shape2f getCurrentViewComponentShape() {
 		if (!this.stack.isEmpty()) {
-			for(GContext c : this.stack) {
+			GContext c;
+			for(int i=0; i<this.stack.size(); ++i) {
+				c = this.stack.get(i);
 				if (c.bounds!=null && c.shape==null) return c.bounds;
 				if (c.shape!=null) return c.shape;
 			}
@@ -139,9 +150,11 @@ public class DelegatedViewGraphics2D extends DelegatedVectorGraphics2D<VectorGra
 	public void pushRenderingContext(Figure component, Shape2f viewShape,
 			Rectangle2f bounds, Color fillColor, Color lineColor,
 			Transform2D localTransformation) {
-		Transform2D oldTrans = this.delegate.getTransform();
-		
+		// The transformation is saved only when it is changed by this context,
+		// because getTransform() is allocating a new transformation.
+		Transform2D oldTrans = null;
 		if (localTransformation!=null) {
+			oldTrans = this.delegate.getTransform();
 			this.delegate.setTransform(localTransformation);
 		}
 
@@ -171,14 +184,17 @@ public class DelegatedViewGraphics2D extends DelegatedVectorGraphics2D<VectorGra
 		}
 		if (lc!=null) setOutlineColor(lc);
 
-		this.stack.push(new GContext(
-				component, viewShape, bounds,
-				ofc, olc,
-				this.delegate.getStroke(),
-				this.delegate.getPaint(),
-				isInteriorPainted(),
-				isOutlineDrawn(),
-				oldTrans));
+		GContext context = this.stack.push();
+		context.component = component;
+		context.shape = viewShape;
+		context.bounds = bounds;
+		context.fillColor = ofc;
+		context.lineColor = olc;
+		context.stroke = this.delegate.getStroke();
+		context.paint = this.delegate.getPaint();
+		context.isFilled = isInteriorPainted();
+		context.isOutlined = isOutlineDrawn();
+		context.transform = oldTrans;
 	}
 
 	@Override
@@ -225,46 +241,38 @@ public class DelegatedViewGraphics2D extends DelegatedVectorGraphics2D<VectorGra
 	 * @mavengroupid $GroupId$
 	 * @mavenartifactid $ArtifactId$
 	 */
-	private static class GContext {
+	private static class GContext implements RenderingContextStack.Frame {
+
+		public Figure component;
+		public Shape2f shape;
+		public Rectangle2f bounds;
+		public Color fillColor;
+		public Color lineColor;
+		public Stroke stroke;
+		public Paint paint;
+		public boolean isFilled;
+		public boolean isOutlined;
+		public Transform2D transform;
 
-		public final Figure component;
-		public final Shape2f shape;
-		public final Rectangle2f bounds;
-		public final Color fillColor;
-		public final Color lineColor;
-		public final Stroke stroke;
-		public final Paint paint;
-		public final boolean isFilled;
-		public final boolean isOutlined;
-		public final Transform2D transform;
+		/**
+		 */
+		public GContext() {
+			//
+		}
 
 		/**
-		 * @param component
-		 * @param shape
-		 * @param bounds
-		 * @param fillColor
-		 * @param lineColor
-		 * @param stroke
-		 * @param paint
-		 * @param isFilled
-		 * @param isOutlined
-		 * @param transform
+		 * {@inheritDoc}
 		 */
-		public GContext(Figure component, Shape2f shape, Rectangle2f bounds,
-				Color fillColor, Color lineColor,
-				Stroke stroke, Paint paint,
-				boolean isFilled, boolean isOutlined,
-				Transform2D transform) {
-			this.component = component;
-			this.shape = shape;
-			this.bounds = bounds;
-			this.fillColor = fillColor;
-			this.lineColor = lineColor;
-			this.stroke = stroke;
-			this.paint = paint;
-			this.isFilled = isFilled;
-			this.isOutlined = isOutlined;
-			this.transform = transform;
+		@Override
+		public void clear() {
+			this.component = null;
+			this.shape = null;
+			this.bounds = null;
+			this.fillColor = null;
+			this.lineColor = null;
+			this.stroke = null;
+			this.paint = null;
+			this.transform = null;
 		}
 
 	}
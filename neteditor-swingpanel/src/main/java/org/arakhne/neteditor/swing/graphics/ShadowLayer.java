@@ -0,0 +1,208 @@
+/* 
+ * $Id$
+ * 
+ * Copyright (C) 2013 Stephane GALLAND.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ * This program is free software; you can redistribute it and/or modify
+ */
+package org.arakhne.neteditor.swing.graphics;
+
+import java.awt.AlphaComposite;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+
+import org.arakhne.afc.ui.ZoomableContext;
+import org.arakhne.afc.ui.vector.Color;
+
+/** Layer that is caching the shadows of the figures
+ * of a view.
+ * <p>
+ * The shadows are rendered into a transparent picture
+ * that has the size of the view. The picture is rendered
+ * again only when the layer was invalidated, eg. when
+ * a figure has changed, or when the view parameters
+ * (size, scaling factor, translation, background) have
+ * changed since the last rendering. Otherwise, the
+ * picture is painted as-is, and the figures are not
+ * painted a second time to draw their shadows.
+ * <p>
+ * When only an area of the view is damaged, eg. when
+ * a figure was moved, the layer is kept and only the
+ * damaged area is rendered again.
+ *
+ * @author $Author: galland$
+ * @version $FullVersion$
+ * @mavengroupid $GroupId$
+ * @mavenartifactid $ArtifactId$
+ */
+public class ShadowLayer {
+
+	private BufferedImage image = null;
+	private boolean isValid = false;
+	private Rectangle damage = null;
+
+	private float originX;
+	private float originY;
+	private float scale;
+	private Color background;
+
+	/**
+	 */
+	public ShadowLayer() {
+		//
+	}
+
+	/** Invalidate the layer. The shadows will be
+	 * rendered again at the next paint.
+	 */
+	public void invalidate() {
+		this.isValid = false;
+		this.damage = null;
+	}
+
+	/** Invalidate an area of the layer. If the layer is valid,
+	 * only the damaged areas will be rendered again at the next paint.
+	 * 
+	 * @param area is the damaged area, in pixels.
+	 */
+	public void invalidate(Rectangle area) {
+		if (this.isValid && this.image!=null) {
+			Rectangle r = area.intersection(
+					new Rectangle(0, 0, this.image.getWidth(), this.image.getHeight()));
+			if (!r.isEmpty()) {
+				this.damage = (this.damage==null) ? r : this.damage.union(r);
+			}
+		}
+	}
+
+	/** Replies the area of the layer that must be rendered again.
+	 * 
+	 * @return the damaged area in pixels, or <code>null</code>
+	 * if no area is damaged.
+	 */
+	public Rectangle getDamagedArea() {
+		return this.damage;
+	}
+
+	/** Release the picture of the layer.
+	 */
+	public void release() {
+		this.isValid = false;
+		this.damage = null;
+		if (this.image!=null) {
+			this.image.flush();
+			this.image = null;
+		}
+		this.background = null;
+	}
+
+	/** Replies if the layer could be painted with the given parameters,
+	 * after the rendering of its {@link #getDamagedArea() damaged area}.
+	 * 
+	 * @param width is the width of the view.
+	 * @param height is the height of the view.
+	 * @param context is the zooming context of the view.
+	 * @param background is the background color of the view.
+	 * @return <code>true</code> if the layer does not need to
+	 * be rendered; otherwise <code>false</code>.
+	 */
+	public boolean isValidFor(int width, int height, ZoomableContext context, Color background) {
+		return this.isValid
+				&& this.image!=null
+				&& this.image.getWidth()==width
+				&& this.image.getHeight()==height
+				&& this.originX==context.logical2pixel_x(0)
+				&& this.originY==context.logical2pixel_y(0)
+				&& this.scale==context.logical2pixel_size(1)
+				&& (background==null ? this.background==null : background.equals(this.background));
+	}
+
+	/** Start the rendering of the layer.
+	 * The picture of the layer is cleared, and
+	 * the replied graphical context permits to draw on it.
+	 * The caller must dispose the replied context and
+	 * invoke {@link #endRendering()} when the shadows
+	 * are drawn.
+	 * 
+	 * @param width is the width of the view.
+	 * @param height is the height of the view.
+	 * @param context is the zooming context of the view.
+	 * @param background is the background color of the view.
+	 * @return the graphical context to draw on the layer.
+	 * @see #beginRepairing()
+	 */
+	public Graphics2D beginRendering(int width, int height, ZoomableContext context, Color background) {
+		int w = Math.max(1, width);
+		int h = Math.max(1, height);
+		if (this.image==null || this.image.getWidth()!=w || this.image.getHeight()!=h) {
+			if (this.image!=null) this.image.flush();
+			this.image = new BufferedImage(w, h, BufferedImage.TYPE_INT_ARGB);
+		}
+		this.isValid = false;
+		this.damage = null;
+		this.originX = context.logical2pixel_x(0);
+		this.originY = context.logical2pixel_y(0);
+		this.scale = context.logical2pixel_size(1);
+		this.background = background;
+		Graphics2D g = this.image.createGraphics();
+		g.setComposite(AlphaComposite.Clear);
+		g.fillRect(0, 0, w, h);
+		g.setComposite(AlphaComposite.SrcOver);
+		return g;
+	}
+
+	/** Start the rendering of the damaged area of the layer.
+	 * The damaged area is cleared, and the replied graphical
+	 * context permits to draw on it; it is clipped to the
+	 * damaged area. The caller must dispose the replied context and
+	 * invoke {@link #endRendering()} when the shadows are drawn.
+	 * 
+	 * @return the graphical context to draw on the layer,
+	 * or <code>null</code> if no area is damaged.
+	 * @see #beginRendering(int, int, ZoomableContext, Color)
+	 */
+	public Graphics2D beginRepairing() {
+		if (this.image==null || this.damage==null) return null;
+		Graphics2D g = this.image.createGraphics();
+		g.setComposite(AlphaComposite.Clear);
+		g.fill(this.damage);
+		g.setComposite(AlphaComposite.SrcOver);
+		g.clip(this.damage);
+		return g;
+	}
+
+	/** Terminate the rendering of the layer started
+	 * with {@link #beginRendering(int, int, ZoomableContext, Color)}
+	 * or {@link #beginRepairing()}.
+	 */
+	public void endRendering() {
+		this.isValid = (this.image!=null);
+		this.damage = null;
+	}
+
+	/** Paint the layer on the given canvas.
+	 * The layer is painted at the origin of the canvas.
+	 * 
+	 * @param canvas is the canvas to paint on.
+	 */
+	public void paint(Graphics2D canvas) {
+		if (this.image!=null) {
+			canvas.drawImage(this.image, 0, 0, null);
+		}
+	}
+
+}
@@ -22,16 +22,17 @@ package org.arakhne.neteditor.swing.graphics;
 
 import java.awt.Graphics2D;
 import java.awt.geom.AffineTransform;
-import java.util.LinkedList;
 import java.util.NoSuchElementException;
 
 import org.arakhne.afc.math.continous.object2d.Rectangle2f;
 import org.arakhne.afc.math.continous.object2d.Shape2f;
 import org.arakhne.afc.math.matrix.Transform2D;
 import org.arakhne.afc.ui.CenteringTransform;
+import org.arakhne.afc.ui.Graphics2DLOD;
 import org.arakhne.afc.ui.swing.zoom.ZoomableGraphics2D;
 import org.arakhne.afc.ui.vector.Color;
 import org.arakhne.neteditor.fig.figure.Figure;
+import org.arakhne.neteditor.fig.graphics.RenderingContextStack;
 import org.arakhne.neteditor.fig.graphics.ViewGraphics2D;
 import org.arakhne.neteditor.fig.view.ViewComponentConstants;
 
@@ -46,11 +47,17 @@ import org.arakhne.neteditor.fig.view.ViewComponentConstants;
  */
 public class SwingViewGraphics2D extends ZoomableGraphics2D implements ViewGraphics2D {
 
-	private final LinkedList<GContext> stack = new LinkedList<GContext>();
+	private final RenderingContextStack<GContext> stack = new RenderingContextStack<GContext>() {
+		@Override
+		protected GContext createFrame() {
+			return new GContext();
+		}
+	};
 
 	private transient Rectangle2f currentViewComponentBounds = null;
 	private transient Shape2f currentViewComponentShape = null;
 	private transient Figure topFigure = null;
+	private Graphics2DLOD lod = null;
 	
 	/**
 	 * @param canvas
@@ -107,6 +114,21 @@ public class SwingViewGraphics2D extends ZoomableGraphics2D implements ViewGraph
 		super.reset();
 	}
 	
+	/** Force the level of detail of this graphics context.
+	 * 
+	 * @param lod is the level of detail, or <code>null</code>
+	 * to use the level of detail given by the rendering parameters.
+	 */
+	public void setLOD(Graphics2DLOD lod) {
+		this.lod = lod;
+	}
+
+	@Override
+	public Graphics2DLOD getLOD() {
+		if (this.lod!=null) return this.lod;
+		return super.getLOD();
+	}
+
 	@Override
 	public boolean isShadowDrawing() {
 		return false;
@@ -181,9 +203,11 @@ public class SwingViewGraphics2D extends ZoomableGraphics2D implements ViewGraph
 	public void pushRenderingContext(Figure component, Shape2f viewShape,
 			Rectangle2f bounds, Color fillColor, Color lineColor,
 			Transform2D localTransformation) {
-		AffineTransform oldTrans = this.canvas.getTransform();
-		
+		// The transformation is saved only when it is changed by this context,
+		// because getTransform() is allocating a new transformation.
+		AffineTransform oldTrans = null;
 		if (localTransformation!=null) {
+			oldTrans = this.canvas.getTransform();
 			this.canvas.setTransform(convertTransformation(localTransformation, this.scale));
 		}
 
@@ -227,14 +251,17 @@ public class SwingViewGraphics2D extends ZoomableGraphics2D implements ViewGraph
 		if (component!=null)
 			this.topFigure = component;
 
-		this.stack.push(new GContext(
-				oldFigure, oldShape, oldBounds,
-				ofc, olc,
-				this.canvas.getStroke(),
-				this.canvas.getPaint(),
-				isInteriorPainted(),
-				isOutlineDrawn(),
-				oldTrans));
+		GContext context = this.stack.push();
+		context.component = oldFigure;
+		context.shape = oldShape;
+		context.bounds = oldBounds;
+		context.fillColor = ofc;
+		context.lineColor = olc;
+		context.stroke = this.canvas.getStroke();
+		context.paint = this.canvas.getPaint();
+		context.isFilled = isInteriorPainted();
+		context.isOutlined = isOutlineDrawn();
+		context.transform = oldTrans;
 	}
 
 	@Override
@@ -288,46 +315,38 @@ public class SwingViewGraphics2D extends ZoomableGraphics2D implements ViewGraph
 	 * @mavengroupid $GroupId$
 	 * @mavenartifactid $ArtifactId$
 	 */
-	private static class GContext {
-
-		public final Figure component;
-		public final Shape2f shape;
-		public final Rectangle2f bounds;
-		public final Color fillColor;
-		public final Color lineColor;
-		public final java.awt.Stroke stroke;
-		public final java.awt.Paint paint;
-		public final boolean isFilled;
-		public final boolean isOutlined;
-		public final AffineTransform transform;
+	private static class GContext implements RenderingContextStack.Frame {
+
+		public Figure component;
+		public Shape2f shape;
+		public Rectangle2f bounds;
+		public Color fillColor;
+		public Color lineColor;
+		public java.awt.Stroke stroke;
+		public java.awt.Paint paint;
+		public boolean isFilled;
+		public boolean isOutlined;
+		public AffineTransform transform;
+
+		/**
+		 */
+		public GContext() {
+			//
+		}
 
 		/**
-		 * @param component
-		 * @param shape
-		 * @param bounds
-		 * @param fillColor
-		 * @param lineColor
-		 * @param stroke
-		 * @param paint
-		 * @param isFilled
-		 * @param isOutlined
-		 * @param transform
+		 * {@inheritDoc}
 		 */
-		public GContext(Figure component, Shape2f shape, Rectangle2f bounds,
-				Color fillColor, Color lineColor,
-				java.awt.Stroke stroke, java.awt.Paint paint,
-				boolean isFilled, boolean isOutlined,
-				AffineTransform transform) {
-			this.component = component;
-			this.shape = shape;
-			this.bounds = bounds;
-			this.fillColor = fillColor;
-			this.lineColor = lineColor;
-			this.stroke = stroke;
-			this.paint = paint;
-			this.isFilled = isFilled;
-			this.isOutlined = isOutlined;
-			this.transform = transform;
+		@Override
+		public void clear() {
+			this.component = null;
+			this.shape = null;
+			this.bounds = null;
+			this.fillColor = null;
+			this.lineColor = null;
+			this.stroke = null;
+			this.paint = null;
+			this.transform = null;
 		}
 
 	}